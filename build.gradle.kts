@@ -18,6 +18,13 @@ java {
     targetCompatibility = javaVersion
 }
 
+val jmh: SourceSet by sourceSets.creating {
+    compileClasspath += sourceSets.main.get().output
+    runtimeClasspath += sourceSets.main.get().output
+}
+
+configurations[jmh.implementationConfigurationName].extendsFrom(configurations.implementation.get())
+
 dependencies {
     annotationProcessor(libs.lombok)
     compileOnly(libs.lombok)
@@ -28,6 +35,8 @@ dependencies {
     testImplementation(platform(libs.junit.jupiter))
     testImplementation("org.junit.jupiter:junit-jupiter")
     testRuntimeOnly("org.junit.platform:junit-platform-launcher")
+    "jmhImplementation"(libs.jmh.core)
+    "jmhAnnotationProcessor"(libs.jmh.generator)
 }
 
 java {
@@ -85,6 +94,38 @@ tasks.jacocoTestCoverageVerification {
     }
 }
 
+tasks.register<JavaExec>("jmh") {
+    description = "Runs the JMH benchmarks and writes the results to build/reports/jmh/results.json. " +
+        "Options: -Pjmh.includes=<regex>, -Pjmh.threads=<n>, -Pjmh.params=<name=v1,v2;name2=v3>."
+    group = "verification"
+    classpath = jmh.runtimeClasspath
+    mainClass.set("org.openjdk.jmh.Main")
+    val results = layout.buildDirectory.file("reports/jmh/results.json").get().asFile
+    args(providers.gradleProperty("jmh.includes").getOrElse(".*"))
+    args("-rf", "json", "-rff", results.absolutePath)
+    providers.gradleProperty("jmh.threads").orNull?.let { args("-t", it) }
+    providers.gradleProperty("jmh.params").orNull?.split(";")?.forEach { args("-p", it) }
+    doFirst {
+        results.parentFile.mkdirs()
+    }
+}
+
+tasks.register<JavaExec>("httpLoadTest") {
+    description = "Runs the load-test client against the HTTP reservation server, an embedded one unless " +
+        "url=<base URI> is given. Arguments as for run, e.g. --args=\"clients=10000 url=http://localhost:8080\"."
+    group = "application"
+    classpath = sourceSets.main.get().runtimeClasspath
+    mainClass.set("rk.powermilk.cinema.http.HttpLoadClient")
+}
+
+tasks.register<JavaExec>("replicationHarness") {
+    description = "Runs a replication primary and its followers over loopback and measures replication lag and " +
+        "read scale-out, e.g. --args=\"followers=4 readers=2 seconds=10\"."
+    group = "application"
+    classpath = sourceSets.main.get().runtimeClasspath
+    mainClass.set("rk.powermilk.cinema.replication.ReplicationHarness")
+}
+
 tasks.register("cleanReports") {
     doLast {
         delete("${layout.buildDirectory}/reports")
@@ -0,0 +1,58 @@
+package rk.powermilk.cinema;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+/**
+ * How benchmark clients pick seats.
+ * <p>
+ * Seat picks are generated up front, so that drawing random numbers does not show up in the measurements.
+ */
+public enum ContentionProfile {
+    /**
+     * Every seat is equally likely, like the random seat picks in {@code Main}.
+     */
+    UNIFORM {
+        @Override
+        public int[] picks(int seats, int count, SplittableRandom random) {
+            return random.ints(count, 1, seats + 1).toArray();
+        }
+    },
+    /**
+     * Seat popularity follows a Zipf distribution with exponent 1: seat 1 is the most wanted, seat {@code k}
+     * is wanted {@code k} times less often. Models an on-sale rush for the best seats.
+     */
+    ZIPF {
+        @Override
+        public int[] picks(int seats, int count, SplittableRandom random) {
+            double[] cumulative = new double[seats];
+            double sum = 0;
+            for (int rank = 1; rank <= seats; rank++) {
+                sum += 1.0 / rank;
+                cumulative[rank - 1] = sum;
+            }
+            int[] picks = new int[count];
+            for (int i = 0; i < count; i++) {
+                double target = random.nextDouble() * sum;
+                int index = Arrays.binarySearch(cumulative, target);
+                picks[i] = (index >= 0 ? index : -index - 1) + 1;
+            }
+            return picks;
+        }
+    };
+
+    /**
+     * Number of pre-generated picks each benchmark thread cycles through.
+     */
+    public static final int PICKS = 1 << 16;
+
+    /**
+     * Generates seat picks.
+     *
+     * @param seats  the number of seats in the hall
+     * @param count  the number of picks
+     * @param random the source of randomness
+     * @return seat numbers between 1 and {@code seats}
+     */
+    public abstract int[] picks(int seats, int count, SplittableRandom random);
+}
@@ -0,0 +1,65 @@
+package rk.powermilk.cinema.metrics;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import rk.powermilk.cinema.model.Cinema;
+import rk.powermilk.cinema.model.HallLayout;
+import rk.powermilk.cinema.store.ArraySeatStore;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of {@link ReservationMetrics} on the single-seat hot paths, against a cinema without metrics. The hot-seat
+ * case sends every thread to a handful of seats, where an unsampled per-seat counter would be contended.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(4)
+public class MetricsOverheadBenchmark {
+    private static final int SEATS = 10_000;
+    private static final int HOT_SEATS = 4;
+    private static final String CLIENT_ID = "benchmark-client";
+
+    @Param({"false", "true"})
+    boolean metered;
+
+    Cinema cinema;
+
+    @Setup
+    public void setUp() {
+        CinemaMetrics metrics = metered ? new ReservationMetrics(SEATS, 10) : CinemaMetrics.NOOP;
+        cinema = new Cinema(HallLayout.singleRow(SEATS), new ArraySeatStore(SEATS), metrics);
+    }
+
+    @Benchmark
+    public boolean reserveOrCancel() {
+        int seatNumber = ThreadLocalRandom.current().nextInt(SEATS) + 1;
+        return cinema.reserveSeat(seatNumber, CLIENT_ID) || cinema.cancelReservation(seatNumber, CLIENT_ID);
+    }
+
+    @Benchmark
+    public boolean reserveOrCancelHotSeat() {
+        int seatNumber = ThreadLocalRandom.current().nextInt(HOT_SEATS) + 1;
+        return cinema.reserveSeat(seatNumber, CLIENT_ID) || cinema.cancelReservation(seatNumber, CLIENT_ID);
+    }
+
+    @Benchmark
+    public boolean query() {
+        return cinema.isSeatAvailable(ThreadLocalRandom.current().nextInt(SEATS) + 1);
+    }
+}
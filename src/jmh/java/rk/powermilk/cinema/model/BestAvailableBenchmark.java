@@ -0,0 +1,56 @@
+package rk.powermilk.cinema.model;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Optional;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the latency of {@link Cinema#findContiguousBlock(int, SeatPreference)} on a 50,000 seat hall
+ * (200 rows of 250 seats) with a given share of seats already sold at random.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BestAvailableBenchmark {
+    @Param({"0.5", "0.9", "0.99"})
+    double occupancy;
+
+    @Param({"4"})
+    int blockSize;
+
+    @Param({"FRONT", "CENTER"})
+    SeatPreference preference;
+
+    Cinema cinema;
+
+    @Setup
+    public void setUp() {
+        cinema = new Cinema(HallLayout.of(200, 250));
+        SplittableRandom random = new SplittableRandom(42);
+        for (int seat = 1; seat <= cinema.getSeatsCount(); seat++) {
+            if (random.nextDouble() < occupancy) {
+                cinema.reserveSeat(seat, "pre-sold");
+            }
+        }
+    }
+
+    @Benchmark
+    public Optional<SeatBlock> findContiguousBlock() {
+        return cinema.findContiguousBlock(blockSize, preference);
+    }
+}
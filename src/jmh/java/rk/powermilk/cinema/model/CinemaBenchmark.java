@@ -0,0 +1,123 @@
+package rk.powermilk.cinema.model;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import rk.powermilk.cinema.ContentionProfile;
+import rk.powermilk.cinema.store.ArraySeatStore;
+import rk.powermilk.cinema.store.MapSeatStore;
+import rk.powermilk.cinema.store.OffHeapSeatStore;
+import rk.powermilk.cinema.store.SeatStore;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Throughput of the {@link Cinema} hot paths across hall sizes, seat storages and contention profiles.
+ * <p>
+ * The {@code churn} group runs reserving and cancelling threads side by side on a shared client ID, so the hall
+ * stays partly occupied and both operations win and lose races like under real traffic; JMH reports each
+ * side separately. Thread counts are set with {@code -Pjmh.threads} (a multiple of the group size for the
+ * group) and any parameter can be narrowed with {@code -Pjmh.params}, for example
+ * {@code -Pjmh.params="seats=100;profile=ZIPF"}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CinemaBenchmark {
+    private static final String CLIENT_ID = "benchmark-client";
+
+    @Param({"100", "10000", "1000000"})
+    int seats;
+
+    @Param({"UNIFORM", "ZIPF"})
+    ContentionProfile profile;
+
+    @Param({"ARRAY", "MAP", "OFF_HEAP"})
+    String store;
+
+    Cinema cinema;
+    SeatStore seatStore;
+    private final AtomicLong seeds = new AtomicLong(42);
+
+    @Setup
+    public void setUp() {
+        seatStore = switch (store) {
+            case "MAP" -> new MapSeatStore(seats);
+            case "OFF_HEAP" -> new OffHeapSeatStore(seats);
+            default -> new ArraySeatStore(seats);
+        };
+        cinema = new Cinema(seatStore);
+        SplittableRandom random = new SplittableRandom(7);
+        for (int seat = 1; seat <= seats; seat++) {
+            if (random.nextBoolean()) {
+                cinema.reserveSeat(seat, CLIENT_ID);
+            }
+        }
+    }
+
+    /**
+     * Pre-generated seat picks of a single benchmark thread.
+     */
+    @State(Scope.Thread)
+    public static class Picks {
+        int[] seats;
+        int next;
+
+        @Setup
+        public void setUp(CinemaBenchmark benchmark) {
+            SplittableRandom random = new SplittableRandom(benchmark.seeds.getAndIncrement());
+            seats = benchmark.profile.picks(benchmark.seats, ContentionProfile.PICKS, random);
+        }
+
+        int next() {
+            return seats[next++ & (ContentionProfile.PICKS - 1)];
+        }
+    }
+
+    @Benchmark
+    @Group("churn")
+    @GroupThreads
+    public boolean reserveSeat(Picks picks) {
+        return cinema.reserveSeat(picks.next(), CLIENT_ID);
+    }
+
+    @Benchmark
+    @Group("churn")
+    @GroupThreads
+    public boolean cancelReservation(Picks picks) {
+        return cinema.cancelReservation(picks.next(), CLIENT_ID);
+    }
+
+    @Benchmark
+    public boolean isSeatAvailable(Picks picks) {
+        return cinema.isSeatAvailable(picks.next());
+    }
+
+    @Benchmark
+    public long getReservedSeatsCount() {
+        return cinema.getReservedSeatsCount();
+    }
+
+    /**
+     * Baseline for {@link #getReservedSeatsCount()}: the full scan it used to perform on every call.
+     */
+    @Benchmark
+    public long countReservedByScan() {
+        return seatStore.countReserved();
+    }
+}
@@ -0,0 +1,88 @@
+package rk.powermilk.cinema.model;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+/**
+ * Compares {@link Cinema#reserveSeats(int[], String)} with reserving a group seat by seat and rolling back
+ * by hand, while many clients compete for overlapping blocks in a small hall.
+ * <p>
+ * Both benchmarks release a successfully booked group straight away, so the hall never fills up; the score
+ * counts attempts, whether they succeed or not.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(8)
+public class GroupReservationBenchmark {
+    @Param({"64"})
+    int seats;
+
+    @Param({"6"})
+    int groupSize;
+
+    Cinema cinema;
+
+    @Setup
+    public void setUp() {
+        cinema = new Cinema(seats);
+    }
+
+    /**
+     * Identity and block choice of a single benchmark thread.
+     */
+    @State(Scope.Thread)
+    public static class Client {
+        final String id = UUID.randomUUID().toString();
+
+        int[] nextGroup(int seats, int groupSize) {
+            int first = ThreadLocalRandom.current().nextInt(seats - groupSize + 1) + 1;
+            return IntStream.range(first, first + groupSize).toArray();
+        }
+    }
+
+    @Benchmark
+    public boolean atomicGroup(Client client) {
+        int[] group = client.nextGroup(seats, groupSize);
+        boolean reserved = cinema.reserveSeats(group, client.id);
+        if (reserved) {
+            cinema.cancelSeats(group, client.id);
+        }
+        return reserved;
+    }
+
+    @Benchmark
+    public boolean loopOfSingles(Client client) {
+        int[] group = client.nextGroup(seats, groupSize);
+        for (int i = 0; i < group.length; i++) {
+            if (!cinema.reserveSeat(group[i], client.id)) {
+                for (int j = 0; j < i; j++) {
+                    cinema.cancelReservation(group[j], client.id);
+                }
+                return false;
+            }
+        }
+        for (int seat : group) {
+            cinema.cancelReservation(seat, client.id);
+        }
+        return true;
+    }
+}
@@ -0,0 +1,60 @@
+package rk.powermilk.cinema.model;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import rk.powermilk.cinema.error.IllegalSeatReservedException;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of rejecting an invalid seat number, as bots probing for seats cause it.
+ * <p>
+ * {@code stackTraceException} reproduces the former behaviour: an exception with a captured stack trace and an
+ * eagerly built message, caught by the caller. {@code legacyException} is today's throwing API, whose exception
+ * skips both, and {@code resultCode} is the non-throwing {@link Cinema#tryReserve(int, String)}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class InvalidSeatBenchmark {
+    private static final String CLIENT_ID = "benchmark-bot";
+
+    final Cinema cinema = new Cinema();
+    int seatNumber = -1;
+
+    @Benchmark
+    public Object stackTraceException() {
+        try {
+            if (!cinema.isValidSeat(seatNumber)) {
+                throw new ArrayIndexOutOfBoundsException("Seat number " + seatNumber + " is invalid.");
+            }
+            return cinema.reserveSeat(seatNumber, CLIENT_ID);
+        } catch (ArrayIndexOutOfBoundsException e) {
+            return e;
+        }
+    }
+
+    @Benchmark
+    public Object legacyException() {
+        try {
+            return cinema.reserveSeat(seatNumber, CLIENT_ID);
+        } catch (IllegalSeatReservedException e) {
+            return e;
+        }
+    }
+
+    @Benchmark
+    public ReservationOutcome resultCode() {
+        return cinema.tryReserve(seatNumber, CLIENT_ID);
+    }
+}
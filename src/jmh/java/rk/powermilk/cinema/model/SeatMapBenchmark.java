@@ -0,0 +1,92 @@
+package rk.powermilk.cinema.model;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Rendering a seat map while a writer keeps reserving and cancelling, with many more readers than writers.
+ * <p>
+ * {@code perSeat} renders by calling {@link Cinema#isSeatAvailable(int)} for every seat, as renderers did
+ * before; {@code seatMap} takes one {@link Cinema#getSeatMap()} view and reads it. The writer methods of both
+ * groups show how much the readers slow down reservations.
+ */
+@State(Scope.Group)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SeatMapBenchmark {
+    private static final String CLIENT_ID = "benchmark-writer";
+
+    @Param({"1024", "65536"})
+    int seats;
+
+    Cinema cinema;
+
+    @Setup
+    public void setUp() {
+        cinema = new Cinema(HallLayout.of(seats / 64, 64));
+        cinema.getSeatMap();
+    }
+
+    private boolean churn() {
+        int seat = ThreadLocalRandom.current().nextInt(seats) + 1;
+        return cinema.reserveSeat(seat, CLIENT_ID) || cinema.cancelReservation(seat, CLIENT_ID);
+    }
+
+    @Benchmark
+    @Group("perSeat")
+    @GroupThreads(1)
+    public boolean perSeatWriter() {
+        return churn();
+    }
+
+    @Benchmark
+    @Group("perSeat")
+    @GroupThreads(7)
+    public int perSeatReader() {
+        int available = 0;
+        for (int seat = 1; seat <= seats; seat++) {
+            if (cinema.isSeatAvailable(seat)) {
+                available++;
+            }
+        }
+        return available;
+    }
+
+    @Benchmark
+    @Group("seatMap")
+    @GroupThreads(1)
+    public boolean seatMapWriter() {
+        return churn();
+    }
+
+    @Benchmark
+    @Group("seatMap")
+    @GroupThreads(7)
+    public int seatMapReader() {
+        SeatMapView view = cinema.getSeatMap();
+        int available = 0;
+        for (int seat = 1; seat <= seats; seat++) {
+            if (view.isAvailable(seat)) {
+                available++;
+            }
+        }
+        return available;
+    }
+}
@@ -0,0 +1,123 @@
+package rk.powermilk.cinema.model;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import rk.powermilk.cinema.store.ArraySeatStore;
+import rk.powermilk.cinema.store.SeatStore;
+import tools.jackson.databind.ObjectMapper;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+/**
+ * Compares {@link Cinema#snapshotTo(Path)} and {@link Cinema#restoreFrom(Path)} with a naive JSON dump of the
+ * same state through Jackson: the row lengths and a map from every reserved seat to its client ID.
+ * <p>
+ * The hall has 100,000 seats, 80% of them reserved by the given number of distinct clients.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SnapshotBenchmark {
+    private static final HallLayout LAYOUT = HallLayout.of(400, 250);
+
+    @Param({"100", "10000"})
+    int clients;
+
+    SeatStore store;
+    Cinema cinema;
+    ObjectMapper mapper;
+    Path directory;
+    Path compact;
+    File json;
+
+    /**
+     * The naive format: everything as JSON objects.
+     *
+     * @param rows     the seats per row
+     * @param reserved the client ID of every reserved seat
+     */
+    public record JsonSnapshot(int[] rows, Map<Integer, String> reserved) {
+    }
+
+    @Setup
+    public void setUp() throws IOException {
+        store = new ArraySeatStore(LAYOUT.capacity());
+        cinema = new Cinema(LAYOUT, store);
+        SplittableRandom random = new SplittableRandom(42);
+        for (int seat = 1; seat <= LAYOUT.capacity(); seat++) {
+            if (random.nextInt(10) < 8) {
+                cinema.reserveSeat(seat, "client-" + random.nextInt(clients));
+            }
+        }
+        mapper = new ObjectMapper();
+        directory = Files.createTempDirectory("snapshot-benchmark");
+        compact = directory.resolve("cinema.snapshot");
+        json = directory.resolve("cinema.json").toFile();
+        writeCompact();
+        writeJson();
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            for (Path file : files.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(file);
+            }
+        }
+    }
+
+    @Benchmark
+    public long writeCompact() {
+        cinema.snapshotTo(compact);
+        return compact.toFile().length();
+    }
+
+    @Benchmark
+    public long restoreCompact() {
+        return Cinema.restoreFrom(compact).getReservedSeatsCount();
+    }
+
+    @Benchmark
+    public long writeJson() throws IOException {
+        Map<Integer, String> reserved = new HashMap<>();
+        store.forEach((seatNumber, clientId, version) -> {
+            if (clientId != null) {
+                reserved.put(seatNumber, clientId);
+            }
+        });
+        int[] rows = IntStream.rangeClosed(1, LAYOUT.rows()).map(LAYOUT::seatsInRow).toArray();
+        mapper.writeValue(json, new JsonSnapshot(rows, reserved));
+        return json.length();
+    }
+
+    @Benchmark
+    public long restoreJson() throws IOException {
+        JsonSnapshot snapshot = mapper.readValue(json, JsonSnapshot.class);
+        Cinema restored = new Cinema(HallLayout.ofRows(snapshot.rows()));
+        snapshot.reserved().forEach((seat, clientId) -> restored.reserveSeat(seat, clientId));
+        return restored.getReservedSeatsCount();
+    }
+}
@@ -0,0 +1,128 @@
+package rk.powermilk.cinema.model;
+
+import com.sun.management.OperatingSystemMXBean;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Compares waiting for a hot seat through {@link Cinema#waitForSeat(int, String)} with retrying
+ * {@link Cinema#reserveSeat(int, String)} after a short back-off until it succeeds.
+ * <p>
+ * Every invocation is one on-sale round: the seat starts taken, and each client, on its own virtual thread,
+ * wants it once, holds it for a while and cancels it. The score is the time until every client had the seat.
+ * Two counters are reported alongside: {@code cpuMillis}, the CPU time the whole process spent on the round,
+ * and {@code overtakes}, the number of pairs of clients served in the opposite order from the one they started
+ * waiting in; a fair queue keeps it near zero.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 20)
+@Fork(1)
+public class WaitlistBenchmark {
+    private static final int HOT_SEAT = 1;
+    private static final OperatingSystemMXBean OS =
+        (OperatingSystemMXBean) ManagementFactory.getOperatingSystemMXBean();
+
+    @Param({"256"})
+    int clients;
+
+    @Param({"20"})
+    int holdMicros;
+
+    @Param({"10"})
+    int retryMicros;
+
+    /**
+     * Counters of the rounds run by one benchmark thread.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Round {
+        public double cpuMillis;
+        public long overtakes;
+    }
+
+    @Benchmark
+    public void retryPolling(Round round) throws InterruptedException {
+        long retryNanos = TimeUnit.MICROSECONDS.toNanos(retryMicros);
+        run(round, (cinema, clientId) -> {
+            while (!cinema.reserveSeat(HOT_SEAT, clientId)) {
+                LockSupport.parkNanos(retryNanos);
+            }
+        });
+    }
+
+    @Benchmark
+    public void waitlist(Round round) throws InterruptedException {
+        run(round, (cinema, clientId) -> cinema.waitForSeat(HOT_SEAT, clientId).join());
+    }
+
+    private void run(Round round, Acquire acquire) throws InterruptedException {
+        long cpu = OS.getProcessCpuTime();
+        long holdNanos = TimeUnit.MICROSECONDS.toNanos(holdMicros);
+        Cinema cinema = new Cinema(100);
+        cinema.reserveSeat(HOT_SEAT, "owner");
+        AtomicInteger arrivals = new AtomicInteger();
+        AtomicInteger services = new AtomicInteger();
+        int[] arrivalOfService = new int[clients];
+        CountDownLatch start = new CountDownLatch(1);
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < clients; i++) {
+                String clientId = "client-" + i;
+                executor.submit(() -> {
+                    start.await();
+                    int arrival = arrivals.getAndIncrement();
+                    acquire.acquire(cinema, clientId);
+                    arrivalOfService[services.getAndIncrement()] = arrival;
+                    LockSupport.parkNanos(holdNanos);
+                    cinema.cancelReservation(HOT_SEAT, clientId);
+                    return null;
+                });
+            }
+            start.countDown();
+            LockSupport.parkNanos(holdNanos);
+            cinema.cancelReservation(HOT_SEAT, "owner");
+        }
+        round.cpuMillis += (OS.getProcessCpuTime() - cpu) / 1e6;
+        round.overtakes += inversions(arrivalOfService);
+    }
+
+    private static long inversions(int[] arrivals) {
+        long inversions = 0;
+        for (int i = 0; i < arrivals.length; i++) {
+            for (int j = i + 1; j < arrivals.length; j++) {
+                if (arrivals[i] > arrivals[j]) {
+                    inversions++;
+                }
+            }
+        }
+        return inversions;
+    }
+
+    /**
+     * Way a client gets the hot seat.
+     */
+    @FunctionalInterface
+    private interface Acquire {
+        void acquire(Cinema cinema, String clientId);
+    }
+}
@@ -0,0 +1,99 @@
+package rk.powermilk.cinema.persistence;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import rk.powermilk.cinema.model.Cinema;
+import rk.powermilk.cinema.model.HallLayout;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+/**
+ * Throughput of reservations on a journaled cinema, compared with the same cinema without a journal.
+ * <p>
+ * With {@code GROUP_COMMIT} every reservation waits until its record is on disk, and the score shows how well
+ * concurrent clients share forces; with {@code ASYNC} it shows the cost of appending alone.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(8)
+public class DurableCinemaBenchmark {
+    private static final HallLayout LAYOUT = HallLayout.of(40, 25);
+
+    @Param({"NONE", "ASYNC", "GROUP_COMMIT"})
+    String mode;
+
+    Path directory;
+    DurableCinema durable;
+    Cinema cinema;
+    private final AtomicInteger threads = new AtomicInteger();
+
+    @Setup
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("durable-cinema");
+        if (mode.equals("NONE")) {
+            cinema = new Cinema(LAYOUT);
+        } else {
+            durable = DurableCinema.open(directory, LAYOUT, new JournalOptions(JournalOptions.DEFAULT_SEGMENT_SIZE,
+                SyncMode.valueOf(mode), Duration.ofMillis(10), Duration.ofSeconds(1)));
+            cinema = durable.cinema();
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        if (durable != null) {
+            durable.close();
+        }
+        try (Stream<Path> files = Files.walk(directory)) {
+            for (Path file : files.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(file);
+            }
+        }
+    }
+
+    /**
+     * Seats of a single benchmark thread, so that every attempt succeeds and is journaled.
+     */
+    @State(Scope.Thread)
+    public static class Client {
+        String clientId;
+        int first;
+        int seat;
+
+        @Setup
+        public void setUp(DurableCinemaBenchmark benchmark) {
+            int thread = benchmark.threads.getAndIncrement();
+            clientId = "client-" + thread;
+            first = thread % 10 * 100 + 1;
+        }
+    }
+
+    @Benchmark
+    public boolean reserveAndCancel(Client client) {
+        int seat = client.first + client.seat++ % 100;
+        cinema.reserveSeat(seat, client.clientId);
+        return cinema.cancelReservation(seat, client.clientId);
+    }
+}
@@ -0,0 +1,77 @@
+package rk.powermilk.cinema.persistence;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import rk.powermilk.cinema.model.HallLayout;
+import rk.powermilk.cinema.model.SeatTransition;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Measures how long {@link DurableCinema#open(Path, HallLayout, JournalOptions)} takes to replay a journal of
+ * the given number of transitions, without a snapshot, into a 100,000 seat hall.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+@Fork(1)
+public class JournalRecoveryBenchmark {
+    private static final HallLayout LAYOUT = HallLayout.of(400, 250);
+    private static final JournalOptions OPTIONS =
+        new JournalOptions(JournalOptions.DEFAULT_SEGMENT_SIZE, SyncMode.ASYNC, Duration.ofSeconds(1), Duration.ZERO);
+
+    @Param({"1000000", "10000000"})
+    int events;
+
+    Path directory;
+
+    @Setup
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("journal-recovery");
+        int[] versions = new int[LAYOUT.capacity() + 1];
+        SplittableRandom random = new SplittableRandom(42);
+        try (Journal journal = Journal.open(directory, OPTIONS)) {
+            for (int i = 0; i < events; i++) {
+                int seat = random.nextInt(LAYOUT.capacity()) + 1;
+                int version = ++versions[seat];
+                SeatTransition transition = version % 2 == 1 ? SeatTransition.RESERVED : SeatTransition.CANCELLED;
+                journal.append(transition, seat, "client-" + seat % 1_000, version);
+            }
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            for (Path file : files.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(file);
+            }
+        }
+    }
+
+    @Benchmark
+    public long recover() {
+        try (DurableCinema durable = DurableCinema.open(directory, LAYOUT, OPTIONS)) {
+            return durable.cinema().getReservedSeatsCount();
+        }
+    }
+}
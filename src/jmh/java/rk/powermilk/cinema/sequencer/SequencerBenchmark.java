@@ -0,0 +1,104 @@
+package rk.powermilk.cinema.sequencer;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import rk.powermilk.cinema.model.Cinema;
+import rk.powermilk.cinema.model.HallLayout;
+import rk.powermilk.cinema.model.ReservationOutcome;
+import rk.powermilk.cinema.store.ArraySeatStore;
+import rk.powermilk.cinema.store.MapSeatStore;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Hot-seat workload against the concurrent {@link Cinema} storages and the single-writer {@link SequencedCinema}.
+ * <p>
+ * Every thread sends windows of {@value #WINDOW} random reserve and cancel requests for a handful of hot seats in a
+ * 100,000 seat hall. The concurrent cinemas apply them one after the other on the calling thread; the sequencer
+ * gets the whole window submitted before waiting for the outcomes, so its writer can batch them.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(16)
+public class SequencerBenchmark {
+    private static final int SEATS = 100_000;
+    private static final int WINDOW = 32;
+    private static final String CLIENT_ID = "benchmark-client";
+
+    @Param({"MAP", "ARRAY", "SEQUENCER"})
+    String mode;
+
+    @Param({"16", "256"})
+    int hotSeats;
+
+    Cinema cinema;
+    SequencedCinema sequenced;
+
+    @Setup
+    public void setUp() {
+        HallLayout layout = HallLayout.singleRow(SEATS);
+        switch (mode) {
+            case "MAP" -> cinema = new Cinema(layout, new MapSeatStore(SEATS));
+            case "ARRAY" -> cinema = new Cinema(layout, new ArraySeatStore(SEATS));
+            default -> sequenced = new SequencedCinema(layout);
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        if (sequenced != null) {
+            sequenced.close();
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(WINDOW)
+    public int reserveAndCancel() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int succeeded = 0;
+        if (sequenced == null) {
+            for (int i = 0; i < WINDOW; i++) {
+                int seatNumber = random.nextInt(hotSeats) + 1;
+                ReservationOutcome outcome = random.nextBoolean()
+                    ? cinema.tryReserve(seatNumber, CLIENT_ID)
+                    : cinema.tryCancel(seatNumber, CLIENT_ID);
+                if (outcome == ReservationOutcome.OK) {
+                    succeeded++;
+                }
+            }
+            return succeeded;
+        }
+        @SuppressWarnings("unchecked")
+        CompletableFuture<ReservationOutcome>[] window = new CompletableFuture[WINDOW];
+        for (int i = 0; i < WINDOW; i++) {
+            int seatNumber = random.nextInt(hotSeats) + 1;
+            window[i] = random.nextBoolean()
+                ? sequenced.reserve(seatNumber, CLIENT_ID)
+                : sequenced.cancel(seatNumber, CLIENT_ID);
+        }
+        for (CompletableFuture<ReservationOutcome> outcome : window) {
+            if (outcome.join() == ReservationOutcome.OK) {
+                succeeded++;
+            }
+        }
+        return succeeded;
+    }
+}
@@ -0,0 +1,86 @@
+package rk.powermilk.cinema.store;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import rk.powermilk.cinema.model.Cinema;
+import rk.powermilk.cinema.model.HallLayout;
+
+import java.lang.foreign.Arena;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of provisioning the seat storage of a season of screenings: a number of halls of the given size, created
+ * one after another with a first reservation each and, for {@link OffHeapSeatStore}, freed together with their
+ * arena. The {@code cinemaOn} benchmarks provision a whole {@link Cinema} in rows of 100 seats on each store, so
+ * they include its free-seat index and counters. Run with {@code -prof gc} to compare the heap allocated per
+ * season.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ProvisioningBenchmark {
+    private static final int SCREENINGS = 100;
+
+    @Param({"1000", "100000"})
+    int seats;
+
+    HallLayout layout;
+
+    @Setup
+    public void setUp() {
+        layout = HallLayout.of(seats / 100, 100);
+    }
+
+    @Benchmark
+    public long array() {
+        long reserved = 0;
+        for (int i = 0; i < SCREENINGS; i++) {
+            reserved += new ArraySeatStore(seats).reserve(1, "first-client");
+        }
+        return reserved;
+    }
+
+    @Benchmark
+    public long offHeap() {
+        try (Arena arena = Arena.ofShared()) {
+            long reserved = 0;
+            for (int i = 0; i < SCREENINGS; i++) {
+                reserved += new OffHeapSeatStore(seats, arena).reserve(1, "first-client");
+            }
+            return reserved;
+        }
+    }
+
+    @Benchmark
+    public long cinemaOnArray() {
+        long reserved = 0;
+        for (int i = 0; i < SCREENINGS; i++) {
+            reserved += new Cinema(layout, new ArraySeatStore(seats)).reserveSeat(1, "first-client") ? 1 : 0;
+        }
+        return reserved;
+    }
+
+    @Benchmark
+    public long cinemaOnOffHeap() {
+        try (Arena arena = Arena.ofShared()) {
+            long reserved = 0;
+            for (int i = 0; i < SCREENINGS; i++) {
+                Cinema cinema = new Cinema(layout, new OffHeapSeatStore(seats, arena));
+                reserved += cinema.reserveSeat(1, "first-client") ? 1 : 0;
+            }
+            return reserved;
+        }
+    }
+}
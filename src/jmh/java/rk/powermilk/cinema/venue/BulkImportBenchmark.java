@@ -0,0 +1,79 @@
+package rk.powermilk.cinema.venue;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import rk.powermilk.cinema.model.Cinema;
+import rk.powermilk.cinema.model.HallLayout;
+
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntFunction;
+
+/**
+ * Compares importing pre-sold seats into many screenings through {@link ScreeningRegistry#importReservations(Map)}
+ * with calling {@link Cinema#reserveSeat(int, String)} for every seat.
+ * <p>
+ * Every invocation fills fresh screenings of 5,000 seats each, sold in blocks of four seats per client; with
+ * the default 2,000 screenings that is 10 million seats. The bulk import should scale with the cores the
+ * common fork-join pool gets.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx6g")
+public class BulkImportBenchmark {
+    private static final HallLayout LAYOUT = HallLayout.of(50, 100);
+    private static final int BLOCK = 4;
+
+    @Param({"2000"})
+    int screenings;
+
+    ScreeningRegistry registry;
+    Map<String, IntFunction<String>> presold;
+
+    @Setup(Level.Invocation)
+    public void setUp() {
+        String[] clients = new String[LAYOUT.capacity() / BLOCK + 1];
+        for (int i = 0; i < clients.length; i++) {
+            clients[i] = "client-" + i;
+        }
+        registry = new ScreeningRegistry();
+        presold = new HashMap<>();
+        for (int i = 0; i < screenings; i++) {
+            String screeningId = "screening-" + i;
+            registry.register(new Screening(screeningId, LAYOUT, Instant.MAX));
+            presold.put(screeningId, seat -> clients[(seat - 1) / BLOCK]);
+        }
+    }
+
+    @Benchmark
+    public long seatBySeat() {
+        long reserved = 0;
+        for (Map.Entry<String, IntFunction<String>> entry : presold.entrySet()) {
+            Cinema cinema = registry.cinema(entry.getKey());
+            for (int seat = 1; seat <= LAYOUT.capacity(); seat++) {
+                reserved += cinema.reserveSeat(seat, entry.getValue().apply(seat)) ? 1 : 0;
+            }
+        }
+        return reserved;
+    }
+
+    @Benchmark
+    public long bulkImport() {
+        return registry.importReservations(presold);
+    }
+}
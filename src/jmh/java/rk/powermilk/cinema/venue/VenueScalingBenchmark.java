@@ -0,0 +1,107 @@
+package rk.powermilk.cinema.venue;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import rk.powermilk.cinema.model.Cinema;
+import rk.powermilk.cinema.model.HallLayout;
+
+import java.time.Instant;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Scaling of {@link Venue} throughput with the number of cores.
+ * <p>
+ * Every benchmark thread books and releases seats of its own screening, pipelining a batch of requests to the
+ * screening's shard and waiting for the last one; shards apply requests in order, so that covers the batch.
+ * Run with increasing {@code -Pjmh.threads} and {@code shards} set to match; throughput should grow close to
+ * linearly until the machine runs out of cores.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class VenueScalingBenchmark {
+    private static final int BATCH = 1_000;
+    private static final int SCREENINGS = 256;
+
+    @Param({"1", "2", "4", "8"})
+    int shards;
+
+    ScreeningRegistry registry;
+    Venue venue;
+    private final AtomicInteger threads = new AtomicInteger();
+
+    @Setup
+    public void setUp() {
+        registry = new ScreeningRegistry();
+        for (int i = 0; i < SCREENINGS; i++) {
+            registry.register(new Screening("screening-" + i, HallLayout.of(20, 25), Instant.MAX));
+        }
+        venue = new Venue(registry, shards);
+    }
+
+    @TearDown
+    public void tearDown() {
+        venue.close();
+    }
+
+    /**
+     * The screening a benchmark thread books.
+     */
+    @State(Scope.Thread)
+    public static class Client {
+        String screeningId;
+        String clientId;
+        int seat;
+
+        @Setup
+        public void setUp(VenueScalingBenchmark benchmark) {
+            int thread = benchmark.threads.getAndIncrement();
+            screeningId = "screening-" + thread % SCREENINGS;
+            clientId = "client-" + thread;
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public boolean venueShards(Client client) {
+        CompletableFuture<Boolean> last = null;
+        for (int i = 0; i < BATCH; i += 2) {
+            client.seat = client.seat % 500 + 1;
+            venue.reserveSeat(client.screeningId, client.seat, client.clientId);
+            last = venue.cancelReservation(client.screeningId, client.seat, client.clientId);
+        }
+        return last.join();
+    }
+
+    /**
+     * Baseline without shard executors: every thread works on its screening's cinema directly.
+     */
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public boolean directCinema(Client client) {
+        boolean result = false;
+        Cinema cinema = registry.cinema(client.screeningId);
+        for (int i = 0; i < BATCH; i += 2) {
+            client.seat = client.seat % 500 + 1;
+            cinema.reserveSeat(client.seat, client.clientId);
+            result = cinema.cancelReservation(client.seat, client.clientId);
+        }
+        return result;
+    }
+}
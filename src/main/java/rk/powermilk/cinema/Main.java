@@ -1,32 +1,37 @@
 package rk.powermilk.cinema;
 
 import lombok.extern.slf4j.Slf4j;
+import rk.powermilk.cinema.event.LoggingOutcomeSink;
+import rk.powermilk.cinema.event.OutcomeChannel;
+import rk.powermilk.cinema.event.OutcomeMode;
+import rk.powermilk.cinema.event.OutcomeOptions;
+import rk.powermilk.cinema.load.LoadDriver;
+import rk.powermilk.cinema.load.LoadProfile;
+import rk.powermilk.cinema.load.LoadReport;
+import rk.powermilk.cinema.load.LoadTarget;
 import rk.powermilk.cinema.model.Cinema;
-import rk.powermilk.cinema.model.ClientTask;
 
-import java.util.Random;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.stream.IntStream;
+import java.time.Duration;
 
 /**
  * Entry point for the Cinema Reservation application.
  * <p>
- * Initializes a cinema with a default number of seats and runs multiple concurrent client tasks
- * that attempt to reserve or cancel seats.
+ * Initializes a cinema with a default number of seats and rehearses an on-sale spike against it: a crowd of
+ * simulated clients on virtual threads reserve, cancel and check seats, and the throughput and latency
+ * percentiles are logged. The load is shaped by {@code name=value} arguments; see {@link LoadProfile#parse}.
+ * Request outcomes go through an {@link OutcomeChannel} in aggregated mode, which logs their counts once a second.
  */
 @Slf4j
 public class Main {
     public static void main(String[] args) {
         Cinema cinema = new Cinema();
-        try (ExecutorService executor = Executors.newFixedThreadPool(10)) {
-            final Random random = new Random();
-            IntStream.range(1, 100)
-                .mapToObj(i -> new ClientTask(cinema, random.nextInt(100) + 1))
-                .forEachOrdered(executor::execute);
-
-        } // try-with-resources ensures shutdown
-
+        LoadProfile profile = LoadProfile.parse(args);
+        LoadReport report;
+        try (OutcomeChannel outcomes = new OutcomeChannel(new LoggingOutcomeSink(),
+            new OutcomeOptions(OutcomeMode.AGGREGATED, 2, 1, Duration.ofSeconds(1)))) {
+            report = LoadDriver.run(LoadTarget.of(cinema), profile, outcomes);
+        }
+        report.log(profile.clients());
         log.info("Final reservation count: {}", cinema.getReservedSeatsCount());
     }
 }
@@ -2,9 +2,36 @@ package rk.powermilk.cinema.error;
 
 /**
  * Exception thrown when a seat number is invalid (out of bounds).
+ * <p>
+ * Invalid seat numbers come from client input and can arrive in floods, so the exception does not capture a
+ * stack trace, and when created for a seat number it builds its message only if asked for it. Callers that
+ * expect invalid input should prefer the result codes of {@code Cinema.tryReserve} and {@code Cinema.tryCancel}.
  */
 public class IllegalSeatReservedException extends ArrayIndexOutOfBoundsException {
+    private final int seatNumber;
+
     public IllegalSeatReservedException(String message) {
         super(message);
+        this.seatNumber = 0;
+    }
+
+    /**
+     * Creates the exception for an invalid seat number.
+     *
+     * @param seatNumber the invalid seat number
+     */
+    public IllegalSeatReservedException(int seatNumber) {
+        this.seatNumber = seatNumber;
+    }
+
+    @Override
+    public String getMessage() {
+        String message = super.getMessage();
+        return message != null ? message : "Seat number " + seatNumber + " is invalid.";
+    }
+
+    @Override
+    public synchronized Throwable fillInStackTrace() {
+        return this;
     }
 }
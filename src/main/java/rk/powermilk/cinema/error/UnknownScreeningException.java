@@ -0,0 +1,12 @@
+package rk.powermilk.cinema.error;
+
+import java.util.NoSuchElementException;
+
+/**
+ * Exception thrown when a screening ID is not registered, or its screening has already been evicted.
+ */
+public class UnknownScreeningException extends NoSuchElementException {
+    public UnknownScreeningException(String message) {
+        super(message);
+    }
+}
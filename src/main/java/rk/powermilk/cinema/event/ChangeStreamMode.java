@@ -0,0 +1,16 @@
+package rk.powermilk.cinema.event;
+
+/**
+ * Which changes a {@link SeatChangePublisher} hands to its subscribers.
+ */
+public enum ChangeStreamMode {
+    /**
+     * Every change is delivered, in the order it was published.
+     */
+    EVERY,
+    /**
+     * Changes are collected for one tick and only the latest change of each seat is delivered, so a seat that
+     * flips several times within a tick costs subscribers a single update.
+     */
+    COALESCED
+}
@@ -0,0 +1,46 @@
+package rk.powermilk.cinema.event;
+
+import java.time.Duration;
+
+/**
+ * Settings of a {@link SeatChangePublisher}.
+ *
+ * @param mode       whether every change or one change per seat and tick is delivered
+ * @param capacity   the number of slots of the ring buffer between the writers and the dispatcher; a power of two
+ * @param bufferSize the largest number of changes buffered for one subscriber
+ * @param tick       the longest time the dispatcher sleeps when the ring is empty, and in
+ *                   {@link ChangeStreamMode#COALESCED} mode the time over which changes are merged
+ * @param overflow   what happens to a subscriber whose buffer is full
+ */
+public record ChangeStreamOptions(ChangeStreamMode mode, int capacity, int bufferSize, Duration tick,
+                                  OverflowPolicy overflow) {
+
+    /**
+     * Validates the settings.
+     *
+     * @throws IllegalArgumentException if the capacity is not a power of two of at least 2, the buffer size is
+     *                                  not positive or the tick is not positive
+     */
+    public ChangeStreamOptions {
+        if (capacity < 2 || Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("Capacity must be a power of two of at least 2: " + capacity);
+        }
+        if (bufferSize <= 0) {
+            throw new IllegalArgumentException("Buffer size must be positive: " + bufferSize);
+        }
+        if (!tick.isPositive()) {
+            throw new IllegalArgumentException("Tick must be positive: " + tick);
+        }
+    }
+
+    /**
+     * Returns the default settings: every change, 8,192 slots, 1,024 buffered changes per subscriber, a 10 ms
+     * tick and a resync on overflow.
+     *
+     * @return the default settings
+     */
+    public static ChangeStreamOptions defaults() {
+        return new ChangeStreamOptions(ChangeStreamMode.EVERY, 8_192, 1_024, Duration.ofMillis(10),
+            OverflowPolicy.RESYNC);
+    }
+}
@@ -0,0 +1,78 @@
+package rk.powermilk.cinema.event;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Appends outcomes to a file as comma-separated lines: {@code timestamp,outcome,seat,client}. Summaries are
+ * written with the seat and client fields left empty and the count in the last field.
+ */
+public class FileOutcomeSink implements OutcomeSink, AutoCloseable {
+    private final BufferedWriter writer;
+
+    /**
+     * Opens the file for appending, creating it if missing.
+     *
+     * @param path the file to write
+     * @throws UncheckedIOException if the file cannot be opened
+     */
+    public FileOutcomeSink(Path path) {
+        try {
+            this.writer = Files.newBufferedWriter(path, StandardCharsets.UTF_8, StandardOpenOption.CREATE,
+                StandardOpenOption.APPEND);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public void outcome(long timestamp, Outcome outcome, int seatNumber, String clientId) {
+        write(timestamp, outcome, Integer.toString(seatNumber), clientId);
+    }
+
+    @Override
+    public void summary(Outcome outcome, long count) {
+        write(System.currentTimeMillis(), outcome, "", Long.toString(count));
+    }
+
+    @Override
+    public void flush() {
+        try {
+            writer.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Flushes and closes the file.
+     */
+    @Override
+    public void close() {
+        try {
+            writer.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void write(long timestamp, Outcome outcome, String seat, String last) {
+        try {
+            writer.write(Long.toString(timestamp));
+            writer.write(',');
+            writer.write(outcome.name());
+            writer.write(',');
+            writer.write(seat);
+            writer.write(',');
+            writer.write(last);
+            writer.newLine();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
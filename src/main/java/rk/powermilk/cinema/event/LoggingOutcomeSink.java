@@ -0,0 +1,31 @@
+package rk.powermilk.cinema.event;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Writes outcomes to the application log, one line each, formatted on the drainer thread.
+ */
+@Slf4j
+public class LoggingOutcomeSink implements OutcomeSink {
+
+    @Override
+    public void outcome(long timestamp, Outcome outcome, int seatNumber, String clientId) {
+        if (outcome == Outcome.INVALID_SEAT) {
+            log.warn("Client {} {} seat {}", clientId, outcome.description(), seatNumber);
+        } else {
+            log.info("Client {} {} seat {}", clientId, outcome.description(), seatNumber);
+        }
+    }
+
+    @Override
+    public void summary(Outcome outcome, long count) {
+        if (count > 0) {
+            log.info("{}: {}", outcome, count);
+        }
+    }
+
+    @Override
+    public void dropped(long count) {
+        log.warn("{} outcomes were dropped because the outcome buffer was full", count);
+    }
+}
@@ -0,0 +1,42 @@
+package rk.powermilk.cinema.event;
+
+/**
+ * Result of a client request, as published to an {@link OutcomeChannel}.
+ */
+public enum Outcome {
+    /**
+     * The seat was reserved for the client.
+     */
+    RESERVED("reserved"),
+    /**
+     * The seat was already taken.
+     */
+    RESERVE_FAILED("couldn't reserve"),
+    /**
+     * The client's reservation was cancelled.
+     */
+    CANCELLED("canceled reservation for"),
+    /**
+     * The seat was free or held by another client.
+     */
+    CANCEL_FAILED("couldn't cancel reservation for"),
+    /**
+     * The seat does not exist.
+     */
+    INVALID_SEAT("asked for invalid");
+
+    private final String description;
+
+    Outcome(String description) {
+        this.description = description;
+    }
+
+    /**
+     * Returns the verb phrase used when the outcome is logged, as in "Client X reserved seat 5".
+     *
+     * @return the description
+     */
+    public String description() {
+        return description;
+    }
+}
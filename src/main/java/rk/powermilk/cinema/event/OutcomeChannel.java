@@ -0,0 +1,196 @@
+package rk.powermilk.cinema.event;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Pre-allocated channel that takes request outcomes off the hot path and hands them to an {@link OutcomeSink} on
+ * a background thread.
+ * <p>
+ * Outcomes are stored in a ring of fixed-size slots held in parallel primitive arrays, so publishing writes a
+ * few fields and allocates nothing; formatting and I/O happen on the drainer thread. Publishers claim a slot
+ * with a compare-and-set on the claim counter and mark it published with its sequence number, in the style of
+ * a multi-producer disruptor. Publishing never blocks: when the drainer has fallen a full ring behind, the
+ * outcome is dropped and counted, and the sink is told how many were lost. Every outcome is also counted per
+ * kind, whatever the {@link OutcomeMode}.
+ */
+@Slf4j
+public final class OutcomeChannel implements AutoCloseable {
+    private final OutcomeSink sink;
+    private final OutcomeOptions options;
+    private final int mask;
+    private final long[] timestamps;
+    private final byte[] outcomes;
+    private final int[] seatNumbers;
+    private final String[] clientIds;
+    private final AtomicLongArray published;
+    private final AtomicLong claimed = new AtomicLong();
+    private final AtomicLong drained = new AtomicLong();
+    private final LongAdder[] counts = new LongAdder[Outcome.values().length];
+    private final LongAdder dropped = new LongAdder();
+    private final Thread drainer;
+    private volatile boolean closed;
+
+    /**
+     * Creates a channel and starts its drainer thread.
+     *
+     * @param sink    the destination of the outcomes
+     * @param options the channel settings
+     */
+    public OutcomeChannel(OutcomeSink sink, OutcomeOptions options) {
+        this.sink = sink;
+        this.options = options;
+        int capacity = options.mode() == OutcomeMode.AGGREGATED ? 2 : options.capacity();
+        this.mask = capacity - 1;
+        this.timestamps = new long[capacity];
+        this.outcomes = new byte[capacity];
+        this.seatNumbers = new int[capacity];
+        this.clientIds = new String[capacity];
+        this.published = new AtomicLongArray(capacity);
+        for (int slot = 0; slot < capacity; slot++) {
+            published.set(slot, slot - capacity);
+        }
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] = new LongAdder();
+        }
+        this.drainer = Thread.ofPlatform().daemon().name("outcome-drainer").start(this::drain);
+    }
+
+    /**
+     * Returns the channel shared by tasks that are not given their own: every outcome is written to the
+     * application log. It is started on first use and runs until the JVM exits.
+     *
+     * @return the shared channel
+     */
+    public static OutcomeChannel shared() {
+        return Shared.CHANNEL;
+    }
+
+    /**
+     * Publishes an outcome. Never blocks and allocates nothing.
+     *
+     * @param outcome    the outcome
+     * @param seatNumber the seat number of the request
+     * @param clientId   the ID of the client
+     */
+    public void publish(Outcome outcome, int seatNumber, String clientId) {
+        counts[outcome.ordinal()].increment();
+        OutcomeMode mode = options.mode();
+        if (mode == OutcomeMode.AGGREGATED || closed
+            || mode == OutcomeMode.SAMPLED && ThreadLocalRandom.current().nextInt(options.sampleEvery()) != 0) {
+            return;
+        }
+        long sequence;
+        do {
+            sequence = claimed.get();
+            if (sequence - drained.get() > mask) {
+                dropped.increment();
+                return;
+            }
+        } while (!claimed.compareAndSet(sequence, sequence + 1));
+        int slot = (int) sequence & mask;
+        timestamps[slot] = System.currentTimeMillis();
+        outcomes[slot] = (byte) outcome.ordinal();
+        seatNumbers[slot] = seatNumber;
+        clientIds[slot] = clientId;
+        published.lazySet(slot, sequence);
+    }
+
+    /**
+     * Returns how many outcomes of a kind were published, including those that were sampled out or dropped.
+     *
+     * @param outcome the outcome
+     * @return the number of times it was published
+     */
+    public long count(Outcome outcome) {
+        return counts[outcome.ordinal()].sum();
+    }
+
+    /**
+     * Returns how many outcomes were lost because the ring buffer was full.
+     *
+     * @return the number of dropped outcomes
+     */
+    public long dropped() {
+        return dropped.sum();
+    }
+
+    /**
+     * Stops accepting outcomes, hands everything queued to the sink and stops the drainer.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        LockSupport.unpark(drainer);
+        try {
+            drainer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void drain() {
+        Outcome[] kinds = Outcome.values();
+        long[] reported = new long[kinds.length];
+        long interval = options.drainInterval().toNanos();
+        long nextSummary = System.nanoTime() + interval;
+        long reportedDrops = 0;
+        while (true) {
+            boolean stopping = closed;
+            long sequence = drained.get();
+            int slot = (int) sequence & mask;
+            if (published.get(slot) == sequence) {
+                String clientId = clientIds[slot];
+                clientIds[slot] = null;
+                deliver(timestamps[slot], kinds[outcomes[slot]], seatNumbers[slot], clientId);
+                drained.lazySet(sequence + 1);
+                continue;
+            }
+            long drops = dropped.sum();
+            if (drops != reportedDrops) {
+                sink.dropped(drops - reportedDrops);
+                reportedDrops = drops;
+            }
+            if (options.mode() == OutcomeMode.AGGREGATED && (stopping || System.nanoTime() - nextSummary >= 0)) {
+                for (Outcome kind : kinds) {
+                    long total = count(kind);
+                    sink.summary(kind, total - reported[kind.ordinal()]);
+                    reported[kind.ordinal()] = total;
+                }
+                nextSummary = System.nanoTime() + interval;
+            }
+            flushSink();
+            if (stopping && claimed.get() == sequence) {
+                return;
+            }
+            LockSupport.parkNanos(this, stopping ? TimeUnit.MICROSECONDS.toNanos(10) : interval);
+        }
+    }
+
+    private void deliver(long timestamp, Outcome outcome, int seatNumber, String clientId) {
+        try {
+            sink.outcome(timestamp, outcome, seatNumber, clientId);
+        } catch (RuntimeException e) {
+            log.error("Outcome sink failed", e);
+        }
+    }
+
+    private void flushSink() {
+        try {
+            sink.flush();
+        } catch (RuntimeException e) {
+            log.error("Outcome sink failed", e);
+        }
+    }
+
+    private static final class Shared {
+        private static final OutcomeChannel CHANNEL =
+            new OutcomeChannel(new LoggingOutcomeSink(), OutcomeOptions.defaults());
+    }
+}
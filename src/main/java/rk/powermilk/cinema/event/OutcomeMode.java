@@ -0,0 +1,19 @@
+package rk.powermilk.cinema.event;
+
+/**
+ * How much of the outcome stream an {@link OutcomeChannel} hands to its sink.
+ */
+public enum OutcomeMode {
+    /**
+     * Every outcome is queued and handed to the sink.
+     */
+    EVERY,
+    /**
+     * A random one in {@link OutcomeOptions#sampleEvery()} outcomes is queued and handed to the sink.
+     */
+    SAMPLED,
+    /**
+     * Outcomes are only counted; the sink receives the counts once per drain interval.
+     */
+    AGGREGATED
+}
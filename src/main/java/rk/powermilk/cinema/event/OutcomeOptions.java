@@ -0,0 +1,42 @@
+package rk.powermilk.cinema.event;
+
+import java.time.Duration;
+
+/**
+ * Settings of an {@link OutcomeChannel}.
+ *
+ * @param mode          how much of the outcome stream reaches the sink
+ * @param capacity      the number of slots of the ring buffer; a power of two
+ * @param sampleEvery   in {@link OutcomeMode#SAMPLED} mode, one in how many outcomes is queued
+ * @param drainInterval the longest time the drainer sleeps when the buffer is empty, and in
+ *                      {@link OutcomeMode#AGGREGATED} mode the time between two reports of the counts
+ */
+public record OutcomeOptions(OutcomeMode mode, int capacity, int sampleEvery, Duration drainInterval) {
+
+    /**
+     * Validates the settings.
+     *
+     * @throws IllegalArgumentException if the capacity is not a power of two of at least 2, the sample rate is
+     *                                  not positive or the drain interval is not positive
+     */
+    public OutcomeOptions {
+        if (capacity < 2 || Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("Capacity must be a power of two of at least 2: " + capacity);
+        }
+        if (sampleEvery <= 0) {
+            throw new IllegalArgumentException("Sample rate must be positive: " + sampleEvery);
+        }
+        if (!drainInterval.isPositive()) {
+            throw new IllegalArgumentException("Drain interval must be positive: " + drainInterval);
+        }
+    }
+
+    /**
+     * Returns the default settings: every outcome, 8,192 slots and a 10 ms drain interval.
+     *
+     * @return the default settings
+     */
+    public static OutcomeOptions defaults() {
+        return new OutcomeOptions(OutcomeMode.EVERY, 8_192, 1, Duration.ofMillis(10));
+    }
+}
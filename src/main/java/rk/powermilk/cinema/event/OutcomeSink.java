@@ -0,0 +1,42 @@
+package rk.powermilk.cinema.event;
+
+/**
+ * Destination of the outcomes drained from an {@link OutcomeChannel}. Called from the channel's drainer thread
+ * only, so implementations need not be thread-safe.
+ */
+public interface OutcomeSink {
+
+    /**
+     * Receives one outcome.
+     *
+     * @param timestamp  when the outcome was published, in milliseconds since the epoch
+     * @param outcome    the outcome
+     * @param seatNumber the seat number of the request
+     * @param clientId   the ID of the client
+     */
+    void outcome(long timestamp, Outcome outcome, int seatNumber, String clientId);
+
+    /**
+     * Receives the number of outcomes of a kind published in the last drain interval, in
+     * {@link OutcomeMode#AGGREGATED} mode. Does nothing by default.
+     *
+     * @param outcome the outcome
+     * @param count   the number of times it was published
+     */
+    default void summary(Outcome outcome, long count) {
+    }
+
+    /**
+     * Receives the number of outcomes lost because the ring buffer was full. Does nothing by default.
+     *
+     * @param count the number of outcomes lost since the last call
+     */
+    default void dropped(long count) {
+    }
+
+    /**
+     * Writes out anything buffered; called when the drainer runs out of outcomes. Does nothing by default.
+     */
+    default void flush() {
+    }
+}
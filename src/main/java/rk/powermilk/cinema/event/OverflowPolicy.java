@@ -0,0 +1,16 @@
+package rk.powermilk.cinema.event;
+
+/**
+ * What a {@link SeatChangePublisher} does with a subscriber that loses changes because its buffer is full.
+ */
+public enum OverflowPolicy {
+    /**
+     * The subscription is cancelled and the subscriber receives an {@link IllegalStateException}.
+     */
+    DROP,
+    /**
+     * The buffered changes are discarded and the subscriber next receives a {@link Resync} counting every
+     * change it lost.
+     */
+    RESYNC
+}
@@ -0,0 +1,10 @@
+package rk.powermilk.cinema.event;
+
+/**
+ * Notice that changes were lost, because the subscriber or the publisher fell too far behind. Changes that
+ * follow it are complete again, but the seat states have to be re-read to catch up with the lost ones.
+ *
+ * @param missed the number of changes lost since the previous item
+ */
+public record Resync(long missed) implements SeatEvent {
+}
@@ -0,0 +1,15 @@
+package rk.powermilk.cinema.event;
+
+import rk.powermilk.cinema.model.SeatTransition;
+
+/**
+ * Successful transition of one seat.
+ *
+ * @param transition the kind of change
+ * @param seatNumber the seat number
+ * @param clientId   the ID of the client that reserved or released the seat
+ * @param version    the version of the seat after the change; the highest version of a seat is its latest state
+ */
+public record SeatChange(SeatTransition transition, int seatNumber, String clientId, long version)
+    implements SeatEvent {
+}
@@ -0,0 +1,371 @@
+package rk.powermilk.cinema.event;
+
+import lombok.extern.slf4j.Slf4j;
+import rk.powermilk.cinema.model.SeatListener;
+import rk.powermilk.cinema.model.SeatTransition;
+
+import java.util.ArrayDeque;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+
+/**
+ * {@link Flow.Publisher} of the seat transitions of a cinema, with backpressure and a bounded buffer per
+ * subscriber.
+ * <p>
+ * As a {@link SeatListener} the publisher is called on the writer's thread, where it only claims a slot of a
+ * pre-allocated ring with a compare-and-set and fills it in, like {@link OutcomeChannel}; it never blocks and
+ * never waits for subscribers. A dispatcher thread drains the ring and hands every change to each subscriber's
+ * buffer, or in {@link ChangeStreamMode#COALESCED} mode merges the changes of a tick into the latest one per
+ * seat first. Subscribers are called on the given executor, one signal at a time per subscriber, and only
+ * receive as many changes as they requested.
+ * <p>
+ * A subscriber whose buffer is full is handled by the {@link OverflowPolicy}: it is dropped, or its buffer is
+ * discarded and it is sent a {@link Resync}. If the dispatcher itself falls a full ring behind, the writers drop
+ * changes instead of waiting, and every subscriber is handled as if its buffer had overflowed. Closing the
+ * publisher delivers everything published before, then completes the subscribers.
+ */
+@Slf4j
+public final class SeatChangePublisher implements Flow.Publisher<SeatEvent>, SeatListener, AutoCloseable {
+    private static final SeatTransition[] TRANSITIONS = SeatTransition.values();
+
+    private final ChangeStreamOptions options;
+    private final Executor executor;
+    private final Consumer<SeatListener> detach;
+    private final int mask;
+    private final byte[] transitions;
+    private final int[] seatNumbers;
+    private final String[] clientIds;
+    private final long[] versions;
+    private final AtomicLongArray published;
+    private final AtomicLong claimed = new AtomicLong();
+    private final AtomicLong drained = new AtomicLong();
+    private final LongAdder dropped = new LongAdder();
+    private final CopyOnWriteArrayList<Subscription> subscriptions = new CopyOnWriteArrayList<>();
+    /**
+     * Latest change of each seat in the current tick, in {@link ChangeStreamMode#COALESCED} mode. Only touched
+     * by the dispatcher.
+     */
+    private final Map<Integer, SeatChange> coalesced = new LinkedHashMap<>();
+    private final Thread dispatcher;
+    private volatile boolean closed;
+
+    /**
+     * Creates a publisher and starts its dispatcher. It receives changes once it is added as a listener of a
+     * cinema.
+     *
+     * @param options  the stream settings
+     * @param executor the executor that calls the subscribers
+     */
+    public SeatChangePublisher(ChangeStreamOptions options, Executor executor) {
+        this(options, executor, listener -> {
+        });
+    }
+
+    /**
+     * Creates a publisher and starts its dispatcher.
+     *
+     * @param options  the stream settings
+     * @param executor the executor that calls the subscribers
+     * @param detach   called with the publisher when it is closed, to remove it from the cinema it listens to
+     */
+    public SeatChangePublisher(ChangeStreamOptions options, Executor executor, Consumer<SeatListener> detach) {
+        this.options = options;
+        this.executor = executor;
+        this.detach = detach;
+        int capacity = options.capacity();
+        this.mask = capacity - 1;
+        this.transitions = new byte[capacity];
+        this.seatNumbers = new int[capacity];
+        this.clientIds = new String[capacity];
+        this.versions = new long[capacity];
+        this.published = new AtomicLongArray(capacity);
+        for (int slot = 0; slot < capacity; slot++) {
+            published.set(slot, slot - capacity);
+        }
+        this.dispatcher = Thread.ofPlatform().daemon().name("seat-change-dispatcher").start(this::dispatch);
+    }
+
+    /**
+     * Queues a transition for the subscribers. Never blocks and allocates nothing.
+     */
+    @Override
+    public void onTransition(SeatTransition transition, int seatNumber, String clientId, long version) {
+        if (closed || subscriptions.isEmpty()) {
+            return;
+        }
+        long sequence;
+        do {
+            sequence = claimed.get();
+            if (sequence - drained.get() > mask) {
+                dropped.increment();
+                return;
+            }
+        } while (!claimed.compareAndSet(sequence, sequence + 1));
+        int slot = (int) sequence & mask;
+        transitions[slot] = (byte) transition.ordinal();
+        seatNumbers[slot] = seatNumber;
+        clientIds[slot] = clientId;
+        versions[slot] = version;
+        published.lazySet(slot, sequence);
+    }
+
+    /**
+     * Subscribes to the changes published from now on. A subscriber that arrives once the publisher is closing
+     * is completed straight away.
+     *
+     * @param subscriber the subscriber
+     * @throws NullPointerException if the subscriber is null
+     */
+    @Override
+    public void subscribe(Flow.Subscriber<? super SeatEvent> subscriber) {
+        Subscription subscription = new Subscription(Objects.requireNonNull(subscriber, "subscriber"));
+        subscriber.onSubscribe(subscription);
+        subscriptions.add(subscription);
+        if (closed) {
+            subscription.complete();
+        }
+    }
+
+    /**
+     * Returns the number of active subscriptions.
+     *
+     * @return the number of subscribers that are neither cancelled, dropped nor completed
+     */
+    public int getSubscriberCount() {
+        return subscriptions.size();
+    }
+
+    /**
+     * Returns how many changes the writers dropped because the ring was full.
+     *
+     * @return the number of dropped changes
+     */
+    public long dropped() {
+        return dropped.sum();
+    }
+
+    /**
+     * Stops accepting changes, detaches the publisher, delivers the changes already queued and completes every
+     * subscriber once it has received them.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        detach.accept(this);
+        LockSupport.unpark(dispatcher);
+        try {
+            dispatcher.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void dispatch() {
+        long tick = options.tick().toNanos();
+        boolean coalescing = options.mode() == ChangeStreamMode.COALESCED;
+        long nextFlush = System.nanoTime() + tick;
+        long reportedDrops = 0;
+        while (true) {
+            boolean stopping = closed;
+            long sequence = drained.get();
+            int slot = (int) sequence & mask;
+            if (published.get(slot) == sequence) {
+                SeatChange change = new SeatChange(TRANSITIONS[transitions[slot]], seatNumbers[slot],
+                    clientIds[slot], versions[slot]);
+                clientIds[slot] = null;
+                drained.lazySet(sequence + 1);
+                if (coalescing) {
+                    coalesced.merge(change.seatNumber(), change,
+                        (previous, next) -> next.version() > previous.version() ? next : previous);
+                } else {
+                    offerAll(change);
+                }
+                continue;
+            }
+            long drops = dropped.sum();
+            if (drops != reportedDrops) {
+                for (Subscription subscription : subscriptions) {
+                    subscription.overflow(drops - reportedDrops);
+                }
+                reportedDrops = drops;
+            }
+            if (coalescing && (stopping || System.nanoTime() - nextFlush >= 0)) {
+                for (SeatChange change : coalesced.values()) {
+                    offerAll(change);
+                }
+                coalesced.clear();
+                nextFlush = System.nanoTime() + tick;
+            }
+            if (stopping && claimed.get() == sequence) {
+                for (Subscription subscription : subscriptions) {
+                    subscription.complete();
+                }
+                return;
+            }
+            LockSupport.parkNanos(this, stopping ? TimeUnit.MICROSECONDS.toNanos(10) : tick);
+        }
+    }
+
+    private void offerAll(SeatChange change) {
+        for (Subscription subscription : subscriptions) {
+            subscription.offer(change);
+        }
+    }
+
+    /**
+     * Subscription of one subscriber. The dispatcher fills its buffer; the executor empties it into the
+     * subscriber as far as demand allows. The buffer and the terminal state are guarded by the subscription's
+     * monitor, which writers never take.
+     */
+    private final class Subscription implements Flow.Subscription {
+        private final Flow.Subscriber<? super SeatEvent> subscriber;
+        private final ArrayDeque<SeatChange> buffer = new ArrayDeque<>();
+        private final AtomicLong requested = new AtomicLong();
+        private final AtomicInteger scheduled = new AtomicInteger();
+        private long missed;
+        private Throwable failure;
+        private boolean completed;
+        private volatile boolean cancelled;
+
+        Subscription(Flow.Subscriber<? super SeatEvent> subscriber) {
+            this.subscriber = subscriber;
+        }
+
+        @Override
+        public void request(long n) {
+            if (n <= 0) {
+                fail(new IllegalArgumentException("Requested count must be positive: " + n));
+                return;
+            }
+            requested.accumulateAndGet(n, (current, added) -> current + added < 0 ? Long.MAX_VALUE : current + added);
+            schedule();
+        }
+
+        @Override
+        public void cancel() {
+            cancelled = true;
+            subscriptions.remove(this);
+            synchronized (this) {
+                buffer.clear();
+            }
+        }
+
+        void offer(SeatChange change) {
+            synchronized (this) {
+                if (failure != null) {
+                    return;
+                }
+                if (buffer.size() >= options.bufferSize()) {
+                    overflowLocked(1);
+                } else {
+                    buffer.add(change);
+                }
+            }
+            schedule();
+        }
+
+        void overflow(long lost) {
+            synchronized (this) {
+                overflowLocked(lost);
+            }
+            schedule();
+        }
+
+        private void overflowLocked(long lost) {
+            if (options.overflow() == OverflowPolicy.DROP) {
+                if (failure == null) {
+                    failure = new IllegalStateException(
+                        "Subscriber fell more than " + options.bufferSize() + " changes behind");
+                }
+            } else {
+                missed += buffer.size() + lost;
+            }
+            buffer.clear();
+        }
+
+        void complete() {
+            synchronized (this) {
+                completed = true;
+            }
+            schedule();
+        }
+
+        private void fail(Throwable error) {
+            synchronized (this) {
+                if (failure == null) {
+                    failure = error;
+                }
+            }
+            schedule();
+        }
+
+        private void schedule() {
+            if (!cancelled && scheduled.getAndIncrement() == 0) {
+                executor.execute(this::drain);
+            }
+        }
+
+        private void drain() {
+            do {
+                deliver();
+            } while (scheduled.decrementAndGet() != 0);
+        }
+
+        private void deliver() {
+            while (!cancelled) {
+                SeatEvent event = null;
+                Throwable error;
+                boolean done;
+                synchronized (this) {
+                    error = failure;
+                    if (error == null && requested.get() > 0) {
+                        if (missed > 0) {
+                            event = new Resync(missed);
+                            missed = 0;
+                        } else {
+                            event = buffer.poll();
+                        }
+                    }
+                    done = completed && missed == 0 && buffer.isEmpty();
+                }
+                if (error != null) {
+                    cancel();
+                    signal(() -> subscriber.onError(error));
+                    return;
+                }
+                if (event == null) {
+                    if (done) {
+                        cancel();
+                        signal(subscriber::onComplete);
+                    }
+                    return;
+                }
+                if (requested.get() != Long.MAX_VALUE) {
+                    requested.decrementAndGet();
+                }
+                SeatEvent next = event;
+                signal(() -> subscriber.onNext(next));
+            }
+        }
+
+        private void signal(Runnable call) {
+            try {
+                call.run();
+            } catch (RuntimeException e) {
+                log.error("Seat change subscriber failed; cancelling its subscription", e);
+                cancel();
+            }
+        }
+    }
+}
@@ -0,0 +1,8 @@
+package rk.powermilk.cinema.event;
+
+/**
+ * Item of the stream of a {@link SeatChangePublisher}: either a change of one seat or a notice that changes were
+ * lost and the subscriber has to re-read the seats.
+ */
+public sealed interface SeatEvent permits SeatChange, Resync {
+}
@@ -0,0 +1,173 @@
+package rk.powermilk.cinema.hold;
+
+import lombok.extern.slf4j.Slf4j;
+import rk.powermilk.cinema.error.IllegalSeatReservedException;
+import rk.powermilk.cinema.model.Cinema;
+import rk.powermilk.cinema.util.TimingWheel;
+
+import java.time.Duration;
+import java.time.InstantSource;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Adds temporary seat holds with automatic release on top of a {@link Cinema}.
+ * <p>
+ * A hold reserves the seat in the cinema straight away, so nobody else can take it while the client pays.
+ * Confirming the hold keeps the reservation; if the hold is not confirmed before its time-to-live runs out,
+ * the reservation is released and reported to listeners as
+ * {@link rk.powermilk.cinema.model.SeatTransition#EXPIRED}. Expiry is driven by a single {@link TimingWheel}
+ * rather than a scheduled task per hold, so each hold costs O(1) to create, confirm and expire. The clock is
+ * injectable, and expiry only happens in {@link #expireHolds()}, which {@link #start()} runs periodically.
+ */
+@Slf4j
+public class HoldManager implements AutoCloseable {
+    /**
+     * Default expiry granularity.
+     */
+    public static final Duration DEFAULT_TICK = Duration.ofMillis(100);
+
+    private final Cinema cinema;
+    private final InstantSource clock;
+    private final Duration tick;
+    private final TimingWheel<SeatHold> wheel;
+    private final Map<Integer, SeatHold> holds = new ConcurrentHashMap<>();
+    private ScheduledExecutorService ticker;
+
+    /**
+     * Creates a manager using the system clock and the default tick.
+     *
+     * @param cinema the cinema whose seats are held
+     */
+    public HoldManager(Cinema cinema) {
+        this(cinema, InstantSource.system(), DEFAULT_TICK);
+    }
+
+    /**
+     * Creates a manager with the given clock and expiry granularity.
+     *
+     * @param cinema the cinema whose seats are held
+     * @param clock  the source of the current time
+     * @param tick   the expiry granularity; holds expire at most one tick late
+     */
+    public HoldManager(Cinema cinema, InstantSource clock, Duration tick) {
+        this.cinema = cinema;
+        this.clock = clock;
+        this.tick = tick;
+        this.wheel = new TimingWheel<>(tick.toMillis(), clock.millis());
+    }
+
+    /**
+     * Reserves a seat for the client until the hold is confirmed or expires.
+     *
+     * @param seatNumber the seat number to hold
+     * @param clientId   the ID of the client holding the seat
+     * @param ttl        how long the hold lasts without confirmation
+     * @return the hold, or null if the seat was already taken
+     * @throws IllegalSeatReservedException if the seat number is invalid
+     */
+    public SeatHold holdSeat(int seatNumber, String clientId, Duration ttl) {
+        if (!cinema.reserveSeat(seatNumber, clientId)) {
+            return null;
+        }
+        SeatHold hold = new SeatHold(seatNumber, clientId, clock.millis() + ttl.toMillis());
+        holds.put(seatNumber, hold);
+        hold.timeout = wheel.schedule(hold, hold.deadlineMillis());
+        return hold;
+    }
+
+    /**
+     * Turns a hold into a permanent reservation.
+     *
+     * @param seatNumber the held seat number
+     * @param clientId   the ID of the client holding the seat
+     * @return true if the client had an active hold on the seat; false if there was none or it expired
+     */
+    public boolean confirmHold(int seatNumber, String clientId) {
+        return end(seatNumber, clientId);
+    }
+
+    /**
+     * Releases a hold before it expires, freeing the seat.
+     *
+     * @param seatNumber the held seat number
+     * @param clientId   the ID of the client holding the seat
+     * @return true if the client had an active hold on the seat and it was released
+     */
+    public boolean releaseHold(int seatNumber, String clientId) {
+        return end(seatNumber, clientId) && cinema.cancelReservation(seatNumber, clientId);
+    }
+
+    /**
+     * Releases every hold whose time-to-live has run out.
+     *
+     * @return the number of holds that expired
+     */
+    public int expireHolds() {
+        return wheel.advance(clock.millis(), this::expire);
+    }
+
+    /**
+     * Returns the number of active holds.
+     *
+     * @return the number of holds that are neither confirmed, released nor expired
+     */
+    public int getActiveHoldsCount() {
+        return holds.size();
+    }
+
+    /**
+     * Starts a background thread that expires holds once per tick.
+     */
+    public synchronized void start() {
+        if (ticker == null) {
+            ticker = Executors.newSingleThreadScheduledExecutor(
+                Thread.ofPlatform().daemon().name("hold-expiry").factory());
+            long period = tick.toMillis();
+            ticker.scheduleAtFixedRate(this::expireHoldsSafely, period, period, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Stops the background expiry thread. Active holds stay in place.
+     */
+    @Override
+    public synchronized void close() {
+        if (ticker != null) {
+            ticker.shutdownNow();
+            ticker = null;
+        }
+    }
+
+    private void expireHoldsSafely() {
+        try {
+            expireHolds();
+        } catch (RuntimeException e) {
+            log.error("Hold expiry failed", e);
+        }
+    }
+
+    private void expire(SeatHold hold) {
+        if (hold.end()) {
+            holds.remove(hold.seatNumber(), hold);
+            cinema.expireReservation(hold.seatNumber(), hold.clientId());
+            log.debug("Hold of seat {} by client {} expired", hold.seatNumber(), hold.clientId());
+        }
+    }
+
+    private boolean end(int seatNumber, String clientId) {
+        SeatHold hold = holds.get(seatNumber);
+        if (hold == null || !hold.clientId().equals(clientId) || !hold.end()) {
+            return false;
+        }
+        holds.remove(seatNumber, hold);
+        TimingWheel.Timeout<SeatHold> timeout = hold.timeout;
+        if (timeout != null) {
+            wheel.cancel(timeout);
+        }
+        return true;
+    }
+}
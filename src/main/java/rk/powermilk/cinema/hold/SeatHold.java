@@ -0,0 +1,66 @@
+package rk.powermilk.cinema.hold;
+
+import rk.powermilk.cinema.util.TimingWheel;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A temporary reservation of a seat that is released automatically unless it is confirmed in time.
+ * <p>
+ * A hold ends exactly once: it is either confirmed, released by the client, or expired.
+ */
+public final class SeatHold {
+    private static final int ACTIVE = 0;
+    private static final int ENDED = 1;
+
+    private final int seatNumber;
+    private final String clientId;
+    private final long deadlineMillis;
+    private final AtomicInteger state = new AtomicInteger(ACTIVE);
+    /**
+     * Position of the hold in the expiry wheel, set right after scheduling.
+     */
+    volatile TimingWheel.Timeout<SeatHold> timeout;
+
+    SeatHold(int seatNumber, String clientId, long deadlineMillis) {
+        this.seatNumber = seatNumber;
+        this.clientId = clientId;
+        this.deadlineMillis = deadlineMillis;
+    }
+
+    /**
+     * Returns the held seat number.
+     *
+     * @return the seat number
+     */
+    public int seatNumber() {
+        return seatNumber;
+    }
+
+    /**
+     * Returns the ID of the client holding the seat.
+     *
+     * @return the client ID
+     */
+    public String clientId() {
+        return clientId;
+    }
+
+    /**
+     * Returns the time at which the hold expires.
+     *
+     * @return the expiry time in epoch milliseconds
+     */
+    public long deadlineMillis() {
+        return deadlineMillis;
+    }
+
+    /**
+     * Ends the hold if it is still active.
+     *
+     * @return true for the single caller that ended the hold
+     */
+    boolean end() {
+        return state.compareAndSet(ACTIVE, ENDED);
+    }
+}
@@ -0,0 +1,98 @@
+package rk.powermilk.cinema.http;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+
+/**
+ * Pool of growable byte buffers for request and response bodies.
+ * <p>
+ * Requests run on virtual threads, which are created per request, so thread-local buffers would never be
+ * reused; buffers are borrowed from a shared bounded queue instead. Buffers that grew beyond
+ * {@value #MAX_POOLED} bytes are left to the garbage collector rather than kept.
+ */
+final class BufferPool {
+    private static final int INITIAL_SIZE = 512;
+    private static final int MAX_POOLED = 16 * 1024;
+
+    private final ArrayBlockingQueue<Buffer> buffers;
+
+    /**
+     * Creates an empty pool.
+     *
+     * @param size the largest number of idle buffers kept
+     */
+    BufferPool(int size) {
+        this.buffers = new ArrayBlockingQueue<>(size);
+    }
+
+    /**
+     * Borrows an empty buffer.
+     *
+     * @return a buffer from the pool, or a new one if the pool is empty
+     */
+    Buffer acquire() {
+        Buffer buffer = buffers.poll();
+        return buffer != null ? buffer : new Buffer();
+    }
+
+    /**
+     * Returns a buffer to the pool.
+     *
+     * @param buffer a buffer borrowed with {@link #acquire()}; must not be used afterwards
+     */
+    void release(Buffer buffer) {
+        if (buffer.capacity() <= MAX_POOLED) {
+            buffer.reset();
+            buffers.offer(buffer);
+        }
+    }
+
+    /**
+     * Byte buffer whose contents can be read without copying.
+     */
+    static final class Buffer extends ByteArrayOutputStream {
+        Buffer() {
+            super(INITIAL_SIZE);
+        }
+
+        /**
+         * Returns the backing array; its first {@link #size()} bytes are the contents.
+         *
+         * @return the backing array
+         */
+        byte[] array() {
+            return buf;
+        }
+
+        int capacity() {
+            return buf.length;
+        }
+
+        /**
+         * Appends everything an input stream yields, up to a limit.
+         *
+         * @param in    the stream to read
+         * @param limit the largest number of bytes accepted
+         * @return false if the stream has more than {@code limit} bytes
+         * @throws IOException if the stream cannot be read
+         */
+        boolean readFrom(InputStream in, int limit) throws IOException {
+            while (true) {
+                if (count == buf.length) {
+                    if (count >= limit) {
+                        return in.read() < 0;
+                    }
+                    buf = Arrays.copyOf(buf, Math.min(limit, buf.length * 2));
+                }
+                int read = in.read(buf, count, buf.length - count);
+                if (read < 0) {
+                    return true;
+                }
+                count += read;
+            }
+        }
+    }
+}
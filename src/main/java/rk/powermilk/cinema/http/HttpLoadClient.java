@@ -0,0 +1,56 @@
+package rk.powermilk.cinema.http;
+
+import lombok.extern.slf4j.Slf4j;
+import rk.powermilk.cinema.load.LoadDriver;
+import rk.powermilk.cinema.load.LoadProfile;
+import rk.powermilk.cinema.load.LoadReport;
+import rk.powermilk.cinema.model.Cinema;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Load-test client for the HTTP path: runs a {@link LoadDriver} crowd against a {@link ReservationServer} and
+ * logs the throughput and latency percentiles, which here include the HTTP and JSON round trip.
+ * <p>
+ * Takes the {@code name=value} arguments of {@link LoadProfile#parse}, plus {@code url=<base URI>} to load a
+ * server that is already running. Without it, a server for a cinema with the default number of seats is
+ * started on a free localhost port for the duration of the run.
+ */
+@Slf4j
+public final class HttpLoadClient {
+    private HttpLoadClient() {
+    }
+
+    public static void main(String[] args) {
+        String url = null;
+        List<String> settings = new ArrayList<>();
+        for (String arg : args) {
+            if (arg.startsWith("url=")) {
+                url = arg.substring("url=".length());
+            } else {
+                settings.add(arg);
+            }
+        }
+        LoadProfile profile = LoadProfile.parse(settings.toArray(String[]::new));
+        if (url != null) {
+            run(URI.create(url), profile);
+            return;
+        }
+        try (ReservationServer server = ReservationServer.start(new Cinema(),
+            new InetSocketAddress(InetAddress.getLoopbackAddress(), 0))) {
+            run(server.uri(), profile);
+        }
+    }
+
+    private static void run(URI uri, LoadProfile profile) {
+        try (HttpLoadTarget target = new HttpLoadTarget(uri)) {
+            log.info("Loading {} with {} clients", uri, profile.clients());
+            LoadReport report = LoadDriver.run(target, profile);
+            report.log(profile.clients());
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package rk.powermilk.cinema.http;
+
+import rk.powermilk.cinema.load.LoadTarget;
+import tools.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.concurrent.Executors;
+
+/**
+ * {@link LoadTarget} that sends every request to a {@link ReservationServer} over HTTP.
+ * <p>
+ * One HTTP/1.1 client with keep-alive connections is shared by all simulated clients, which call it from
+ * their virtual threads and block until the response arrives.
+ */
+public final class HttpLoadTarget implements LoadTarget, AutoCloseable {
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private final URI base;
+    private final HttpClient client;
+    private final int seats;
+
+    /**
+     * Connects to a server and reads the size of its hall.
+     *
+     * @param base the base URI of the server
+     * @throws UncheckedIOException if the server cannot be reached
+     */
+    public HttpLoadTarget(URI base) {
+        this.base = base;
+        this.client = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .executor(Executors.newVirtualThreadPerTaskExecutor())
+            .build();
+        this.seats = MAPPER.readValue(send(HttpRequest.newBuilder(base.resolve("/counts")).GET()).body(),
+            SeatCounts.class).seats();
+    }
+
+    @Override
+    public int getSeatsCount() {
+        return seats;
+    }
+
+    @Override
+    public boolean reserveSeat(int seatNumber, String clientId) {
+        return post("/reservations", seatNumber, clientId);
+    }
+
+    @Override
+    public boolean cancelReservation(int seatNumber, String clientId) {
+        return post("/cancellations", seatNumber, clientId);
+    }
+
+    @Override
+    public boolean isSeatAvailable(int seatNumber) {
+        HttpResponse<byte[]> response = send(HttpRequest.newBuilder(base.resolve("/seats/" + seatNumber)).GET());
+        return response.statusCode() == 200 && MAPPER.readValue(response.body(), SeatAvailability.class).available();
+    }
+
+    /**
+     * Closes the HTTP client and its connections.
+     */
+    @Override
+    public void close() {
+        client.close();
+    }
+
+    private boolean post(String path, int seatNumber, String clientId) {
+        byte[] body = MAPPER.writeValueAsBytes(new SeatRequest(seatNumber, clientId));
+        HttpRequest.Builder request = HttpRequest.newBuilder(base.resolve(path))
+            .header("Content-Type", "application/json")
+            .POST(HttpRequest.BodyPublishers.ofByteArray(body));
+        return send(request).statusCode() == 200;
+    }
+
+    private HttpResponse<byte[]> send(HttpRequest.Builder request) {
+        try {
+            return client.send(request.build(), HttpResponse.BodyHandlers.ofByteArray());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for " + request.build().uri(), e);
+        }
+    }
+}
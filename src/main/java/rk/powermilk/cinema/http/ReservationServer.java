@@ -0,0 +1,195 @@
+package rk.powermilk.cinema.http;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import lombok.extern.slf4j.Slf4j;
+import rk.powermilk.cinema.model.Cinema;
+import rk.powermilk.cinema.model.ReservationOutcome;
+import tools.jackson.core.JacksonException;
+import tools.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Lightweight HTTP front end of a {@link Cinema}, built on the JDK's {@link HttpServer}.
+ * <p>
+ * Every exchange runs on its own virtual thread. Bodies are JSON, read and written by Jackson through byte
+ * buffers borrowed from a pool, so a request allocates little beyond the objects it decodes. The endpoints are:
+ * <ul>
+ *     <li>{@code POST /reservations} with a {@link SeatRequest}: reserves a seat and answers with a
+ *     {@link SeatOutcome};</li>
+ *     <li>{@code POST /cancellations} with a {@link SeatRequest}: cancels a reservation and answers with a
+ *     {@link SeatOutcome};</li>
+ *     <li>{@code GET /seats/{number}}: answers with the {@link SeatAvailability} of a seat;</li>
+ *     <li>{@code GET /counts}: answers with the {@link SeatCounts} of the hall.</li>
+ * </ul>
+ * Outcomes map to status codes: 200 for {@link ReservationOutcome#OK}, 409 for {@link ReservationOutcome#TAKEN},
+ * 403 for {@link ReservationOutcome#NOT_OWNER} and 404 for {@link ReservationOutcome#INVALID}. Malformed
+ * requests get 400, and requests with another method 405.
+ */
+@Slf4j
+public final class ReservationServer implements AutoCloseable {
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final int MAX_BODY = 4 * 1024;
+    private static final String SEATS_PATH = "/seats/";
+
+    private final Cinema cinema;
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final BufferPool buffers = new BufferPool(256);
+
+    private ReservationServer(Cinema cinema, HttpServer server) {
+        this.cinema = cinema;
+        this.server = server;
+        this.executor = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("http-", 0).factory());
+        server.setExecutor(executor);
+        server.createContext("/reservations", exchange -> handle(exchange, "POST", this::reserve));
+        server.createContext("/cancellations", exchange -> handle(exchange, "POST", this::cancel));
+        server.createContext(SEATS_PATH, exchange -> handle(exchange, "GET", this::availability));
+        server.createContext("/counts", exchange -> handle(exchange, "GET", this::counts));
+    }
+
+    /**
+     * Starts serving a cinema.
+     *
+     * @param cinema  the cinema to serve
+     * @param address the address to listen on; port 0 picks a free port
+     * @return the running server
+     * @throws UncheckedIOException if the address cannot be bound
+     */
+    public static ReservationServer start(Cinema cinema, InetSocketAddress address) {
+        try {
+            ReservationServer server = new ReservationServer(cinema, HttpServer.create(address, 0));
+            server.server.start();
+            log.info("Serving {} seats on {}", cinema.getSeatsCount(), server.uri());
+            return server;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Returns the base URI of the server.
+     *
+     * @return the URI, with the port actually bound
+     */
+    public URI uri() {
+        InetSocketAddress address = server.getAddress();
+        return URI.create("http://" + address.getHostString() + ":" + address.getPort());
+    }
+
+    /**
+     * Stops accepting requests, waits for the exchanges in progress and stops the server.
+     */
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.close();
+    }
+
+    private Response reserve(HttpExchange exchange, BufferPool.Buffer body) {
+        SeatRequest request = readRequest(body);
+        ReservationOutcome outcome = cinema.tryReserve(request.seat(), request.clientId());
+        return new Response(statusOf(outcome), new SeatOutcome(request.seat(), outcome));
+    }
+
+    private Response cancel(HttpExchange exchange, BufferPool.Buffer body) {
+        SeatRequest request = readRequest(body);
+        ReservationOutcome outcome = cinema.tryCancel(request.seat(), request.clientId());
+        return new Response(statusOf(outcome), new SeatOutcome(request.seat(), outcome));
+    }
+
+    private Response availability(HttpExchange exchange, BufferPool.Buffer body) {
+        String path = exchange.getRequestURI().getPath();
+        int seat;
+        try {
+            seat = Integer.parseInt(path.substring(SEATS_PATH.length()));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Expected a seat number: " + path);
+        }
+        if (!cinema.isValidSeat(seat)) {
+            return new Response(404, new SeatOutcome(seat, ReservationOutcome.INVALID));
+        }
+        return new Response(200, new SeatAvailability(seat, cinema.isSeatAvailable(seat)));
+    }
+
+    private Response counts(HttpExchange exchange, BufferPool.Buffer body) {
+        return new Response(200, new SeatCounts(cinema.getSeatsCount(), cinema.getReservedSeatsCount(),
+            cinema.getAvailableSeatsCount()));
+    }
+
+    private static SeatRequest readRequest(BufferPool.Buffer body) {
+        SeatRequest request = MAPPER.readValue(body.array(), 0, body.size(), SeatRequest.class);
+        if (request.clientId() == null || request.clientId().isEmpty()) {
+            throw new IllegalArgumentException("clientId is required");
+        }
+        return request;
+    }
+
+    private static int statusOf(ReservationOutcome outcome) {
+        return switch (outcome) {
+            case OK -> 200;
+            case TAKEN -> 409;
+            case NOT_OWNER -> 403;
+            case INVALID -> 404;
+        };
+    }
+
+    private void handle(HttpExchange exchange, String method, Endpoint endpoint) throws IOException {
+        BufferPool.Buffer buffer = buffers.acquire();
+        try (exchange) {
+            Response response;
+            if (!method.equals(exchange.getRequestMethod())) {
+                response = new Response(405, null);
+            } else if (!buffer.readFrom(exchange.getRequestBody(), MAX_BODY)) {
+                response = new Response(413, null);
+            } else {
+                response = call(endpoint, exchange, buffer);
+            }
+            buffer.reset();
+            if (response.body() != null) {
+                MAPPER.writeValue(buffer, response.body());
+                exchange.getResponseHeaders().set("Content-Type", "application/json");
+            }
+            exchange.sendResponseHeaders(response.status(), buffer.size() == 0 ? -1 : buffer.size());
+            if (buffer.size() > 0) {
+                try (OutputStream out = exchange.getResponseBody()) {
+                    out.write(buffer.array(), 0, buffer.size());
+                }
+            }
+        } finally {
+            buffers.release(buffer);
+        }
+    }
+
+    private static Response call(Endpoint endpoint, HttpExchange exchange, BufferPool.Buffer body) {
+        try {
+            return endpoint.handle(exchange, body);
+        } catch (JacksonException | IllegalArgumentException e) {
+            return new Response(400, null);
+        } catch (RuntimeException e) {
+            log.error("Request {} {} failed", exchange.getRequestMethod(), exchange.getRequestURI(), e);
+            return new Response(500, null);
+        }
+    }
+
+    /**
+     * Handler of one endpoint.
+     */
+    @FunctionalInterface
+    private interface Endpoint {
+        Response handle(HttpExchange exchange, BufferPool.Buffer body);
+    }
+
+    /**
+     * Status code and JSON body, or no body if null.
+     */
+    private record Response(int status, Object body) {
+    }
+}
@@ -0,0 +1,10 @@
+package rk.powermilk.cinema.http;
+
+/**
+ * Body of the response to an availability query.
+ *
+ * @param seat      the seat number
+ * @param available whether the seat is free
+ */
+public record SeatAvailability(int seat, boolean available) {
+}
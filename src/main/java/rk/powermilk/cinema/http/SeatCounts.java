@@ -0,0 +1,11 @@
+package rk.powermilk.cinema.http;
+
+/**
+ * Body of the response to a count query.
+ *
+ * @param seats     the number of seats in the hall
+ * @param reserved  the number of reserved seats
+ * @param available the number of available seats
+ */
+public record SeatCounts(int seats, long reserved, long available) {
+}
@@ -0,0 +1,12 @@
+package rk.powermilk.cinema.http;
+
+import rk.powermilk.cinema.model.ReservationOutcome;
+
+/**
+ * Body of the response to a reservation or cancellation.
+ *
+ * @param seat    the seat number
+ * @param outcome the result of the request
+ */
+public record SeatOutcome(int seat, ReservationOutcome outcome) {
+}
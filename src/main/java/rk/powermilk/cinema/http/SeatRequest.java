@@ -0,0 +1,10 @@
+package rk.powermilk.cinema.http;
+
+/**
+ * Body of a reservation or cancellation request.
+ *
+ * @param seat     the seat number
+ * @param clientId the ID of the client
+ */
+public record SeatRequest(int seat, String clientId) {
+}
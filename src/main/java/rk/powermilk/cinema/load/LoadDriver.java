@@ -0,0 +1,152 @@
+package rk.powermilk.cinema.load;
+
+import rk.powermilk.cinema.event.Outcome;
+import rk.powermilk.cinema.event.OutcomeChannel;
+import rk.powermilk.cinema.model.Cinema;
+
+import java.time.Duration;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Simulates a crowd of clients using a {@link Cinema}, directly or through any other {@link LoadTarget}, and
+ * measures how it copes.
+ * <p>
+ * Every client runs on its own virtual thread, so hundreds of thousands of them can wait in their think time
+ * at once without holding a platform thread. Clients arrive at the rate of the {@link LoadProfile}, each with
+ * its own explicit ID, send their requests and leave. A client remembers the seats it reserved and cancels
+ * one of them when it decides to cancel, so cancellations mostly succeed unless the client holds nothing.
+ * Seats are drawn uniformly over the hall. Reservations and cancellations can also be published to an
+ * {@link OutcomeChannel}, which takes them off the clients' threads; availability checks have no outcome.
+ */
+public final class LoadDriver {
+    private static final long SEED_STEP = 0x9E3779B97F4A7C15L;
+
+    private final LoadTarget target;
+    private final int seats;
+    private final LoadProfile profile;
+    private final OutcomeChannel outcomes;
+    private final LoadReport report = new LoadReport();
+
+    private LoadDriver(LoadTarget target, LoadProfile profile, OutcomeChannel outcomes) {
+        this.target = target;
+        this.seats = target.getSeatsCount();
+        this.profile = profile;
+        this.outcomes = outcomes;
+    }
+
+    /**
+     * Runs the load against a cinema and waits until every client has left.
+     *
+     * @param cinema  the cinema under load
+     * @param profile the shape of the load
+     * @return the throughput and latencies of the run
+     * @throws IllegalArgumentException if the cinema has no seats
+     */
+    public static LoadReport run(Cinema cinema, LoadProfile profile) {
+        return run(LoadTarget.of(cinema), profile);
+    }
+
+    /**
+     * Runs the load against a target and waits until every client has left.
+     *
+     * @param target  the target under load
+     * @param profile the shape of the load
+     * @return the throughput and latencies of the run
+     * @throws IllegalArgumentException if the target has no seats
+     */
+    public static LoadReport run(LoadTarget target, LoadProfile profile) {
+        return run(target, profile, null);
+    }
+
+    /**
+     * Runs the load against a target, publishing the outcome of every reservation and cancellation, and waits
+     * until every client has left.
+     *
+     * @param target   the target under load
+     * @param profile  the shape of the load
+     * @param outcomes the channel receiving the outcomes, or null to publish none
+     * @return the throughput and latencies of the run
+     * @throws IllegalArgumentException if the target has no seats
+     */
+    public static LoadReport run(LoadTarget target, LoadProfile profile, OutcomeChannel outcomes) {
+        if (target.getSeatsCount() == 0) {
+            throw new IllegalArgumentException("Cinema has no seats to load");
+        }
+        return new LoadDriver(target, profile, outcomes).run();
+    }
+
+    private LoadReport run() {
+        long arrivalInterval = profile.arrivalRate() == 0 ? 0 : (long) (1e9 / profile.arrivalRate());
+        long started = System.nanoTime();
+        try (ExecutorService executor =
+                 Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("load-client-", 0).factory())) {
+            for (int client = 0; client < profile.clients(); client++) {
+                long wait = started + client * arrivalInterval - System.nanoTime();
+                if (wait > 0) {
+                    LockSupport.parkNanos(wait);
+                }
+                String clientId = "client-" + client;
+                SplittableRandom random = new SplittableRandom(profile.seed() + client * SEED_STEP);
+                executor.execute(() -> simulate(clientId, random));
+            }
+        }
+        report.finish(Duration.ofNanos(System.nanoTime() - started));
+        return report;
+    }
+
+    private void simulate(String clientId, SplittableRandom random) {
+        long thinkNanos = profile.thinkTime().toNanos();
+        int[] held = new int[profile.operationsPerClient()];
+        int holding = 0;
+        for (int i = 0; i < profile.operationsPerClient(); i++) {
+            if (i > 0 && thinkNanos > 0 && !think(random, thinkNanos)) {
+                return;
+            }
+            Operation operation = profile.mix().pick(random);
+            int seatNumber = random.nextInt(seats) + 1;
+            if (operation == Operation.CANCEL && holding > 0) {
+                int index = random.nextInt(holding);
+                seatNumber = held[index];
+                held[index] = held[--holding];
+            }
+            long start = System.nanoTime();
+            boolean succeeded = switch (operation) {
+                case RESERVE -> target.reserveSeat(seatNumber, clientId);
+                case CANCEL -> target.cancelReservation(seatNumber, clientId);
+                case QUERY -> target.isSeatAvailable(seatNumber);
+            };
+            report.record(operation, System.nanoTime() - start, succeeded);
+            if (outcomes != null && operation != Operation.QUERY) {
+                outcomes.publish(outcomeOf(operation, succeeded), seatNumber, clientId);
+            }
+            if (operation == Operation.RESERVE && succeeded) {
+                held[holding++] = seatNumber;
+            }
+        }
+    }
+
+    private static Outcome outcomeOf(Operation operation, boolean succeeded) {
+        if (operation == Operation.RESERVE) {
+            return succeeded ? Outcome.RESERVED : Outcome.RESERVE_FAILED;
+        }
+        return succeeded ? Outcome.CANCELLED : Outcome.CANCEL_FAILED;
+    }
+
+    /**
+     * Sleeps for an exponentially distributed time with the given mean.
+     *
+     * @return false if the client was interrupted and should leave
+     */
+    private static boolean think(SplittableRandom random, long meanNanos) {
+        try {
+            Thread.sleep(Duration.ofNanos((long) (-Math.log(1 - random.nextDouble()) * meanNanos)));
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package rk.powermilk.cinema.load;
+
+import java.time.Duration;
+
+/**
+ * Shape of the load generated by a {@link LoadDriver}.
+ *
+ * @param clients             the number of simulated clients, each running on its own virtual thread
+ * @param operationsPerClient the number of requests every client sends before leaving
+ * @param thinkTime           the mean pause of a client between two requests; pauses are exponentially
+ *                            distributed around it, and zero disables them
+ * @param arrivalRate         the number of clients arriving per second; zero lets all clients arrive at once
+ * @param mix                 the relative frequency of the operations
+ * @param seed                the seed of the random seat and operation choices, for repeatable runs
+ */
+public record LoadProfile(int clients, int operationsPerClient, Duration thinkTime, double arrivalRate,
+                          OperationMix mix, long seed) {
+
+    /**
+     * Validates the profile.
+     *
+     * @throws IllegalArgumentException if the numbers of clients or operations are not positive, or the think
+     *                                  time or the arrival rate are negative
+     */
+    public LoadProfile {
+        if (clients <= 0) {
+            throw new IllegalArgumentException("Number of clients must be positive: " + clients);
+        }
+        if (operationsPerClient <= 0) {
+            throw new IllegalArgumentException("Operations per client must be positive: " + operationsPerClient);
+        }
+        if (thinkTime.isNegative()) {
+            throw new IllegalArgumentException("Think time must not be negative: " + thinkTime);
+        }
+        if (!(arrivalRate >= 0)) {
+            throw new IllegalArgumentException("Arrival rate must not be negative: " + arrivalRate);
+        }
+    }
+
+    /**
+     * Returns the default profile: an on-sale spike of 100,000 clients arriving at once, each sending ten
+     * requests a millisecond apart on average, 30% reservations, 10% cancellations and 60% availability checks.
+     *
+     * @return the default profile
+     */
+    public static LoadProfile defaults() {
+        return new LoadProfile(100_000, 10, Duration.ofMillis(1), 0, new OperationMix(30, 10, 60), 42);
+    }
+
+    /**
+     * Creates a profile from the defaults and {@code name=value} overrides, as given on a command line.
+     * <p>
+     * The names are {@code clients}, {@code operations}, {@code thinkMillis}, {@code arrivalRate}, {@code mix}
+     * (as {@code reserve:cancel:query}) and {@code seed}.
+     *
+     * @param overrides the overrides
+     * @return the profile
+     * @throws IllegalArgumentException if an override is malformed, unknown or out of range
+     */
+    public static LoadProfile parse(String... overrides) {
+        LoadProfile profile = defaults();
+        for (String override : overrides) {
+            int separator = override.indexOf('=');
+            if (separator < 0) {
+                throw new IllegalArgumentException("Expected name=value: " + override);
+            }
+            String value = override.substring(separator + 1);
+            profile = switch (override.substring(0, separator)) {
+                case "clients" -> new LoadProfile(Integer.parseInt(value), profile.operationsPerClient,
+                    profile.thinkTime, profile.arrivalRate, profile.mix, profile.seed);
+                case "operations" -> new LoadProfile(profile.clients, Integer.parseInt(value), profile.thinkTime,
+                    profile.arrivalRate, profile.mix, profile.seed);
+                case "thinkMillis" -> new LoadProfile(profile.clients, profile.operationsPerClient,
+                    Duration.ofMillis(Long.parseLong(value)), profile.arrivalRate, profile.mix, profile.seed);
+                case "arrivalRate" -> new LoadProfile(profile.clients, profile.operationsPerClient,
+                    profile.thinkTime, Double.parseDouble(value), profile.mix, profile.seed);
+                case "mix" -> new LoadProfile(profile.clients, profile.operationsPerClient, profile.thinkTime,
+                    profile.arrivalRate, OperationMix.parse(value), profile.seed);
+                case "seed" -> new LoadProfile(profile.clients, profile.operationsPerClient, profile.thinkTime,
+                    profile.arrivalRate, profile.mix, Long.parseLong(value));
+                default -> throw new IllegalArgumentException("Unknown setting: " + override);
+            };
+        }
+        return profile;
+    }
+}
@@ -0,0 +1,121 @@
+package rk.powermilk.cinema.load;
+
+import lombok.extern.slf4j.Slf4j;
+import rk.powermilk.cinema.util.LatencyHistogram;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Outcome of a {@link LoadDriver} run: how many requests of each kind were sent, how many succeeded and how
+ * long they took.
+ */
+@Slf4j
+public final class LoadReport {
+    private final Map<Operation, LatencyHistogram> latencies = new EnumMap<>(Operation.class);
+    private final Map<Operation, LongAdder> successes = new EnumMap<>(Operation.class);
+    private Duration elapsed = Duration.ZERO;
+
+    LoadReport() {
+        for (Operation operation : Operation.values()) {
+            latencies.put(operation, new LatencyHistogram());
+            successes.put(operation, new LongAdder());
+        }
+    }
+
+    void record(Operation operation, long nanos, boolean succeeded) {
+        latencies.get(operation).record(nanos);
+        if (succeeded) {
+            successes.get(operation).increment();
+        }
+    }
+
+    void finish(Duration elapsed) {
+        this.elapsed = elapsed;
+    }
+
+    /**
+     * Returns the wall-clock time of the run, from the first arrival until the last client left.
+     *
+     * @return the duration of the run
+     */
+    public Duration elapsed() {
+        return elapsed;
+    }
+
+    /**
+     * Returns the number of requests of a kind that were sent.
+     *
+     * @param operation the kind of request
+     * @return the number of requests
+     */
+    public long count(Operation operation) {
+        return latencies.get(operation).count();
+    }
+
+    /**
+     * Returns the number of requests of a kind that succeeded: seats reserved, reservations cancelled, or seats
+     * found available.
+     *
+     * @param operation the kind of request
+     * @return the number of successful requests
+     */
+    public long succeeded(Operation operation) {
+        return successes.get(operation).sum();
+    }
+
+    /**
+     * Returns the latencies of the requests of a kind in nanoseconds, excluding think time.
+     *
+     * @param operation the kind of request
+     * @return the latency histogram
+     */
+    public LatencyHistogram latency(Operation operation) {
+        return latencies.get(operation);
+    }
+
+    /**
+     * Returns the number of requests sent in total.
+     *
+     * @return the number of requests
+     */
+    public long totalOperations() {
+        long total = 0;
+        for (Operation operation : Operation.values()) {
+            total += count(operation);
+        }
+        return total;
+    }
+
+    /**
+     * Returns the number of requests completed per second of the run.
+     *
+     * @return the throughput
+     */
+    public double throughput() {
+        return elapsed.isZero() ? 0 : totalOperations() * 1e9 / elapsed.toNanos();
+    }
+
+    /**
+     * Logs the throughput and, for every kind of request, the counts and latency percentiles in microseconds.
+     *
+     * @param clients the number of clients of the run
+     */
+    public void log(int clients) {
+        log.info("{} clients sent {} requests in {} ms: {} requests/s", clients, totalOperations(),
+            elapsed.toMillis(), Math.round(throughput()));
+        for (Operation operation : Operation.values()) {
+            LatencyHistogram latency = latency(operation);
+            log.info("{}: {} sent, {} succeeded, latency us p50 {} p99 {} p99.9 {} max {}", operation,
+                count(operation), succeeded(operation), micros(latency.percentile(50)),
+                micros(latency.percentile(99)), micros(latency.percentile(99.9)), micros(latency.max()));
+        }
+    }
+
+    private static long micros(long nanos) {
+        return TimeUnit.NANOSECONDS.toMicros(nanos);
+    }
+}
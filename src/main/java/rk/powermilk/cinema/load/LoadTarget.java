@@ -0,0 +1,73 @@
+package rk.powermilk.cinema.load;
+
+import rk.powermilk.cinema.model.Cinema;
+
+/**
+ * What a {@link LoadDriver} sends its requests to: a cinema in the same JVM, or a client of a remote one.
+ * <p>
+ * Implementations are called concurrently by every simulated client.
+ */
+public interface LoadTarget {
+    /**
+     * Returns the number of seats, from which the driver draws seat numbers.
+     *
+     * @return the number of seats
+     */
+    int getSeatsCount();
+
+    /**
+     * Attempts to reserve a seat.
+     *
+     * @param seatNumber the seat number to reserve
+     * @param clientId   the ID of the client making the reservation
+     * @return true if the seat was reserved
+     */
+    boolean reserveSeat(int seatNumber, String clientId);
+
+    /**
+     * Attempts to cancel a reservation.
+     *
+     * @param seatNumber the seat number to cancel
+     * @param clientId   the ID of the client attempting the cancellation
+     * @return true if the reservation was cancelled
+     */
+    boolean cancelReservation(int seatNumber, String clientId);
+
+    /**
+     * Checks whether a seat is available.
+     *
+     * @param seatNumber the seat number to check
+     * @return true if the seat is available
+     */
+    boolean isSeatAvailable(int seatNumber);
+
+    /**
+     * Returns a target that calls a cinema directly.
+     *
+     * @param cinema the cinema
+     * @return the target
+     */
+    static LoadTarget of(Cinema cinema) {
+        return new LoadTarget() {
+            @Override
+            public int getSeatsCount() {
+                return cinema.getSeatsCount();
+            }
+
+            @Override
+            public boolean reserveSeat(int seatNumber, String clientId) {
+                return cinema.reserveSeat(seatNumber, clientId);
+            }
+
+            @Override
+            public boolean cancelReservation(int seatNumber, String clientId) {
+                return cinema.cancelReservation(seatNumber, clientId);
+            }
+
+            @Override
+            public boolean isSeatAvailable(int seatNumber) {
+                return cinema.isSeatAvailable(seatNumber);
+            }
+        };
+    }
+}
@@ -0,0 +1,19 @@
+package rk.powermilk.cinema.load;
+
+/**
+ * Kinds of requests a simulated client sends to a cinema.
+ */
+public enum Operation {
+    /**
+     * Reserves a random seat.
+     */
+    RESERVE,
+    /**
+     * Cancels one of the client's own reservations, or a random seat if it holds none.
+     */
+    CANCEL,
+    /**
+     * Checks whether a random seat is available.
+     */
+    QUERY
+}
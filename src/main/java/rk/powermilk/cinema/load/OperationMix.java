@@ -0,0 +1,58 @@
+package rk.powermilk.cinema.load;
+
+import java.util.SplittableRandom;
+
+/**
+ * Relative weights of the operations a simulated client sends.
+ *
+ * @param reserve the weight of {@link Operation#RESERVE}
+ * @param cancel  the weight of {@link Operation#CANCEL}
+ * @param query   the weight of {@link Operation#QUERY}
+ */
+public record OperationMix(int reserve, int cancel, int query) {
+
+    /**
+     * Validates the weights.
+     *
+     * @throws IllegalArgumentException if a weight is negative or all weights are zero
+     */
+    public OperationMix {
+        if (reserve < 0 || cancel < 0 || query < 0) {
+            throw new IllegalArgumentException(
+                "Weights must not be negative: " + reserve + ":" + cancel + ":" + query);
+        }
+        if (reserve + cancel + query == 0) {
+            throw new IllegalArgumentException("At least one weight must be positive");
+        }
+    }
+
+    /**
+     * Parses weights written as {@code reserve:cancel:query}, for example {@code 30:10:60}.
+     *
+     * @param text the weights
+     * @return the mix
+     * @throws IllegalArgumentException if the text is not three colon-separated non-negative integers
+     */
+    public static OperationMix parse(String text) {
+        String[] weights = text.split(":");
+        if (weights.length != 3) {
+            throw new IllegalArgumentException("Expected reserve:cancel:query weights: " + text);
+        }
+        return new OperationMix(Integer.parseInt(weights[0]), Integer.parseInt(weights[1]),
+            Integer.parseInt(weights[2]));
+    }
+
+    /**
+     * Draws an operation with the probabilities given by the weights.
+     *
+     * @param random the source of randomness
+     * @return the operation
+     */
+    public Operation pick(SplittableRandom random) {
+        int roll = random.nextInt(reserve + cancel + query);
+        if (roll < reserve) {
+            return Operation.RESERVE;
+        }
+        return roll < reserve + cancel ? Operation.CANCEL : Operation.QUERY;
+    }
+}
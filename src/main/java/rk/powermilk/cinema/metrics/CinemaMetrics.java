@@ -0,0 +1,27 @@
+package rk.powermilk.cinema.metrics;
+
+import rk.powermilk.cinema.model.ReservationOutcome;
+
+/**
+ * Receives a measurement of every single-seat operation of a {@link rk.powermilk.cinema.model.Cinema}.
+ * <p>
+ * A cinema created without metrics uses {@link #NOOP}; it then checks a final flag and skips reading the clock
+ * and calling the recorder altogether.
+ */
+public interface CinemaMetrics {
+    /**
+     * Metrics that record nothing. Cinemas using them do not measure at all.
+     */
+    CinemaMetrics NOOP = (operation, outcome, seatNumber, nanos) -> {
+    };
+
+    /**
+     * Records one completed operation. Called concurrently from the threads using the cinema.
+     *
+     * @param operation  the operation
+     * @param outcome    its outcome
+     * @param seatNumber the seat number it was called with, possibly invalid
+     * @param nanos      how long it took, in nanoseconds
+     */
+    void record(MeteredOperation operation, ReservationOutcome outcome, int seatNumber, long nanos);
+}
@@ -0,0 +1,19 @@
+package rk.powermilk.cinema.metrics;
+
+/**
+ * Cinema operations measured by {@link CinemaMetrics}.
+ */
+public enum MeteredOperation {
+    /**
+     * {@code reserveSeat} and {@code tryReserve}.
+     */
+    RESERVE,
+    /**
+     * {@code cancelReservation} and {@code tryCancel}.
+     */
+    CANCEL,
+    /**
+     * {@code isSeatAvailable}; recorded as {@code OK} for a free seat and {@code TAKEN} for a reserved one.
+     */
+    QUERY
+}
@@ -0,0 +1,78 @@
+package rk.powermilk.cinema.metrics;
+
+import rk.powermilk.cinema.model.ReservationOutcome;
+import rk.powermilk.cinema.util.LatencyHistogram;
+import tools.jackson.databind.ObjectMapper;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Point-in-time view of {@link ReservationMetrics}, serializable to JSON.
+ *
+ * @param operations the statistics of every operation
+ * @param hotSeats   the seats with the most sampled reserve and cancel requests, busiest first
+ */
+public record MetricsSnapshot(List<OperationStats> operations, List<HotSeat> hotSeats) {
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    /**
+     * Returns the statistics of an operation.
+     *
+     * @param operation the operation
+     * @return its statistics
+     */
+    public OperationStats operation(MeteredOperation operation) {
+        return operations.get(operation.ordinal());
+    }
+
+    /**
+     * Serializes the snapshot to JSON.
+     *
+     * @return the JSON text
+     */
+    public String toJson() {
+        return MAPPER.writeValueAsString(this);
+    }
+
+    /**
+     * Statistics of one operation.
+     *
+     * @param operation      the operation
+     * @param count          the number of calls
+     * @param outcomes       the number of calls per outcome
+     * @param contentionRate the share of calls on valid seats that did not succeed: reservations of taken seats,
+     *                       cancellations of seats held by someone else or nobody, and checks of reserved seats
+     * @param latency        the latency distribution in nanoseconds
+     */
+    public record OperationStats(MeteredOperation operation, long count, Map<ReservationOutcome, Long> outcomes,
+                                 double contentionRate, LatencySummary latency) {
+    }
+
+    /**
+     * Percentiles of a latency distribution, in nanoseconds.
+     *
+     * @param mean the mean
+     * @param p50  the median
+     * @param p90  the 90th percentile
+     * @param p99  the 99th percentile
+     * @param p999 the 99.9th percentile
+     * @param max  the largest value
+     */
+    public record LatencySummary(double mean, long p50, long p90, long p99, long p999, long max) {
+
+        static LatencySummary of(LatencyHistogram histogram) {
+            return new LatencySummary(histogram.mean(), histogram.percentile(50), histogram.percentile(90),
+                histogram.percentile(99), histogram.percentile(99.9), histogram.max());
+        }
+    }
+
+    /**
+     * A frequently requested seat.
+     *
+     * @param seatNumber the seat number
+     * @param requests   the estimated number of reserve and cancel requests for it
+     */
+    public record HotSeat(int seatNumber, long requests) {
+    }
+}
@@ -0,0 +1,125 @@
+package rk.powermilk.cinema.metrics;
+
+import rk.powermilk.cinema.model.ReservationOutcome;
+import rk.powermilk.cinema.util.LatencyHistogram;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Concurrent {@link CinemaMetrics}: outcome counters, latency histograms and per-seat request counts.
+ * <p>
+ * Outcomes are counted on striped {@link LongAdder}s and latencies go into lock-free {@link LatencyHistogram}s,
+ * so recording never blocks and rarely contends. Reserve and cancel requests are also counted per seat, but only
+ * one request in {@code sampleEvery}, drawn at random on the recording thread: every client hammering the same
+ * seat would otherwise increment the same counter. Snapshots scale the sampled counts back up, so they estimate
+ * the requests of each seat, and the hottest seats are only searched for when a snapshot is taken.
+ */
+public final class ReservationMetrics implements CinemaMetrics {
+    private static final MeteredOperation[] OPERATIONS = MeteredOperation.values();
+    private static final ReservationOutcome[] OUTCOMES = ReservationOutcome.values();
+    private static final int SAMPLE_EVERY = 16;
+
+    private final LongAdder[] counts = new LongAdder[OPERATIONS.length * OUTCOMES.length];
+    private final LatencyHistogram[] latencies = new LatencyHistogram[OPERATIONS.length];
+    private final AtomicLongArray seatRequests;
+    private final int hotSeats;
+    private final int sampleEvery;
+
+    /**
+     * Creates metrics for a hall that count one in 16 requests per seat.
+     *
+     * @param seats    the number of seats of the hall
+     * @param hotSeats how many of the busiest seats snapshots report
+     * @throws IllegalArgumentException if a number is negative
+     */
+    public ReservationMetrics(int seats, int hotSeats) {
+        this(seats, hotSeats, SAMPLE_EVERY);
+    }
+
+    /**
+     * Creates metrics for a hall.
+     *
+     * @param seats       the number of seats of the hall
+     * @param hotSeats    how many of the busiest seats snapshots report
+     * @param sampleEvery how many reserve and cancel requests, on average, each request counted per seat stands
+     *                    for; 1 counts every request
+     * @throws IllegalArgumentException if a number of seats is negative or the sampling rate is not positive
+     */
+    public ReservationMetrics(int seats, int hotSeats, int sampleEvery) {
+        if (seats < 0 || hotSeats < 0) {
+            throw new IllegalArgumentException("Numbers of seats must not be negative: " + seats + ", " + hotSeats);
+        }
+        if (sampleEvery < 1) {
+            throw new IllegalArgumentException("Sampling rate must be positive: " + sampleEvery);
+        }
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] = new LongAdder();
+        }
+        for (int i = 0; i < latencies.length; i++) {
+            latencies[i] = new LatencyHistogram();
+        }
+        this.seatRequests = new AtomicLongArray(seats);
+        this.hotSeats = hotSeats;
+        this.sampleEvery = sampleEvery;
+    }
+
+    @Override
+    public void record(MeteredOperation operation, ReservationOutcome outcome, int seatNumber, long nanos) {
+        counts[operation.ordinal() * OUTCOMES.length + outcome.ordinal()].increment();
+        latencies[operation.ordinal()].record(nanos);
+        if (operation != MeteredOperation.QUERY && outcome != ReservationOutcome.INVALID
+            && seatNumber <= seatRequests.length()
+            && (sampleEvery == 1 || ThreadLocalRandom.current().nextInt(sampleEvery) == 0)) {
+            seatRequests.incrementAndGet(seatNumber - 1);
+        }
+    }
+
+    /**
+     * Takes a snapshot of the metrics. Counters are read one by one while recording goes on, so under traffic
+     * the numbers are close but not from a single instant.
+     *
+     * @return the snapshot
+     */
+    public MetricsSnapshot snapshot() {
+        List<MetricsSnapshot.OperationStats> operations = new ArrayList<>();
+        for (MeteredOperation operation : OPERATIONS) {
+            Map<ReservationOutcome, Long> outcomes = new EnumMap<>(ReservationOutcome.class);
+            long total = 0;
+            for (ReservationOutcome outcome : OUTCOMES) {
+                long count = counts[operation.ordinal() * OUTCOMES.length + outcome.ordinal()].sum();
+                outcomes.put(outcome, count);
+                total += count;
+            }
+            long valid = total - outcomes.get(ReservationOutcome.INVALID);
+            double contention = valid == 0 ? 0 : (double) (valid - outcomes.get(ReservationOutcome.OK)) / valid;
+            operations.add(new MetricsSnapshot.OperationStats(operation, total, outcomes, contention,
+                MetricsSnapshot.LatencySummary.of(latencies[operation.ordinal()])));
+        }
+        return new MetricsSnapshot(operations, hottestSeats());
+    }
+
+    private List<MetricsSnapshot.HotSeat> hottestSeats() {
+        Comparator<MetricsSnapshot.HotSeat> byRequests = Comparator.comparingLong(MetricsSnapshot.HotSeat::requests);
+        PriorityQueue<MetricsSnapshot.HotSeat> top = new PriorityQueue<>(byRequests);
+        for (int i = 0; i < seatRequests.length() && hotSeats > 0; i++) {
+            long requests = seatRequests.get(i) * sampleEvery;
+            if (requests > 0 && (top.size() < hotSeats || requests > top.peek().requests())) {
+                top.add(new MetricsSnapshot.HotSeat(i + 1, requests));
+                if (top.size() > hotSeats) {
+                    top.poll();
+                }
+            }
+        }
+        List<MetricsSnapshot.HotSeat> hottest = new ArrayList<>(top);
+        hottest.sort(byRequests.reversed().thenComparingInt(MetricsSnapshot.HotSeat::seatNumber));
+        return hottest;
+    }
+}
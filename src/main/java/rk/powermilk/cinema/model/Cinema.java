@@ -1,33 +1,163 @@
 package rk.powermilk.cinema.model;
 
 import rk.powermilk.cinema.error.IllegalSeatReservedException;
+import rk.powermilk.cinema.event.ChangeStreamOptions;
+import rk.powermilk.cinema.event.SeatChangePublisher;
+import rk.powermilk.cinema.metrics.CinemaMetrics;
+import rk.powermilk.cinema.metrics.MeteredOperation;
+import rk.powermilk.cinema.store.ArraySeatStore;
+import rk.powermilk.cinema.store.SeatStore;
+import rk.powermilk.cinema.store.SeatVisitor;
 
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.Arrays;
 import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntFunction;
+import java.util.function.LongFunction;
+import java.util.function.LongSupplier;
 import java.util.stream.IntStream;
 
 import static rk.powermilk.cinema.util.Const.DEFAULT_SEAT_COUNT;
-import static rk.powermilk.cinema.util.Const.UNRESERVED;
 
 /**
  * Manages seat reservations in a cinema using a thread-safe structure.
  * <p>
  * Allows clients to reserve and cancel seats by client ID.
  * Ensures that only the reserving client can cancel their seat.
+ * Seats are arranged in rows described by a {@link HallLayout}, which enables best-available block searches,
+ * and belong to {@link SeatCategory categories} whose counts are kept up to date for pricing.
+ * Successful transitions are reported to registered {@link SeatListener}s.
+ * Clients can wait for a taken seat, or for any seat of a sold-out hall, and are handed seats in the order they
+ * started waiting as reservations are cancelled.
+ * Administrative bulk operations, which import, release or export the seats of the whole hall, are split into
+ * ranges of seats processed in parallel.
  */
 public class Cinema {
     /**
-     * Map of seat numbers to client IDs. A seat is considered free if it maps to UNRESERVED.
+     * Number of seats processed by one task of a bulk operation.
      */
-    private final Map<Integer, String> seats = new ConcurrentHashMap<>();
+    private static final int BULK_CHUNK = 4096;
 
+    private final HallLayout layout;
     /**
-     * Constructs a cinema with a specified number of seats.
+     * Number of seats, kept in a field for bounds checks on the hot path.
+     */
+    private final int capacity;
+    /**
+     * Storage of seat states. A seat is either free or held by exactly one client.
+     */
+    private final SeatStore seats;
+    /**
+     * Bitmap of free seats per row, updated after every successful transition in {@link #seats}.
+     */
+    private final FreeSeatIndex freeSeats;
+    /**
+     * Seats held by each client. Every change of a seat holder goes through it, together with {@link #seats}.
+     */
+    private final ClientSeatIndex clientSeats = new ClientSeatIndex();
+    /**
+     * Clients waiting for a seat to be cancelled.
+     */
+    private final SeatWaitlist waitlist = new SeatWaitlist();
+    /**
+     * Number of reserved seats, updated only when a reservation or cancellation succeeds.
+     */
+    private final LongAdder reservedSeats = new LongAdder();
+    /**
+     * Number of reserved seats of every category, by ordinal, updated together with {@link #reservedSeats}.
+     */
+    private final LongAdder[] reservedByCategory;
+    /**
+     * Registered listeners. Replaced as a whole when a listener is added or removed.
+     */
+    private volatile SeatListener[] listeners = new SeatListener[0];
+    /**
+     * Tracks transitions in flight, so that snapshots can be taken between them.
+     */
+    private final WriteGate gate = new WriteGate();
+    /**
+     * Receives measurements of single-seat operations, unless {@link #metered} is false.
+     */
+    private final CinemaMetrics metrics;
+    private final boolean metered;
+    /**
+     * Publisher of seat map views, created on the first {@link #getSeatMap()}.
+     */
+    private volatile SeatMapPublisher seatMap;
+
+    /**
+     * Constructs a cinema with the given layout on top of the given seat storage.
+     *
+     * @param layout the layout of the hall
+     * @param seats  the seat storage to use; must hold exactly as many seats as the layout
+     * @throws IllegalArgumentException if the storage capacity does not match the layout
+     */
+    public Cinema(HallLayout layout, SeatStore seats) {
+        this(layout, seats, CinemaMetrics.NOOP);
+    }
+
+    /**
+     * Constructs a cinema whose single-seat operations are measured.
+     *
+     * @param layout  the layout of the hall
+     * @param seats   the seat storage to use; must hold exactly as many seats as the layout
+     * @param metrics the receiver of the measurements; {@link CinemaMetrics#NOOP} turns measuring off
+     * @throws IllegalArgumentException if the storage capacity does not match the layout
+     */
+    public Cinema(HallLayout layout, SeatStore seats, CinemaMetrics metrics) {
+        if (layout.capacity() != seats.capacity()) {
+            throw new IllegalArgumentException(
+                "Layout has " + layout.capacity() + " seats but storage has " + seats.capacity());
+        }
+        this.layout = layout;
+        this.capacity = layout.capacity();
+        this.metrics = metrics;
+        this.metered = metrics != CinemaMetrics.NOOP;
+        this.seats = seats;
+        this.freeSeats = new FreeSeatIndex(layout);
+        this.reservedByCategory = new LongAdder[SeatCategory.values().length];
+        Arrays.setAll(reservedByCategory, category -> new LongAdder());
+        if (!seats.isPristine()) {
+            seats.forEach((seatNumber, clientId, version) -> {
+                if (clientId != null) {
+                    flip(seatNumber, 1);
+                    reservedSeats.increment();
+                    clientSeats.restore(clientId, seatNumber);
+                }
+            });
+        }
+    }
+
+    /**
+     * Constructs a cinema with the given layout and the default seat storage.
+     *
+     * @param layout the layout of the hall
+     */
+    public Cinema(HallLayout layout) {
+        this(layout, new ArraySeatStore(layout.capacity()));
+    }
+
+    /**
+     * Constructs a single-row cinema on top of the given seat storage.
+     *
+     * @param seats the seat storage to use
+     */
+    public Cinema(SeatStore seats) {
+        this(HallLayout.singleRow(seats.capacity()), seats);
+    }
+
+    /**
+     * Constructs a single-row cinema with a specified number of seats.
      *
      * @param numberOfSeats the number of seats to initialize
      */
     public Cinema(int numberOfSeats) {
-        IntStream.rangeClosed(1, numberOfSeats).forEach(i -> seats.put(i, UNRESERVED));
+        this(HallLayout.singleRow(numberOfSeats));
     }
 
     /**
@@ -44,11 +174,21 @@ public class Cinema {
      * @throws IllegalSeatReservedException if the seat number is invalid
      */
     private void validateSeatNumber(int seatNumber) {
-        if (!seats.containsKey(seatNumber)) {
-            throw new IllegalSeatReservedException("Seat number " + seatNumber + " is invalid.");
+        if (!isValidSeat(seatNumber)) {
+            throw new IllegalSeatReservedException(seatNumber);
         }
     }
 
+    /**
+     * Checks whether a seat number exists in the hall, with a single unsigned comparison.
+     *
+     * @param seatNumber the seat number to check
+     * @return true if the seat exists
+     */
+    public boolean isValidSeat(int seatNumber) {
+        return Integer.compareUnsigned(seatNumber - 1, capacity) < 0;
+    }
+
     /**
      * Attempts to reserve a seat for the given client.
      *
@@ -58,8 +198,76 @@ public class Cinema {
      * @throws IllegalSeatReservedException if the seat number is invalid
      */
     public boolean reserveSeat(int seatNumber, String clientId) {
-        validateSeatNumber(seatNumber);
-        return seats.replace(seatNumber, UNRESERVED, clientId);
+        ReservationOutcome outcome = tryReserve(seatNumber, clientId);
+        if (outcome == ReservationOutcome.INVALID) {
+            throw new IllegalSeatReservedException(seatNumber);
+        }
+        return outcome == ReservationOutcome.OK;
+    }
+
+    /**
+     * Attempts to reserve a seat for the given client without throwing for invalid seat numbers.
+     *
+     * @param seatNumber the seat number to reserve
+     * @param clientId   the ID of the client making the reservation
+     * @return {@link ReservationOutcome#OK} if the seat was reserved, {@link ReservationOutcome#TAKEN} if it was
+     * already taken, or {@link ReservationOutcome#INVALID} if it does not exist
+     */
+    public ReservationOutcome tryReserve(int seatNumber, String clientId) {
+        long started = metered ? System.nanoTime() : 0;
+        ReservationOutcome outcome;
+        if (!isValidSeat(seatNumber)) {
+            outcome = ReservationOutcome.INVALID;
+        } else {
+            outcome = reserve(seatNumber, clientId) ? ReservationOutcome.OK : ReservationOutcome.TAKEN;
+        }
+        meter(MeteredOperation.RESERVE, outcome, seatNumber, started);
+        return outcome;
+    }
+
+    private boolean reserve(int seatNumber, String clientId) {
+        long version = claim(seatNumber, clientId);
+        if (version == SeatStore.FAILED) {
+            return false;
+        }
+        publishAndExit(SeatTransition.RESERVED, seatNumber, clientId, version);
+        return true;
+    }
+
+    /**
+     * Reserves a free seat for the client without telling the listeners yet. On success the gate stays entered
+     * until the caller publishes the transition with {@link #publishAndExit}, so a caller holding the waitlist's
+     * monitor can publish after leaving it and never waits for a listener, such as a journal forcing the disk,
+     * while holding it.
+     *
+     * @return the new version of the seat; {@link SeatStore#FAILED}, with the gate left, if the seat is taken
+     */
+    private long claim(int seatNumber, String clientId) {
+        gate.enter();
+        long version = SeatStore.FAILED;
+        try {
+            version = clientSeats.reserve(seats, seatNumber, clientId);
+            if (version != SeatStore.FAILED) {
+                reservedSeats.increment();
+                flip(seatNumber, 1);
+            }
+            return version;
+        } finally {
+            if (version == SeatStore.FAILED) {
+                gate.exit();
+            }
+        }
+    }
+
+    /**
+     * Publishes a transition made by {@link #claim} and leaves the gate.
+     */
+    private void publishAndExit(SeatTransition transition, int seatNumber, String clientId, long version) {
+        try {
+            publish(transition, seatNumber, clientId, version);
+        } finally {
+            gate.exit();
+        }
     }
 
     /**
@@ -71,8 +279,635 @@ public class Cinema {
      * @throws IllegalSeatReservedException if the seat number is invalid
      */
     public boolean cancelReservation(int seatNumber, String clientId) {
+        ReservationOutcome outcome = tryCancel(seatNumber, clientId);
+        if (outcome == ReservationOutcome.INVALID) {
+            throw new IllegalSeatReservedException(seatNumber);
+        }
+        return outcome == ReservationOutcome.OK;
+    }
+
+    /**
+     * Attempts to cancel a reservation for the given seat and client without throwing for invalid seat numbers.
+     *
+     * @param seatNumber the seat number to cancel
+     * @param clientId   the ID of the client attempting the cancellation
+     * @return {@link ReservationOutcome#OK} if the reservation was cancelled, {@link ReservationOutcome#NOT_OWNER}
+     * if the seat is not held by the client, or {@link ReservationOutcome#INVALID} if it does not exist
+     */
+    public ReservationOutcome tryCancel(int seatNumber, String clientId) {
+        long started = metered ? System.nanoTime() : 0;
+        ReservationOutcome outcome;
+        if (!isValidSeat(seatNumber)) {
+            outcome = ReservationOutcome.INVALID;
+        } else {
+            outcome = cancel(seatNumber, clientId, SeatTransition.CANCELLED)
+                ? ReservationOutcome.OK : ReservationOutcome.NOT_OWNER;
+        }
+        meter(MeteredOperation.CANCEL, outcome, seatNumber, started);
+        return outcome;
+    }
+
+    /**
+     * Releases a reservation whose hold ran out. Works like {@link #cancelReservation(int, String)}, but the
+     * transition is reported as {@link SeatTransition#EXPIRED}.
+     *
+     * @param seatNumber the seat number to release
+     * @param clientId   the ID of the client whose hold ran out
+     * @return true if the reservation was released; false if the seat is not held by the client
+     * @throws IllegalSeatReservedException if the seat number is invalid
+     */
+    public boolean expireReservation(int seatNumber, String clientId) {
+        validateSeatNumber(seatNumber);
+        return cancel(seatNumber, clientId, SeatTransition.EXPIRED);
+    }
+
+    private boolean cancel(int seatNumber, String clientId, SeatTransition transition) {
+        if (waitlist.mayHaveWaiters(seatNumber)) {
+            SeatWaitlist.Waiter next;
+            long version = SeatStore.FAILED;
+            synchronized (waitlist) {
+                next = waitlist.next(seatNumber, clientId);
+                if (next != null) {
+                    version = handOver(seatNumber, clientId, next.clientId);
+                    if (version != SeatStore.FAILED) {
+                        waitlist.remove(next);
+                    }
+                }
+            }
+            if (next != null) {
+                if (version == SeatStore.FAILED) {
+                    return false;
+                }
+                try {
+                    publish(transition, seatNumber, clientId, version - 1);
+                    publish(SeatTransition.RESERVED, seatNumber, next.clientId, version);
+                } finally {
+                    gate.exit();
+                }
+                deliver(next, seatNumber);
+                return true;
+            }
+        }
+        gate.enter();
+        try {
+            long version = clientSeats.cancel(seats, seatNumber, clientId);
+            if (version == SeatStore.FAILED) {
+                return false;
+            }
+            reservedSeats.decrement();
+            flip(seatNumber, -1);
+            publish(transition, seatNumber, clientId, version);
+        } finally {
+            gate.exit();
+        }
+        handOutIfWaited(seatNumber);
+        return true;
+    }
+
+    /**
+     * Hands a seat straight from its holder to a waiting client; counts and the free-seat bitmap stay as they
+     * are. Like {@link #claim}, a successful hand-over leaves the gate entered for the caller, who then tells
+     * listeners of the release followed by the reservation and leaves it.
+     *
+     * @return the new version of the seat; {@link SeatStore#FAILED}, with the gate left, if {@code from} does not
+     * hold it
+     */
+    private long handOver(int seatNumber, String from, String to) {
+        gate.enter();
+        long version = SeatStore.FAILED;
+        try {
+            version = clientSeats.handOver(seats, seatNumber, from, to);
+            return version;
+        } finally {
+            if (version == SeatStore.FAILED) {
+                gate.exit();
+            }
+        }
+    }
+
+    /**
+     * Reserves a free seat for the client next in line for it, if there is one. This covers seats freed by
+     * group cancellations and seats freed just before a client started waiting.
+     */
+    private void handOutIfWaited(int seatNumber) {
+        if (!waitlist.mayHaveWaiters(seatNumber)) {
+            return;
+        }
+        SeatWaitlist.Waiter next;
+        long version;
+        synchronized (waitlist) {
+            next = waitlist.next(seatNumber, null);
+            if (next == null) {
+                return;
+            }
+            version = claim(seatNumber, next.clientId);
+            if (version == SeatStore.FAILED) {
+                return;
+            }
+            waitlist.remove(next);
+        }
+        publishAndExit(SeatTransition.RESERVED, seatNumber, next.clientId, version);
+        deliver(next, seatNumber);
+    }
+
+    /**
+     * Tells a waiting client which seat it got, outside of the waitlist's monitor, since the future runs the
+     * client's callbacks. If the client stopped waiting in the meantime, the seat goes to the next one.
+     */
+    private void deliver(SeatWaitlist.Waiter waiter, int seatNumber) {
+        if (!waiter.future.complete(seatNumber)) {
+            cancel(seatNumber, waiter.clientId, SeatTransition.CANCELLED);
+        }
+    }
+
+    /**
+     * Reserves a seat for the client, or puts the client in line for it if it is taken.
+     * <p>
+     * Waiting clients are handed the seat in the order they started waiting: a cancellation of the seat passes
+     * it straight to the first of them, so it is never free in between and nobody who polls can take it first.
+     * Waiting costs no thread; the client is told through the returned future, and cancelling the future leaves
+     * the line. If the client is already in line for the seat, it queues again behind the others.
+     *
+     * @param seatNumber the seat number to wait for
+     * @param clientId   the ID of the client waiting
+     * @return a future completed with the seat number once the seat is reserved for the client; already
+     * completed if the seat was free and nobody was waiting for it, or if the client already holds it
+     * @throws IllegalSeatReservedException if the seat number is invalid
+     */
+    public CompletableFuture<Integer> waitForSeat(int seatNumber, String clientId) {
         validateSeatNumber(seatNumber);
-        return seats.replace(seatNumber, clientId, UNRESERVED);
+        if (!waitlist.mayHaveWaiters(seatNumber) && reserve(seatNumber, clientId)
+            || clientSeats.holds(clientId, seatNumber)) {
+            return CompletableFuture.completedFuture(seatNumber);
+        }
+        SeatWaitlist.Waiter waiter = waitlist.add(seatNumber, clientId);
+        handOutIfWaited(seatNumber);
+        return waiter.future;
+    }
+
+    /**
+     * Reserves the best free seat for the client, or puts the client in line for the next seat cancelled
+     * anywhere in the hall if none is free.
+     * <p>
+     * A cancelled seat goes to the clients waiting for that particular seat first, then to those waiting for
+     * any seat, in the order they started waiting, like {@link #waitForSeat(int, String)}.
+     *
+     * @param clientId the ID of the client waiting
+     * @return a future completed with the number of the seat reserved for the client; already completed if a
+     * seat was free and nobody was waiting
+     */
+    public CompletableFuture<Integer> waitForAnySeat(String clientId) {
+        if (waitlist.isEmpty()) {
+            Optional<SeatBlock> seat = reserveContiguousBlock(1, SeatPreference.CENTER, clientId);
+            if (seat.isPresent()) {
+                return CompletableFuture.completedFuture(seat.get().firstSeat());
+            }
+        }
+        SeatWaitlist.Waiter waiter = waitlist.addForAny(clientId);
+        handOutFreeSeats();
+        return waiter.future;
+    }
+
+    /**
+     * Reserves free seats for the clients waiting for any seat, for as long as there are both.
+     */
+    private void handOutFreeSeats() {
+        while (true) {
+            SeatWaitlist.Waiter next;
+            int seatNumber;
+            long version;
+            synchronized (waitlist) {
+                next = waitlist.nextForAny();
+                if (next == null) {
+                    return;
+                }
+                do {
+                    Optional<SeatBlock> seat = findContiguousBlock(1, SeatPreference.CENTER);
+                    if (seat.isEmpty()) {
+                        return;
+                    }
+                    seatNumber = seat.get().firstSeat();
+                    version = claim(seatNumber, next.clientId);
+                } while (version == SeatStore.FAILED);
+                waitlist.remove(next);
+            }
+            publishAndExit(SeatTransition.RESERVED, seatNumber, next.clientId, version);
+            deliver(next, seatNumber);
+        }
+    }
+
+    /**
+     * Returns the number of clients waiting for a seat.
+     *
+     * @return the number of clients in line for a particular seat or for any seat
+     */
+    public int getWaitingCount() {
+        return waitlist.size();
+    }
+
+    /**
+     * Attempts to reserve a group of seats for the given client, all or nothing.
+     * <p>
+     * Either every seat is reserved for the client, or none is and the cinema is left unchanged. Seats are
+     * claimed in ascending order, so overlapping groups never livelock, and other clients never observe a
+     * partially reserved group as their own free seats.
+     *
+     * @param seatNumbers the seat numbers to reserve; duplicates are ignored
+     * @param clientId    the ID of the client making the reservation
+     * @return true if all seats were reserved; false if at least one of them was already taken
+     * @throws IllegalSeatReservedException if any seat number is invalid
+     */
+    public boolean reserveSeats(int[] seatNumbers, String clientId) {
+        return reserveGroup(normalize(seatNumbers), clientId);
+    }
+
+    /**
+     * Reserves a group of distinct, valid seats in ascending order, all or nothing. A group that fails has
+     * briefly claimed some of its free seats, so a client that started waiting for one of them meanwhile is
+     * handed it afterwards.
+     */
+    private boolean reserveGroup(int[] group, String clientId) {
+        gate.enter();
+        try {
+            long[] versions = clientSeats.reserveAll(seats, group, clientId);
+            if (versions != null) {
+                reservedSeats.add(group.length);
+                flipAll(group, 1);
+                publishAll(SeatTransition.RESERVED, group, clientId, versions);
+                return true;
+            }
+        } finally {
+            gate.exit();
+        }
+        handOutAllIfWaited(group);
+        return false;
+    }
+
+    /**
+     * Attempts to cancel a group of seats held by the given client, all or nothing.
+     *
+     * @param seatNumbers the seat numbers to cancel; duplicates are ignored
+     * @param clientId    the ID of the client attempting the cancellation
+     * @return true if all seats were cancelled; false if at least one of them is not held by the client
+     * @throws IllegalSeatReservedException if any seat number is invalid
+     */
+    public boolean cancelSeats(int[] seatNumbers, String clientId) {
+        return cancelGroup(normalize(seatNumbers), clientId);
+    }
+
+    /**
+     * Cancels a group of distinct, valid seats in ascending order, all or nothing.
+     */
+    private boolean cancelGroup(int[] group, String clientId) {
+        gate.enter();
+        try {
+            long[] versions = clientSeats.cancelAll(seats, group, clientId);
+            if (versions == null) {
+                return false;
+            }
+            reservedSeats.add(-group.length);
+            flipAll(group, -1);
+            publishAll(SeatTransition.CANCELLED, group, clientId, versions);
+        } finally {
+            gate.exit();
+        }
+        handOutAllIfWaited(group);
+        return true;
+    }
+
+    /**
+     * Returns the seats held by a client.
+     * <p>
+     * The seats are read from a per-client index instead of scanning the hall, so the cost depends only on the
+     * number of seats the client holds.
+     *
+     * @param clientId the ID of the client
+     * @return the seat numbers in ascending order; empty if the client holds no seats
+     */
+    public int[] getSeatsFor(String clientId) {
+        return clientSeats.seatsOf(clientId);
+    }
+
+    /**
+     * Cancels every reservation of a client.
+     * <p>
+     * The seats are taken from the per-client index and cancelled as one group, so the cost depends only on the
+     * number of seats the client holds. Reservations the client makes concurrently are either cancelled too or
+     * kept whole; none is left half-recorded.
+     *
+     * @param clientId the ID of the client
+     * @return the cancelled seat numbers in ascending order; empty if the client held no seats
+     */
+    public int[] cancelAllFor(String clientId) {
+        int[] group;
+        gate.enter();
+        try {
+            ClientSeatIndex.Cancelled cancelled = clientSeats.cancelEverything(seats, clientId);
+            group = cancelled.seatNumbers();
+            reservedSeats.add(-group.length);
+            flipAll(group, -1);
+            publishAll(SeatTransition.CANCELLED, group, clientId, cancelled.versions());
+        } finally {
+            gate.exit();
+        }
+        handOutAllIfWaited(group);
+        return group.clone();
+    }
+
+    private void handOutAllIfWaited(int[] group) {
+        if (!waitlist.isEmpty()) {
+            for (int seatNumber : group) {
+                handOutIfWaited(seatNumber);
+            }
+        }
+    }
+
+    /**
+     * Reserves the seats of a pre-sold hall, such as blocks sold through another channel, skipping seats that
+     * are already taken.
+     * <p>
+     * The hall is split into ranges of seats imported in parallel on the common fork-join pool. Within a range,
+     * each run of seats of the same client is reserved as one group, which costs a compare-and-set per seat and a
+     * lock per run; a group that meets a taken seat is reserved seat by seat instead. Live traffic may go on during the
+     * import: every seat goes through the same transition as a single reservation, listeners are told of each,
+     * and a seat someone else takes first is skipped.
+     *
+     * @param holders the ID of the client to reserve each seat for, by seat number, or null to leave the seat
+     *                alone; called from several threads at once
+     * @return the number of seats reserved
+     */
+    public long importReservations(IntFunction<String> holders) {
+        return bulk(1, capacity, (firstSeat, lastSeat) -> {
+            ClientRuns runs = new ClientRuns(lastSeat - firstSeat + 1, (group, clientId) -> {
+                if (reserveGroup(group, clientId)) {
+                    return group.length;
+                }
+                return IntStream.of(group).filter(seatNumber -> reserve(seatNumber, clientId)).count();
+            });
+            for (int seatNumber = firstSeat; seatNumber <= lastSeat; seatNumber++) {
+                String clientId = holders.apply(seatNumber);
+                if (clientId != null) {
+                    runs.add(seatNumber, clientId);
+                }
+            }
+            return runs.finish();
+        });
+    }
+
+    /**
+     * Reserves the seats of a pre-sold hall, like {@link #importReservations(IntFunction)}.
+     *
+     * @param holders the ID of the client to reserve each seat for, by seat number; must not change during the
+     *                import
+     * @return the number of seats reserved
+     * @throws IllegalSeatReservedException if any seat number is invalid; nothing is reserved then
+     */
+    public long importReservations(Map<Integer, String> holders) {
+        for (int seatNumber : holders.keySet()) {
+            validateSeatNumber(seatNumber);
+        }
+        return importReservations(holders::get);
+    }
+
+    /**
+     * Releases every reservation in a range of seats, whoever holds it, such as before closing off a broken row.
+     * <p>
+     * Works like {@link #releaseSeatsIf(SeatPredicate)} restricted to the range.
+     *
+     * @param firstSeat the first seat of the range
+     * @param lastSeat  the last seat of the range
+     * @return the number of reservations released
+     * @throws IllegalSeatReservedException if either seat number is invalid
+     * @throws IllegalArgumentException     if the last seat comes before the first one
+     */
+    public long releaseSeats(int firstSeat, int lastSeat) {
+        validateSeatNumber(firstSeat);
+        validateSeatNumber(lastSeat);
+        if (lastSeat < firstSeat) {
+            throw new IllegalArgumentException("Last seat " + lastSeat + " is before first seat " + firstSeat);
+        }
+        return release(firstSeat, lastSeat, (seatNumber, clientId) -> true);
+    }
+
+    /**
+     * Releases every reservation that matches a predicate, whoever holds it, such as all seats of the clients of
+     * a cancelled block sale.
+     * <p>
+     * The hall is split into ranges of seats scanned in parallel on the common fork-join pool, and each run of
+     * matching seats of the same client is cancelled as one group. Live traffic may go on during the release: a
+     * seat that changes holder meanwhile is tested again with its new holder, and each release is reported and
+     * handed to waiting clients like a cancellation by the holder.
+     *
+     * @param predicate the test of a held seat and its holder; called from several threads at once
+     * @return the number of reservations released
+     */
+    public long releaseSeatsIf(SeatPredicate predicate) {
+        return release(1, capacity, predicate);
+    }
+
+    private long release(int firstSeat, int lastSeat, SeatPredicate predicate) {
+        return bulk(firstSeat, lastSeat, (first, last) -> {
+            ClientRuns runs = new ClientRuns(last - first + 1, (group, clientId) -> {
+                if (cancelGroup(group, clientId)) {
+                    return group.length;
+                }
+                return IntStream.of(group).filter(seatNumber -> release(seatNumber, predicate)).count();
+            });
+            seats.forEach(first, last, (seatNumber, clientId, version) -> {
+                if (clientId != null && predicate.test(seatNumber, clientId)) {
+                    runs.add(seatNumber, clientId);
+                }
+            });
+            return runs.finish();
+        });
+    }
+
+    /**
+     * Cancels a seat for its current holder if the holder matches, reading the holder again if it changed
+     * before the cancellation.
+     */
+    private boolean release(int seatNumber, SeatPredicate predicate) {
+        String clientId = seats.holder(seatNumber);
+        while (clientId != null && predicate.test(seatNumber, clientId)) {
+            if (cancel(seatNumber, clientId, SeatTransition.CANCELLED)) {
+                return true;
+            }
+            clientId = seats.holder(seatNumber);
+        }
+        return false;
+    }
+
+    /**
+     * Exports the holder of every seat, with occupancy counts per row and category.
+     * <p>
+     * The hall is split into ranges of seats read in parallel on the common fork-join pool, without holding
+     * transitions back; like {@link #forEachSeat(SeatVisitor)}, each seat is read in one atomic step, but
+     * different seats may be read at different moments.
+     *
+     * @return the report
+     */
+    public OccupancyReport exportOccupancy() {
+        String[] holders = new String[capacity];
+        bulk(1, capacity, (firstSeat, lastSeat) -> {
+            seats.forEach(firstSeat, lastSeat, (seatNumber, clientId, version) -> holders[seatNumber - 1] = clientId);
+            return 0;
+        });
+        return new OccupancyReport(layout, holders);
+    }
+
+    /**
+     * Splits a range of seats into chunks of {@link #BULK_CHUNK} seats, runs a task on each in parallel on the
+     * common fork-join pool and adds up their results.
+     */
+    private long bulk(int firstSeat, int lastSeat, RangeTask task) {
+        int chunks = (lastSeat - firstSeat + BULK_CHUNK) / BULK_CHUNK;
+        return IntStream.range(0, chunks).parallel()
+            .mapToLong(chunk -> {
+                int first = firstSeat + chunk * BULK_CHUNK;
+                return task.run(first, Math.min(lastSeat, first + BULK_CHUNK - 1));
+            })
+            .sum();
+    }
+
+    /**
+     * Records a successful transition of a seat in the free-seat bitmap and the count of its category.
+     *
+     * @param delta 1 for a reservation, -1 for a cancellation
+     */
+    private void flip(int seatNumber, int delta) {
+        reservedByCategory[layout.categoryOf(seatNumber).ordinal()].add(delta);
+        freeSeats.flip(seatNumber);
+    }
+
+    /**
+     * Applies a seat state recorded by another cinema with the same layout, unless the seat is already at that
+     * version or a later one.
+     * <p>
+     * This keeps a replica in step with a primary whose transitions arrive as {@code (seat, holder, version)}
+     * records: since only newer states are applied, records may arrive more than once or out of order, and a
+     * copy of the whole hall may overlap with the records that follow it. Counts, indexes and listeners are
+     * updated as for a local transition; a change of holder is reported as a cancellation followed by a
+     * reservation, and a newer version with the same availability is not reported at all. A replica must be
+     * changed only through this method, from one thread at a time.
+     *
+     * @param seatNumber the seat number
+     * @param clientId   the holder of the seat in the recorded state, or null if it is free
+     * @param version    the version of the recorded state
+     * @return true if the seat was updated; false if the recorded state is not newer than the seat
+     * @throws IllegalSeatReservedException if the seat number is invalid
+     */
+    public boolean applyReplicated(int seatNumber, String clientId, long version) {
+        validateSeatNumber(seatNumber);
+        gate.enter();
+        try {
+            String previous = seats.holder(seatNumber);
+            if (!clientSeats.replace(seats, seatNumber, previous, clientId, version)) {
+                return false;
+            }
+            if (previous != null && !previous.equals(clientId)) {
+                reservedSeats.decrement();
+                flip(seatNumber, -1);
+                publish(SeatTransition.CANCELLED, seatNumber, previous, version);
+            }
+            if (clientId != null && !clientId.equals(previous)) {
+                reservedSeats.increment();
+                flip(seatNumber, 1);
+                publish(SeatTransition.RESERVED, seatNumber, clientId, version);
+            }
+            return true;
+        } finally {
+            gate.exit();
+        }
+    }
+
+    /**
+     * Visits every seat with its holder and version, each seat read in one atomic step.
+     * <p>
+     * The visit does not hold transitions back, so different seats may be read at different moments; combined
+     * with {@link #applyReplicated(int, String, long)}, which only applies newer versions, that is enough to
+     * copy the hall while it changes, as long as the transitions made during the visit are applied afterwards.
+     *
+     * @param visitor the visitor to call for every seat, in ascending seat order
+     */
+    public void forEachSeat(SeatVisitor visitor) {
+        seats.forEach(visitor);
+    }
+
+    private void flipAll(int[] group, int delta) {
+        for (int seatNumber : group) {
+            flip(seatNumber, delta);
+        }
+    }
+
+    private void publish(SeatTransition transition, int seatNumber, String clientId, long version) {
+        for (SeatListener listener : listeners) {
+            listener.onTransition(transition, seatNumber, clientId, version);
+        }
+    }
+
+    private void publishAll(SeatTransition transition, int[] group, String clientId, long[] versions) {
+        for (int i = 0; i < group.length; i++) {
+            publish(transition, group[i], clientId, versions[i]);
+        }
+    }
+
+    /**
+     * Registers a listener for successful seat transitions.
+     *
+     * @param listener the listener to add
+     */
+    public synchronized void addListener(SeatListener listener) {
+        SeatListener[] current = listeners;
+        SeatListener[] updated = Arrays.copyOf(current, current.length + 1);
+        updated[current.length] = listener;
+        listeners = updated;
+    }
+
+    /**
+     * Unregisters a listener added with {@link #addListener(SeatListener)}.
+     *
+     * @param listener the listener to remove
+     * @return true if the listener was registered
+     */
+    public synchronized boolean removeListener(SeatListener listener) {
+        SeatListener[] current = listeners;
+        for (int i = 0; i < current.length; i++) {
+            if (current[i] == listener) {
+                SeatListener[] updated = new SeatListener[current.length - 1];
+                System.arraycopy(current, 0, updated, 0, i);
+                System.arraycopy(current, i + 1, updated, i, current.length - i - 1);
+                listeners = updated;
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Opens a stream of the seat transitions of this cinema, delivered on the common fork-join pool.
+     * <p>
+     * Subscribers receive the transitions made after they subscribe, with backpressure and a bounded buffer
+     * each; see {@link SeatChangePublisher}. Publishing adds one compare-and-set to every transition and never
+     * waits for subscribers. Closing the publisher detaches it from the cinema.
+     *
+     * @param options the stream settings
+     * @return the publisher, already listening to the cinema
+     */
+    public SeatChangePublisher changes(ChangeStreamOptions options) {
+        SeatChangePublisher publisher = new SeatChangePublisher(options, ForkJoinPool.commonPool(),
+            this::removeListener);
+        addListener(publisher);
+        return publisher;
+    }
+
+    /**
+     * Validates every seat of a group and returns them distinct and in ascending order.
+     */
+    private int[] normalize(int[] seatNumbers) {
+        for (int seatNumber : seatNumbers) {
+            validateSeatNumber(seatNumber);
+        }
+        return IntStream.of(seatNumbers).sorted().distinct().toArray();
     }
 
     /**
@@ -83,16 +918,327 @@ public class Cinema {
      * @throws IllegalSeatReservedException if the seat number is invalid
      */
     public boolean isSeatAvailable(int seatNumber) {
-        validateSeatNumber(seatNumber);
-        return UNRESERVED.equals(seats.get(seatNumber));
+        long started = metered ? System.nanoTime() : 0;
+        if (!isValidSeat(seatNumber)) {
+            meter(MeteredOperation.QUERY, ReservationOutcome.INVALID, seatNumber, started);
+            throw new IllegalSeatReservedException(seatNumber);
+        }
+        boolean available = seats.isAvailable(seatNumber);
+        meter(MeteredOperation.QUERY, available ? ReservationOutcome.OK : ReservationOutcome.TAKEN, seatNumber,
+            started);
+        return available;
+    }
+
+    private void meter(MeteredOperation operation, ReservationOutcome outcome, int seatNumber, long started) {
+        if (metered) {
+            metrics.record(operation, outcome, seatNumber, System.nanoTime() - started);
+        }
+    }
+
+    /**
+     * Returns an immutable availability map of the whole hall.
+     * <p>
+     * Unlike calling {@link #isSeatAvailable(int)} for every seat, the map holds the whole hall still: it
+     * contains every transition that completed before the call, and if a transition completed before another
+     * one started, a map that shows the later one shows the earlier one too. Transitions in flight at the same
+     * time may show up in either order, so seats changed concurrently may appear in a combination the storage
+     * went through in the other order. A seat never moves backwards from one map to the next.
+     * <p>
+     * Maps are published in epochs from a log of changed seats that writers append to without waiting; a reader
+     * takes the latest map, or folds the changes it misses into the next one, waiting for another reader's fold
+     * if one is running. Writers never wait for readers: the first call, and a call after writers overran the
+     * log, rebuild the map from the seat storage while transitions go on.
+     *
+     * @return the latest seat map
+     */
+    public SeatMapView getSeatMap() {
+        SeatMapPublisher publisher = seatMap;
+        return (publisher != null ? publisher : openSeatMap()).view();
+    }
+
+    private synchronized SeatMapPublisher openSeatMap() {
+        if (seatMap == null) {
+            SeatMapPublisher publisher = new SeatMapPublisher(layout, seats);
+            addListener(publisher);
+            publisher.load();
+            seatMap = publisher;
+        }
+        return seatMap;
+    }
+
+    /**
+     * Finds the best block of adjacent free seats in one row.
+     * <p>
+     * The search reads the free-seat bitmap without locking, so under concurrent traffic the block may be taken
+     * before the caller reserves it; use {@link #reserveContiguousBlock(int, SeatPreference, String)} to find
+     * and reserve in one step.
+     *
+     * @param size       the number of adjacent seats wanted
+     * @param preference where to look first
+     * @return the best free block, or empty if no row has enough adjacent free seats
+     * @throws IllegalArgumentException if size is not positive
+     */
+    public Optional<SeatBlock> findContiguousBlock(int size, SeatPreference preference) {
+        return findContiguousBlock(size, preference, null);
+    }
+
+    /**
+     * Finds the best block of adjacent free seats of one category in one row, like
+     * {@link #findContiguousBlock(int, SeatPreference)}.
+     *
+     * @param size       the number of adjacent seats wanted
+     * @param preference where to look first
+     * @param category   the category of every seat of the block, or null for any
+     * @return the best free block, or empty if no row has enough adjacent free seats of the category
+     * @throws IllegalArgumentException if size is not positive
+     */
+    public Optional<SeatBlock> findContiguousBlock(int size, SeatPreference preference, SeatCategory category) {
+        if (size <= 0) {
+            throw new IllegalArgumentException("Block size must be positive: " + size);
+        }
+        return Optional.ofNullable(freeSeats.find(size, preference, category));
+    }
+
+    /**
+     * Finds the best block of adjacent free seats and reserves it for the given client, all or nothing.
+     * <p>
+     * If another client takes a seat of the block first, the search is repeated on the updated bitmap.
+     *
+     * @param size       the number of adjacent seats wanted
+     * @param preference where to look first
+     * @param clientId   the ID of the client making the reservation
+     * @return the reserved block, or empty if no row has enough adjacent free seats
+     * @throws IllegalArgumentException if size is not positive
+     */
+    public Optional<SeatBlock> reserveContiguousBlock(int size, SeatPreference preference, String clientId) {
+        return reserveContiguousBlock(size, preference, null, clientId);
+    }
+
+    /**
+     * Finds the best block of adjacent free seats of one category and reserves it for the given client, all or
+     * nothing, like {@link #reserveContiguousBlock(int, SeatPreference, String)}.
+     *
+     * @param size       the number of adjacent seats wanted
+     * @param preference where to look first
+     * @param category   the category of every seat of the block, or null for any
+     * @param clientId   the ID of the client making the reservation
+     * @return the reserved block, or empty if no row has enough adjacent free seats of the category
+     * @throws IllegalArgumentException if size is not positive
+     */
+    public Optional<SeatBlock> reserveContiguousBlock(int size, SeatPreference preference, SeatCategory category,
+                                                      String clientId) {
+        Optional<SeatBlock> block = findContiguousBlock(size, preference, category);
+        while (block.isPresent() && !reserveSeats(block.get().seats(), clientId)) {
+            block = findContiguousBlock(size, preference, category);
+        }
+        return block;
+    }
+
+    /**
+     * Writes a snapshot of the seats to a file; see {@link CinemaSnapshot} for the format.
+     *
+     * @param path the file to write
+     * @throws UncheckedIOException if the file cannot be written
+     */
+    public void snapshotTo(Path path) {
+        snapshotTo(path, () -> 0L);
+    }
+
+    /**
+     * Writes a snapshot of the seats to a file, labelled with a position read at the same instant.
+     * <p>
+     * The snapshot is consistent: new transitions are held back for as long as it takes to let the transitions
+     * in flight and their listeners complete and to copy the seat holders. The file is written after the
+     * transitions have resumed. The position is read while they are held back, so for a journal attached as a
+     * listener it is exactly the point up to which the snapshot covers the journal. Must not be called from a
+     * listener. The file and its directory are forced to disk before this method returns.
+     *
+     * @param path     the file to write
+     * @param position the source of the label to store, such as the position of a journal listener
+     * @return the stored position
+     * @throws UncheckedIOException if the file cannot be written
+     */
+    public long snapshotTo(Path path, LongSupplier position) {
+        long label = snapshotTo(stored -> path, position);
+        CinemaSnapshot.forceDirectory(path.toAbsolutePath().getParent());
+        return label;
+    }
+
+    /**
+     * Writes a snapshot of the seats like {@link #snapshotTo(Path, LongSupplier)}, to a file named after the
+     * position, with a single atomic rename into place.
+     * <p>
+     * The directory is not forced, so the rename may still be lost in a crash: a caller that deletes the files
+     * the snapshot replaces must force the directory first.
+     *
+     * @param path     the file to write for the stored position
+     * @param position the source of the label to store, such as the position of a journal listener
+     * @return the stored position
+     * @throws UncheckedIOException if the file cannot be written
+     */
+    public long snapshotTo(LongFunction<Path> path, LongSupplier position) {
+        String[] holders = new String[seats.capacity() + 1];
+        long label = gate.paused(() -> {
+            seats.forEach((seatNumber, clientId, version) -> holders[seatNumber] = clientId);
+            return position.getAsLong();
+        });
+        CinemaSnapshot.write(path.apply(label), layout, holders, label);
+        return label;
+    }
+
+    /**
+     * Creates a cinema from a snapshot file written by {@link #snapshotTo(Path)}.
+     *
+     * @param path the snapshot file
+     * @return a cinema with the layout and reservations of the snapshot, on the default seat storage
+     * @throws UncheckedIOException  if the file cannot be read
+     * @throws IllegalStateException if the file is not a snapshot or is damaged
+     */
+    public static Cinema restoreFrom(Path path) {
+        CinemaSnapshot snapshot = CinemaSnapshot.open(path);
+        SeatStore store = new ArraySeatStore(snapshot.layout().capacity());
+        snapshot.restoreInto(store);
+        return new Cinema(snapshot.layout(), store);
+    }
+
+    /**
+     * Returns the layout of the hall.
+     *
+     * @return the hall layout
+     */
+    public HallLayout getLayout() {
+        return layout;
+    }
+
+    /**
+     * Returns the total number of seats in the cinema.
+     *
+     * @return the number of seats
+     */
+    public int getSeatsCount() {
+        return seats.capacity();
     }
 
     /**
      * Counts the number of currently reserved seats.
+     * <p>
+     * The count is maintained incrementally, so this call does not scan the seats. While reservations are in
+     * flight it may briefly lag behind the seat states; it is exact once they complete.
      *
      * @return the number of seats that are reserved
      */
     public long getReservedSeatsCount() {
-        return seats.values().stream().filter(v -> !UNRESERVED.equals(v)).count();
+        return reservedSeats.sum();
+    }
+
+    /**
+     * Counts the number of currently available seats.
+     *
+     * @return the number of seats that are not reserved
+     */
+    public long getAvailableSeatsCount() {
+        return seats.capacity() - getReservedSeatsCount();
+    }
+
+    /**
+     * Returns the number of seats in a category.
+     *
+     * @param category the seat category
+     * @return the number of seats of the category in the layout
+     */
+    public int getSeatsCount(SeatCategory category) {
+        return layout.seatsIn(category);
+    }
+
+    /**
+     * Counts the reserved seats of a category.
+     * <p>
+     * Like {@link #getReservedSeatsCount()}, the count is maintained incrementally with every transition, so
+     * reading the counts of all categories costs one counter per category and never touches the seats. It may
+     * briefly lag behind reservations in flight and is exact once they complete.
+     *
+     * @param category the seat category
+     * @return the number of seats of the category that are reserved
+     */
+    public long getReservedSeatsCount(SeatCategory category) {
+        return reservedByCategory[category.ordinal()].sum();
+    }
+
+    /**
+     * Counts the available seats of a category.
+     *
+     * @param category the seat category
+     * @return the number of seats of the category that are not reserved
+     */
+    public long getAvailableSeatsCount(SeatCategory category) {
+        return layout.seatsIn(category) - getReservedSeatsCount(category);
+    }
+
+    /**
+     * Returns the fraction of seats that are reserved.
+     *
+     * @return the occupancy between 0.0 (empty) and 1.0 (sold out); 0.0 for a cinema without seats
+     */
+    public double getOccupancyRatio() {
+        int capacity = seats.capacity();
+        return capacity == 0 ? 0.0 : (double) getReservedSeatsCount() / capacity;
+    }
+
+    /**
+     * Part of a bulk operation that processes a range of seats.
+     */
+    @FunctionalInterface
+    private interface RangeTask {
+        long run(int firstSeat, int lastSeat);
+    }
+
+    /**
+     * Part of a bulk operation that processes a group of seats of one client.
+     */
+    @FunctionalInterface
+    private interface GroupTask {
+        long run(int[] group, String clientId);
+    }
+
+    /**
+     * Splits the seats of a range, added in ascending order, into runs of seats of the same client that no seat
+     * of another client interrupts, and hands every run to a task as soon as it ends.
+     */
+    private static final class ClientRuns {
+        private final int[] run;
+        private final GroupTask task;
+        private int size;
+        private String clientId;
+        private long total;
+
+        ClientRuns(int maxSize, GroupTask task) {
+            this.run = new int[maxSize];
+            this.task = task;
+        }
+
+        void add(int seatNumber, String holder) {
+            if (!holder.equals(clientId)) {
+                flush();
+                clientId = holder;
+            }
+            run[size++] = seatNumber;
+        }
+
+        /**
+         * Hands the last run to the task.
+         *
+         * @return the sum of the task's results
+         */
+        long finish() {
+            flush();
+            return total;
+        }
+
+        private void flush() {
+            if (size > 0) {
+                total += task.run(Arrays.copyOf(run, size), clientId);
+                size = 0;
+            }
+        }
     }
 }
@@ -0,0 +1,353 @@
+package rk.powermilk.cinema.model;
+
+import rk.powermilk.cinema.store.SeatStore;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32C;
+
+/**
+ * Point-in-time copy of the seats of a {@link Cinema} in a compact file, read through a memory mapping.
+ * <p>
+ * The file holds the hall layout with its seat categories, a bitmap with one bit per seat set for reserved seats,
+ * a table of the distinct client IDs, and for every reserved seat, in seat order, the index of its client in the
+ * table, stored in one, two or four bytes depending on the size of the table:
+ * <pre>
+ * int    magic "CSNP"
+ * short  format version
+ * byte   width of a client index in bytes
+ * byte   unused
+ * long   position, a caller-defined label such as a journal LSN
+ * int    number of seats
+ * int    number of reserved seats
+ * int    number of rows
+ * int    number of client IDs
+ * int    size of the client table in bytes
+ * int    CRC-32C of everything after the header
+ * int[]  seats per row
+ * int    number of category runs
+ * int[]  for each run, its first seat and the ordinal of its category, padded with the above to a multiple of 8
+ *        bytes
+ * long[] reserved-seat bitmap
+ * client table: for each client, short length followed by the ID in UTF-8
+ * client indexes of the reserved seats
+ * </pre>
+ * Restoring walks the mapped bitmap and indexes directly; only the client IDs of the table are decoded into
+ * objects, so nothing is allocated per seat. Files of format version 1, which have no category runs, are read
+ * with every seat in {@link SeatCategory#STANDARD}.
+ */
+public final class CinemaSnapshot {
+    private static final int MAGIC = 0x43534e50;
+    private static final short FORMAT = 2;
+    private static final short FORMAT_WITHOUT_CATEGORIES = 1;
+    private static final int HEADER = 40;
+    private static final int MAX_CLIENT_ID = 0xFFFF;
+
+    private final HallLayout layout;
+    private final long position;
+    private final int reservedSeats;
+    private final String[] clients;
+    private final ByteBuffer bitmap;
+    private final ByteBuffer indexes;
+    private final int width;
+
+    private CinemaSnapshot(HallLayout layout, long position, int reservedSeats, String[] clients, ByteBuffer bitmap,
+                           ByteBuffer indexes, int width) {
+        this.layout = layout;
+        this.position = position;
+        this.reservedSeats = reservedSeats;
+        this.clients = clients;
+        this.bitmap = bitmap;
+        this.indexes = indexes;
+        this.width = width;
+    }
+
+    /**
+     * Writes a snapshot file. The file is written and forced next to its target and renamed in one atomic move,
+     * so it is never seen partly written. The directory is not forced; see {@link #forceDirectory(Path)}.
+     *
+     * @param path     the file to write
+     * @param layout   the hall layout
+     * @param holders  the client of every seat, indexed by seat number, or null for free seats
+     * @param position the label to store with the snapshot
+     * @throws UncheckedIOException     if the file cannot be written
+     * @throws IllegalArgumentException if a client ID is longer than 65,535 bytes in UTF-8
+     */
+    static void write(Path path, HallLayout layout, String[] holders, long position) {
+        Map<String, Integer> ids = new HashMap<>();
+        List<byte[]> table = new ArrayList<>();
+        int[] seatClients = new int[layout.capacity() + 1];
+        int reserved = 0;
+        int tableBytes = 0;
+        for (int seatNumber = 1; seatNumber <= layout.capacity(); seatNumber++) {
+            String clientId = holders[seatNumber];
+            if (clientId != null) {
+                Integer id = ids.get(clientId);
+                if (id == null) {
+                    id = table.size();
+                    ids.put(clientId, id);
+                    byte[] encoded = clientId.getBytes(StandardCharsets.UTF_8);
+                    if (encoded.length > MAX_CLIENT_ID) {
+                        throw new IllegalArgumentException("Client ID is too long: " + encoded.length + " bytes");
+                    }
+                    table.add(encoded);
+                    tableBytes += Short.BYTES + encoded.length;
+                }
+                seatClients[seatNumber] = id;
+                reserved++;
+            }
+        }
+        int width = widthFor(table.size());
+        int rows = layout.rows();
+        int runs = layout.categoryRuns();
+        int layoutBytes = (int) layoutBytes(FORMAT, rows, runs);
+        int size = HEADER + layoutBytes + bitmapBytes(layout.capacity()) + tableBytes + reserved * width;
+        Path temporary = path.resolveSibling(path.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.READ,
+            StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            MappedByteBuffer out = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+            out.putInt(MAGIC).putShort(FORMAT).put((byte) width).put((byte) 0).putLong(position)
+                .putInt(layout.capacity()).putInt(reserved).putInt(rows).putInt(table.size()).putInt(tableBytes)
+                .putInt(0);
+            for (int row = 1; row <= rows; row++) {
+                out.putInt(layout.seatsInRow(row));
+            }
+            out.putInt(runs);
+            for (int run = 0; run < runs; run++) {
+                out.putInt(layout.runStart(run)).putInt(layout.runCategory(run).ordinal());
+            }
+            out.position(HEADER + layoutBytes);
+            for (int first = 1; first <= layout.capacity(); first += Long.SIZE) {
+                long word = 0;
+                for (int bit = 0; bit < Long.SIZE && first + bit <= layout.capacity(); bit++) {
+                    if (holders[first + bit] != null) {
+                        word |= 1L << bit;
+                    }
+                }
+                out.putLong(word);
+            }
+            for (byte[] encoded : table) {
+                out.putShort((short) encoded.length).put(encoded);
+            }
+            for (int seatNumber = 1; seatNumber <= layout.capacity(); seatNumber++) {
+                if (holders[seatNumber] != null) {
+                    putIndex(out, width, seatClients[seatNumber]);
+                }
+            }
+            out.putInt(HEADER - Integer.BYTES, checksum(out, size));
+            out.force();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        try {
+            Files.move(temporary, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Forces the entries of a directory to disk, so that a rename into it survives a crash.
+     *
+     * @param directory the directory to force
+     * @throws UncheckedIOException if the directory cannot be forced
+     */
+    static void forceDirectory(Path directory) {
+        try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Maps a snapshot file and checks its integrity.
+     *
+     * @param path the file written by {@link Cinema#snapshotTo(Path)}
+     * @return the snapshot
+     * @throws UncheckedIOException  if the file cannot be read
+     * @throws IllegalStateException if the file is not a snapshot or is damaged
+     */
+    public static CinemaSnapshot open(Path path) {
+        MappedByteBuffer in;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            in = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        short format = in.capacity() < HEADER ? 0 : in.getShort(4);
+        if (in.capacity() < HEADER || in.getInt(0) != MAGIC
+            || format != FORMAT && format != FORMAT_WITHOUT_CATEGORIES) {
+            throw new IllegalStateException("Not a cinema snapshot: " + path);
+        }
+        int width = in.get(6);
+        long position = in.getLong(8);
+        int capacity = in.getInt(16);
+        int reserved = in.getInt(20);
+        int rows = in.getInt(24);
+        int clientCount = in.getInt(28);
+        int tableBytes = in.getInt(32);
+        int runs = format == FORMAT && rows >= 0 && in.capacity() >= HEADER + (rows + 1L) * Integer.BYTES
+            ? in.getInt(HEADER + rows * Integer.BYTES) : 0;
+        long size = (long) HEADER + layoutBytes(format, rows, runs) + bitmapBytes(capacity) + tableBytes
+            + (long) reserved * width;
+        if (rows < 0 || runs < 0 || (width != 1 && width != 2 && width != 4) || size != in.capacity()
+            || checksum(in, in.capacity()) != in.getInt(HEADER - Integer.BYTES)) {
+            throw new IllegalStateException("Damaged cinema snapshot: " + path);
+        }
+        int[] rowLengths = new int[rows];
+        for (int row = 0; row < rows; row++) {
+            rowLengths[row] = in.getInt(HEADER + row * Integer.BYTES);
+        }
+        HallLayout layout = rows == 0 ? HallLayout.singleRow(0) : HallLayout.ofRows(rowLengths);
+        if (layout.capacity() != capacity) {
+            throw new IllegalStateException("Damaged cinema snapshot: " + path);
+        }
+        if (runs > 0) {
+            layout = readCategories(in, HEADER + (rows + 1) * Integer.BYTES, runs, layout, path);
+        }
+        int bitmapStart = HEADER + (int) layoutBytes(format, rows, runs);
+        int tableStart = bitmapStart + bitmapBytes(capacity);
+        String[] clients = new String[clientCount];
+        int offset = tableStart;
+        for (int i = 0; i < clientCount; i++) {
+            int length = Short.toUnsignedInt(in.getShort(offset));
+            byte[] encoded = new byte[length];
+            in.get(offset + Short.BYTES, encoded);
+            clients[i] = new String(encoded, StandardCharsets.UTF_8);
+            offset += Short.BYTES + length;
+        }
+        return new CinemaSnapshot(layout, position, reserved, clients, in.slice(bitmapStart, tableStart - bitmapStart),
+            in.slice(tableStart + tableBytes, reserved * width), width);
+    }
+
+    /**
+     * Returns the layout of the hall.
+     *
+     * @return the hall layout
+     */
+    public HallLayout layout() {
+        return layout;
+    }
+
+    /**
+     * Returns the label stored with the snapshot.
+     *
+     * @return the position passed to {@link Cinema#snapshotTo(Path, java.util.function.LongSupplier)}, or 0
+     */
+    public long position() {
+        return position;
+    }
+
+    /**
+     * Returns the number of seats that were reserved.
+     *
+     * @return the number of reserved seats
+     */
+    public int reservedSeats() {
+        return reservedSeats;
+    }
+
+    /**
+     * Returns the number of distinct clients holding seats.
+     *
+     * @return the size of the client table
+     */
+    public int clients() {
+        return clients.length;
+    }
+
+    /**
+     * Copies the reserved seats into an empty store.
+     * <p>
+     * Restored seats get version 1. Replaying a journal recorded after a consistent snapshot still works, since
+     * the journal only holds transitions that happened after the snapshot.
+     *
+     * @param store the store to fill; must have the capacity of the layout
+     * @throws IllegalArgumentException if the store capacity does not match the layout
+     */
+    public void restoreInto(SeatStore store) {
+        if (store.capacity() != layout.capacity()) {
+            throw new IllegalArgumentException(
+                "Snapshot has " + layout.capacity() + " seats but storage has " + store.capacity());
+        }
+        int reserved = 0;
+        for (int word = 0; word < bitmap.capacity() / Long.BYTES; word++) {
+            long bits = bitmap.getLong(word * Long.BYTES);
+            while (bits != 0) {
+                int seatNumber = word * Long.SIZE + Long.numberOfTrailingZeros(bits) + 1;
+                store.restore(seatNumber, clients[index(reserved++)], 1);
+                bits &= bits - 1;
+            }
+        }
+    }
+
+    private int index(int i) {
+        return switch (width) {
+            case 1 -> Byte.toUnsignedInt(indexes.get(i));
+            case 2 -> Short.toUnsignedInt(indexes.getShort(i * 2));
+            default -> indexes.getInt(i * 4);
+        };
+    }
+
+    private static void putIndex(ByteBuffer out, int width, int index) {
+        switch (width) {
+            case 1 -> out.put((byte) index);
+            case 2 -> out.putShort((short) index);
+            default -> out.putInt(index);
+        }
+    }
+
+    private static int widthFor(int clients) {
+        if (clients <= 1 << Byte.SIZE) {
+            return 1;
+        }
+        return clients <= 1 << Short.SIZE ? 2 : 4;
+    }
+
+    private static HallLayout readCategories(ByteBuffer in, int offset, int runs, HallLayout layout, Path path) {
+        SeatCategory[] categories = SeatCategory.values();
+        int[] starts = new int[runs];
+        SeatCategory[] runCategories = new SeatCategory[runs];
+        for (int run = 0; run < runs; run++) {
+            starts[run] = in.getInt(offset + run * 2 * Integer.BYTES);
+            int category = in.getInt(offset + run * 2 * Integer.BYTES + Integer.BYTES);
+            if (category < 0 || category >= categories.length
+                || (run == 0 ? starts[run] != 1 : starts[run] <= starts[run - 1] || starts[run] > layout.capacity())) {
+                throw new IllegalStateException("Damaged cinema snapshot: " + path);
+            }
+            runCategories[run] = categories[category];
+        }
+        return layout.withRuns(starts, runCategories, runs);
+    }
+
+    private static long layoutBytes(short format, int rows, int runs) {
+        long bytes = (long) rows * Integer.BYTES;
+        if (format != FORMAT_WITHOUT_CATEGORIES) {
+            bytes += Integer.BYTES + (long) runs * 2 * Integer.BYTES;
+        }
+        return (bytes + 7) & ~7;
+    }
+
+    private static int bitmapBytes(int capacity) {
+        return (capacity + Long.SIZE - 1) / Long.SIZE * Long.BYTES;
+    }
+
+    private static int checksum(ByteBuffer buffer, int size) {
+        CRC32C crc = new CRC32C();
+        crc.update(buffer.slice(HEADER, size - HEADER));
+        return (int) crc.getValue();
+    }
+}
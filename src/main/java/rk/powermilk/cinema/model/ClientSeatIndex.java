@@ -0,0 +1,336 @@
+package rk.powermilk.cinema.model;
+
+import rk.powermilk.cinema.store.SeatStore;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Reverse index from client ID to the seats the client holds, kept exact by updating it together with the
+ * seat storage.
+ * <p>
+ * Every client that holds seats has a compact, growable set of seat numbers. Changes of a client's seats go
+ * through this index, which makes the storage change and the index update under the monitor of the client's
+ * set, so operations of one client are serialized while different clients never share a lock. Since only the
+ * holder of a seat can release it, the set of a client can only be changed by that client's own successful
+ * operations, and no interleaving can leave it stale. Sets that become empty are removed and marked retired, so
+ * a thread that fetched a set just before it was removed notices and fetches a fresh one.
+ */
+final class ClientSeatIndex {
+    private final ConcurrentHashMap<String, Holdings> holdings = new ConcurrentHashMap<>();
+
+    /**
+     * Records a seat that is already held, while the storage is being loaded.
+     *
+     * @param clientId   the holder
+     * @param seatNumber the seat
+     */
+    void restore(String clientId, int seatNumber) {
+        holdings.computeIfAbsent(clientId, id -> new Holdings()).add(seatNumber);
+    }
+
+    /**
+     * Reserves a seat in the storage and records it for the client if that succeeds.
+     *
+     * @return the new version of the seat, or {@link SeatStore#FAILED}
+     */
+    long reserve(SeatStore seats, int seatNumber, String clientId) {
+        while (true) {
+            Holdings held = holdings.computeIfAbsent(clientId, id -> new Holdings());
+            synchronized (held) {
+                if (held.retired) {
+                    continue;
+                }
+                long version = seats.reserve(seatNumber, clientId);
+                if (version != SeatStore.FAILED) {
+                    held.add(seatNumber);
+                } else {
+                    retireIfEmpty(clientId, held);
+                }
+                return version;
+            }
+        }
+    }
+
+    /**
+     * Reserves a group of seats in the storage, all or nothing, and records them for the client if that
+     * succeeds.
+     *
+     * @return the new versions of the seats, or null
+     */
+    long[] reserveAll(SeatStore seats, int[] group, String clientId) {
+        while (true) {
+            Holdings held = holdings.computeIfAbsent(clientId, id -> new Holdings());
+            synchronized (held) {
+                if (held.retired) {
+                    continue;
+                }
+                long[] versions = seats.reserveAll(group, clientId);
+                if (versions != null) {
+                    for (int seatNumber : group) {
+                        held.add(seatNumber);
+                    }
+                } else {
+                    retireIfEmpty(clientId, held);
+                }
+                return versions;
+            }
+        }
+    }
+
+    /**
+     * Cancels a seat of the client in the storage and forgets it if that succeeds. A client without seats fails
+     * without touching the storage.
+     *
+     * @return the new version of the seat, or {@link SeatStore#FAILED}
+     */
+    long cancel(SeatStore seats, int seatNumber, String clientId) {
+        while (true) {
+            Holdings held = holdings.get(clientId);
+            if (held == null) {
+                return SeatStore.FAILED;
+            }
+            synchronized (held) {
+                if (held.retired) {
+                    continue;
+                }
+                long version = seats.cancel(seatNumber, clientId);
+                if (version != SeatStore.FAILED) {
+                    held.remove(seatNumber);
+                    retireIfEmpty(clientId, held);
+                }
+                return version;
+            }
+        }
+    }
+
+    /**
+     * Hands a seat of one client over to another in the storage and moves it between their sets if that
+     * succeeds. Both sets are locked, always in the order of the client IDs, so two hand-overs in opposite
+     * directions cannot deadlock.
+     *
+     * @param from the holder of the seat
+     * @param to   the client taking the seat over; not {@code from}
+     * @return the new version of the seat, or {@link SeatStore#FAILED}
+     */
+    long handOver(SeatStore seats, int seatNumber, String from, String to) {
+        while (true) {
+            Holdings source = holdings.get(from);
+            if (source == null) {
+                return SeatStore.FAILED;
+            }
+            Holdings target = holdings.computeIfAbsent(to, id -> new Holdings());
+            boolean sourceFirst = from.compareTo(to) < 0;
+            synchronized (sourceFirst ? source : target) {
+                synchronized (sourceFirst ? target : source) {
+                    if (source.retired || target.retired) {
+                        continue;
+                    }
+                    long version = seats.handOver(seatNumber, from, to);
+                    if (version != SeatStore.FAILED) {
+                        source.remove(seatNumber);
+                        target.add(seatNumber);
+                        retireIfEmpty(from, source);
+                    } else {
+                        retireIfEmpty(to, target);
+                    }
+                    return version;
+                }
+            }
+        }
+    }
+
+    /**
+     * Cancels a group of seats of the client in the storage, all or nothing, and forgets them if that succeeds.
+     *
+     * @return the new versions of the seats, or null
+     */
+    long[] cancelAll(SeatStore seats, int[] group, String clientId) {
+        while (true) {
+            Holdings held = holdings.get(clientId);
+            if (held == null) {
+                return null;
+            }
+            synchronized (held) {
+                if (held.retired) {
+                    continue;
+                }
+                long[] versions = seats.cancelAll(group, clientId);
+                if (versions != null) {
+                    for (int seatNumber : group) {
+                        held.remove(seatNumber);
+                    }
+                    retireIfEmpty(clientId, held);
+                }
+                return versions;
+            }
+        }
+    }
+
+    /**
+     * Cancels every seat of the client in the storage.
+     *
+     * @return the cancelled seats in ascending order and their new versions; empty if the client held none
+     * @throws IllegalStateException if the storage no longer agrees with the index
+     */
+    Cancelled cancelEverything(SeatStore seats, String clientId) {
+        while (true) {
+            Holdings held = holdings.get(clientId);
+            if (held == null) {
+                return Cancelled.NONE;
+            }
+            synchronized (held) {
+                if (held.retired) {
+                    continue;
+                }
+                int[] group = held.sorted();
+                long[] versions = seats.cancelAll(group, clientId);
+                if (versions == null) {
+                    throw new IllegalStateException("Seats of client " + clientId + " are out of sync with storage");
+                }
+                held.clear();
+                retireIfEmpty(clientId, held);
+                return new Cancelled(group, versions);
+            }
+        }
+    }
+
+    /**
+     * Puts a seat of the storage into a recorded state and moves it from the set of its previous holder to the
+     * set of its new one if that succeeds. Unlike the other changes, it is not serialized with operations of the
+     * clients involved, so callers must make sure nothing else changes the seat at the same time.
+     *
+     * @param previous the holder of the seat before the change, or null if it was free
+     * @param clientId the holder of the seat in the recorded state, or null if it is free
+     * @return true if the seat was updated; false if the recorded state is not newer than the seat
+     */
+    boolean replace(SeatStore seats, int seatNumber, String previous, String clientId, long version) {
+        if (!seats.restore(seatNumber, clientId, version)) {
+            return false;
+        }
+        if (previous != null) {
+            Holdings held = holdings.get(previous);
+            if (held != null) {
+                synchronized (held) {
+                    held.remove(seatNumber);
+                    retireIfEmpty(previous, held);
+                }
+            }
+        }
+        while (clientId != null) {
+            Holdings held = holdings.computeIfAbsent(clientId, id -> new Holdings());
+            synchronized (held) {
+                if (!held.retired) {
+                    held.add(seatNumber);
+                    break;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns the seats held by a client.
+     *
+     * @return the seat numbers in ascending order; empty if the client holds none
+     */
+    int[] seatsOf(String clientId) {
+        Holdings held = holdings.get(clientId);
+        if (held == null) {
+            return new int[0];
+        }
+        synchronized (held) {
+            return held.retired ? new int[0] : held.sorted();
+        }
+    }
+
+    /**
+     * Checks whether a client holds a seat. A seat claimed by a group reservation of the client that has not
+     * completed yet is not held, since the group may still fail.
+     *
+     * @return true if the seat is recorded for the client
+     */
+    boolean holds(String clientId, int seatNumber) {
+        Holdings held = holdings.get(clientId);
+        if (held == null) {
+            return false;
+        }
+        synchronized (held) {
+            return !held.retired && held.contains(seatNumber);
+        }
+    }
+
+    /**
+     * Returns the number of clients holding at least one seat.
+     *
+     * @return the number of clients
+     */
+    int clients() {
+        return holdings.size();
+    }
+
+    private void retireIfEmpty(String clientId, Holdings held) {
+        if (held.size == 0) {
+            held.retired = true;
+            holdings.remove(clientId, held);
+        }
+    }
+
+    /**
+     * Seats cancelled at once, with their new versions in the same order.
+     *
+     * @param seatNumbers the seat numbers in ascending order
+     * @param versions    the new versions of the seats
+     */
+    record Cancelled(int[] seatNumbers, long[] versions) {
+        static final Cancelled NONE = new Cancelled(new int[0], new long[0]);
+    }
+
+    /**
+     * Unordered set of the seat numbers of one client, in an array that grows as needed. Guarded by its own
+     * monitor.
+     */
+    private static final class Holdings {
+        private int[] seats = new int[4];
+        private int size;
+        private boolean retired;
+
+        void add(int seatNumber) {
+            if (size == seats.length) {
+                seats = Arrays.copyOf(seats, size * 2);
+            }
+            seats[size++] = seatNumber;
+        }
+
+        void remove(int seatNumber) {
+            for (int i = 0; i < size; i++) {
+                if (seats[i] == seatNumber) {
+                    seats[i] = seats[--size];
+                    return;
+                }
+            }
+        }
+
+        boolean contains(int seatNumber) {
+            for (int i = 0; i < size; i++) {
+                if (seats[i] == seatNumber) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        void clear() {
+            size = 0;
+            if (seats.length > 64) {
+                seats = new int[4];
+            }
+        }
+
+        int[] sorted() {
+            int[] copy = Arrays.copyOf(seats, size);
+            Arrays.sort(copy);
+            return copy;
+        }
+    }
+}
@@ -1,38 +1,57 @@
 package rk.powermilk.cinema.model;
 
-import lombok.extern.slf4j.Slf4j;
-import rk.powermilk.cinema.error.IllegalSeatReservedException;
+import rk.powermilk.cinema.event.Outcome;
+import rk.powermilk.cinema.event.OutcomeChannel;
 
 import java.util.UUID;
 
 /**
  * Represents a client action executed concurrently.
  * <p>
- * Each task attempts to reserve or cancel a specific seat in the cinema.
- * Uses a thread-local client ID to simulate unique users.
+ * Each task attempts to reserve or cancel a specific seat in the cinema on behalf of an explicitly identified
+ * client, independent of the thread that runs it. A taken seat is cancelled instead, which only succeeds if the
+ * client holds it. The task uses the result codes of the cinema, so invalid seat numbers cost no exception, and
+ * publishes the outcome to an {@link OutcomeChannel} instead of logging it in place, so running a task builds
+ * no strings.
+ *
+ * @param cinema     the cinema to act on
+ * @param seatNumber the seat to reserve, or to cancel if it is taken
+ * @param clientId   the ID of the client
+ * @param outcomes   the channel receiving the outcome
  */
-@Slf4j
-public record ClientTask(Cinema cinema, int seatNumber) implements Runnable {
+public record ClientTask(Cinema cinema, int seatNumber, String clientId, OutcomeChannel outcomes)
+    implements Runnable {
+
     /**
-     * Thread-local client ID simulating a unique user per thread.
+     * Creates a task that publishes its outcome to the {@link OutcomeChannel#shared() shared channel}.
+     *
+     * @param cinema     the cinema to act on
+     * @param seatNumber the seat to reserve, or to cancel if it is taken
+     * @param clientId   the ID of the client
      */
-    private static final ThreadLocal<String> clientId = ThreadLocal.withInitial(() -> UUID.randomUUID().toString());
+    public ClientTask(Cinema cinema, int seatNumber, String clientId) {
+        this(cinema, seatNumber, clientId, OutcomeChannel.shared());
+    }
+
+    /**
+     * Creates a task for a new anonymous client with a random ID.
+     *
+     * @param cinema     the cinema to act on
+     * @param seatNumber the seat to reserve, or to cancel if it is taken
+     */
+    public ClientTask(Cinema cinema, int seatNumber) {
+        this(cinema, seatNumber, UUID.randomUUID().toString());
+    }
 
     @Override
     public void run() {
-        String id = clientId.get();
-        try {
-            log.debug("Client {} is checking seat {}", id, seatNumber);
-
-            if (cinema.isSeatAvailable(seatNumber)) {
-                boolean reserved = cinema.reserveSeat(seatNumber, id);
-                log.info("Client {}{} seat {}", id, reserved ? " reserved" : " couldn't reserve", seatNumber);
-            } else {
-                boolean canceled = cinema.cancelReservation(seatNumber, id);
-                log.info("Client {}{} reservation for seat {}", id, canceled ? " canceled" : " couldn't cancel", seatNumber);
-            }
-        } catch (IllegalSeatReservedException e) {
-            log.error("Client {} error: {}", id, e.getMessage());
-        }
+        Outcome outcome = switch (cinema.tryReserve(seatNumber, clientId)) {
+            case OK -> Outcome.RESERVED;
+            case INVALID -> Outcome.INVALID_SEAT;
+            default -> cinema.tryCancel(seatNumber, clientId) == ReservationOutcome.OK
+                ? Outcome.CANCELLED
+                : Outcome.CANCEL_FAILED;
+        };
+        outcomes.publish(outcome, seatNumber, clientId);
     }
 }
@@ -0,0 +1,285 @@
+package rk.powermilk.cinema.model;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.stream.IntStream;
+
+/**
+ * Per-row bitmap of free seats, used to answer best-available queries without probing every seat.
+ * <p>
+ * Every row starts on its own 64-bit word and a set bit marks a free seat. The bitmap is updated after a seat
+ * transition has succeeded in the seat storage by atomically flipping the seat's bit. A seat's transitions
+ * strictly alternate between reserve and cancel, and flips commute, so the bitmap matches the storage as soon
+ * as the transitions in flight complete, whatever order their flips land in.
+ * <p>
+ * The words are grouped in chunks of {@value #CHUNK_WORDS}, allocated the first time a seat of the chunk flips;
+ * until then all its seats read as free. Bits past the end of a row are never flipped and searches stop at the
+ * row's length, so they may read as free. Creating an index of an empty hall therefore allocates per row and
+ * per chunk, never per seat.
+ * <p>
+ * Searches restricted to a {@link SeatCategory} AND the words with a mask of the category's seats, laid out
+ * like the bitmap, so seats of other categories look taken. A category that covers the whole hall needs no mask;
+ * the chunks of the other masks are built the first time a search reads them.
+ */
+final class FreeSeatIndex {
+    /**
+     * Number of words per chunk, a power of two; a chunk covers up to 4096 seats.
+     */
+    static final int CHUNK_WORDS = 1 << 6;
+    private static final int CHUNK_SHIFT = Integer.numberOfTrailingZeros(CHUNK_WORDS);
+    private static final VarHandle WORDS = MethodHandles.arrayElementVarHandle(long[].class);
+    private static final VarHandle CHUNKS = MethodHandles.arrayElementVarHandle(long[][].class);
+
+    private final HallLayout layout;
+    /**
+     * Index of the first word of every row.
+     */
+    private final int[] rowOffsets;
+    /**
+     * Words of every chunk, or null for a chunk none of whose seats has ever flipped.
+     */
+    private final long[][] chunks;
+    /**
+     * Row indexes ordered from the middle of the hall outwards.
+     */
+    private final int[] centerRows;
+    /**
+     * Chunks of the seats of every category, by ordinal, in the layout of {@link #chunks}, each null until first
+     * read; null if the category has all the seats of the hall or none.
+     */
+    private final long[][][] categoryMasks;
+
+    /**
+     * Creates an index with all seats of the layout free.
+     *
+     * @param layout the hall layout
+     */
+    FreeSeatIndex(HallLayout layout) {
+        this.layout = layout;
+        this.rowOffsets = new int[layout.rows() + 1];
+        for (int row = 0; row < layout.rows(); row++) {
+            rowOffsets[row + 1] = rowOffsets[row] + wordsFor(layout.seatsInRow(row + 1));
+        }
+        int chunkCount = (rowOffsets[layout.rows()] + CHUNK_WORDS - 1) >>> CHUNK_SHIFT;
+        this.chunks = new long[chunkCount][];
+        int rows = layout.rows();
+        this.centerRows = IntStream.range(0, rows).boxed()
+            .sorted(Comparator.comparingInt(row -> Math.abs(2 * row - (rows - 1))))
+            .mapToInt(Integer::intValue)
+            .toArray();
+        this.categoryMasks = new long[SeatCategory.values().length][][];
+        for (SeatCategory category : SeatCategory.values()) {
+            int seats = layout.seatsIn(category);
+            if (seats > 0 && seats < layout.capacity()) {
+                categoryMasks[category.ordinal()] = new long[chunkCount][];
+            }
+        }
+    }
+
+    private static int wordsFor(int bits) {
+        return (bits + Long.SIZE - 1) >>> 6;
+    }
+
+    /**
+     * Flips the state of a seat after a successful reservation or cancellation.
+     *
+     * @param seatNumber a valid seat number
+     */
+    void flip(int seatNumber) {
+        int row = layout.rowOf(seatNumber);
+        int offset = seatNumber - layout.firstSeatOfRow(row);
+        int index = rowOffsets[row - 1] + (offset >>> 6);
+        long[] chunk = (long[]) CHUNKS.getAcquire(chunks, index >>> CHUNK_SHIFT);
+        if (chunk == null) {
+            chunk = allocate(index >>> CHUNK_SHIFT);
+        }
+        WORDS.getAndBitwiseXor(chunk, index & (CHUNK_WORDS - 1), 1L << offset);
+    }
+
+    /**
+     * Checks whether the index records a seat as free.
+     *
+     * @param seatNumber a valid seat number
+     * @return true if the seat's bit is set
+     */
+    boolean isFree(int seatNumber) {
+        int row = layout.rowOf(seatNumber);
+        int offset = seatNumber - layout.firstSeatOfRow(row);
+        return (word(rowOffsets[row - 1] + (offset >>> 6)) & (1L << offset)) != 0;
+    }
+
+    /**
+     * Finds a block of adjacent free seats in one row.
+     *
+     * @param size       the number of seats wanted
+     * @param preference where to look first
+     * @return the best block according to the preference, or null if no row has enough adjacent free seats
+     */
+    SeatBlock find(int size, SeatPreference preference) {
+        return find(size, preference, null);
+    }
+
+    /**
+     * Finds a block of adjacent free seats of one category in one row.
+     *
+     * @param size       the number of seats wanted
+     * @param preference where to look first
+     * @param category   the category of every seat of the block, or null for any
+     * @return the best block according to the preference, or null if no row has enough adjacent free seats of
+     * the category
+     */
+    SeatBlock find(int size, SeatPreference preference, SeatCategory category) {
+        if (category != null && layout.seatsIn(category) < size) {
+            return null;
+        }
+        long[][] mask = category == null ? null : categoryMasks[category.ordinal()];
+        int rows = layout.rows();
+        for (int i = 0; i < rows; i++) {
+            int row = switch (preference) {
+                case FRONT -> i;
+                case BACK -> rows - 1 - i;
+                case CENTER -> centerRows[i];
+            };
+            int offset = findInRow(row, size, preference == SeatPreference.CENTER, category, mask);
+            if (offset >= 0) {
+                return new SeatBlock(row + 1, layout.firstSeatOfRow(row + 1) + offset, size);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Scans the runs of free seats in a row, skipping whole words of free or taken seats at a time.
+     *
+     * @return the offset of the block within the row, or -1 if the row has no run long enough
+     */
+    private int findInRow(int row, int size, boolean centered, SeatCategory category, long[][] mask) {
+        int length = layout.seatsInRow(row + 1);
+        if (size > length) {
+            return -1;
+        }
+        int base = rowOffsets[row];
+        int ideal = (length - size) / 2;
+        int best = -1;
+        int bestDistance = Integer.MAX_VALUE;
+        int start = nextFree(base, 0, length, category, mask);
+        while (start < length) {
+            int end = nextTaken(base, start, length, category, mask);
+            if (end - start >= size) {
+                if (!centered) {
+                    return start;
+                }
+                int candidate = Math.clamp(ideal, start, end - size);
+                int distance = Math.abs(candidate - ideal);
+                if (distance < bestDistance) {
+                    best = candidate;
+                    bestDistance = distance;
+                }
+                if (start >= ideal) {
+                    break;
+                }
+            }
+            start = nextFree(base, end, length, category, mask);
+        }
+        return best;
+    }
+
+    private int nextFree(int base, int from, int length, SeatCategory category, long[][] mask) {
+        return nextBit(base, from, length, 0L, category, mask);
+    }
+
+    private int nextTaken(int base, int from, int length, SeatCategory category, long[][] mask) {
+        return nextBit(base, from, length, -1L, category, mask);
+    }
+
+    /**
+     * Returns the offset of the first bit at or after {@code from} that is set in the row's words, masked and
+     * XOR-ed with {@code invert}, or {@code length} if there is none.
+     */
+    private int nextBit(int base, int from, int length, long invert, SeatCategory category, long[][] mask) {
+        if (from >= length) {
+            return length;
+        }
+        int index = from >>> 6;
+        long bits = (word(base + index, category, mask) ^ invert) & (-1L << from);
+        int last = (length - 1) >>> 6;
+        while (bits == 0) {
+            if (++index > last) {
+                return length;
+            }
+            bits = word(base + index, category, mask) ^ invert;
+        }
+        return Math.min(length, (index << 6) + Long.numberOfTrailingZeros(bits));
+    }
+
+    /**
+     * Returns the number of chunks of words allocated so far.
+     *
+     * @return the number of chunks in which at least one seat has flipped
+     */
+    int allocatedChunks() {
+        int allocated = 0;
+        for (int i = 0; i < chunks.length; i++) {
+            if (CHUNKS.getAcquire(chunks, i) != null) {
+                allocated++;
+            }
+        }
+        return allocated;
+    }
+
+    private long word(int index) {
+        long[] chunk = (long[]) CHUNKS.getAcquire(chunks, index >>> CHUNK_SHIFT);
+        return chunk == null ? -1L : (long) WORDS.getAcquire(chunk, index & (CHUNK_WORDS - 1));
+    }
+
+    private long word(int index, SeatCategory category, long[][] mask) {
+        if (mask == null) {
+            return word(index);
+        }
+        long[] chunk = (long[]) CHUNKS.getAcquire(mask, index >>> CHUNK_SHIFT);
+        if (chunk == null) {
+            chunk = buildMask(category, mask, index >>> CHUNK_SHIFT);
+        }
+        return word(index) & chunk[index & (CHUNK_WORDS - 1)];
+    }
+
+    /**
+     * Allocates the words of a chunk, once, with all their bits set.
+     */
+    private synchronized long[] allocate(int chunkIndex) {
+        long[] chunk = chunks[chunkIndex];
+        if (chunk == null) {
+            chunk = new long[CHUNK_WORDS];
+            Arrays.fill(chunk, -1L);
+            CHUNKS.setRelease(chunks, chunkIndex, chunk);
+        }
+        return chunk;
+    }
+
+    /**
+     * Builds a chunk of a category mask from the layout. Racing builders compute the same words, so whichever
+     * chunk is published last is as good as any.
+     */
+    private long[] buildMask(SeatCategory category, long[][] mask, int chunkIndex) {
+        long[] chunk = new long[CHUNK_WORDS];
+        int first = chunkIndex << CHUNK_SHIFT;
+        int end = Math.min(first + CHUNK_WORDS, rowOffsets[layout.rows()]);
+        int found = Arrays.binarySearch(rowOffsets, first);
+        int row = found >= 0 ? found : -found - 2;
+        for (; row < layout.rows() && rowOffsets[row] < end; row++) {
+            int length = layout.seatsInRow(row + 1);
+            int firstSeat = layout.firstSeatOfRow(row + 1);
+            int from = Math.max(0, first - rowOffsets[row]) << 6;
+            int to = Math.min(length, (end - rowOffsets[row]) << 6);
+            for (int offset = from; offset < to; offset++) {
+                if (layout.categoryOf(firstSeat + offset) == category) {
+                    chunk[rowOffsets[row] - first + (offset >>> 6)] |= 1L << offset;
+                }
+            }
+        }
+        CHUNKS.setRelease(mask, chunkIndex, chunk);
+        return chunk;
+    }
+}
@@ -0,0 +1,277 @@
+package rk.powermilk.cinema.model;
+
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+/**
+ * Describes the rows of a cinema hall and the {@link SeatCategory} of its seats.
+ * <p>
+ * Seats are numbered row by row, starting at 1 with the first seat of the first row, which is the row
+ * closest to the screen. Rows are numbered from 1 as well. Categories are assigned to ranges of seats, which
+ * are kept as runs of consecutive seats of the same category, so a hall with a few VIP rows and accessible
+ * spaces costs a handful of entries whatever its size.
+ */
+public final class HallLayout {
+    private static final SeatCategory[] CATEGORIES = SeatCategory.values();
+
+    private final int[] rowLengths;
+    /**
+     * Seat number of the first seat of every row, followed by the seat number one past the last seat.
+     */
+    private final int[] rowStarts;
+    /**
+     * Seat number of the first seat of every category run, in ascending order; empty for a hall without seats.
+     */
+    private final int[] runStarts;
+    /**
+     * Category of every run.
+     */
+    private final SeatCategory[] runCategories;
+    /**
+     * Number of seats of every category, by ordinal.
+     */
+    private final int[] categorySeats;
+
+    private HallLayout(int[] rowLengths) {
+        this(rowLengths, rowLengths.length == 0 ? new int[0] : new int[]{1},
+            rowLengths.length == 0 ? new SeatCategory[0] : new SeatCategory[]{SeatCategory.STANDARD});
+    }
+
+    private HallLayout(int[] rowLengths, int[] runStarts, SeatCategory[] runCategories) {
+        this.rowLengths = rowLengths;
+        this.rowStarts = new int[rowLengths.length + 1];
+        rowStarts[0] = 1;
+        for (int row = 0; row < rowLengths.length; row++) {
+            rowStarts[row + 1] = rowStarts[row] + rowLengths[row];
+        }
+        this.runStarts = runStarts;
+        this.runCategories = runCategories;
+        this.categorySeats = new int[CATEGORIES.length];
+        for (int run = 0; run < runStarts.length; run++) {
+            int end = run + 1 < runStarts.length ? runStarts[run + 1] : rowStarts[rowLengths.length];
+            categorySeats[runCategories[run].ordinal()] += end - runStarts[run];
+        }
+    }
+
+    /**
+     * Creates a rectangular layout.
+     *
+     * @param rows        the number of rows
+     * @param seatsPerRow the number of seats in every row
+     * @return the layout
+     * @throws IllegalArgumentException if either argument is not positive
+     */
+    public static HallLayout of(int rows, int seatsPerRow) {
+        if (rows <= 0) {
+            throw new IllegalArgumentException("Number of rows must be positive: " + rows);
+        }
+        return ofRows(IntStream.generate(() -> seatsPerRow).limit(rows).toArray());
+    }
+
+    /**
+     * Creates a layout with rows of different lengths.
+     *
+     * @param rowLengths the number of seats in each row, front row first
+     * @return the layout
+     * @throws IllegalArgumentException if any row length is not positive
+     */
+    public static HallLayout ofRows(int... rowLengths) {
+        for (int length : rowLengths) {
+            if (length <= 0) {
+                throw new IllegalArgumentException("Row length must be positive: " + length);
+            }
+        }
+        return new HallLayout(rowLengths.clone());
+    }
+
+    /**
+     * Creates a layout with all seats in a single row, matching a plain numbered hall.
+     *
+     * @param numberOfSeats the number of seats
+     * @return the layout; without rows if {@code numberOfSeats} is 0
+     */
+    public static HallLayout singleRow(int numberOfSeats) {
+        return numberOfSeats == 0 ? new HallLayout(new int[0]) : ofRows(numberOfSeats);
+    }
+
+    /**
+     * Returns a copy of this layout in which a range of seats is in the given category.
+     *
+     * @param category  the category of the seats
+     * @param firstSeat the first seat of the range
+     * @param lastSeat  the last seat of the range, inclusive
+     * @return the new layout
+     * @throws IllegalArgumentException if the range is empty or outside the hall
+     */
+    public HallLayout withCategory(SeatCategory category, int firstSeat, int lastSeat) {
+        if (firstSeat < 1 || lastSeat < firstSeat || lastSeat > capacity()) {
+            throw new IllegalArgumentException(
+                "Seat range " + firstSeat + "-" + lastSeat + " is outside 1-" + capacity());
+        }
+        int[] starts = new int[runStarts.length + 2];
+        SeatCategory[] categories = new SeatCategory[runStarts.length + 2];
+        int runs = 0;
+        for (int run = 0; run < runStarts.length && runStarts[run] < firstSeat; run++) {
+            starts[runs] = runStarts[run];
+            categories[runs++] = runCategories[run];
+        }
+        starts[runs] = firstSeat;
+        categories[runs++] = category;
+        if (lastSeat < capacity()) {
+            starts[runs] = lastSeat + 1;
+            categories[runs++] = categoryOf(lastSeat + 1);
+            for (int run = runOf(lastSeat + 1) + 1; run < runStarts.length; run++) {
+                starts[runs] = runStarts[run];
+                categories[runs++] = runCategories[run];
+            }
+        }
+        return withRuns(starts, categories, runs);
+    }
+
+    /**
+     * Returns a copy of this layout in which every seat of a row is in the given category.
+     *
+     * @param category the category of the seats
+     * @param row      the row number, from 1
+     * @return the new layout
+     * @throws IllegalArgumentException if the row does not exist
+     */
+    public HallLayout withRowCategory(SeatCategory category, int row) {
+        if (row < 1 || row > rows()) {
+            throw new IllegalArgumentException("Row " + row + " is outside 1-" + rows());
+        }
+        return withCategory(category, firstSeatOfRow(row), firstSeatOfRow(row) + seatsInRow(row) - 1);
+    }
+
+    /**
+     * Creates a layout with the same rows and the given category runs, merging neighbouring runs of the same
+     * category.
+     *
+     * @param starts     the first seat of every run, starting with seat 1, in ascending order
+     * @param categories the category of every run
+     * @param runs       the number of runs
+     */
+    HallLayout withRuns(int[] starts, SeatCategory[] categories, int runs) {
+        int merged = 0;
+        for (int run = 0; run < runs; run++) {
+            if (merged == 0 || categories[merged - 1] != categories[run]) {
+                starts[merged] = starts[run];
+                categories[merged++] = categories[run];
+            }
+        }
+        return new HallLayout(rowLengths, Arrays.copyOf(starts, merged), Arrays.copyOf(categories, merged));
+    }
+
+    /**
+     * Returns the number of rows.
+     *
+     * @return the number of rows
+     */
+    public int rows() {
+        return rowLengths.length;
+    }
+
+    /**
+     * Returns the number of seats in a row.
+     *
+     * @param row the row number, from 1
+     * @return the number of seats in the row
+     */
+    public int seatsInRow(int row) {
+        return rowLengths[row - 1];
+    }
+
+    /**
+     * Returns the seat number of the first seat in a row.
+     *
+     * @param row the row number, from 1
+     * @return the seat number of the first seat in the row
+     */
+    public int firstSeatOfRow(int row) {
+        return rowStarts[row - 1];
+    }
+
+    /**
+     * Returns the row a seat belongs to.
+     *
+     * @param seatNumber a seat number between 1 and {@link #capacity()}
+     * @return the row number, from 1
+     */
+    public int rowOf(int seatNumber) {
+        int index = Arrays.binarySearch(rowStarts, seatNumber);
+        return index >= 0 ? index + 1 : -index - 1;
+    }
+
+    /**
+     * Returns the total number of seats.
+     *
+     * @return the number of seats in all rows
+     */
+    public int capacity() {
+        return rowStarts[rowLengths.length] - 1;
+    }
+
+    /**
+     * Returns the category of a seat.
+     *
+     * @param seatNumber a seat number between 1 and {@link #capacity()}
+     * @return the seat category
+     */
+    public SeatCategory categoryOf(int seatNumber) {
+        return runCategories[runOf(seatNumber)];
+    }
+
+    /**
+     * Returns the number of seats in a category.
+     *
+     * @param category the category
+     * @return the number of seats, 0 if the hall has none of the category
+     */
+    public int seatsIn(SeatCategory category) {
+        return categorySeats[category.ordinal()];
+    }
+
+    /**
+     * Returns the number of category runs.
+     */
+    int categoryRuns() {
+        return runStarts.length;
+    }
+
+    /**
+     * Returns the first seat of a category run.
+     */
+    int runStart(int run) {
+        return runStarts[run];
+    }
+
+    /**
+     * Returns the category of a run.
+     */
+    SeatCategory runCategory(int run) {
+        return runCategories[run];
+    }
+
+    private int runOf(int seatNumber) {
+        int index = Arrays.binarySearch(runStarts, seatNumber);
+        return index >= 0 ? index : -index - 2;
+    }
+
+    /**
+     * Two layouts are equal if they have the same number of rows with the same lengths and the same seat
+     * categories.
+     *
+     * @param o the object to compare with
+     * @return true if the object is a layout with the same rows and categories
+     */
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof HallLayout other && Arrays.equals(rowLengths, other.rowLengths)
+            && Arrays.equals(runStarts, other.runStarts) && Arrays.equals(runCategories, other.runCategories);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * Arrays.hashCode(rowLengths) + Arrays.hashCode(runStarts) + Arrays.hashCode(runCategories);
+    }
+}
@@ -0,0 +1,123 @@
+package rk.powermilk.cinema.model;
+
+import rk.powermilk.cinema.error.IllegalSeatReservedException;
+
+import java.util.stream.IntStream;
+
+/**
+ * Holders and occupancy counts of a whole hall, as exported by {@link Cinema#exportOccupancy()}.
+ * <p>
+ * A report is read from the seat storage while reservations go on, one seat at a time, so it is not a single
+ * state of the cinema; use {@link Cinema#getSeatMap()} or a snapshot for that. Its counts always agree with its
+ * holders, though: they are computed from them, row by row in parallel, when the report is created.
+ */
+public final class OccupancyReport {
+    private final HallLayout layout;
+    /**
+     * Holder of every seat, by seat number minus one; null for a free seat.
+     */
+    private final String[] holders;
+    private final int[] reservedByRow;
+    private final long[] reservedByCategory;
+    private final long reserved;
+
+    OccupancyReport(HallLayout layout, String[] holders) {
+        this.layout = layout;
+        this.holders = holders;
+        this.reservedByRow = new int[layout.rows()];
+        this.reservedByCategory = IntStream.rangeClosed(1, layout.rows()).parallel()
+            .mapToObj(this::countRow)
+            .reduce(new long[SeatCategory.values().length], OccupancyReport::sum);
+        this.reserved = IntStream.of(reservedByRow).asLongStream().sum();
+    }
+
+    /**
+     * Counts the reserved seats of a row into {@link #reservedByRow} and returns them by category.
+     */
+    private long[] countRow(int row) {
+        long[] byCategory = new long[SeatCategory.values().length];
+        int first = layout.firstSeatOfRow(row);
+        int count = 0;
+        for (int seatNumber = first; seatNumber < first + layout.seatsInRow(row); seatNumber++) {
+            if (holders[seatNumber - 1] != null) {
+                byCategory[layout.categoryOf(seatNumber).ordinal()]++;
+                count++;
+            }
+        }
+        reservedByRow[row - 1] = count;
+        return byCategory;
+    }
+
+    private static long[] sum(long[] left, long[] right) {
+        long[] total = new long[left.length];
+        for (int i = 0; i < total.length; i++) {
+            total[i] = left[i] + right[i];
+        }
+        return total;
+    }
+
+    /**
+     * Returns the layout of the hall.
+     *
+     * @return the hall layout
+     */
+    public HallLayout layout() {
+        return layout;
+    }
+
+    /**
+     * Returns the holder of a seat.
+     *
+     * @param seatNumber the seat number
+     * @return the ID of the client holding the seat, or null if it was free
+     * @throws IllegalSeatReservedException if the seat number is invalid
+     */
+    public String holder(int seatNumber) {
+        if (Integer.compareUnsigned(seatNumber - 1, holders.length) >= 0) {
+            throw new IllegalSeatReservedException(seatNumber);
+        }
+        return holders[seatNumber - 1];
+    }
+
+    /**
+     * Returns the number of reserved seats.
+     *
+     * @return the number of seats with a holder
+     */
+    public long getReservedSeatsCount() {
+        return reserved;
+    }
+
+    /**
+     * Returns the number of reserved seats of a category.
+     *
+     * @param category the seat category
+     * @return the number of seats of the category with a holder
+     */
+    public long getReservedSeatsCount(SeatCategory category) {
+        return reservedByCategory[category.ordinal()];
+    }
+
+    /**
+     * Returns the number of reserved seats in a row.
+     *
+     * @param row the row number, from 1
+     * @return the number of seats of the row with a holder
+     * @throws IllegalArgumentException if the row does not exist
+     */
+    public int getReservedSeatsCountInRow(int row) {
+        if (row < 1 || row > reservedByRow.length) {
+            throw new IllegalArgumentException("Row " + row + " is outside 1-" + reservedByRow.length);
+        }
+        return reservedByRow[row - 1];
+    }
+
+    /**
+     * Returns the fraction of seats that are reserved.
+     *
+     * @return the occupancy between 0.0 (empty) and 1.0 (sold out); 0.0 for a hall without seats
+     */
+    public double getOccupancyRatio() {
+        return holders.length == 0 ? 0.0 : (double) reserved / holders.length;
+    }
+}
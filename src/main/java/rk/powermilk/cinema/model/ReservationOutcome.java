@@ -0,0 +1,24 @@
+package rk.powermilk.cinema.model;
+
+/**
+ * Result of {@link Cinema#tryReserve(int, String)} and {@link Cinema#tryCancel(int, String)}.
+ */
+public enum ReservationOutcome {
+    /**
+     * The seat was reserved or its reservation cancelled.
+     */
+    OK,
+    /**
+     * The seat could not be reserved because it is already held.
+     */
+    TAKEN,
+    /**
+     * The seat number does not exist in the hall.
+     */
+    INVALID,
+    /**
+     * The reservation could not be cancelled because the seat is not held by the client: it is free or held by
+     * another client.
+     */
+    NOT_OWNER
+}
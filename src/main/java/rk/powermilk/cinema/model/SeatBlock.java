@@ -0,0 +1,30 @@
+package rk.powermilk.cinema.model;
+
+import java.util.stream.IntStream;
+
+/**
+ * A block of adjacent seats within one row.
+ *
+ * @param row       the row number, from 1
+ * @param firstSeat the seat number of the first seat in the block
+ * @param size      the number of seats in the block
+ */
+public record SeatBlock(int row, int firstSeat, int size) {
+    /**
+     * Returns the seat number of the last seat in the block.
+     *
+     * @return the last seat number
+     */
+    public int lastSeat() {
+        return firstSeat + size - 1;
+    }
+
+    /**
+     * Returns the seat numbers of the block in ascending order.
+     *
+     * @return the seat numbers
+     */
+    public int[] seats() {
+        return IntStream.range(firstSeat, firstSeat + size).toArray();
+    }
+}
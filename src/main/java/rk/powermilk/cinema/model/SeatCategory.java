@@ -0,0 +1,19 @@
+package rk.powermilk.cinema.model;
+
+/**
+ * Pricing category of a seat, assigned to ranges of seats by the {@link HallLayout}.
+ */
+public enum SeatCategory {
+    /**
+     * Regular seat; every seat is in this category unless the layout says otherwise.
+     */
+    STANDARD,
+    /**
+     * Premium seat.
+     */
+    VIP,
+    /**
+     * Seat or wheelchair space reserved for accessible seating.
+     */
+    ACCESSIBLE
+}
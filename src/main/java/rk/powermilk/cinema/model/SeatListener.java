@@ -0,0 +1,21 @@
+package rk.powermilk.cinema.model;
+
+/**
+ * Observer of successful seat transitions in a {@link Cinema}.
+ * <p>
+ * Listeners are called synchronously on the thread that performed the transition, after it has become visible
+ * to other clients. Transitions of one seat made by different threads may therefore be reported out of order;
+ * the version, which increases with every transition of the seat, tells which one is the latest.
+ */
+@FunctionalInterface
+public interface SeatListener {
+    /**
+     * Called after a seat has changed.
+     *
+     * @param transition the kind of change
+     * @param seatNumber the seat number
+     * @param clientId   the ID of the client that reserved or released the seat
+     * @param version    the version of the seat after the change
+     */
+    void onTransition(SeatTransition transition, int seatNumber, String clientId, long version);
+}
@@ -0,0 +1,234 @@
+package rk.powermilk.cinema.model;
+
+import rk.powermilk.cinema.store.SeatStore;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Publishes {@link SeatMapView}s of a cinema in epochs, so that readers never hold writers back.
+ * <p>
+ * Writers only append the number and new state of every seat they change to a ring, with one compare-and-set,
+ * after the change took effect and before it returns. A reader folds the entries appended before its call into
+ * a private bitmap and publishes a copy of it as the next view; a reader that finds another one folding waits
+ * for that fold and then folds whatever it still misses, so a view contains every transition that completed
+ * before it was asked for. Slots are claimed in the order writers finish, not the order their changes took
+ * effect, so the fold waits for slots already claimed to be filled rather than skip them: a transition that
+ * completed before another started always precedes it in the ring, and a view showing the later one shows the
+ * earlier one too. Transitions in flight at the same time may be folded in either order.
+ * <p>
+ * Every entry carries the seat's version, and a seat only takes a state newer than the one it shows, so the
+ * entries of one seat may be folded in any order and a seat never moves backwards from one view to the next.
+ * If writers fill the ring faster than it is read, they drop their entries instead of waiting and count the
+ * drop; the next reader then scans the seat storage while writers go on, and folds the entries appended
+ * meanwhile on top of the scan. The versions sort out which of the two saw a seat last.
+ */
+final class SeatMapPublisher implements SeatListener {
+    private static final int CAPACITY = 1 << 12;
+    private static final int MASK = CAPACITY - 1;
+
+    private final HallLayout layout;
+    private final SeatStore seats;
+    private final int[] seatNumbers = new int[CAPACITY];
+    /**
+     * Rank of the state recorded by every entry; see {@link #rank(long, boolean)}.
+     */
+    private final long[] ranks = new long[CAPACITY];
+    private final AtomicLongArray published = new AtomicLongArray(CAPACITY);
+    private final AtomicLong claimed = new AtomicLong();
+    private final AtomicLong drained = new AtomicLong();
+    private final AtomicLong drops = new AtomicLong();
+    private final ReentrantLock folding = new ReentrantLock();
+    /**
+     * Bitmap of free seats as of the last fold. Guarded by {@link #folding}.
+     */
+    private final long[] free;
+    /**
+     * Rank of the state of every seat in {@link #free}, by seat index; -1 before the first scan. Guarded by
+     * {@link #folding}.
+     */
+    private final long[] seatRanks;
+    private int available;
+    private int[] touched = new int[16];
+    private int touchedCount;
+    private volatile Epoch epoch;
+
+    /**
+     * Creates a publisher. It must be attached to the cinema before it is {@link #load() loaded}.
+     */
+    SeatMapPublisher(HallLayout layout, SeatStore seats) {
+        this.layout = layout;
+        this.seats = seats;
+        this.free = new long[(layout.capacity() + Long.SIZE - 1) >>> 6];
+        this.seatRanks = new long[layout.capacity()];
+        Arrays.fill(seatRanks, -1L);
+        for (int slot = 0; slot < CAPACITY; slot++) {
+            published.set(slot, slot - CAPACITY);
+        }
+    }
+
+    /**
+     * Orders the states of a seat: by version, and a reservation after a cancellation of the same version, which
+     * is how a change of holder applied from a replica is reported.
+     */
+    private static long rank(long version, boolean taken) {
+        return version << 1 | (taken ? 1 : 0);
+    }
+
+    @Override
+    public void onTransition(SeatTransition transition, int seatNumber, String clientId, long version) {
+        long sequence;
+        do {
+            sequence = claimed.get();
+            if (sequence - drained.get() > MASK) {
+                drops.incrementAndGet();
+                return;
+            }
+        } while (!claimed.compareAndSet(sequence, sequence + 1));
+        int slot = (int) sequence & MASK;
+        seatNumbers[slot] = seatNumber;
+        ranks[slot] = rank(version, transition == SeatTransition.RESERVED);
+        published.lazySet(slot, sequence);
+    }
+
+    /**
+     * Builds and publishes the first view from the seat storage.
+     */
+    void load() {
+        folding.lock();
+        try {
+            rebuild();
+        } finally {
+            folding.unlock();
+        }
+    }
+
+    /**
+     * Returns a view containing every transition that completed before the call, folding new changes first if
+     * the latest view misses some.
+     */
+    SeatMapView view() {
+        long target = claimed.get();
+        long dropped = drops.get();
+        Epoch current = epoch;
+        if (current.covers(target, dropped)) {
+            return current.view;
+        }
+        folding.lock();
+        try {
+            current = epoch;
+            if (current.drops < dropped) {
+                rebuild();
+            } else if (!current.covers(target, dropped)) {
+                fold(target);
+            }
+            return epoch.view;
+        } finally {
+            folding.unlock();
+        }
+    }
+
+    private void fold(long target) {
+        Epoch previous = epoch;
+        touchedCount = 0;
+        long sequence = drain(target);
+        int[] changed = Arrays.stream(touched, 0, touchedCount)
+            .filter(index -> previous.view.isFree(index) != isFree(index))
+            .sorted()
+            .distinct()
+            .map(index -> index + 1)
+            .toArray();
+        SeatMapView next = changed.length == 0 ? previous.view : new SeatMapView(previous.view.version() + 1,
+            layout, free.clone(), available, previous.view.historyWith(changed));
+        epoch = new Epoch(next, sequence, previous.drops);
+    }
+
+    /**
+     * Scans the seat storage into the bitmap while writers go on, between two folds of the ring: the first makes
+     * room for the entries appended during the scan, the second applies them. Starts over if writers dropped
+     * entries in the meantime, since the scan may have read their seats before they changed.
+     */
+    private void rebuild() {
+        long dropped;
+        long sequence;
+        do {
+            dropped = drops.get();
+            drain(claimed.get());
+            seats.forEach((seatNumber, clientId, version) ->
+                apply(seatNumber - 1, rank(version, clientId != null)));
+            sequence = drain(claimed.get());
+        } while (drops.get() != dropped);
+        Epoch previous = epoch;
+        SeatMapView next = previous == null
+            ? new SeatMapView(0, layout, free.clone(), available, new int[0][])
+            : new SeatMapView(previous.view.version() + 1, layout, free.clone(), available,
+                previous.view.historyWith(null));
+        epoch = new Epoch(next, sequence, dropped);
+    }
+
+    /**
+     * Applies the ring's entries to the bitmap and collects the seats they changed, waiting for the slots below
+     * the target that writers have claimed but not filled yet, and going on past the target for as long as slots
+     * are filled.
+     *
+     * @return the sequence of the first entry not applied
+     */
+    private long drain(long target) {
+        long sequence = drained.get();
+        long end = sequence + CAPACITY;
+        while (sequence != end) {
+            int slot = (int) sequence & MASK;
+            if (published.get(slot) != sequence) {
+                if (sequence >= target) {
+                    break;
+                }
+                Thread.onSpinWait();
+                continue;
+            }
+            int index = seatNumbers[slot] - 1;
+            if (apply(index, ranks[slot])) {
+                if (touchedCount == touched.length) {
+                    touched = Arrays.copyOf(touched, touchedCount * 2);
+                }
+                touched[touchedCount++] = index;
+            }
+            sequence++;
+        }
+        drained.set(sequence);
+        return sequence;
+    }
+
+    /**
+     * Puts a seat into the state of the given rank, unless the bitmap already shows a newer one.
+     *
+     * @return true if the seat's bit changed
+     */
+    private boolean apply(int index, long rank) {
+        if (rank <= seatRanks[index]) {
+            return false;
+        }
+        seatRanks[index] = rank;
+        boolean freeNow = (rank & 1) == 0;
+        if (isFree(index) == freeNow) {
+            return false;
+        }
+        free[index >>> 6] ^= 1L << index;
+        available += freeNow ? 1 : -1;
+        return true;
+    }
+
+    private boolean isFree(int index) {
+        return (free[index >>> 6] & 1L << index) != 0;
+    }
+
+    /**
+     * A published view with the number of ring entries and drops it accounts for.
+     */
+    private record Epoch(SeatMapView view, long covered, long drops) {
+        boolean covers(long sequence, long dropped) {
+            return covered >= sequence && drops >= dropped;
+        }
+    }
+}
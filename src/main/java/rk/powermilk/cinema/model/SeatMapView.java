@@ -0,0 +1,156 @@
+package rk.powermilk.cinema.model;
+
+import rk.powermilk.cinema.error.IllegalSeatReservedException;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * Immutable availability map of a whole hall, as returned by {@link Cinema#getSeatMap()}.
+ * <p>
+ * A view is one bit per seat, set for free seats. Every transition that completed before the view was asked
+ * for is in it, in the order the transitions happened unless they overlapped in time; see
+ * {@link Cinema#getSeatMap()}. Views are numbered by an epoch that grows by one with every published view, and
+ * each remembers which seats changed in the last {@value #HISTORY} epochs, so a renderer holding an older view
+ * can redraw only those seats.
+ */
+public final class SeatMapView {
+    /**
+     * Number of past epochs whose changed seats are kept.
+     */
+    static final int HISTORY = 64;
+
+    private final long version;
+    private final HallLayout layout;
+    private final long[] free;
+    private final int available;
+    /**
+     * Changed seats of the latest epochs, newest first; null for an epoch whose changes are unknown.
+     */
+    private final int[][] recentChanges;
+
+    SeatMapView(long version, HallLayout layout, long[] free, int available, int[][] recentChanges) {
+        this.version = version;
+        this.layout = layout;
+        this.free = free;
+        this.available = available;
+        this.recentChanges = recentChanges;
+    }
+
+    /**
+     * Returns the epoch of this view.
+     *
+     * @return the version, higher for newer views of the same cinema
+     */
+    public long version() {
+        return version;
+    }
+
+    /**
+     * Returns the layout of the hall.
+     *
+     * @return the hall layout
+     */
+    public HallLayout layout() {
+        return layout;
+    }
+
+    /**
+     * Returns the number of seats in the hall.
+     *
+     * @return the number of seats
+     */
+    public int capacity() {
+        return layout.capacity();
+    }
+
+    /**
+     * Checks whether a seat was free in this view.
+     *
+     * @param seatNumber the seat number to check
+     * @return true if the seat was available
+     * @throws IllegalSeatReservedException if the seat number is invalid
+     */
+    public boolean isAvailable(int seatNumber) {
+        if (Integer.compareUnsigned(seatNumber - 1, layout.capacity()) >= 0) {
+            throw new IllegalSeatReservedException(seatNumber);
+        }
+        int index = seatNumber - 1;
+        return (free[index >>> 6] & 1L << index) != 0;
+    }
+
+    /**
+     * Returns the number of free seats in this view.
+     *
+     * @return the number of available seats
+     */
+    public int getAvailableSeatsCount() {
+        return available;
+    }
+
+    /**
+     * Returns the number of reserved seats in this view.
+     *
+     * @return the number of reserved seats
+     */
+    public int getReservedSeatsCount() {
+        return layout.capacity() - available;
+    }
+
+    /**
+     * Returns the availability of every seat as a bit set, in which bit {@code seatNumber - 1} is set for a free
+     * seat.
+     *
+     * @return a new bit set
+     */
+    public BitSet toBitSet() {
+        return BitSet.valueOf(free);
+    }
+
+    /**
+     * Returns the seats whose availability changed between an earlier view and this one.
+     * <p>
+     * A seat that changed and changed back within that span may be included.
+     *
+     * @param since the version of the earlier view
+     * @return the seat numbers in ascending order, empty if nothing changed; null if the span is older than the
+     * kept history or newer than this view, in which case the whole map has to be redrawn
+     */
+    public int[] changedSince(long since) {
+        if (since > version || version - since > recentChanges.length) {
+            return null;
+        }
+        int epochs = (int) (version - since);
+        int total = 0;
+        for (int i = 0; i < epochs; i++) {
+            if (recentChanges[i] == null) {
+                return null;
+            }
+            total += recentChanges[i].length;
+        }
+        int[] changed = new int[total];
+        int filled = 0;
+        for (int i = 0; i < epochs; i++) {
+            System.arraycopy(recentChanges[i], 0, changed, filled, recentChanges[i].length);
+            filled += recentChanges[i].length;
+        }
+        return Arrays.stream(changed).sorted().distinct().toArray();
+    }
+
+    /**
+     * Returns the history of the view that follows this one.
+     */
+    int[][] historyWith(int[] changes) {
+        int[][] history = new int[Math.min(HISTORY, recentChanges.length + 1)][];
+        history[0] = changes;
+        System.arraycopy(recentChanges, 0, history, 1, history.length - 1);
+        return history;
+    }
+
+    /**
+     * Checks a seat of this view without validating it.
+     */
+    boolean isFree(int index) {
+        return (free[index >>> 6] & 1L << index) != 0;
+    }
+}
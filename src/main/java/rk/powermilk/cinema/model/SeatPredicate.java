@@ -0,0 +1,19 @@
+package rk.powermilk.cinema.model;
+
+/**
+ * Selects held seats for a bulk operation of a {@link Cinema}, such as {@link Cinema#releaseSeatsIf(SeatPredicate)}.
+ * <p>
+ * Bulk operations split the hall across threads, so a predicate is called from several threads at once and
+ * must be thread-safe; the seats are not tested in any particular order.
+ */
+@FunctionalInterface
+public interface SeatPredicate {
+    /**
+     * Called for a held seat.
+     *
+     * @param seatNumber the seat number
+     * @param clientId   the ID of the client holding the seat
+     * @return true if the operation applies to the seat
+     */
+    boolean test(int seatNumber, String clientId);
+}
@@ -0,0 +1,19 @@
+package rk.powermilk.cinema.model;
+
+/**
+ * Where a best-available search should look first.
+ */
+public enum SeatPreference {
+    /**
+     * Rows closest to the screen first, leftmost block within a row.
+     */
+    FRONT,
+    /**
+     * Rows farthest from the screen first, leftmost block within a row.
+     */
+    BACK,
+    /**
+     * Middle rows first, block closest to the middle of the row.
+     */
+    CENTER
+}
@@ -0,0 +1,19 @@
+package rk.powermilk.cinema.model;
+
+/**
+ * Kind of change of a seat reported to a {@link SeatListener}.
+ */
+public enum SeatTransition {
+    /**
+     * A free seat was reserved by a client.
+     */
+    RESERVED,
+    /**
+     * A client's reservation was cancelled and the seat is free again.
+     */
+    CANCELLED,
+    /**
+     * A client's reservation was released because its hold ran out, and the seat is free again.
+     */
+    EXPIRED
+}
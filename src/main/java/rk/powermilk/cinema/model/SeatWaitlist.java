@@ -0,0 +1,155 @@
+package rk.powermilk.cinema.model;
+
+import java.util.ArrayDeque;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * First-in, first-out queues of the clients waiting for a seat of a cinema: one queue per wanted seat and one
+ * for clients that take any seat.
+ * <p>
+ * A waiting client is only a {@link CompletableFuture}, so waiting costs no thread. The queues are guarded by
+ * the waitlist's monitor; the checks that let a cancellation skip the waitlist when nobody waits read volatile
+ * counts and a concurrent map, without locking. A waiter whose future is cancelled leaves its queue straight
+ * away.
+ */
+final class SeatWaitlist {
+    /**
+     * Queues of the clients waiting for a particular seat, by seat number; a queue is removed once it is empty.
+     */
+    private final Map<Integer, ArrayDeque<Waiter>> bySeat = new ConcurrentHashMap<>();
+    private final ArrayDeque<Waiter> anySeat = new ArrayDeque<>();
+    private volatile int waiting;
+    private volatile int waitingForAny;
+
+    /**
+     * Checks whether nobody waits.
+     *
+     * @return true if every queue is empty
+     */
+    boolean isEmpty() {
+        return waiting == 0;
+    }
+
+    /**
+     * Checks whether a seat that becomes free could go to a waiting client.
+     *
+     * @return false if nobody waits for the seat or for any seat
+     */
+    boolean mayHaveWaiters(int seatNumber) {
+        return waiting != 0 && (waitingForAny != 0 || bySeat.containsKey(seatNumber));
+    }
+
+    /**
+     * Returns the number of waiting clients.
+     *
+     * @return the number of clients in all queues
+     */
+    int size() {
+        return waiting;
+    }
+
+    /**
+     * Queues a client at the end of the queue of a seat.
+     *
+     * @return the new waiter
+     */
+    synchronized Waiter add(int seatNumber, String clientId) {
+        Waiter waiter = new Waiter(seatNumber, clientId);
+        bySeat.computeIfAbsent(seatNumber, seat -> new ArrayDeque<>()).add(waiter);
+        waiting++;
+        return leaveOnCancel(waiter);
+    }
+
+    /**
+     * Queues a client at the end of the queue for any seat.
+     *
+     * @return the new waiter
+     */
+    synchronized Waiter addForAny(String clientId) {
+        Waiter waiter = new Waiter(0, clientId);
+        anySeat.add(waiter);
+        waitingForAny++;
+        waiting++;
+        return leaveOnCancel(waiter);
+    }
+
+    private Waiter leaveOnCancel(Waiter waiter) {
+        waiter.future.whenComplete((seatNumber, failure) -> {
+            if (failure instanceof CancellationException) {
+                remove(waiter);
+            }
+        });
+        return waiter;
+    }
+
+    /**
+     * Returns the client that is next in line for a seat: the first one waiting for that seat, or else the first
+     * one waiting for any seat. The waiter stays queued. Must be called while holding the waitlist's monitor.
+     *
+     * @param excluded a client to skip, such as the one giving the seat up, or null
+     * @return the waiter, or null if nobody but the excluded client waits
+     */
+    Waiter next(int seatNumber, String excluded) {
+        ArrayDeque<Waiter> queue = bySeat.get(seatNumber);
+        Waiter next = queue == null ? null : first(queue, excluded);
+        return next != null ? next : first(anySeat, excluded);
+    }
+
+    /**
+     * Returns the client that is next in line for any seat. The waiter stays queued. Must be called while
+     * holding the waitlist's monitor.
+     *
+     * @return the waiter, or null if nobody waits for any seat
+     */
+    Waiter nextForAny() {
+        return first(anySeat, null);
+    }
+
+    private static Waiter first(ArrayDeque<Waiter> queue, String excluded) {
+        for (Waiter waiter : queue) {
+            if (!waiter.clientId.equals(excluded)) {
+                return waiter;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Removes a waiter from its queue, if it is still queued.
+     */
+    synchronized void remove(Waiter waiter) {
+        ArrayDeque<Waiter> queue = waiter.seatNumber == 0 ? anySeat : bySeat.get(waiter.seatNumber);
+        if (queue == null || !queue.remove(waiter)) {
+            return;
+        }
+        waiting--;
+        if (waiter.seatNumber == 0) {
+            waitingForAny--;
+        } else if (queue.isEmpty()) {
+            bySeat.remove(waiter.seatNumber);
+        }
+    }
+
+    /**
+     * A waiting client.
+     */
+    static final class Waiter {
+        /**
+         * Wanted seat, or 0 for any seat.
+         */
+        final int seatNumber;
+        final String clientId;
+        /**
+         * Completed with the number of the seat handed to the client.
+         */
+        final CompletableFuture<Integer> future = new CompletableFuture<>();
+
+        Waiter(int seatNumber, String clientId) {
+            this.seatNumber = seatNumber;
+            this.clientId = clientId;
+        }
+    }
+}
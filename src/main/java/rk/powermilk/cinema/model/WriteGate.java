@@ -0,0 +1,62 @@
+package rk.powermilk.cinema.model;
+
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Lets an action run while no seat transition is in flight, for consistent snapshots.
+ * <p>
+ * Writers count themselves in and out on two striped counters, so the fast path costs two uncontended
+ * increments and a volatile read. A pause closes the gate and waits until every writer that got in has left:
+ * it reads the exit count before the entry count, and since both only grow, equal sums mean that nobody was
+ * inside at the moment between the two reads. Writers arriving while the gate is closed back out and wait for
+ * it to reopen, so a pause lasts as long as the slowest transition in flight plus the action.
+ */
+final class WriteGate {
+    private final LongAdder entered = new LongAdder();
+    private final LongAdder exited = new LongAdder();
+    private final Object pauses = new Object();
+    private volatile boolean closed;
+
+    /**
+     * Enters the gate before a transition, waiting while it is closed.
+     */
+    void enter() {
+        entered.increment();
+        while (closed) {
+            exited.increment();
+            while (closed) {
+                Thread.yield();
+            }
+            entered.increment();
+        }
+    }
+
+    /**
+     * Leaves the gate after a transition and its listeners have completed.
+     */
+    void exit() {
+        exited.increment();
+    }
+
+    /**
+     * Runs an action with no transition in flight. Must not be called from inside the gate.
+     *
+     * @param action the action to run
+     * @param <T>    the type of the result
+     * @return the result of the action
+     */
+    <T> T paused(Supplier<T> action) {
+        synchronized (pauses) {
+            closed = true;
+            try {
+                while (exited.sum() != entered.sum()) {
+                    Thread.onSpinWait();
+                }
+                return action.get();
+            } finally {
+                closed = false;
+            }
+        }
+    }
+}
@@ -0,0 +1,237 @@
+package rk.powermilk.cinema.persistence;
+
+import lombok.extern.slf4j.Slf4j;
+import rk.powermilk.cinema.model.Cinema;
+import rk.powermilk.cinema.model.CinemaSnapshot;
+import rk.powermilk.cinema.model.HallLayout;
+import rk.powermilk.cinema.model.SeatTransition;
+import rk.powermilk.cinema.store.ArraySeatStore;
+import rk.powermilk.cinema.store.OffHeapSeatStore;
+import rk.powermilk.cinema.store.SeatStore;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntFunction;
+
+/**
+ * A {@link Cinema} whose reservations survive restarts.
+ * <p>
+ * Every successful transition is appended to a {@link Journal} in the cinema's directory. Opening the directory
+ * again restores the latest snapshot and replays the journal from the snapshot's LSN on. Records carry seat
+ * versions, and a seat only takes a recorded state newer than its own, so records of one seat that were
+ * appended out of order still restore the latest state. Snapshots are taken periodically, after which the
+ * journal segments they cover are deleted; this keeps recovery time bounded by the snapshot interval.
+ * <p>
+ * Snapshots use the compact format of {@link Cinema#snapshotTo(Path, java.util.function.LongSupplier)}. The
+ * journal position is read while transitions are held back for the snapshot, so the snapshot covers exactly the
+ * records before it and recovery replays exactly the records after it.
+ */
+@Slf4j
+public final class DurableCinema implements AutoCloseable {
+    private final Path directory;
+    private final Cinema cinema;
+    private final Journal journal;
+    private final DirectorySync directorySync;
+    private final ScheduledExecutorService snapshots;
+
+    private DurableCinema(Path directory, Cinema cinema, Journal journal, JournalOptions options,
+                          DirectorySync directorySync) {
+        this.directory = directory;
+        this.cinema = cinema;
+        this.journal = journal;
+        this.directorySync = directorySync;
+        if (options.snapshotInterval().isZero()) {
+            this.snapshots = null;
+        } else {
+            this.snapshots = Executors.newSingleThreadScheduledExecutor(
+                Thread.ofPlatform().daemon().name("cinema-snapshot").factory());
+            long period = options.snapshotInterval().toMillis();
+            snapshots.scheduleWithFixedDelay(this::snapshotSafely, period, period, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Opens a durable cinema with the default journal settings.
+     *
+     * @param directory the directory holding the journal and snapshots; created if missing
+     * @param layout    the layout of the hall
+     * @return the cinema with its state recovered
+     * @throws UncheckedIOException  if the directory cannot be read or written
+     * @throws IllegalStateException if the stored state belongs to a hall of another size
+     */
+    public static DurableCinema open(Path directory, HallLayout layout) {
+        return open(directory, layout, JournalOptions.defaults());
+    }
+
+    /**
+     * Opens a durable cinema, recovering the state stored in the directory.
+     *
+     * @param directory the directory holding the journal and snapshots; created if missing
+     * @param layout    the layout of the hall
+     * @param options   the journal settings
+     * @return the cinema with its state recovered
+     * @throws UncheckedIOException  if the directory cannot be read or written
+     * @throws IllegalStateException if the stored state belongs to a hall of another size
+     */
+    public static DurableCinema open(Path directory, HallLayout layout, JournalOptions options) {
+        return open(directory, layout, options, ArraySeatStore::new);
+    }
+
+    /**
+     * Opens a durable cinema on seat storage made by the given factory, recovering the state stored in the
+     * directory. With an {@link OffHeapSeatStore} factory, a hall with nothing to recover opens without
+     * allocating or scanning anything per seat.
+     *
+     * @param directory the directory holding the journal and snapshots; created if missing
+     * @param layout    the layout of the hall
+     * @param options   the journal settings
+     * @param stores    the factory of an empty seat store of the given capacity
+     * @return the cinema with its state recovered
+     * @throws UncheckedIOException  if the directory cannot be read or written
+     * @throws IllegalStateException if the stored state belongs to a hall of another size
+     */
+    public static DurableCinema open(Path directory, HallLayout layout, JournalOptions options,
+                                     IntFunction<SeatStore> stores) {
+        return open(directory, layout, options, stores, DirectorySync.FORCE);
+    }
+
+    /**
+     * Opens a durable cinema that forces its directory through the given hook.
+     */
+    static DurableCinema open(Path directory, HallLayout layout, JournalOptions options,
+                              IntFunction<SeatStore> stores, DirectorySync directorySync) {
+        long started = System.nanoTime();
+        Journal journal = Journal.open(directory, options);
+        try {
+            SeatStore store = stores.apply(layout.capacity());
+            long lsn = restoreLatestSnapshot(directory, layout, store);
+            long replayed = journal.replay(lsn, (transition, seatNumber, clientId, version) -> {
+                if (!store.contains(seatNumber)) {
+                    throw new IllegalStateException("Journal refers to unknown seat " + seatNumber);
+                }
+                store.restore(seatNumber, transition == SeatTransition.RESERVED ? clientId : null, version);
+            });
+            Cinema cinema = new Cinema(layout, store);
+            cinema.addListener(journal);
+            log.info("Recovered {} reserved seats from snapshot {} and {} journal records in {} ms",
+                cinema.getReservedSeatsCount(), lsn, replayed,
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started));
+            return new DurableCinema(directory, cinema, journal, options, directorySync);
+        } catch (IOException e) {
+            journal.close();
+            throw new UncheckedIOException(e);
+        } catch (RuntimeException e) {
+            journal.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Restores the latest snapshot in the directory into an empty store.
+     *
+     * @return the LSN from which the journal must be replayed; 0 if there is no snapshot
+     */
+    private static long restoreLatestSnapshot(Path directory, HallLayout layout, SeatStore store) throws IOException {
+        List<Long> snapshots = SnapshotFile.list(directory);
+        if (snapshots.isEmpty()) {
+            return 0;
+        }
+        CinemaSnapshot snapshot = CinemaSnapshot.open(SnapshotFile.path(directory, snapshots.getLast()));
+        if (!snapshot.layout().equals(layout)) {
+            throw new IllegalStateException("Snapshot " + snapshot.position() + " was taken of another hall layout");
+        }
+        snapshot.restoreInto(store);
+        return snapshot.position();
+    }
+
+    /**
+     * Returns the cinema; its transitions are journaled.
+     *
+     * @return the cinema
+     */
+    public Cinema cinema() {
+        return cinema;
+    }
+
+    /**
+     * Returns the journal of the cinema.
+     *
+     * @return the journal
+     */
+    public Journal journal() {
+        return journal;
+    }
+
+    /**
+     * Writes a snapshot of the current seat states and deletes the journal segments and snapshots it replaces.
+     * <p>
+     * The snapshot is renamed into place once, and the directory is forced before anything is deleted: otherwise
+     * a crash could keep the deletions but lose the rename, leaving neither the snapshot nor the journal it
+     * replaced.
+     *
+     * @return the LSN of the snapshot
+     * @throws UncheckedIOException if the snapshot cannot be written
+     */
+    public synchronized long snapshot() {
+        long lsn = cinema.snapshotTo(position -> SnapshotFile.path(directory, position), journal::position);
+        try {
+            directorySync.force(directory);
+            SnapshotFile.deleteBefore(directory, lsn);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        int deleted = journal.truncate(lsn);
+        log.debug("Snapshot at LSN {} replaced {} journal segments", lsn, deleted);
+        return lsn;
+    }
+
+    /**
+     * Stops taking snapshots, detaches the journal from the cinema and closes it.
+     */
+    @Override
+    public void close() {
+        if (snapshots != null) {
+            snapshots.shutdownNow();
+        }
+        cinema.removeListener(journal);
+        journal.close();
+    }
+
+    private void snapshotSafely() {
+        try {
+            snapshot();
+        } catch (RuntimeException e) {
+            log.error("Snapshot failed", e);
+        }
+    }
+
+    /**
+     * Forces the entries of a directory to disk, so that renames and deletions in it survive a crash.
+     */
+    @FunctionalInterface
+    interface DirectorySync {
+        /**
+         * Forces a directory by syncing a channel opened on it.
+         */
+        DirectorySync FORCE = directory -> {
+            try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+                channel.force(true);
+            }
+        };
+
+        /**
+         * Forces the entries of the directory.
+         *
+         * @param directory the directory to force
+         * @throws IOException if the directory cannot be forced
+         */
+        void force(Path directory) throws IOException;
+    }
+}
@@ -0,0 +1,432 @@
+package rk.powermilk.cinema.persistence;
+
+import lombok.extern.slf4j.Slf4j;
+import rk.powermilk.cinema.model.SeatListener;
+import rk.powermilk.cinema.model.SeatTransition;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+/**
+ * Append-only log of seat transitions, written through memory-mapped segment files.
+ * <p>
+ * Records are addressed by their log sequence number (LSN), the number of bytes written to the journal before
+ * them. A segment file is named after the LSN of its first record and is filled up to its fixed size before the
+ * next one is started. Each record is framed as
+ * <pre>
+ * int   payload length (0 marks the end of the segment)
+ * int   CRC-32C of the payload
+ * byte  transition (ordinal of {@link SeatTransition})
+ * int   seat number
+ * long  seat version
+ * short length of the client ID
+ * byte[] client ID in UTF-8
+ * </pre>
+ * A record that was only partly written before a crash fails its checksum; reading stops there, and reopening
+ * the journal wipes the torn tail before appending again.
+ * <p>
+ * Appending copies the record into the mapped segment under a short lock and never touches the disk. A flusher
+ * thread forces the written range to disk once per flush interval, or as soon as a writer waits for
+ * durability, so that one force covers every record appended in the meantime. The journal is a
+ * {@link SeatListener}, so it can be attached to a cinema directly.
+ */
+@Slf4j
+public final class Journal implements SeatListener, AutoCloseable {
+    private static final String SUFFIX = ".journal";
+    private static final int HEADER = 8;
+    private static final int FIXED_PAYLOAD = 15;
+    private static final int MAX_CLIENT_ID = 0xFFFF;
+    private static final SeatTransition[] TRANSITIONS = SeatTransition.values();
+
+    private final Path directory;
+    private final JournalOptions options;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition forced = lock.newCondition();
+    private final Thread flusher;
+    private MappedByteBuffer segment;
+    private long base;
+    private int offset;
+    private long durable;
+    private boolean closed;
+
+    private Journal(Path directory, JournalOptions options, long base, MappedByteBuffer segment, int offset) {
+        this.directory = directory;
+        this.options = options;
+        this.base = base;
+        this.segment = segment;
+        this.offset = offset;
+        this.durable = base + offset;
+        this.flusher = Thread.ofPlatform().daemon().name("journal-flusher").start(this::runFlusher);
+    }
+
+    /**
+     * Opens the journal in the given directory, creating it if needed.
+     * <p>
+     * Appending resumes after the last complete record; anything written after it is discarded.
+     *
+     * @param directory the directory holding the segment files
+     * @param options   the journal settings
+     * @return the open journal
+     * @throws UncheckedIOException if the directory or a segment cannot be accessed
+     */
+    public static Journal open(Path directory, JournalOptions options) {
+        try {
+            Files.createDirectories(directory);
+            List<Long> bases = segmentBases(directory);
+            long base = bases.isEmpty() ? 0 : bases.getLast();
+            MappedByteBuffer segment = map(segmentPath(directory, base), options.segmentSize());
+            int end = read(segment, 0, null);
+            if (wipe(segment, end)) {
+                log.warn("Discarded torn journal tail at LSN {}", base + end);
+            }
+            return new Journal(directory, options, base, segment, end);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Appends a transition; in {@link SyncMode#GROUP_COMMIT} mode, waits until it is durable.
+     *
+     * @throws IllegalArgumentException if the client ID is longer than 65,535 bytes in UTF-8
+     * @throws IllegalStateException    if the journal is closed
+     */
+    @Override
+    public void onTransition(SeatTransition transition, int seatNumber, String clientId, long version) {
+        long lsn = append(transition, seatNumber, clientId, version);
+        if (options.syncMode() == SyncMode.GROUP_COMMIT) {
+            awaitDurable(lsn);
+        }
+    }
+
+    /**
+     * Appends a transition without waiting for the disk.
+     *
+     * @param transition the kind of change
+     * @param seatNumber the seat number
+     * @param clientId   the ID of the client that reserved or cancelled the seat
+     * @param version    the version of the seat after the change
+     * @return the LSN just past the appended record
+     * @throws IllegalArgumentException if the client ID is longer than 65,535 bytes in UTF-8
+     * @throws IllegalStateException    if the journal is closed
+     */
+    public long append(SeatTransition transition, int seatNumber, String clientId, long version) {
+        byte[] record = encode(transition, seatNumber, clientId, version);
+        lock.lock();
+        try {
+            if (closed) {
+                throw new IllegalStateException("Journal is closed");
+            }
+            if (offset + record.length > segment.capacity()) {
+                roll();
+            }
+            segment.put(offset, record);
+            offset += record.length;
+            return base + offset;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private static byte[] encode(SeatTransition transition, int seatNumber, String clientId, long version) {
+        byte[] id = clientId.getBytes(StandardCharsets.UTF_8);
+        if (id.length > MAX_CLIENT_ID) {
+            throw new IllegalArgumentException("Client ID is too long: " + id.length + " bytes");
+        }
+        int length = FIXED_PAYLOAD + id.length;
+        ByteBuffer record = ByteBuffer.allocate(HEADER + length);
+        record.putInt(length).putInt(0)
+            .put((byte) transition.ordinal()).putInt(seatNumber).putLong(version).putShort((short) id.length).put(id);
+        CRC32C crc = new CRC32C();
+        crc.update(record.array(), HEADER, length);
+        record.putInt(Integer.BYTES, (int) crc.getValue());
+        return record.array();
+    }
+
+    /**
+     * Blocks until every record up to the given LSN has been forced to disk.
+     *
+     * @param lsn an LSN returned by {@link #append(SeatTransition, int, String, long)}
+     */
+    public void awaitDurable(long lsn) {
+        lock.lock();
+        try {
+            while (durable < lsn) {
+                LockSupport.unpark(flusher);
+                forced.awaitUninterruptibly();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns the LSN at which the next record will be appended.
+     *
+     * @return the end of the journal
+     */
+    public long position() {
+        lock.lock();
+        try {
+            return base + offset;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Hands every complete record from the given LSN on to the listener, in journal order.
+     *
+     * @param from     the LSN of the first record to read, typically the LSN of a snapshot
+     * @param listener the listener receiving the recorded transitions
+     * @return the number of records read
+     * @throws UncheckedIOException if a segment cannot be read
+     */
+    public long replay(long from, SeatListener listener) {
+        long[] count = new long[1];
+        SeatListener counting = (transition, seatNumber, clientId, version) -> {
+            count[0]++;
+            listener.onTransition(transition, seatNumber, clientId, version);
+        };
+        try {
+            List<Long> bases = segmentBases(directory);
+            for (int i = 0; i < bases.size(); i++) {
+                long start = bases.get(i);
+                boolean last = i == bases.size() - 1;
+                if (!last && bases.get(i + 1) <= from) {
+                    continue;
+                }
+                int startOffset = (int) Math.max(0, from - start);
+                MappedByteBuffer buffer = last && start == base ? segment : mapReadOnly(segmentPath(directory, start));
+                int end = read(buffer, startOffset, counting);
+                if (!last && start + end != bases.get(i + 1)) {
+                    log.warn("Journal segment {} is damaged after LSN {}", start, start + end);
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return count[0];
+    }
+
+    /**
+     * Deletes the segments holding only records before the given LSN.
+     *
+     * @param lsn the LSN from which records are still needed, typically the LSN of a snapshot
+     * @return the number of deleted segments
+     * @throws UncheckedIOException if a segment cannot be deleted
+     */
+    public int truncate(long lsn) {
+        try {
+            List<Long> bases = segmentBases(directory);
+            int deleted = 0;
+            for (int i = 0; i < bases.size() - 1 && bases.get(i + 1) <= lsn; i++) {
+                Files.delete(segmentPath(directory, bases.get(i)));
+                deleted++;
+            }
+            return deleted;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Forces the remaining records to disk and stops the flusher. Waiting writers are released.
+     */
+    @Override
+    public void close() {
+        lock.lock();
+        try {
+            if (closed) {
+                return;
+            }
+            closed = true;
+        } finally {
+            lock.unlock();
+        }
+        LockSupport.unpark(flusher);
+        try {
+            flusher.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        lock.lock();
+        try {
+            segment.force();
+            durable = base + offset;
+            forced.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Forces the full segment and starts the next one. Called under the lock.
+     */
+    private void roll() {
+        segment.force();
+        base += offset;
+        offset = 0;
+        durable = base;
+        forced.signalAll();
+        try {
+            segment = map(segmentPath(directory, base), options.segmentSize());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void runFlusher() {
+        long interval = options.flushInterval().toNanos();
+        while (!isClosed()) {
+            LockSupport.parkNanos(this, interval);
+            try {
+                flush();
+            } catch (RuntimeException e) {
+                log.error("Journal flush failed", e);
+            }
+        }
+    }
+
+    private boolean isClosed() {
+        lock.lock();
+        try {
+            return closed;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Forces the records appended since the last force. The force runs outside the lock, so writers keep
+     * appending while it is in progress.
+     */
+    private void flush() {
+        MappedByteBuffer target;
+        long end;
+        int from;
+        lock.lock();
+        try {
+            end = base + offset;
+            if (end <= durable) {
+                return;
+            }
+            target = segment;
+            from = (int) (durable - base);
+        } finally {
+            lock.unlock();
+        }
+        target.force(from, (int) (end - durable));
+        lock.lock();
+        try {
+            durable = Math.max(durable, end);
+            forced.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Reads the complete records of a segment from the given offset.
+     *
+     * @return the offset just past the last complete record
+     */
+    private static int read(ByteBuffer segment, int from, SeatListener listener) {
+        ByteBuffer view = segment.duplicate();
+        CRC32C crc = new CRC32C();
+        byte[] id = new byte[MAX_CLIENT_ID];
+        int position = from;
+        while (position + HEADER + FIXED_PAYLOAD <= view.capacity()) {
+            int length = view.getInt(position);
+            if (length < FIXED_PAYLOAD || length > view.capacity() - position - HEADER) {
+                break;
+            }
+            int payload = position + HEADER;
+            crc.reset();
+            crc.update(view.limit(payload + length).position(payload));
+            view.clear();
+            int idLength = Short.toUnsignedInt(view.getShort(payload + 13));
+            int type = view.get(payload);
+            if ((int) crc.getValue() != view.getInt(position + Integer.BYTES)
+                || idLength != length - FIXED_PAYLOAD || type < 0 || type >= TRANSITIONS.length) {
+                break;
+            }
+            if (listener != null) {
+                view.get(payload + FIXED_PAYLOAD, id, 0, idLength);
+                listener.onTransition(TRANSITIONS[type], view.getInt(payload + 1),
+                    new String(id, 0, idLength, StandardCharsets.UTF_8), view.getLong(payload + 5));
+            }
+            position = payload + length;
+        }
+        return position;
+    }
+
+    /**
+     * Zeroes everything after the given offset.
+     *
+     * @return true if anything but zeros was found there
+     */
+    private static boolean wipe(MappedByteBuffer segment, int from) {
+        boolean dirty = false;
+        int i = from;
+        for (; i < segment.capacity() && (i & 7) != 0; i++) {
+            dirty |= segment.get(i) != 0;
+            segment.put(i, (byte) 0);
+        }
+        for (; i + Long.BYTES <= segment.capacity(); i += Long.BYTES) {
+            if (segment.getLong(i) != 0) {
+                segment.putLong(i, 0);
+                dirty = true;
+            }
+        }
+        for (; i < segment.capacity(); i++) {
+            dirty |= segment.get(i) != 0;
+            segment.put(i, (byte) 0);
+        }
+        if (dirty) {
+            segment.force();
+        }
+        return dirty;
+    }
+
+    private static List<Long> segmentBases(Path directory) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.map(path -> path.getFileName().toString())
+                .filter(name -> name.endsWith(SUFFIX))
+                .map(name -> Long.parseLong(name.substring(0, name.length() - SUFFIX.length())))
+                .sorted()
+                .toList();
+        }
+    }
+
+    private static Path segmentPath(Path directory, long base) {
+        return directory.resolve(String.format("%020d%s", base, SUFFIX));
+    }
+
+    private static MappedByteBuffer map(Path path, int size) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+            StandardOpenOption.WRITE)) {
+            long length = Math.max(channel.size(), size);
+            return channel.map(FileChannel.MapMode.READ_WRITE, 0, length);
+        }
+    }
+
+    private static MappedByteBuffer mapReadOnly(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package rk.powermilk.cinema.persistence;
+
+import java.time.Duration;
+
+/**
+ * Settings of a {@link Journal} and of the snapshots taken by a {@link DurableCinema}.
+ *
+ * @param segmentSize      the size of a journal segment file in bytes
+ * @param syncMode         when records are forced to disk
+ * @param flushInterval    the longest time between two forces of the journal
+ * @param snapshotInterval the time between two automatic snapshots; zero disables them
+ */
+public record JournalOptions(int segmentSize, SyncMode syncMode, Duration flushInterval, Duration snapshotInterval) {
+    /**
+     * Default size of a journal segment file: 64 MiB.
+     */
+    public static final int DEFAULT_SEGMENT_SIZE = 64 << 20;
+    /**
+     * Smallest accepted segment size; every segment must fit the largest possible record.
+     */
+    public static final int MIN_SEGMENT_SIZE = 128 << 10;
+
+    /**
+     * Validates the settings.
+     *
+     * @throws IllegalArgumentException if the segment size is below {@link #MIN_SEGMENT_SIZE}, the flush interval
+     *                                  is not positive or the snapshot interval is negative
+     */
+    public JournalOptions {
+        if (segmentSize < MIN_SEGMENT_SIZE) {
+            throw new IllegalArgumentException(
+                "Segment size must be at least " + MIN_SEGMENT_SIZE + ": " + segmentSize);
+        }
+        if (!flushInterval.isPositive()) {
+            throw new IllegalArgumentException("Flush interval must be positive: " + flushInterval);
+        }
+        if (snapshotInterval.isNegative()) {
+            throw new IllegalArgumentException("Snapshot interval must not be negative: " + snapshotInterval);
+        }
+    }
+
+    /**
+     * Returns the default settings: 64 MiB segments, group commit, a 10 ms flush interval and a snapshot every
+     * five minutes.
+     *
+     * @return the default settings
+     */
+    public static JournalOptions defaults() {
+        return new JournalOptions(DEFAULT_SEGMENT_SIZE, SyncMode.GROUP_COMMIT, Duration.ofMillis(10),
+            Duration.ofMinutes(5));
+    }
+}
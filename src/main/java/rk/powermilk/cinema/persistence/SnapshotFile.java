@@ -0,0 +1,59 @@
+package rk.powermilk.cinema.persistence;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Names of the snapshot files of a durable cinema, which carry the journal LSN from which replay continues.
+ */
+final class SnapshotFile {
+    private static final String PREFIX = "snapshot-";
+    private static final String SUFFIX = ".snapshot";
+
+    private SnapshotFile() {
+    }
+
+    /**
+     * Returns the path of the snapshot taken at the given LSN.
+     *
+     * @param directory the directory of the cinema
+     * @param lsn       the LSN of the snapshot
+     * @return the path of the snapshot file
+     */
+    static Path path(Path directory, long lsn) {
+        return directory.resolve(String.format("%s%020d%s", PREFIX, lsn, SUFFIX));
+    }
+
+    /**
+     * Lists the LSNs of the snapshots in a directory.
+     *
+     * @param directory the directory of the cinema
+     * @return the LSNs in ascending order
+     */
+    static List<Long> list(Path directory) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.map(path -> path.getFileName().toString())
+                .filter(name -> name.startsWith(PREFIX) && name.endsWith(SUFFIX))
+                .map(name -> Long.parseLong(name.substring(PREFIX.length(), name.length() - SUFFIX.length())))
+                .sorted()
+                .toList();
+        }
+    }
+
+    /**
+     * Deletes the snapshots older than the given one.
+     *
+     * @param directory the directory of the cinema
+     * @param lsn       the LSN of the snapshot to keep
+     */
+    static void deleteBefore(Path directory, long lsn) throws IOException {
+        for (long older : list(directory)) {
+            if (older < lsn) {
+                Files.delete(path(directory, older));
+            }
+        }
+    }
+}
@@ -0,0 +1,17 @@
+package rk.powermilk.cinema.persistence;
+
+/**
+ * When journal records are forced to disk.
+ */
+public enum SyncMode {
+    /**
+     * Records are forced in the background once per flush interval and transitions never wait for the disk;
+     * a crash may lose the transitions of the last interval.
+     */
+    ASYNC,
+    /**
+     * A transition returns only after its record has been forced to disk. Records appended while a force is in
+     * progress are forced together by the next one, so concurrent clients share the cost of each force.
+     */
+    GROUP_COMMIT
+}
@@ -0,0 +1,261 @@
+package rk.powermilk.cinema.replication;
+
+import lombok.extern.slf4j.Slf4j;
+import rk.powermilk.cinema.model.Cinema;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.time.Duration;
+
+import static rk.powermilk.cinema.replication.ReplicationProtocol.BUFFER_SIZE;
+import static rk.powermilk.cinema.replication.ReplicationProtocol.RECORD;
+import static rk.powermilk.cinema.replication.ReplicationProtocol.RECORD_HEADER;
+import static rk.powermilk.cinema.replication.ReplicationProtocol.SEAT;
+import static rk.powermilk.cinema.replication.ReplicationProtocol.SEAT_HEADER;
+import static rk.powermilk.cinema.replication.ReplicationProtocol.SNAPSHOT;
+import static rk.powermilk.cinema.replication.ReplicationProtocol.SNAPSHOT_END;
+import static rk.powermilk.cinema.replication.ReplicationProtocol.SNAPSHOT_HEADER;
+
+/**
+ * Follower side of the replication of a {@link Cinema}: keeps a local replica in step with a
+ * {@link ReplicationPrimary} and serves reads from it.
+ * <p>
+ * A thread reads the stream from the primary in large buffers and applies every complete frame to the replica
+ * with {@link Cinema#applyReplicated(int, String, long)}, then acknowledges the last applied record. Reads such
+ * as {@link Cinema#isSeatAvailable(int)} or {@link Cinema#getReservedSeatsCount()} go to the replica and never
+ * touch the network, so adding followers adds read capacity. The replica lags behind the primary by the records
+ * in flight; {@link #awaitSequence(long, Duration)} waits until it has caught up with a known point.
+ * <p>
+ * The replica must not be changed by anything else. If the connection is lost, the follower stops; a new
+ * follower for the same replica can resume from {@link #appliedSequence()}.
+ */
+@Slf4j
+public final class ReplicationFollower implements AutoCloseable {
+    private final Cinema replica;
+    private final SocketChannel channel;
+    private final ByteBuffer in = ByteBuffer.allocateDirect(BUFFER_SIZE);
+    private final ByteBuffer ack = ByteBuffer.allocate(Long.BYTES);
+    private final Thread reader;
+    private volatile long applied;
+    private volatile boolean closed;
+    /**
+     * Sequence that follows the copy of the hall being received, or -1 outside of a copy.
+     */
+    private long copyEnd = -1;
+
+    private ReplicationFollower(Cinema replica, SocketChannel channel, long applied) {
+        this.replica = replica;
+        this.channel = channel;
+        this.applied = applied;
+        this.reader = Thread.ofPlatform().daemon().name("replication-follower").unstarted(this::follow);
+    }
+
+    /**
+     * Connects a fresh replica to a primary; it receives a copy of the hall first.
+     *
+     * @param replica a cinema with the layout of the primary's, changed by nothing else
+     * @param primary the address of the primary
+     * @return the running follower
+     * @throws UncheckedIOException if the primary cannot be reached
+     */
+    public static ReplicationFollower connect(Cinema replica, InetSocketAddress primary) {
+        return connect(replica, primary, -1);
+    }
+
+    /**
+     * Connects a replica to a primary, resuming after the given record if the primary still has the records
+     * that follow it, and from a copy of the hall otherwise.
+     *
+     * @param replica         a cinema with the layout of the primary's, changed by nothing else
+     * @param primary         the address of the primary
+     * @param appliedSequence the {@link #appliedSequence()} of the previous follower of the replica, or -1
+     * @return the running follower
+     * @throws UncheckedIOException if the primary cannot be reached
+     */
+    public static ReplicationFollower connect(Cinema replica, InetSocketAddress primary, long appliedSequence) {
+        try {
+            SocketChannel channel = SocketChannel.open(primary);
+            channel.socket().setTcpNoDelay(true);
+            ReplicationFollower follower = new ReplicationFollower(replica, channel, appliedSequence);
+            follower.acknowledge(appliedSequence < 0 ? -1 : appliedSequence + 1);
+            follower.reader.start();
+            return follower;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Returns the replica.
+     *
+     * @return the cinema kept in step with the primary
+     */
+    public Cinema replica() {
+        return replica;
+    }
+
+    /**
+     * Returns the sequence of the last record applied to the replica.
+     *
+     * @return the sequence, or -1 before the first copy of the hall was applied
+     */
+    public long appliedSequence() {
+        return applied;
+    }
+
+    /**
+     * Checks whether the follower is still receiving from the primary.
+     *
+     * @return false once the connection is closed or lost
+     */
+    public boolean isConnected() {
+        return reader.isAlive();
+    }
+
+    /**
+     * Waits until the replica has applied a record.
+     *
+     * @param sequence the sequence of the record, such as {@link ReplicationPrimary#sequence()} minus one
+     * @param timeout  the longest time to wait
+     * @return true if the record was applied; false if the time ran out or the follower stopped first
+     */
+    public boolean awaitSequence(long sequence, Duration timeout) {
+        long deadline = System.nanoTime() + timeout.toNanos();
+        synchronized (this) {
+            while (applied < sequence) {
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0 || !reader.isAlive()) {
+                    return false;
+                }
+                try {
+                    wait(Math.max(1, remaining / 1_000_000));
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    /**
+     * Disconnects from the primary and stops the reader thread. The replica keeps its state.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        try {
+            channel.close();
+            reader.join();
+        } catch (IOException e) {
+            log.debug("Closing replication channel failed", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void follow() {
+        try {
+            while (channel.read(in) >= 0) {
+                in.flip();
+                long before = applied;
+                applyFrames();
+                in.compact();
+                if (applied != before) {
+                    acknowledge(applied);
+                    synchronized (this) {
+                        notifyAll();
+                    }
+                }
+            }
+            log.info("Primary closed the replication stream");
+        } catch (IOException | RuntimeException e) {
+            if (!closed) {
+                log.error("Replication from primary failed", e);
+            }
+        } finally {
+            synchronized (this) {
+                notifyAll();
+            }
+        }
+    }
+
+    /**
+     * Applies every complete frame in the buffer and leaves the buffer at the first incomplete one.
+     */
+    private void applyFrames() {
+        while (in.hasRemaining()) {
+            int start = in.position();
+            byte type = in.get(start);
+            int length = switch (type) {
+                case RECORD -> frameLength(start, RECORD_HEADER);
+                case SEAT -> frameLength(start, SEAT_HEADER);
+                case SNAPSHOT -> SNAPSHOT_HEADER;
+                case SNAPSHOT_END -> 1;
+                default -> throw new IllegalStateException("Unknown replication frame " + type);
+            };
+            if (length < 0 || in.remaining() < length) {
+                return;
+            }
+            in.get();
+            switch (type) {
+                case RECORD -> applyRecord();
+                case SEAT -> applySeat();
+                case SNAPSHOT -> startCopy();
+                default -> {
+                    applied = copyEnd - 1;
+                    copyEnd = -1;
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the length of a frame that ends with a holder, or -1 if the holder's length field has not arrived
+     * yet.
+     */
+    private int frameLength(int start, int header) {
+        int position = start + header - Short.BYTES;
+        return position + Short.BYTES > in.limit() ? -1 : header + ReplicationProtocol.holderLength(in, position);
+    }
+
+    private void applyRecord() {
+        long sequence = in.getLong();
+        if (copyEnd >= 0 || sequence != applied + 1) {
+            throw new IllegalStateException("Expected record " + (applied + 1) + " but got " + sequence);
+        }
+        int seatNumber = in.getInt();
+        long version = in.getLong();
+        replica.applyReplicated(seatNumber, ReplicationProtocol.getHolder(in), version);
+        applied = sequence;
+    }
+
+    private void startCopy() {
+        copyEnd = in.getLong();
+        int seats = in.getInt();
+        if (seats != replica.getSeatsCount()) {
+            throw new IllegalStateException(
+                "Primary has " + seats + " seats but the replica has " + replica.getSeatsCount());
+        }
+    }
+
+    private void applySeat() {
+        if (copyEnd < 0) {
+            throw new IllegalStateException("Seat outside of a copy of the hall");
+        }
+        int seatNumber = in.getInt();
+        long version = in.getLong();
+        replica.applyReplicated(seatNumber, ReplicationProtocol.getHolder(in), version);
+    }
+
+    private void acknowledge(long sequence) throws IOException {
+        ack.clear();
+        ack.putLong(sequence).flip();
+        while (ack.hasRemaining()) {
+            channel.write(ack);
+        }
+    }
+}
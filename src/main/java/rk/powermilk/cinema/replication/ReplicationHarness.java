@@ -0,0 +1,275 @@
+package rk.powermilk.cinema.replication;
+
+import lombok.extern.slf4j.Slf4j;
+import rk.powermilk.cinema.model.Cinema;
+import rk.powermilk.cinema.util.LatencyHistogram;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Runs a primary and its followers in one JVM over loopback and measures replication lag and read scale-out.
+ * <p>
+ * Writer threads reserve and cancel random seats on the primary while reader threads check random seats on
+ * every replica. A probe flips seat 1 on the primary about every millisecond and times how long it takes until
+ * every replica shows the change, and samples how many records each follower is behind. When the time is up, the
+ * writers stop, the followers catch up and every replica is compared with the primary seat by seat.
+ * <p>
+ * Takes {@code name=value} arguments: {@code followers}, {@code seats}, {@code writers}, {@code readers} (per
+ * follower), {@code seconds} and {@code logCapacity}.
+ */
+@Slf4j
+public final class ReplicationHarness {
+    private static final String PROBE = "probe";
+    private static final int PROBE_SEAT = 1;
+
+    private ReplicationHarness() {
+    }
+
+    public static void main(String[] args) {
+        run(Settings.parse(args)).log();
+    }
+
+    /**
+     * Runs the harness.
+     *
+     * @param settings the shape of the run
+     * @return the measurements
+     */
+    public static Report run(Settings settings) {
+        Cinema cinema = new Cinema(settings.seats());
+        InetSocketAddress loopback = new InetSocketAddress(InetAddress.getLoopbackAddress(), 0);
+        List<ReplicationFollower> followers = new ArrayList<>();
+        List<Thread> threads = new ArrayList<>();
+        LongAdder writes = new LongAdder();
+        LongAdder reads = new LongAdder();
+        LatencyHistogram lag = new LatencyHistogram();
+        LatencyHistogram visibility = new LatencyHistogram();
+        try (ReplicationPrimary primary = ReplicationPrimary.start(cinema, loopback, settings.logCapacity())) {
+            for (int i = 0; i < settings.followers(); i++) {
+                followers.add(ReplicationFollower.connect(new Cinema(settings.seats()), primary.address()));
+            }
+            long started = System.nanoTime();
+            long deadline = started + settings.duration().toNanos();
+            for (int i = 0; i < settings.writers(); i++) {
+                String clientId = "writer-" + i;
+                threads.add(Thread.ofPlatform().name(clientId).start(() -> write(cinema, clientId, deadline, writes)));
+            }
+            for (ReplicationFollower follower : followers) {
+                for (int i = 0; i < settings.readers(); i++) {
+                    threads.add(Thread.ofPlatform().name("reader-" + i)
+                        .start(() -> read(follower.replica(), deadline, reads)));
+                }
+            }
+            probe(cinema, primary, followers, deadline, lag, visibility);
+            for (Thread thread : threads) {
+                thread.join();
+            }
+            Duration elapsed = Duration.ofNanos(System.nanoTime() - started);
+            boolean converged = converge(cinema, primary, followers);
+            return new Report(settings, elapsed, writes.sum(), reads.sum(), lag, visibility, primary.snapshotsSent(),
+                converged);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while running the replication harness", e);
+        } finally {
+            followers.forEach(ReplicationFollower::close);
+        }
+    }
+
+    private static void write(Cinema cinema, String clientId, long deadline, LongAdder writes) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        long count = 0;
+        while (System.nanoTime() - deadline < 0) {
+            int seat = 2 + random.nextInt(cinema.getSeatsCount() - 1);
+            if (!cinema.reserveSeat(seat, clientId)) {
+                cinema.cancelReservation(seat, clientId);
+            }
+            count++;
+        }
+        writes.add(count);
+    }
+
+    private static void read(Cinema replica, long deadline, LongAdder reads) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        long count = 0;
+        while (System.nanoTime() - deadline < 0) {
+            for (int i = 0; i < 1_000; i++) {
+                replica.isSeatAvailable(1 + random.nextInt(replica.getSeatsCount()));
+            }
+            count += 1_000;
+        }
+        reads.add(count);
+    }
+
+    private static void probe(Cinema cinema, ReplicationPrimary primary, List<ReplicationFollower> followers,
+                              long deadline, LatencyHistogram lag, LatencyHistogram visibility) {
+        long timeout = TimeUnit.SECONDS.toNanos(1);
+        while (System.nanoTime() - deadline < 0) {
+            long newest = primary.sequence() - 1;
+            for (ReplicationFollower follower : followers) {
+                lag.record(Math.max(0, newest - follower.appliedSequence()));
+            }
+            boolean reserved = cinema.reserveSeat(PROBE_SEAT, PROBE);
+            if (!reserved) {
+                cinema.cancelReservation(PROBE_SEAT, PROBE);
+            }
+            long changed = System.nanoTime();
+            for (ReplicationFollower follower : followers) {
+                while (follower.replica().isSeatAvailable(PROBE_SEAT) == reserved
+                    && System.nanoTime() - changed < timeout) {
+                    Thread.onSpinWait();
+                }
+            }
+            visibility.record(System.nanoTime() - changed);
+            LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(1));
+        }
+    }
+
+    private static boolean converge(Cinema cinema, ReplicationPrimary primary, List<ReplicationFollower> followers) {
+        long newest = primary.sequence() - 1;
+        for (ReplicationFollower follower : followers) {
+            if (!follower.awaitSequence(newest, Duration.ofSeconds(10))) {
+                return false;
+            }
+            Cinema replica = follower.replica();
+            for (int seat = 1; seat <= cinema.getSeatsCount(); seat++) {
+                if (cinema.isSeatAvailable(seat) != replica.isSeatAvailable(seat)) {
+                    return false;
+                }
+            }
+            if (cinema.getReservedSeatsCount() != replica.getReservedSeatsCount()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Shape of a harness run.
+     *
+     * @param followers   the number of followers
+     * @param seats       the number of seats of the hall
+     * @param writers     the number of threads writing to the primary
+     * @param readers     the number of threads reading from each follower
+     * @param duration    how long the writers and readers run
+     * @param logCapacity the capacity of the primary's log; a power of two
+     */
+    public record Settings(int followers, int seats, int writers, int readers, Duration duration, int logCapacity) {
+
+        /**
+         * Validates the settings.
+         *
+         * @throws IllegalArgumentException if a count is out of range or the duration is not positive
+         */
+        public Settings {
+            if (followers <= 0 || writers <= 0 || readers < 0) {
+                throw new IllegalArgumentException(
+                    "Followers and writers must be positive and readers not negative: " + followers + ", "
+                        + writers + ", " + readers);
+            }
+            if (seats < 2) {
+                throw new IllegalArgumentException("A hall needs at least two seats: " + seats);
+            }
+            if (duration.isNegative() || duration.isZero()) {
+                throw new IllegalArgumentException("Duration must be positive: " + duration);
+            }
+        }
+
+        /**
+         * Returns the default settings: three followers with two readers each and four writers on a hall of
+         * 10,000 seats for five seconds.
+         *
+         * @return the default settings
+         */
+        public static Settings defaults() {
+            return new Settings(3, 10_000, 4, 2, Duration.ofSeconds(5), ReplicationPrimary.DEFAULT_LOG_CAPACITY);
+        }
+
+        /**
+         * Creates settings from the defaults and {@code name=value} overrides.
+         *
+         * @param overrides the overrides
+         * @return the settings
+         * @throws IllegalArgumentException if an override is malformed, unknown or out of range
+         */
+        public static Settings parse(String... overrides) {
+            Settings settings = defaults();
+            for (String override : overrides) {
+                int separator = override.indexOf('=');
+                if (separator < 0) {
+                    throw new IllegalArgumentException("Expected name=value: " + override);
+                }
+                String value = override.substring(separator + 1);
+                Settings s = settings;
+                settings = switch (override.substring(0, separator)) {
+                    case "followers" -> new Settings(Integer.parseInt(value), s.seats, s.writers, s.readers,
+                        s.duration, s.logCapacity);
+                    case "seats" -> new Settings(s.followers, Integer.parseInt(value), s.writers, s.readers,
+                        s.duration, s.logCapacity);
+                    case "writers" -> new Settings(s.followers, s.seats, Integer.parseInt(value), s.readers,
+                        s.duration, s.logCapacity);
+                    case "readers" -> new Settings(s.followers, s.seats, s.writers, Integer.parseInt(value),
+                        s.duration, s.logCapacity);
+                    case "seconds" -> new Settings(s.followers, s.seats, s.writers, s.readers,
+                        Duration.ofMillis((long) (Double.parseDouble(value) * 1_000)), s.logCapacity);
+                    case "logCapacity" -> new Settings(s.followers, s.seats, s.writers, s.readers, s.duration,
+                        Integer.parseInt(value));
+                    default -> throw new IllegalArgumentException("Unknown setting: " + override);
+                };
+            }
+            return settings;
+        }
+    }
+
+    /**
+     * Measurements of a harness run.
+     *
+     * @param settings   the shape of the run
+     * @param elapsed    how long the writers and readers ran
+     * @param writes     the number of reservations and cancellations sent to the primary
+     * @param reads      the number of availability checks served by all replicas together
+     * @param lag        samples of the number of records each follower was behind
+     * @param visibility the time from a change on the primary until every replica showed it, in nanoseconds
+     * @param snapshots  the number of copies of the hall the primary sent
+     * @param converged  whether every replica matched the primary seat by seat after the run
+     */
+    public record Report(Settings settings, Duration elapsed, long writes, long reads, LatencyHistogram lag,
+                         LatencyHistogram visibility, long snapshots, boolean converged) {
+
+        /**
+         * Returns the number of reads per second served by all replicas together.
+         *
+         * @return the read throughput
+         */
+        public double readThroughput() {
+            return reads * 1e9 / Math.max(1, elapsed.toNanos());
+        }
+
+        /**
+         * Logs the measurements.
+         */
+        public void log() {
+            double seconds = elapsed.toNanos() / 1e9;
+            log.info("{} followers, {} seats: {} writes/s on the primary, {} reads/s on the replicas ({} per follower)",
+                settings.followers(), settings.seats(), Math.round(writes / seconds), Math.round(readThroughput()),
+                Math.round(readThroughput() / settings.followers()));
+            log.info("Lag in records p50 {} p99 {} max {}", lag.percentile(50), lag.percentile(99), lag.max());
+            log.info("Visible on all replicas after us p50 {} p99 {} max {}", micros(visibility.percentile(50)),
+                micros(visibility.percentile(99)), micros(visibility.max()));
+            log.info("{} hall copies sent; replicas {}", snapshots,
+                converged ? "match the primary" : "DIFFER from the primary");
+        }
+
+        private static long micros(long nanos) {
+            return TimeUnit.NANOSECONDS.toMicros(nanos);
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package rk.powermilk.cinema.replication;
+
+import java.lang.invoke.VarHandle;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Sequenced log of seat states for replication, kept in a pre-allocated ring that writers never wait for.
+ * <p>
+ * Every appended state gets the next sequence number, and its slot is overwritten once the log has wrapped
+ * around, whether or not every follower has read it. A slot carries a stamp: the sequence of its entry once it
+ * is complete, or the sequence with {@link #WRITING} set while it is being filled. Readers check the stamp before
+ * and after copying an entry, like a sequence lock, so they never return an entry that was overwritten under
+ * them; a reader that finds its sequence overwritten has fallen a full ring behind and has to start over from a
+ * copy of the hall.
+ */
+final class ReplicationLog {
+    /**
+     * Flag of a stamp whose slot is being filled.
+     */
+    private static final long WRITING = 1L << 62;
+    private static final long EMPTY = -1L;
+
+    private final int mask;
+    private final int[] seatNumbers;
+    private final String[] clientIds;
+    private final long[] versions;
+    private final AtomicLongArray stamps;
+    private final AtomicLong claimed = new AtomicLong();
+
+    /**
+     * Creates an empty log.
+     *
+     * @param capacity the number of entries kept; a power of two
+     */
+    ReplicationLog(int capacity) {
+        this.mask = capacity - 1;
+        this.seatNumbers = new int[capacity];
+        this.clientIds = new String[capacity];
+        this.versions = new long[capacity];
+        this.stamps = new AtomicLongArray(capacity);
+        for (int slot = 0; slot < capacity; slot++) {
+            stamps.set(slot, EMPTY);
+        }
+    }
+
+    /**
+     * Appends the state a seat reached. Never blocks and allocates nothing.
+     *
+     * @param seatNumber the seat
+     * @param clientId   the holder of the seat, or null if it is free
+     * @param version    the version of the seat
+     */
+    void append(int seatNumber, String clientId, long version) {
+        long sequence = claimed.getAndIncrement();
+        int slot = (int) sequence & mask;
+        long stamp = stamps.get(slot);
+        while (true) {
+            if (stamp != EMPTY && (stamp & ~WRITING) > sequence) {
+                return;
+            }
+            long witness = stamps.compareAndExchange(slot, stamp, sequence | WRITING);
+            if (witness == stamp) {
+                break;
+            }
+            stamp = witness;
+        }
+        seatNumbers[slot] = seatNumber;
+        clientIds[slot] = clientId;
+        versions[slot] = version;
+        stamps.compareAndSet(slot, sequence | WRITING, sequence);
+    }
+
+    /**
+     * Returns the sequence the next appended state will get.
+     *
+     * @return the number of states appended so far
+     */
+    long next() {
+        return claimed.get();
+    }
+
+    /**
+     * Copies an entry.
+     *
+     * @param sequence the sequence of the entry
+     * @param entry    the holder to copy it into
+     * @return {@link Status#READY} if it was copied, {@link Status#PENDING} if it is not complete yet, or
+     * {@link Status#OVERWRITTEN} if the log no longer has it
+     */
+    Status read(long sequence, Entry entry) {
+        int slot = (int) sequence & mask;
+        long stamp = stamps.get(slot);
+        if (stamp != sequence) {
+            return stamp != EMPTY && (stamp & ~WRITING) > sequence ? Status.OVERWRITTEN : Status.PENDING;
+        }
+        entry.seatNumber = seatNumbers[slot];
+        entry.clientId = clientIds[slot];
+        entry.version = versions[slot];
+        VarHandle.acquireFence();
+        return stamps.get(slot) == sequence ? Status.READY : Status.OVERWRITTEN;
+    }
+
+    /**
+     * Outcome of {@link #read(long, Entry)}.
+     */
+    enum Status {
+        READY,
+        PENDING,
+        OVERWRITTEN
+    }
+
+    /**
+     * Reusable copy of an entry.
+     */
+    static final class Entry {
+        int seatNumber;
+        String clientId;
+        long version;
+    }
+}
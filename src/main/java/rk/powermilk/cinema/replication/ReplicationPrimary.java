@@ -0,0 +1,417 @@
+package rk.powermilk.cinema.replication;
+
+import lombok.extern.slf4j.Slf4j;
+import rk.powermilk.cinema.model.Cinema;
+import rk.powermilk.cinema.model.SeatListener;
+import rk.powermilk.cinema.model.SeatTransition;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.Iterator;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+import static rk.powermilk.cinema.replication.ReplicationProtocol.BUFFER_SIZE;
+import static rk.powermilk.cinema.replication.ReplicationProtocol.RECORD;
+import static rk.powermilk.cinema.replication.ReplicationProtocol.RECORD_HEADER;
+import static rk.powermilk.cinema.replication.ReplicationProtocol.SEAT;
+import static rk.powermilk.cinema.replication.ReplicationProtocol.SNAPSHOT;
+import static rk.powermilk.cinema.replication.ReplicationProtocol.SNAPSHOT_END;
+
+/**
+ * Primary side of the replication of a {@link Cinema}: streams every seat transition to the
+ * {@link ReplicationFollower}s connected over TCP.
+ * <p>
+ * As a {@link SeatListener} the primary appends the state every transition leaves its seat in, with the seat's
+ * version, to a {@link ReplicationLog} that numbers the states in sequence; writers never wait for followers. A
+ * single thread serves all followers with non-blocking {@link SocketChannel}s and a {@link Selector}: it packs
+ * as many records as fit into one buffer per write and keeps writing without waiting for acknowledgements, so
+ * the stream is batched and pipelined, and a slow follower only fills its own socket. It sleeps on the selector
+ * while there is nothing to send, and the first transition after that wakes it up.
+ * <p>
+ * A new follower, or one that fell so far behind that the log has overwritten the records it needs, first gets
+ * a copy of the hall. The copy is read while transitions go on, but it starts at the sequence the log had before
+ * the first seat was read, and since followers only apply states newer than the ones they have, replaying the
+ * records from there onwards makes the copy exact.
+ */
+@Slf4j
+public final class ReplicationPrimary implements SeatListener, AutoCloseable {
+    /**
+     * Number of records kept for followers that fall behind, by default.
+     */
+    public static final int DEFAULT_LOG_CAPACITY = 1 << 16;
+    /**
+     * Most buffers sent to one follower before the others get their turn.
+     */
+    private static final int BUFFERS_PER_TURN = 16;
+    private static final long IDLE_MILLIS = 100;
+
+    private final Cinema cinema;
+    private final ReplicationLog records;
+    private final Selector selector;
+    private final ServerSocketChannel server;
+    private final InetSocketAddress address;
+    private final CopyOnWriteArrayList<Follower> followers = new CopyOnWriteArrayList<>();
+    /**
+     * Whether the sender thread may be sleeping on the selector and has to be woken up for new records.
+     */
+    private final AtomicBoolean idle = new AtomicBoolean();
+    private final LongAdder snapshots = new LongAdder();
+    private final ReplicationLog.Entry entry = new ReplicationLog.Entry();
+    private final ByteBuffer seatFrame =
+        ByteBuffer.allocate(ReplicationProtocol.SEAT_HEADER + ReplicationProtocol.MAX_CLIENT_ID);
+    private final Thread sender;
+    private volatile boolean closed;
+
+    private ReplicationPrimary(Cinema cinema, int capacity, InetSocketAddress address) throws IOException {
+        this.cinema = cinema;
+        this.records = new ReplicationLog(capacity);
+        this.selector = Selector.open();
+        this.server = ServerSocketChannel.open();
+        try {
+            server.bind(address);
+            server.configureBlocking(false);
+            server.register(selector, SelectionKey.OP_ACCEPT);
+            this.address = (InetSocketAddress) server.getLocalAddress();
+        } catch (IOException e) {
+            server.close();
+            selector.close();
+            throw e;
+        }
+        this.sender = Thread.ofPlatform().daemon().name("replication-primary").unstarted(this::serve);
+    }
+
+    /**
+     * Starts replicating a cinema, with a log of {@link #DEFAULT_LOG_CAPACITY} records.
+     *
+     * @param cinema  the cinema to replicate
+     * @param address the address to accept followers on; port 0 picks a free port
+     * @return the running primary, already listening to the cinema
+     * @throws UncheckedIOException if the address cannot be bound
+     */
+    public static ReplicationPrimary start(Cinema cinema, InetSocketAddress address) {
+        return start(cinema, address, DEFAULT_LOG_CAPACITY);
+    }
+
+    /**
+     * Starts replicating a cinema.
+     *
+     * @param cinema      the cinema to replicate
+     * @param address     the address to accept followers on; port 0 picks a free port
+     * @param logCapacity the number of records kept for followers that fall behind; a power of two, at least 2
+     * @return the running primary, already listening to the cinema
+     * @throws IllegalArgumentException if the capacity is not a power of two of at least 2
+     * @throws UncheckedIOException     if the address cannot be bound
+     */
+    public static ReplicationPrimary start(Cinema cinema, InetSocketAddress address, int logCapacity) {
+        if (logCapacity < 2 || Integer.bitCount(logCapacity) != 1) {
+            throw new IllegalArgumentException("Log capacity must be a power of two of at least 2: " + logCapacity);
+        }
+        try {
+            ReplicationPrimary primary = new ReplicationPrimary(cinema, logCapacity, address);
+            cinema.addListener(primary);
+            primary.sender.start();
+            log.info("Replicating {} seats on {}", cinema.getSeatsCount(), primary.address);
+            return primary;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Records a transition for the followers. Never blocks.
+     */
+    @Override
+    public void onTransition(SeatTransition transition, int seatNumber, String clientId, long version) {
+        records.append(seatNumber, transition == SeatTransition.RESERVED ? clientId : null, version);
+        if (idle.get() && idle.compareAndSet(true, false)) {
+            selector.wakeup();
+        }
+    }
+
+    /**
+     * Returns the address followers connect to.
+     *
+     * @return the address, with the port actually bound
+     */
+    public InetSocketAddress address() {
+        return address;
+    }
+
+    /**
+     * Returns the sequence the next record will get.
+     *
+     * @return the number of transitions recorded so far
+     */
+    public long sequence() {
+        return records.next();
+    }
+
+    /**
+     * Returns the number of connected followers.
+     *
+     * @return the number of followers
+     */
+    public int getFollowerCount() {
+        return followers.size();
+    }
+
+    /**
+     * Returns how many copies of the hall were sent to new or lagging followers.
+     *
+     * @return the number of copies sent
+     */
+    public long snapshotsSent() {
+        return snapshots.sum();
+    }
+
+    /**
+     * Returns how far the slowest follower is behind, as of its latest acknowledgement.
+     *
+     * @return the number of records recorded but not yet acknowledged by the slowest follower; 0 without
+     * followers
+     */
+    public long maxFollowerLag() {
+        long next = records.next();
+        long lag = 0;
+        for (Follower follower : followers) {
+            lag = Math.max(lag, next - 1 - follower.acknowledged);
+        }
+        return lag;
+    }
+
+    /**
+     * Detaches the primary from the cinema, disconnects the followers and stops the sender thread.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        cinema.removeListener(this);
+        selector.wakeup();
+        try {
+            sender.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void serve() {
+        try (selector; server) {
+            while (!closed) {
+                idle.set(true);
+                for (Follower follower : followers) {
+                    follower.turn(Follower::pump);
+                }
+                selector.select(IDLE_MILLIS);
+                idle.set(false);
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    if (!key.isValid()) {
+                        continue;
+                    }
+                    if (key.isAcceptable()) {
+                        accept();
+                    } else if (key.isReadable()) {
+                        ((Follower) key.attachment()).turn(Follower::receive);
+                    }
+                }
+            }
+        } catch (IOException e) {
+            log.error("Replication stopped", e);
+        } finally {
+            for (Follower follower : followers) {
+                follower.disconnect();
+            }
+        }
+    }
+
+    private void accept() throws IOException {
+        SocketChannel channel = server.accept();
+        if (channel == null) {
+            return;
+        }
+        channel.configureBlocking(false);
+        channel.socket().setTcpNoDelay(true);
+        Follower follower = new Follower(channel);
+        follower.key = channel.register(selector, SelectionKey.OP_READ, follower);
+        followers.add(follower);
+        log.info("Follower connected from {}", channel.getRemoteAddress());
+    }
+
+    /**
+     * Encodes a copy of the hall, starting at the current sequence.
+     */
+    private ByteBuffer snapshot(long next) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        seatFrame.clear();
+        seatFrame.put(SNAPSHOT).putLong(next).putInt(cinema.getSeatsCount());
+        bytes.write(seatFrame.array(), 0, seatFrame.position());
+        cinema.forEachSeat((seatNumber, clientId, version) -> {
+            if (version > 0) {
+                seatFrame.clear();
+                seatFrame.put(SEAT).putInt(seatNumber).putLong(version);
+                ReplicationProtocol.putHolder(seatFrame, ReplicationProtocol.encode(clientId));
+                bytes.write(seatFrame.array(), 0, seatFrame.position());
+            }
+        });
+        bytes.write(SNAPSHOT_END);
+        snapshots.increment();
+        return ByteBuffer.wrap(bytes.toByteArray());
+    }
+
+    /**
+     * A connected follower. Only touched by the sender thread, except for {@link #acknowledged}.
+     */
+    private final class Follower {
+        private final SocketChannel channel;
+        private final ByteBuffer out = ByteBuffer.allocateDirect(BUFFER_SIZE).flip();
+        private final ByteBuffer in = ByteBuffer.allocate(64 * Long.BYTES);
+        private SelectionKey key;
+        private ByteBuffer snapshot;
+        /**
+         * Sequence of the next record to send, or -1 until the follower said where to start.
+         */
+        private long cursor = -1;
+        private volatile long acknowledged = -1;
+
+        Follower(SocketChannel channel) {
+            this.channel = channel;
+        }
+
+        /**
+         * Runs a step, disconnecting the follower if it fails.
+         */
+        void turn(Step step) {
+            try {
+                step.run(this);
+            } catch (IOException | RuntimeException e) {
+                log.warn("Disconnecting follower: {}", e.toString());
+                disconnect();
+            }
+        }
+
+        void receive() throws IOException {
+            if (channel.read(in) < 0) {
+                throw new IOException("Follower closed the connection");
+            }
+            in.flip();
+            while (in.remaining() >= Long.BYTES) {
+                long value = in.getLong();
+                if (cursor < 0) {
+                    start(value);
+                } else {
+                    acknowledged = value;
+                }
+            }
+            in.compact();
+        }
+
+        private void start(long next) {
+            if (next >= 0 && next <= records.next()) {
+                cursor = next;
+                acknowledged = next - 1;
+            } else {
+                cursor = records.next();
+                snapshot = snapshot(cursor);
+            }
+            pump();
+        }
+
+        void pump() {
+            try {
+                for (int turn = 0; cursor >= 0 && turn < BUFFERS_PER_TURN; turn++) {
+                    if (!flush()) {
+                        key.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+                        return;
+                    }
+                    if (!fill()) {
+                        break;
+                    }
+                }
+                key.interestOps(SelectionKey.OP_READ);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        /**
+         * Writes what is pending.
+         *
+         * @return true if everything was written
+         */
+        private boolean flush() throws IOException {
+            channel.write(out);
+            if (out.hasRemaining()) {
+                return false;
+            }
+            if (snapshot != null) {
+                channel.write(snapshot);
+                if (snapshot.hasRemaining()) {
+                    return false;
+                }
+                snapshot = null;
+            }
+            return true;
+        }
+
+        /**
+         * Packs the next records into the buffer, or prepares a copy of the hall if the log no longer has them.
+         *
+         * @return true if there is something to send
+         */
+        private boolean fill() {
+            out.clear();
+            while (true) {
+                ReplicationLog.Status status = records.read(cursor, entry);
+                if (status == ReplicationLog.Status.PENDING) {
+                    break;
+                }
+                if (status == ReplicationLog.Status.OVERWRITTEN) {
+                    long next = records.next();
+                    snapshot = snapshot(next);
+                    cursor = next;
+                    break;
+                }
+                byte[] holder = ReplicationProtocol.encode(entry.clientId);
+                if (out.remaining() < RECORD_HEADER + (holder == null ? 0 : holder.length)) {
+                    break;
+                }
+                out.put(RECORD).putLong(cursor).putInt(entry.seatNumber).putLong(entry.version);
+                ReplicationProtocol.putHolder(out, holder);
+                cursor++;
+            }
+            out.flip();
+            return out.hasRemaining() || snapshot != null;
+        }
+
+        void disconnect() {
+            followers.remove(this);
+            if (key != null) {
+                key.cancel();
+            }
+            try {
+                channel.close();
+            } catch (IOException e) {
+                log.debug("Closing follower channel failed", e);
+            }
+        }
+    }
+
+    /**
+     * Step of the sender thread for one follower.
+     */
+    @FunctionalInterface
+    private interface Step {
+        void run(Follower follower) throws IOException;
+    }
+}
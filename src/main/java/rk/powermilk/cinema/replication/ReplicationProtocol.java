@@ -0,0 +1,86 @@
+package rk.powermilk.cinema.replication;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Frames exchanged between a {@link ReplicationPrimary} and its {@link ReplicationFollower}s, all big-endian.
+ * <p>
+ * The primary sends:
+ * <pre>
+ * RECORD        byte 1, long sequence, int seat, long version, short holder length or -1 if free, holder UTF-8
+ * SNAPSHOT      byte 2, long sequence of the first record after the copy, int number of seats
+ * SEAT          byte 3, int seat, long version, short holder length or -1 if free, holder UTF-8
+ * SNAPSHOT_END  byte 4
+ * </pre>
+ * A copy of the hall is a SNAPSHOT frame, a SEAT frame for every seat that ever changed and a SNAPSHOT_END frame.
+ * Records follow in sequence order without gaps. The follower sends a long when it connects, the sequence of the
+ * next record it needs or -1 for a copy of the hall, and then, after applying frames, the sequence of the last
+ * record it applied.
+ */
+final class ReplicationProtocol {
+    static final byte RECORD = 1;
+    static final byte SNAPSHOT = 2;
+    static final byte SEAT = 3;
+    static final byte SNAPSHOT_END = 4;
+    static final int RECORD_HEADER = 1 + Long.BYTES + Integer.BYTES + Long.BYTES + Short.BYTES;
+    static final int SNAPSHOT_HEADER = 1 + Long.BYTES + Integer.BYTES;
+    static final int SEAT_HEADER = 1 + Integer.BYTES + Long.BYTES + Short.BYTES;
+    static final int MAX_CLIENT_ID = Short.MAX_VALUE;
+    /**
+     * Size of the frame buffers, larger than any frame.
+     */
+    static final int BUFFER_SIZE = 1 << 17;
+    private static final short FREE = -1;
+
+    private ReplicationProtocol() {
+    }
+
+    /**
+     * Encodes a holder.
+     *
+     * @return the UTF-8 bytes, or null for a free seat
+     * @throws IllegalArgumentException if the client ID is longer than {@value #MAX_CLIENT_ID} bytes
+     */
+    static byte[] encode(String clientId) {
+        if (clientId == null) {
+            return null;
+        }
+        byte[] encoded = clientId.getBytes(StandardCharsets.UTF_8);
+        if (encoded.length > MAX_CLIENT_ID) {
+            throw new IllegalArgumentException("Client ID is too long: " + encoded.length + " bytes");
+        }
+        return encoded;
+    }
+
+    /**
+     * Writes an encoded holder, preceded by its length.
+     */
+    static void putHolder(ByteBuffer out, byte[] holder) {
+        if (holder == null) {
+            out.putShort(FREE);
+        } else {
+            out.putShort((short) holder.length).put(holder);
+        }
+    }
+
+    /**
+     * Returns the length of the holder whose length field is at the given position, 0 for a free seat.
+     */
+    static int holderLength(ByteBuffer in, int position) {
+        return Math.max(0, in.getShort(position));
+    }
+
+    /**
+     * Reads a holder written by {@link #putHolder(ByteBuffer, byte[])} at the buffer's position.
+     */
+    static String getHolder(ByteBuffer in) {
+        short length = in.getShort();
+        if (length == FREE) {
+            return null;
+        }
+        byte[] encoded = new byte[length];
+        in.get(encoded);
+        return new String(encoded, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,88 @@
+package rk.powermilk.cinema.sequencer;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Consumer;
+
+/**
+ * Bounded multi-producer, single-consumer queue on a ring of slots.
+ * <p>
+ * Producers claim a slot with a compare-and-set on the tail and then fill it; the consumer takes filled slots in
+ * order and clears them, and stops at the first slot that was claimed but is not filled yet. The consumer
+ * publishes its head once per drained batch, so producers see freed slots a batch at a time.
+ *
+ * @param <E> the type of the elements
+ */
+final class CommandQueue<E> {
+    private final AtomicReferenceArray<E> slots;
+    private final int mask;
+    private final AtomicLong tail = new AtomicLong();
+    private final AtomicLong head = new AtomicLong();
+
+    /**
+     * Creates an empty queue.
+     *
+     * @param capacity the number of slots; a power of two
+     * @throws IllegalArgumentException if the capacity is not a positive power of two
+     */
+    CommandQueue(int capacity) {
+        if (capacity <= 0 || Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("Capacity must be a positive power of two: " + capacity);
+        }
+        this.slots = new AtomicReferenceArray<>(capacity);
+        this.mask = capacity - 1;
+    }
+
+    /**
+     * Adds an element unless the queue is full. Safe for any number of concurrent producers.
+     *
+     * @param element the element to add
+     * @return false if the queue was full
+     */
+    boolean offer(E element) {
+        long claimed;
+        do {
+            claimed = tail.get();
+            if (claimed - head.get() > mask) {
+                return false;
+            }
+        } while (!tail.compareAndSet(claimed, claimed + 1));
+        slots.set((int) claimed & mask, element);
+        return true;
+    }
+
+    /**
+     * Removes up to the given number of elements in queue order and hands them to the consumer. Must only be
+     * called from the single consumer thread.
+     *
+     * @param consumer the receiver of the elements
+     * @param limit    the most elements to remove
+     * @return the number of elements removed
+     */
+    int drain(Consumer<? super E> consumer, int limit) {
+        long next = head.get();
+        int drained = 0;
+        while (drained < limit) {
+            int slot = (int) next & mask;
+            E element = slots.get(slot);
+            if (element == null) {
+                break;
+            }
+            slots.lazySet(slot, null);
+            consumer.accept(element);
+            next++;
+            drained++;
+        }
+        head.set(next);
+        return drained;
+    }
+
+    /**
+     * Checks whether no element has been claimed beyond the consumer's position.
+     *
+     * @return true if the queue is empty
+     */
+    boolean isEmpty() {
+        return tail.get() == head.get();
+    }
+}
@@ -0,0 +1,227 @@
+package rk.powermilk.cinema.sequencer;
+
+import lombok.extern.slf4j.Slf4j;
+import rk.powermilk.cinema.model.HallLayout;
+import rk.powermilk.cinema.model.ReservationOutcome;
+
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Cinema whose reservations are applied by a single writer thread instead of by concurrent compare-and-sets.
+ * <p>
+ * Clients submit reserve and cancel commands into a bounded multi-producer, single-consumer queue and get a
+ * future for the outcome. The writer drains the queue in batches and applies the commands in queue order to a
+ * plain array of seat holders, which no other thread touches, so there are no failed compare-and-sets and no
+ * retries however hot the seats are; the cost moves to the queue, which is shared once per command instead of
+ * once per attempt. Futures are completed on the writer thread, so callers should chain slow work with the
+ * {@code async} variants of {@link CompletableFuture}.
+ * <p>
+ * When the queue is full, submitters spin until the writer frees slots. The number of reserved seats is
+ * published after every batch, before the futures of the batch are completed, so a caller that has seen its
+ * outcome also sees a count that includes it. Closing waits for submissions in progress, so every accepted
+ * command is applied before the writer stops.
+ */
+@Slf4j
+public final class SequencedCinema implements AutoCloseable {
+    /**
+     * Default number of queue slots.
+     */
+    public static final int DEFAULT_QUEUE_CAPACITY = 1 << 14;
+    /**
+     * Default largest number of commands applied between two publications of the reserved-seat count.
+     */
+    public static final int DEFAULT_BATCH_SIZE = 256;
+
+    private final HallLayout layout;
+    private final String[] holders;
+    private final CommandQueue<Command> queue;
+    private final int batchSize;
+    private final Thread writer;
+    /**
+     * Commands of the batch being applied and their outcomes. Only touched by the writer.
+     */
+    private final Command[] batch;
+    private final ReservationOutcome[] outcomes;
+    private int batched;
+    private final LongAdder entered = new LongAdder();
+    private final LongAdder exited = new LongAdder();
+    private long reserved;
+    private volatile long publishedReserved;
+    private volatile boolean sleeping;
+    private volatile boolean closed;
+    private volatile boolean drained;
+
+    /**
+     * Creates a sequenced cinema with the default queue capacity and batch size and starts its writer.
+     *
+     * @param layout the layout of the hall
+     */
+    public SequencedCinema(HallLayout layout) {
+        this(layout, DEFAULT_QUEUE_CAPACITY, DEFAULT_BATCH_SIZE);
+    }
+
+    /**
+     * Creates a sequenced cinema and starts its writer.
+     *
+     * @param layout        the layout of the hall
+     * @param queueCapacity the number of queue slots; a power of two
+     * @param batchSize     the largest number of commands applied between two publications of the count
+     * @throws IllegalArgumentException if the capacity is not a positive power of two or the batch size is not
+     *                                  positive
+     */
+    public SequencedCinema(HallLayout layout, int queueCapacity, int batchSize) {
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("Batch size must be positive: " + batchSize);
+        }
+        this.layout = layout;
+        this.holders = new String[layout.capacity() + 1];
+        this.queue = new CommandQueue<>(queueCapacity);
+        this.batchSize = batchSize;
+        this.batch = new Command[batchSize];
+        this.outcomes = new ReservationOutcome[batchSize];
+        this.writer = Thread.ofPlatform().daemon().name("cinema-sequencer").start(this::runWriter);
+    }
+
+    /**
+     * Submits a reservation of a seat.
+     *
+     * @param seatNumber the seat number to reserve
+     * @param clientId   the ID of the client making the reservation
+     * @return a future completed with {@link ReservationOutcome#OK}, {@link ReservationOutcome#TAKEN} or
+     * {@link ReservationOutcome#INVALID}, or exceptionally with {@link IllegalStateException} once closed
+     * @throws NullPointerException if the client ID is null
+     */
+    public CompletableFuture<ReservationOutcome> reserve(int seatNumber, String clientId) {
+        return submit(true, seatNumber, clientId);
+    }
+
+    /**
+     * Submits a cancellation of a reservation.
+     *
+     * @param seatNumber the seat number to cancel
+     * @param clientId   the ID of the client attempting the cancellation
+     * @return a future completed with {@link ReservationOutcome#OK}, {@link ReservationOutcome#NOT_OWNER} or
+     * {@link ReservationOutcome#INVALID}, or exceptionally with {@link IllegalStateException} once closed
+     * @throws NullPointerException if the client ID is null
+     */
+    public CompletableFuture<ReservationOutcome> cancel(int seatNumber, String clientId) {
+        return submit(false, seatNumber, clientId);
+    }
+
+    /**
+     * Returns the layout of the hall.
+     *
+     * @return the hall layout
+     */
+    public HallLayout getLayout() {
+        return layout;
+    }
+
+    /**
+     * Returns the number of reserved seats as of the last applied batch.
+     *
+     * @return the number of reserved seats
+     */
+    public long getReservedSeatsCount() {
+        return publishedReserved;
+    }
+
+    /**
+     * Stops accepting commands, lets the writer apply everything already queued and stops it.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        while (exited.sum() != entered.sum()) {
+            Thread.onSpinWait();
+        }
+        drained = true;
+        LockSupport.unpark(writer);
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private CompletableFuture<ReservationOutcome> submit(boolean reserve, int seatNumber, String clientId) {
+        Objects.requireNonNull(clientId, "clientId");
+        if (Integer.compareUnsigned(seatNumber - 1, layout.capacity()) >= 0) {
+            return CompletableFuture.completedFuture(ReservationOutcome.INVALID);
+        }
+        entered.increment();
+        try {
+            if (closed) {
+                return CompletableFuture.failedFuture(new IllegalStateException("Sequenced cinema is closed"));
+            }
+            Command command = new Command(reserve, seatNumber, clientId, new CompletableFuture<>());
+            while (!queue.offer(command)) {
+                Thread.onSpinWait();
+            }
+            if (sleeping) {
+                LockSupport.unpark(writer);
+            }
+            return command.future;
+        } finally {
+            exited.increment();
+        }
+    }
+
+    private void runWriter() {
+        while (true) {
+            boolean stopping = drained;
+            if (queue.drain(this::apply, batchSize) > 0) {
+                publishedReserved = reserved;
+                completeBatch();
+                continue;
+            }
+            if (stopping) {
+                return;
+            }
+            sleeping = true;
+            if (queue.isEmpty() && !drained) {
+                LockSupport.park(this);
+            }
+            sleeping = false;
+        }
+    }
+
+    private void apply(Command command) {
+        String holder = holders[command.seatNumber];
+        ReservationOutcome outcome;
+        if (command.reserve) {
+            outcome = holder == null ? ReservationOutcome.OK : ReservationOutcome.TAKEN;
+            if (holder == null) {
+                holders[command.seatNumber] = command.clientId;
+                reserved++;
+            }
+        } else {
+            outcome = command.clientId.equals(holder) ? ReservationOutcome.OK : ReservationOutcome.NOT_OWNER;
+            if (outcome == ReservationOutcome.OK) {
+                holders[command.seatNumber] = null;
+                reserved--;
+            }
+        }
+        batch[batched] = command;
+        outcomes[batched++] = outcome;
+    }
+
+    private void completeBatch() {
+        for (int i = 0; i < batched; i++) {
+            try {
+                batch[i].future.complete(outcomes[i]);
+            } catch (RuntimeException e) {
+                log.error("Dependent of a sequenced command failed", e);
+            }
+            batch[i] = null;
+        }
+        batched = 0;
+    }
+
+    private record Command(boolean reserve, int seatNumber, String clientId,
+                           CompletableFuture<ReservationOutcome> future) {
+    }
+}
@@ -0,0 +1,42 @@
+package rk.powermilk.cinema.store;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Dense {@link SeatStore} backed by an {@link AtomicLongArray} indexed by seat number.
+ * <p>
+ * Each seat is a single word holding its version and the handle of its client, changed with one compare-and-set;
+ * see {@link PackedSeatStore}. A seat costs eight bytes of heap regardless of the length of the client ID.
+ */
+public class ArraySeatStore extends PackedSeatStore {
+    private final AtomicLongArray seats;
+
+    /**
+     * Constructs a store with a specified number of free seats.
+     *
+     * @param numberOfSeats the number of seats to initialize
+     */
+    public ArraySeatStore(int numberOfSeats) {
+        seats = new AtomicLongArray(numberOfSeats);
+    }
+
+    @Override
+    public int capacity() {
+        return seats.length();
+    }
+
+    @Override
+    long getWord(int index) {
+        return seats.get(index);
+    }
+
+    @Override
+    long compareAndExchange(int index, long expected, long next) {
+        return seats.compareAndExchange(index, expected, next);
+    }
+
+    @Override
+    void setWord(int index, long word) {
+        seats.set(index, word);
+    }
+}
@@ -0,0 +1,167 @@
+package rk.powermilk.cinema.store;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Maps client IDs to dense {@code long} handles and back, and reclaims the handles of idle clients.
+ * <p>
+ * Handles start at 1, so that 0 can mark a free seat. Every handle is reference counted: each seat held with it
+ * counts once, and so does every operation that is using it. An operation pins the handle before it compares or
+ * writes seats and unpins it afterwards, so a handle cannot be reclaimed and reassigned to another client while
+ * an ownership check is comparing against it. When the count drops to zero the client is idle: its ID is
+ * forgotten and the handle is reused for the next new client, so handles stay as dense as the number of clients
+ * holding seats at once.
+ */
+final class ClientRegistry {
+    /**
+     * Handle that is never assigned to a client.
+     */
+    static final long NONE = 0L;
+    /**
+     * Reference count of a client that has been reclaimed and must not be pinned again.
+     */
+    private static final int RECLAIMED = -1;
+
+    private final ConcurrentHashMap<String, Client> clients = new ConcurrentHashMap<>();
+    private final Object lock = new Object();
+    /**
+     * Clients indexed by handle. Only written under {@link #lock}, and republished when changed.
+     */
+    private volatile Client[] byHandle = new Client[16];
+    /**
+     * Reclaimed handles, reused before new ones are assigned. Guarded by {@link #lock}.
+     */
+    private int[] freeHandles = new int[16];
+    private int freeCount;
+    private int nextHandle = 1;
+
+    /**
+     * Returns the handle of the given client ID, assigning one if the client has none, and pins it.
+     *
+     * @param clientId the client ID to intern
+     * @return the pinned handle of the client ID
+     */
+    long pin(String clientId) {
+        while (true) {
+            Client client = clients.get(clientId);
+            if (client == null) {
+                client = clients.computeIfAbsent(clientId, this::assign);
+            }
+            if (client.tryPin()) {
+                return client.handle;
+            }
+            Thread.onSpinWait();
+        }
+    }
+
+    /**
+     * Pins the handle of the given client ID without assigning one.
+     *
+     * @param clientId the client ID to look up
+     * @return the pinned handle of the client ID, or {@link #NONE} if the client holds no handle
+     */
+    long pinExisting(String clientId) {
+        Client client = clients.get(clientId);
+        return client != null && client.tryPin() ? client.handle : NONE;
+    }
+
+    /**
+     * Adds references to a handle that is pinned by the caller, for seats it now holds.
+     *
+     * @param handle a pinned handle
+     * @param count  the number of references to add
+     */
+    void retain(long handle, int count) {
+        byHandle[(int) handle].references.addAndGet(count);
+    }
+
+    /**
+     * Drops references to a handle, for an operation that is done with it or for seats it no longer holds, and
+     * reclaims the handle once nothing refers to it.
+     *
+     * @param handle a handle referred to by the caller
+     * @param count  the number of references to drop
+     */
+    void release(long handle, int count) {
+        Client client = byHandle[(int) handle];
+        if (client.references.addAndGet(-count) == 0 && client.references.compareAndSet(0, RECLAIMED)) {
+            clients.remove(client.clientId, client);
+            reclaim(client.handle);
+        }
+    }
+
+    /**
+     * Returns the client ID of the given handle.
+     *
+     * @param handle a handle returned by {@link #pin(String)}
+     * @return the client ID, or null if the handle is not assigned
+     */
+    String clientId(long handle) {
+        Client[] table = byHandle;
+        Client client = handle > NONE && handle < table.length ? table[(int) handle] : null;
+        return client != null ? client.clientId : null;
+    }
+
+    /**
+     * Returns the number of clients holding a handle.
+     *
+     * @return the number of clients
+     */
+    int size() {
+        return clients.size();
+    }
+
+    private Client assign(String clientId) {
+        synchronized (lock) {
+            int handle = freeCount > 0 ? freeHandles[--freeCount] : nextHandle++;
+            Client[] table = byHandle;
+            if (handle >= table.length) {
+                table = Arrays.copyOf(table, table.length * 2);
+            }
+            Client client = new Client(clientId, handle);
+            table[handle] = client;
+            byHandle = table;
+            return client;
+        }
+    }
+
+    private void reclaim(long handle) {
+        synchronized (lock) {
+            Client[] table = byHandle;
+            table[(int) handle] = null;
+            byHandle = table;
+            if (freeCount == freeHandles.length) {
+                freeHandles = Arrays.copyOf(freeHandles, freeCount * 2);
+            }
+            freeHandles[freeCount++] = (int) handle;
+        }
+    }
+
+    /**
+     * A client ID with its handle and the number of references to it.
+     */
+    private static final class Client {
+        private final String clientId;
+        private final long handle;
+        private final AtomicInteger references = new AtomicInteger();
+
+        Client(String clientId, long handle) {
+            this.clientId = clientId;
+            this.handle = handle;
+        }
+
+        boolean tryPin() {
+            int count = references.get();
+            while (count != RECLAIMED) {
+                int witness = references.compareAndExchange(count, count + 1);
+                if (witness == count) {
+                    return true;
+                }
+                count = witness;
+            }
+            return false;
+        }
+    }
+}
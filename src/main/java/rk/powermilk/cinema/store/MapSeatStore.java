@@ -0,0 +1,161 @@
+package rk.powermilk.cinema.store;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.IntStream;
+
+import static rk.powermilk.cinema.util.Const.UNRESERVED;
+
+/**
+ * {@link SeatStore} backed by a {@link ConcurrentHashMap} of seat numbers to seat states.
+ * <p>
+ * This is the original storage of {@code Cinema}. It is kept for comparison with the denser
+ * {@link ArraySeatStore}: every seat costs a boxed key, a map node and an immutable state object.
+ */
+public class MapSeatStore implements SeatStore {
+    /**
+     * Map of seat numbers to seat states. A seat is considered free if its client is UNRESERVED.
+     */
+    private final Map<Integer, State> seats = new ConcurrentHashMap<>();
+
+    /**
+     * Constructs a store with a specified number of free seats.
+     *
+     * @param numberOfSeats the number of seats to initialize
+     */
+    public MapSeatStore(int numberOfSeats) {
+        IntStream.rangeClosed(1, numberOfSeats).forEach(i -> seats.put(i, new State(UNRESERVED, 0, null)));
+    }
+
+    @Override
+    public int capacity() {
+        return seats.size();
+    }
+
+    @Override
+    public boolean contains(int seatNumber) {
+        return seats.containsKey(seatNumber);
+    }
+
+    @Override
+    public long reserve(int seatNumber, String clientId) {
+        return transfer(seatNumber, UNRESERVED, clientId, 1);
+    }
+
+    @Override
+    public long cancel(int seatNumber, String clientId) {
+        return transfer(seatNumber, clientId, UNRESERVED, 1);
+    }
+
+    @Override
+    public long handOver(int seatNumber, String from, String to) {
+        return transfer(seatNumber, from, to, 2);
+    }
+
+    /**
+     * Moves a seat from the {@code from} client to the {@code to} client in the given number of transitions.
+     */
+    private long transfer(int seatNumber, String from, String to, int transitions) {
+        State state = seats.get(seatNumber);
+        while (state.isSettledWith(from)) {
+            State next = new State(to, state.version() + transitions, null);
+            if (seats.replace(seatNumber, state, next)) {
+                return next.version();
+            }
+            state = seats.get(seatNumber);
+        }
+        return FAILED;
+    }
+
+    @Override
+    public long[] reserveAll(int[] seatNumbers, String clientId) {
+        return transferAll(seatNumbers, UNRESERVED, clientId, clientId);
+    }
+
+    @Override
+    public long[] cancelAll(int[] seatNumbers, String clientId) {
+        return transferAll(seatNumbers, clientId, UNRESERVED, clientId);
+    }
+
+    /**
+     * Moves every seat from the {@code from} client to the {@code to} client, or leaves all of them untouched.
+     */
+    private long[] transferAll(int[] seatNumbers, String from, String to, String claimant) {
+        State[] states = new State[seatNumbers.length];
+        int claimed = 0;
+        while (claimed < seatNumbers.length) {
+            State state = seats.get(seatNumbers[claimed]);
+            if (!state.isSettledWith(from)) {
+                break;
+            }
+            if (seats.replace(seatNumbers[claimed], state, new State(from, state.version(), claimant))) {
+                states[claimed++] = state;
+            }
+        }
+        boolean complete = claimed == seatNumbers.length;
+        long[] versions = new long[seatNumbers.length];
+        for (int i = 0; i < claimed; i++) {
+            State result = complete ? new State(to, states[i].version() + 1, null) : states[i];
+            seats.put(seatNumbers[i], result);
+            versions[i] = result.version();
+        }
+        return complete ? versions : null;
+    }
+
+    @Override
+    public boolean isAvailable(int seatNumber) {
+        return seats.get(seatNumber).isSettledWith(UNRESERVED);
+    }
+
+    @Override
+    public String holder(int seatNumber) {
+        State state = seats.get(seatNumber);
+        return UNRESERVED.equals(state.clientId()) ? null : state.clientId();
+    }
+
+    @Override
+    public long version(int seatNumber) {
+        return seats.get(seatNumber).version();
+    }
+
+    @Override
+    public boolean restore(int seatNumber, String clientId, long version) {
+        State next = new State(clientId == null ? UNRESERVED : clientId, version, null);
+        State state = seats.get(seatNumber);
+        while (state.version() < version) {
+            if (state.claimant() != null) {
+                Thread.onSpinWait();
+            } else if (seats.replace(seatNumber, state, next)) {
+                return true;
+            }
+            state = seats.get(seatNumber);
+        }
+        return false;
+    }
+
+    @Override
+    public void forEach(int firstSeat, int lastSeat, SeatVisitor visitor) {
+        for (int seatNumber = firstSeat; seatNumber <= lastSeat; seatNumber++) {
+            State state = seats.get(seatNumber);
+            visitor.visit(seatNumber, UNRESERVED.equals(state.clientId()) ? null : state.clientId(), state.version());
+        }
+    }
+
+    @Override
+    public long countReserved() {
+        return seats.values().parallelStream().filter(state -> !state.isSettledWith(UNRESERVED)).count();
+    }
+
+    /**
+     * State of a seat.
+     *
+     * @param clientId the holder of the seat, or UNRESERVED
+     * @param version  the number of completed transitions of the seat
+     * @param claimant the client of an unfinished group operation that has claimed the seat, or null
+     */
+    private record State(String clientId, long version, String claimant) {
+        boolean isSettledWith(String client) {
+            return claimant == null && clientId.equals(client);
+        }
+    }
+}
@@ -0,0 +1,144 @@
+package rk.powermilk.cinema.store;
+
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+
+/**
+ * Dense {@link SeatStore} that keeps the seat words outside the Java heap, in memory allocated through the
+ * Foreign Function &amp; Memory API.
+ * <p>
+ * Seats use the single-word format of {@link PackedSeatStore}, read and compared-and-set through a
+ * {@link VarHandle} on a {@link MemorySegment}. A zeroed word is a free seat, so the memory needs no
+ * initialization beyond the zero fill an {@link Arena} already guarantees, and it is not even allocated up front:
+ * seats are grouped in chunks of {@value #CHUNK_SEATS}, and a chunk is allocated the first time one of its seats
+ * changes. Until then its seats read as free. Creating a store therefore only allocates an array with one
+ * reference per chunk, and the heap holds nothing per seat however many seats are provisioned, so the garbage
+ * collector has nothing to trace or copy.
+ * <p>
+ * The memory belongs to an arena. By default each store has an automatic arena, freed when the store is
+ * garbage-collected; a shared arena passed by the caller lets many stores, such as the halls of a season, be
+ * freed together when it is closed. A store must not be used once its arena is closed.
+ */
+public class OffHeapSeatStore extends PackedSeatStore {
+    /**
+     * Number of seats per chunk of memory, a power of two.
+     */
+    static final int CHUNK_SEATS = 1 << 12;
+    private static final int CHUNK_SHIFT = Integer.numberOfTrailingZeros(CHUNK_SEATS);
+    private static final VarHandle WORD = ValueLayout.JAVA_LONG.varHandle();
+    private static final VarHandle CHUNKS = MethodHandles.arrayElementVarHandle(MemorySegment[].class);
+
+    private final int capacity;
+    private final Arena arena;
+    /**
+     * Memory of every chunk, or null for a chunk whose seats have never changed.
+     */
+    private final MemorySegment[] chunks;
+
+    /**
+     * Constructs a store with a specified number of free seats, in memory freed when the store is
+     * garbage-collected.
+     *
+     * @param numberOfSeats the number of seats
+     */
+    public OffHeapSeatStore(int numberOfSeats) {
+        this(numberOfSeats, Arena.ofAuto());
+    }
+
+    /**
+     * Constructs a store with a specified number of free seats, in memory of the given arena.
+     *
+     * @param numberOfSeats the number of seats
+     * @param arena         the arena that allocates the memory; must allow access from every thread that uses the
+     *                      store, as shared and automatic arenas do
+     * @throws IllegalArgumentException if the number of seats is negative
+     */
+    public OffHeapSeatStore(int numberOfSeats, Arena arena) {
+        if (numberOfSeats < 0) {
+            throw new IllegalArgumentException("Number of seats must not be negative: " + numberOfSeats);
+        }
+        this.capacity = numberOfSeats;
+        this.arena = arena;
+        this.chunks = new MemorySegment[(numberOfSeats + CHUNK_SEATS - 1) >>> CHUNK_SHIFT];
+    }
+
+    @Override
+    public int capacity() {
+        return capacity;
+    }
+
+    @Override
+    long getWord(int index) {
+        MemorySegment chunk = chunk(index);
+        return chunk == null ? 0 : (long) WORD.getVolatile(chunk, offset(index));
+    }
+
+    @Override
+    long compareAndExchange(int index, long expected, long next) {
+        return (long) WORD.compareAndExchange(allocatedChunk(index), offset(index), expected, next);
+    }
+
+    @Override
+    void setWord(int index, long word) {
+        WORD.setVolatile(allocatedChunk(index), offset(index), word);
+    }
+
+    /**
+     * Returns the number of chunks of memory allocated so far.
+     *
+     * @return the number of chunks in which at least one seat has changed
+     */
+    public int allocatedChunks() {
+        int allocated = 0;
+        for (int i = 0; i < chunks.length; i++) {
+            if (CHUNKS.getAcquire(chunks, i) != null) {
+                allocated++;
+            }
+        }
+        return allocated;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * A seat's chunk is allocated before the seat first changes, so a store without chunks is pristine.
+     */
+    @Override
+    public boolean isPristine() {
+        for (int i = 0; i < chunks.length; i++) {
+            if (CHUNKS.getAcquire(chunks, i) != null) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private MemorySegment chunk(int index) {
+        return (MemorySegment) CHUNKS.getAcquire(chunks, index >>> CHUNK_SHIFT);
+    }
+
+    private MemorySegment allocatedChunk(int index) {
+        MemorySegment chunk = chunk(index);
+        return chunk != null ? chunk : allocate(index >>> CHUNK_SHIFT);
+    }
+
+    /**
+     * Allocates the memory of a chunk, once; the arena fills it with zeros, so all its seats start free.
+     */
+    private synchronized MemorySegment allocate(int chunkIndex) {
+        MemorySegment chunk = chunks[chunkIndex];
+        if (chunk == null) {
+            int seats = Math.min(CHUNK_SEATS, capacity - (chunkIndex << CHUNK_SHIFT));
+            chunk = arena.allocate((long) seats * Long.BYTES, Long.BYTES);
+            CHUNKS.setRelease(chunks, chunkIndex, chunk);
+        }
+        return chunk;
+    }
+
+    private static long offset(int index) {
+        return (long) (index & (CHUNK_SEATS - 1)) * Long.BYTES;
+    }
+}
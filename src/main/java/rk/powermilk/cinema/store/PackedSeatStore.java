@@ -0,0 +1,297 @@
+package rk.powermilk.cinema.store;
+
+import java.util.Objects;
+import java.util.stream.IntStream;
+
+import static rk.powermilk.cinema.store.ClientRegistry.NONE;
+
+/**
+ * Dense {@link SeatStore} that keeps every seat in one 64-bit word, indexed by seat number; subclasses decide
+ * where the words live.
+ * <p>
+ * Each seat is a single word: the seat's version in the upper 32 bits and the interned handle of its client in
+ * the lower ones, {@code 0} when free, so a word of zeros is a free seat that never changed. Reservations and
+ * cancellations are single compare-and-set operations on a primitive slot that update both halves together, so
+ * no seat number is ever boxed and a seat costs eight bytes regardless of the length of the client ID. Ownership
+ * checks compare handles, never strings. Handles are kept by a {@link ClientRegistry}, which forgets a client
+ * once it holds no seat and has no operation in flight.
+ * <p>
+ * A reader resolves the handle of a word without pinning it, so the handle may be reclaimed and given to another
+ * client between reading the word and looking the handle up. Readers therefore read the word again after the
+ * lookup and retry if it changed: every transition changes the version, and a seat keeps its handle referenced
+ * for as long as its word stays the same.
+ */
+abstract class PackedSeatStore implements SeatStore {
+    private static final int VERSION_SHIFT = 32;
+    private static final long HANDLE_MASK = (1L << 30) - 1;
+    /**
+     * Flag marking a seat claimed by a group cancellation that has not completed yet.
+     */
+    private static final long CANCELLING = 1L << 30;
+    /**
+     * Flag marking a seat claimed by a group reservation that has not completed yet.
+     */
+    private static final long RESERVING = 1L << 31;
+    private static final long STATE_MASK = (1L << VERSION_SHIFT) - 1;
+
+    private final ClientRegistry clients = new ClientRegistry();
+
+    /**
+     * Reads the word of a seat with volatile semantics.
+     *
+     * @param index the seat number minus one
+     * @return the word
+     */
+    abstract long getWord(int index);
+
+    /**
+     * Replaces the word of a seat if it still holds the expected value, with volatile semantics.
+     *
+     * @param index    the seat number minus one
+     * @param expected the word the seat must hold
+     * @param next     the new word
+     * @return the word the seat held, which equals {@code expected} if it was replaced
+     */
+    abstract long compareAndExchange(int index, long expected, long next);
+
+    /**
+     * Writes the word of a seat with volatile semantics.
+     *
+     * @param index the seat number minus one
+     * @param word  the new word
+     */
+    abstract void setWord(int index, long word);
+
+    private static long versionOf(long word) {
+        return word >>> VERSION_SHIFT;
+    }
+
+    private static long stateOf(long word) {
+        return word & STATE_MASK;
+    }
+
+    /**
+     * Returns the word that follows {@code word} after a transition to the given handle.
+     */
+    private static long next(long word, long handle) {
+        return next(word, handle, 1);
+    }
+
+    /**
+     * Returns the word that follows {@code word} after the given number of transitions ending at the handle.
+     */
+    private static long next(long word, long handle, int transitions) {
+        return (versionOf(word) + transitions) << VERSION_SHIFT | handle;
+    }
+
+    @Override
+    public boolean contains(int seatNumber) {
+        return seatNumber > 0 && seatNumber <= capacity();
+    }
+
+    @Override
+    public long reserve(int seatNumber, String clientId) {
+        long handle = pin(clientId);
+        long version = transfer(seatNumber - 1, NONE, handle, 1);
+        if (version == FAILED) {
+            clients.release(handle, 1);
+        }
+        return version;
+    }
+
+    @Override
+    public long cancel(int seatNumber, String clientId) {
+        long handle = clients.pinExisting(Objects.requireNonNull(clientId));
+        if (handle == NONE) {
+            return FAILED;
+        }
+        long version = transfer(seatNumber - 1, handle, NONE, 1);
+        clients.release(handle, version == FAILED ? 1 : 2);
+        return version;
+    }
+
+    @Override
+    public long handOver(int seatNumber, String from, String to) {
+        long target = pin(to);
+        long source = clients.pinExisting(Objects.requireNonNull(from));
+        if (source == NONE) {
+            clients.release(target, 1);
+            return FAILED;
+        }
+        long version = transfer(seatNumber - 1, source, target, 2);
+        clients.release(source, version == FAILED ? 1 : 2);
+        if (version == FAILED) {
+            clients.release(target, 1);
+        }
+        return version;
+    }
+
+    /**
+     * Moves a seat from the {@code from} state to the {@code to} state in the given number of transitions.
+     */
+    private long transfer(int index, long from, long to, int transitions) {
+        long word = getWord(index);
+        while (stateOf(word) == from) {
+            long next = next(word, to, transitions);
+            long witness = compareAndExchange(index, word, next);
+            if (witness == word) {
+                return versionOf(next);
+            }
+            word = witness;
+        }
+        return FAILED;
+    }
+
+    @Override
+    public long[] reserveAll(int[] seatNumbers, String clientId) {
+        long handle = pin(clientId);
+        long[] versions = transferAll(seatNumbers, NONE, handle);
+        if (versions == null || seatNumbers.length == 0) {
+            clients.release(handle, 1);
+        } else if (seatNumbers.length > 1) {
+            clients.retain(handle, seatNumbers.length - 1);
+        }
+        return versions;
+    }
+
+    @Override
+    public long[] cancelAll(int[] seatNumbers, String clientId) {
+        long handle = clients.pinExisting(Objects.requireNonNull(clientId));
+        if (handle == NONE) {
+            return null;
+        }
+        long[] versions = transferAll(seatNumbers, handle, NONE);
+        clients.release(handle, versions == null ? 1 : seatNumbers.length + 1);
+        return versions;
+    }
+
+    /**
+     * Moves every seat from the {@code from} state to the {@code to} state, or leaves all of them untouched.
+     */
+    private long[] transferAll(int[] seatNumbers, long from, long to) {
+        long pending = from == NONE ? to | RESERVING : from | CANCELLING;
+        long[] words = new long[seatNumbers.length];
+        int claimed = 0;
+        while (claimed < seatNumbers.length && claim(seatNumbers[claimed] - 1, from, pending, words, claimed)) {
+            claimed++;
+        }
+        boolean complete = claimed == seatNumbers.length;
+        for (int i = 0; i < claimed; i++) {
+            long word = complete ? next(words[i], to) : words[i];
+            setWord(seatNumbers[i] - 1, word);
+            words[i] = versionOf(word);
+        }
+        return complete ? words : null;
+    }
+
+    /**
+     * Marks a seat in the {@code from} state as pending, keeping its version, and saves its previous word.
+     */
+    private boolean claim(int index, long from, long pending, long[] words, int slot) {
+        long word = getWord(index);
+        while (stateOf(word) == from) {
+            long witness = compareAndExchange(index, word, word & ~STATE_MASK | pending);
+            if (witness == word) {
+                words[slot] = word;
+                return true;
+            }
+            word = witness;
+        }
+        return false;
+    }
+
+    @Override
+    public boolean isAvailable(int seatNumber) {
+        return stateOf(getWord(seatNumber - 1)) == NONE;
+    }
+
+    @Override
+    public long countReserved() {
+        return IntStream.range(0, capacity()).parallel().filter(i -> stateOf(getWord(i)) != NONE).count();
+    }
+
+    @Override
+    public String holder(int seatNumber) {
+        int index = seatNumber - 1;
+        long word = getWord(index);
+        while (true) {
+            String clientId = (word & RESERVING) == 0 ? clients.clientId(word & HANDLE_MASK) : null;
+            long current = getWord(index);
+            if (current == word) {
+                return clientId;
+            }
+            word = current;
+        }
+    }
+
+    @Override
+    public long version(int seatNumber) {
+        return versionOf(getWord(seatNumber - 1));
+    }
+
+    @Override
+    public boolean restore(int seatNumber, String clientId, long version) {
+        long handle = clientId == null ? NONE : pin(clientId);
+        int index = seatNumber - 1;
+        long word = getWord(index);
+        while (versionOf(word) < version) {
+            if ((word & (RESERVING | CANCELLING)) != 0) {
+                Thread.onSpinWait();
+                word = getWord(index);
+                continue;
+            }
+            long witness = compareAndExchange(index, word, version << VERSION_SHIFT | handle);
+            if (witness == word) {
+                if (stateOf(word) != NONE) {
+                    clients.release(stateOf(word), 1);
+                }
+                return true;
+            }
+            word = witness;
+        }
+        if (handle != NONE) {
+            clients.release(handle, 1);
+        }
+        return false;
+    }
+
+    @Override
+    public void forEach(int firstSeat, int lastSeat, SeatVisitor visitor) {
+        for (int i = firstSeat - 1; i < lastSeat; i++) {
+            long word = getWord(i);
+            String clientId;
+            while (true) {
+                boolean held = stateOf(word) != NONE && (word & RESERVING) == 0;
+                clientId = held ? clients.clientId(word & HANDLE_MASK) : null;
+                long current = getWord(i);
+                if (current == word) {
+                    break;
+                }
+                word = current;
+            }
+            visitor.visit(i + 1, clientId, versionOf(word));
+        }
+    }
+
+    /**
+     * Returns the pinned handle of a client; see {@link ClientRegistry} for the reference counting.
+     */
+    private long pin(String clientId) {
+        long handle = clients.pin(Objects.requireNonNull(clientId));
+        if (handle > HANDLE_MASK) {
+            clients.release(handle, 1);
+            throw new IllegalStateException("Too many clients holding seats: " + handle);
+        }
+        return handle;
+    }
+
+    /**
+     * Returns the number of clients the store currently keeps a handle for: those holding seats or in the middle
+     * of an operation.
+     *
+     * @return the number of clients with a handle
+     */
+    public int clientCount() {
+        return clients.size();
+    }
+}
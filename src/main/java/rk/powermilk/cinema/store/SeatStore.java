@@ -0,0 +1,169 @@
+package rk.powermilk.cinema.store;
+
+/**
+ * Storage backend for the seat states of a single cinema hall.
+ * <p>
+ * Seats are numbered from 1 to {@link #capacity()} inclusive. Every seat is either free or held by exactly
+ * one client. Implementations must be thread-safe: reservations and cancellations are compare-and-set
+ * transitions, so only one of several racing clients can win a given seat.
+ * <p>
+ * Every seat carries a version, starting at 0 and incremented by each successful transition in the same atomic
+ * step. Versions let observers that receive transitions from several threads, such as a journal, order the
+ * transitions of a seat even when they are reported out of order.
+ */
+public interface SeatStore {
+    /**
+     * Version returned by a transition that did not happen.
+     */
+    long FAILED = -1L;
+
+    /**
+     * Returns the number of seats managed by this store.
+     *
+     * @return the number of seats
+     */
+    int capacity();
+
+    /**
+     * Checks whether the given seat number exists in this store.
+     *
+     * @param seatNumber the seat number to check
+     * @return true if the seat number is within the valid range
+     */
+    boolean contains(int seatNumber);
+
+    /**
+     * Atomically reserves a free seat for the given client.
+     *
+     * @param seatNumber a valid seat number
+     * @param clientId   the ID of the client making the reservation
+     * @return the new version of the seat if it was free and is now held by the client; {@link #FAILED} otherwise
+     */
+    long reserve(int seatNumber, String clientId);
+
+    /**
+     * Atomically frees a seat held by the given client.
+     *
+     * @param seatNumber a valid seat number
+     * @param clientId   the ID of the client attempting the cancellation
+     * @return the new version of the seat if it was held by the client and is now free; {@link #FAILED} otherwise
+     */
+    long cancel(int seatNumber, String clientId);
+
+    /**
+     * Atomically hands a seat held by one client over to another, without the seat ever being free in between.
+     * <p>
+     * The hand-over counts as a cancellation followed by a reservation, so the version grows by two.
+     *
+     * @param seatNumber a valid seat number
+     * @param from       the ID of the client holding the seat
+     * @param to         the ID of the client taking the seat over
+     * @return the new version of the seat if it was held by {@code from} and is now held by {@code to};
+     * {@link #FAILED} otherwise
+     */
+    long handOver(int seatNumber, String from, String to);
+
+    /**
+     * Atomically reserves all of the given seats for the client, or none of them.
+     * <p>
+     * Seats are claimed one by one in the given order and marked as pending until the whole group is
+     * claimed, so neither partial ownership nor a rollback is ever visible as a free seat to other clients.
+     * Callers pass seats in ascending order, so two overlapping groups can never block each other in a cycle.
+     *
+     * @param seatNumbers valid, distinct seat numbers in ascending order
+     * @param clientId    the ID of the client making the reservation
+     * @return the new versions of the seats, in the given order, if all seats were free and are now held by the
+     * client; null if nothing changed
+     */
+    long[] reserveAll(int[] seatNumbers, String clientId);
+
+    /**
+     * Atomically frees all of the given seats held by the client, or none of them.
+     *
+     * @param seatNumbers valid, distinct seat numbers in ascending order
+     * @param clientId    the ID of the client attempting the cancellation
+     * @return the new versions of the seats, in the given order, if all seats were held by the client and are now
+     * free; null if nothing changed
+     */
+    long[] cancelAll(int[] seatNumbers, String clientId);
+
+    /**
+     * Checks whether a seat is free.
+     *
+     * @param seatNumber a valid seat number
+     * @return true if the seat is free
+     */
+    boolean isAvailable(int seatNumber);
+
+    /**
+     * Returns the ID of the client holding a seat.
+     * <p>
+     * Like {@link #forEach(SeatVisitor)}, a seat claimed by an unfinished group operation is reported in the
+     * state it had before the claim: a seat claimed by a group reservation has no holder until the group
+     * completes.
+     *
+     * @param seatNumber a valid seat number
+     * @return the client ID, or null if the seat is free
+     */
+    String holder(int seatNumber);
+
+    /**
+     * Returns the version of a seat.
+     *
+     * @param seatNumber a valid seat number
+     * @return the number of successful transitions of the seat
+     */
+    long version(int seatNumber);
+
+    /**
+     * Puts a seat into a recorded state, unless the seat is already at that version or a later one.
+     * <p>
+     * This rebuilds a store from a snapshot or a journal, where the transitions of a seat may be recorded out of
+     * order: applying the recorded states of a seat in any order leaves it in the state with the highest version.
+     *
+     * @param seatNumber a valid seat number
+     * @param clientId   the ID of the client holding the seat, or null if the seat is free
+     * @param version    the version of the recorded state
+     * @return true if the seat was updated; false if the recorded state is not newer than the seat
+     */
+    boolean restore(int seatNumber, String clientId, long version);
+
+    /**
+     * Checks whether no seat of the store has ever changed, so every seat is free at version 0 and callers can
+     * skip scanning it. The check is cheap; a store that cannot tell reports false.
+     *
+     * @return true if the store has never been written to
+     */
+    default boolean isPristine() {
+        return false;
+    }
+
+    /**
+     * Visits every seat with its holder and version, both read in one atomic step.
+     * <p>
+     * Seats claimed by an unfinished group operation are reported in the state they had before the claim, since
+     * a successful group operation increments their versions when it completes.
+     *
+     * @param visitor the visitor to call for every seat, in ascending seat order
+     */
+    default void forEach(SeatVisitor visitor) {
+        forEach(1, capacity(), visitor);
+    }
+
+    /**
+     * Visits a range of seats like {@link #forEach(SeatVisitor)}. Disjoint ranges can be visited from different
+     * threads at the same time, which lets bulk operations split the hall across cores.
+     *
+     * @param firstSeat the first seat to visit, a valid seat number
+     * @param lastSeat  the last seat to visit; nothing is visited if it is below {@code firstSeat}
+     * @param visitor   the visitor to call for every seat of the range, in ascending seat order
+     */
+    void forEach(int firstSeat, int lastSeat, SeatVisitor visitor);
+
+    /**
+     * Counts reserved seats by scanning the whole store, split across cores.
+     *
+     * @return the number of seats that are reserved
+     */
+    long countReserved();
+}
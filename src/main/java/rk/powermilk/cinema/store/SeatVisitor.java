@@ -0,0 +1,16 @@
+package rk.powermilk.cinema.store;
+
+/**
+ * Receives the state of seats visited by {@link SeatStore#forEach(SeatVisitor)}.
+ */
+@FunctionalInterface
+public interface SeatVisitor {
+    /**
+     * Called for a single seat.
+     *
+     * @param seatNumber the seat number
+     * @param clientId   the ID of the client holding the seat, or null if the seat is free
+     * @param version    the version of the seat
+     */
+    void visit(int seatNumber, String clientId, long version);
+}
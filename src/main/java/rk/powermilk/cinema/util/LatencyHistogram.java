@@ -0,0 +1,124 @@
+package rk.powermilk.cinema.util;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Fixed-size histogram of non-negative values, typically latencies in nanoseconds, with a bounded relative error.
+ * <p>
+ * Values below {@value #SUB_BUCKETS} are counted exactly. Larger values are grouped by their highest set bit,
+ * and each power-of-two range is split into {@value #HALF} equal buckets, so a value is reported with an error
+ * below 1/{@value #HALF} of itself, like an HDR histogram with two significant digits. The whole range of
+ * {@code long} fits into a few thousand counters, so recording never allocates or resizes.
+ * <p>
+ * Recording is thread-safe and lock-free. Reads while values are being recorded see a close but not
+ * necessarily consistent picture.
+ */
+public final class LatencyHistogram {
+    private static final int SUB_BITS = 7;
+    private static final int SUB_BUCKETS = 1 << SUB_BITS;
+    private static final int HALF = SUB_BUCKETS / 2;
+    private static final int BUCKETS = (Long.SIZE - SUB_BITS + 1) * HALF;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final LongAdder count = new LongAdder();
+    private final LongAdder sum = new LongAdder();
+    private final AtomicLong max = new AtomicLong();
+
+    /**
+     * Records a value.
+     *
+     * @param value the value to record
+     * @throws IllegalArgumentException if the value is negative
+     */
+    public void record(long value) {
+        if (value < 0) {
+            throw new IllegalArgumentException("Value must not be negative: " + value);
+        }
+        counts.incrementAndGet(indexOf(value));
+        count.increment();
+        sum.add(value);
+        long current = max.get();
+        while (value > current && !max.compareAndSet(current, value)) {
+            current = max.get();
+        }
+    }
+
+    /**
+     * Returns the number of recorded values.
+     *
+     * @return the number of values
+     */
+    public long count() {
+        return count.sum();
+    }
+
+    /**
+     * Returns the largest recorded value.
+     *
+     * @return the largest value, or 0 if nothing was recorded
+     */
+    public long max() {
+        return max.get();
+    }
+
+    /**
+     * Returns the mean of the recorded values.
+     *
+     * @return the mean, or 0 if nothing was recorded
+     */
+    public double mean() {
+        long values = count.sum();
+        return values == 0 ? 0 : (double) sum.sum() / values;
+    }
+
+    /**
+     * Returns the value below or at which the given percentage of the recorded values lie.
+     *
+     * @param percentile the percentage, from 0 to 100
+     * @return the highest value of the bucket holding the percentile, capped at the largest recorded value;
+     * 0 if nothing was recorded
+     * @throws IllegalArgumentException if the percentage is outside 0 to 100
+     */
+    public long percentile(double percentile) {
+        if (!(percentile >= 0 && percentile <= 100)) {
+            throw new IllegalArgumentException("Percentile must be between 0 and 100: " + percentile);
+        }
+        long total = 0;
+        long[] snapshot = new long[BUCKETS];
+        for (int i = 0; i < BUCKETS; i++) {
+            snapshot[i] = counts.get(i);
+            total += snapshot[i];
+        }
+        if (total == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(percentile / 100 * total));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += snapshot[i];
+            if (seen >= rank) {
+                return Math.min(highestValueOf(i), max.get());
+            }
+        }
+        return max.get();
+    }
+
+    private static int indexOf(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        int shift = Long.SIZE - Long.numberOfLeadingZeros(value) - SUB_BITS;
+        return shift * HALF + (int) (value >>> shift);
+    }
+
+    private static long highestValueOf(int index) {
+        if (index < SUB_BUCKETS) {
+            return index;
+        }
+        int shift = index / HALF - 1;
+        long mantissa = index % HALF + HALF;
+        return ((mantissa + 1) << shift) - 1;
+    }
+}
@@ -0,0 +1,207 @@
+package rk.powermilk.cinema.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Hierarchical timing wheel for large numbers of timeouts.
+ * <p>
+ * Time is divided into ticks. The wheel has {@value #LEVELS} levels of {@value #SLOTS} slots; a slot on level
+ * {@code n} spans {@code 64^n} ticks. A timeout is put into the lowest level whose range covers its deadline
+ * and moves down a level each time the wheel reaches its slot, until it expires from level 0. Scheduling and
+ * cancelling are O(1), and every timeout is moved at most {@value #LEVELS} times before it expires. Deadlines
+ * beyond the range of the top level are parked in its farthest slot and placed again when it is reached.
+ * <p>
+ * The wheel does not read a clock; its owner advances it to the current time. All methods are thread-safe.
+ *
+ * @param <T> the type of the items attached to timeouts
+ */
+public final class TimingWheel<T> {
+    private static final int SLOT_BITS = 6;
+    private static final int SLOTS = 1 << SLOT_BITS;
+    private static final int LEVELS = 4;
+    private static final long MAX_DELAY = (1L << (SLOT_BITS * LEVELS)) - 1;
+
+    private final long tickMillis;
+    private final Timeout<T>[][] slots;
+    private long currentTick;
+    private int size;
+
+    /**
+     * Creates a wheel whose time starts at the given instant.
+     *
+     * @param tickMillis the length of a tick in milliseconds; timeouts expire with this granularity
+     * @param nowMillis  the current time in milliseconds
+     * @throws IllegalArgumentException if the tick is not positive
+     */
+    @SuppressWarnings("unchecked")
+    public TimingWheel(long tickMillis, long nowMillis) {
+        if (tickMillis <= 0) {
+            throw new IllegalArgumentException("Tick must be positive: " + tickMillis);
+        }
+        this.tickMillis = tickMillis;
+        this.currentTick = nowMillis / tickMillis;
+        this.slots = new Timeout[LEVELS][SLOTS];
+    }
+
+    /**
+     * Schedules an item to expire at the given time.
+     *
+     * @param item           the item to hand to the expiry callback
+     * @param deadlineMillis the expiry time in milliseconds; past deadlines expire on the next tick
+     * @return a handle that can cancel the timeout
+     */
+    public synchronized Timeout<T> schedule(T item, long deadlineMillis) {
+        long deadlineTick = Math.max(Math.ceilDiv(deadlineMillis, tickMillis), currentTick + 1);
+        Timeout<T> timeout = new Timeout<>(item, deadlineTick);
+        place(timeout);
+        size++;
+        return timeout;
+    }
+
+    /**
+     * Cancels a pending timeout.
+     *
+     * @param timeout the handle returned by {@link #schedule(Object, long)}
+     * @return true if the timeout was pending; false if it already expired or was cancelled
+     */
+    public synchronized boolean cancel(Timeout<T> timeout) {
+        if (timeout.level < 0) {
+            return false;
+        }
+        unlink(timeout);
+        size--;
+        return true;
+    }
+
+    /**
+     * Advances the wheel to the given time and hands every expired item to the callback.
+     * <p>
+     * The callback runs after the wheel has been updated and outside its lock, so it may schedule or cancel
+     * other timeouts.
+     *
+     * @param nowMillis the current time in milliseconds
+     * @param expired   the callback receiving expired items
+     * @return the number of expired items
+     */
+    public int advance(long nowMillis, Consumer<? super T> expired) {
+        List<T> due = new ArrayList<>();
+        synchronized (this) {
+            long targetTick = nowMillis / tickMillis;
+            while (currentTick < targetTick) {
+                if (size == 0) {
+                    currentTick = targetTick;
+                    break;
+                }
+                currentTick++;
+                for (int level = 1; level < LEVELS && startsSlot(currentTick, level); level++) {
+                    cascade(level, slotOf(currentTick, level));
+                }
+                collect(slotOf(currentTick, 0), due);
+            }
+        }
+        due.forEach(expired);
+        return due.size();
+    }
+
+    /**
+     * Returns the number of pending timeouts.
+     *
+     * @return the number of timeouts that have neither expired nor been cancelled
+     */
+    public synchronized int size() {
+        return size;
+    }
+
+    private static int slotOf(long tick, int level) {
+        return (int) (tick >>> (SLOT_BITS * level)) & (SLOTS - 1);
+    }
+
+    private static boolean startsSlot(long tick, int level) {
+        return (tick & ((1L << (SLOT_BITS * level)) - 1)) == 0;
+    }
+
+    private void place(Timeout<T> timeout) {
+        long delay = Math.min(timeout.deadlineTick - currentTick, MAX_DELAY);
+        int level = 0;
+        while (delay >= 1L << (SLOT_BITS * (level + 1))) {
+            level++;
+        }
+        int slot = slotOf(currentTick + delay, level);
+        timeout.level = level;
+        timeout.slot = slot;
+        timeout.next = slots[level][slot];
+        if (timeout.next != null) {
+            timeout.next.prev = timeout;
+        }
+        slots[level][slot] = timeout;
+    }
+
+    private void unlink(Timeout<T> timeout) {
+        if (timeout.prev != null) {
+            timeout.prev.next = timeout.next;
+        } else {
+            slots[timeout.level][timeout.slot] = timeout.next;
+        }
+        if (timeout.next != null) {
+            timeout.next.prev = timeout.prev;
+        }
+        timeout.prev = null;
+        timeout.next = null;
+        timeout.level = -1;
+    }
+
+    private void cascade(int level, int slot) {
+        Timeout<T> timeout = slots[level][slot];
+        slots[level][slot] = null;
+        while (timeout != null) {
+            Timeout<T> next = timeout.next;
+            timeout.prev = null;
+            timeout.next = null;
+            place(timeout);
+            timeout = next;
+        }
+    }
+
+    private void collect(int slot, List<T> due) {
+        Timeout<T> timeout = slots[0][slot];
+        while (timeout != null) {
+            Timeout<T> next = timeout.next;
+            if (timeout.deadlineTick <= currentTick) {
+                unlink(timeout);
+                size--;
+                due.add(timeout.item);
+            }
+            timeout = next;
+        }
+    }
+
+    /**
+     * Handle of a scheduled item. Links the item into its slot, so that it can be cancelled in O(1).
+     *
+     * @param <T> the type of the item
+     */
+    public static final class Timeout<T> {
+        private final T item;
+        private final long deadlineTick;
+        private Timeout<T> prev;
+        private Timeout<T> next;
+        private int level = -1;
+        private int slot;
+
+        private Timeout(T item, long deadlineTick) {
+            this.item = item;
+            this.deadlineTick = deadlineTick;
+        }
+
+        /**
+         * Returns the item attached to this timeout.
+         *
+         * @return the item
+         */
+        public T item() {
+            return item;
+        }
+    }
+}
@@ -0,0 +1,15 @@
+package rk.powermilk.cinema.venue;
+
+import rk.powermilk.cinema.model.HallLayout;
+
+import java.time.Instant;
+
+/**
+ * A single showing of a film in one auditorium.
+ *
+ * @param id     the unique screening ID
+ * @param layout the layout of the auditorium
+ * @param endsAt the time after which the screening is finished and can be evicted
+ */
+public record Screening(String id, HallLayout layout, Instant endsAt) {
+}
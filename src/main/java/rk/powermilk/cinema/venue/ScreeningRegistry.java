@@ -0,0 +1,185 @@
+package rk.powermilk.cinema.venue;
+
+import rk.powermilk.cinema.error.UnknownScreeningException;
+import rk.powermilk.cinema.model.Cinema;
+import rk.powermilk.cinema.model.OccupancyReport;
+import rk.powermilk.cinema.store.ArraySeatStore;
+import rk.powermilk.cinema.store.OffHeapSeatStore;
+import rk.powermilk.cinema.store.SeatStore;
+
+import java.time.Instant;
+import java.time.InstantSource;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.IntFunction;
+import java.util.stream.Collectors;
+
+/**
+ * Keeps the {@link Cinema} of every screening in a venue, keyed by screening ID.
+ * <p>
+ * Registering a screening is cheap: its seats are only allocated on first access. Finished screenings are
+ * dropped by {@link #evictFinished()}, together with their seats. Reservations can be imported into, and
+ * occupancy exported from, many screenings at once.
+ */
+public class ScreeningRegistry {
+    private final InstantSource clock;
+    private final IntFunction<SeatStore> stores;
+    private final Map<String, Entry> screenings = new ConcurrentHashMap<>();
+
+    /**
+     * Creates a registry using the system clock.
+     */
+    public ScreeningRegistry() {
+        this(InstantSource.system());
+    }
+
+    /**
+     * Creates a registry using the given clock to decide which screenings are finished.
+     *
+     * @param clock the source of the current time
+     */
+    public ScreeningRegistry(InstantSource clock) {
+        this(clock, ArraySeatStore::new);
+    }
+
+    /**
+     * Creates a registry whose cinemas keep their seats in stores made by the given factory. An
+     * {@link OffHeapSeatStore} factory provisions a screening in time and heap independent of its seat count.
+     *
+     * @param clock  the source of the current time
+     * @param stores the factory of an empty seat store of the given capacity, called on a screening's first access
+     */
+    public ScreeningRegistry(InstantSource clock, IntFunction<SeatStore> stores) {
+        this.clock = clock;
+        this.stores = stores;
+    }
+
+    /**
+     * Registers a screening without allocating its seats.
+     *
+     * @param screening the screening to register
+     * @throws IllegalArgumentException if a screening with the same ID is already registered
+     */
+    public void register(Screening screening) {
+        if (screenings.putIfAbsent(screening.id(), new Entry(screening, stores)) != null) {
+            throw new IllegalArgumentException("Screening " + screening.id() + " is already registered.");
+        }
+    }
+
+    /**
+     * Returns the cinema of a screening, creating it on first access.
+     *
+     * @param screeningId the screening ID
+     * @return the cinema holding the screening's seats
+     * @throws UnknownScreeningException if the screening is not registered or was evicted
+     */
+    public Cinema cinema(String screeningId) {
+        Entry entry = screenings.get(screeningId);
+        if (entry == null) {
+            throw new UnknownScreeningException("Screening " + screeningId + " is unknown.");
+        }
+        return entry.cinema();
+    }
+
+    /**
+     * Reserves pre-sold seats of many screenings, like {@link Cinema#importReservations(IntFunction)} for each.
+     * <p>
+     * Screenings are imported in parallel on the common fork-join pool, and the seats of a large screening are
+     * split further, so an import of many small halls keeps every core busy as well as one of a huge hall.
+     *
+     * @param presold the ID of the client to reserve each seat for, by seat number, by screening ID; each source
+     *                is called from several threads at once
+     * @return the number of seats reserved across all screenings
+     * @throws UnknownScreeningException if a screening is not registered; nothing is imported then
+     */
+    public long importReservations(Map<String, ? extends IntFunction<String>> presold) {
+        for (String screeningId : presold.keySet()) {
+            if (!screenings.containsKey(screeningId)) {
+                throw new UnknownScreeningException("Screening " + screeningId + " is unknown.");
+            }
+        }
+        return presold.entrySet().parallelStream()
+            .mapToLong(entry -> cinema(entry.getKey()).importReservations(entry.getValue()))
+            .sum();
+    }
+
+    /**
+     * Exports the occupancy of every screening whose seats have been allocated, in parallel on the common
+     * fork-join pool; see {@link Cinema#exportOccupancy()}. Screenings never accessed have no reservations and
+     * are left out.
+     *
+     * @return the reports by screening ID
+     */
+    public Map<String, OccupancyReport> exportOccupancy() {
+        return screenings.values().parallelStream()
+            .filter(Entry::isLoaded)
+            .collect(Collectors.toUnmodifiableMap(entry -> entry.screening.id(),
+                entry -> entry.cinema().exportOccupancy()));
+    }
+
+    /**
+     * Removes every screening that has ended, releasing its seats.
+     *
+     * @return the number of evicted screenings
+     */
+    public int evictFinished() {
+        Instant now = clock.instant();
+        int evicted = 0;
+        for (Entry entry : screenings.values()) {
+            if (!entry.screening.endsAt().isAfter(now) && screenings.remove(entry.screening.id(), entry)) {
+                evicted++;
+            }
+        }
+        return evicted;
+    }
+
+    /**
+     * Returns the number of registered screenings.
+     *
+     * @return the number of screenings that have not been evicted
+     */
+    public int getScreeningsCount() {
+        return screenings.size();
+    }
+
+    /**
+     * Returns the number of screenings whose seats have been allocated.
+     *
+     * @return the number of screenings accessed at least once
+     */
+    public int getLoadedCinemasCount() {
+        return (int) screenings.values().stream().filter(Entry::isLoaded).count();
+    }
+
+    /**
+     * A registered screening and its lazily created cinema.
+     */
+    private static final class Entry {
+        private final Screening screening;
+        private final IntFunction<SeatStore> stores;
+        private volatile Cinema cinema;
+
+        private Entry(Screening screening, IntFunction<SeatStore> stores) {
+            this.screening = screening;
+            this.stores = stores;
+        }
+
+        private Cinema cinema() {
+            Cinema current = cinema;
+            if (current == null) {
+                synchronized (this) {
+                    current = cinema;
+                    if (current == null) {
+                        current = new Cinema(screening.layout(), stores.apply(screening.layout().capacity()));
+                        cinema = current;
+                    }
+                }
+            }
+            return current;
+        }
+
+        private boolean isLoaded() {
+            return cinema != null;
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package rk.powermilk.cinema.venue;
+
+import rk.powermilk.cinema.error.IllegalSeatReservedException;
+import rk.powermilk.cinema.error.UnknownScreeningException;
+import rk.powermilk.cinema.model.Cinema;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Function;
+import java.util.stream.IntStream;
+
+/**
+ * Routes reservation requests for many screenings to per-shard single-writer executors.
+ * <p>
+ * Every screening is owned by one shard, chosen by its ID, and each shard applies its requests on a single
+ * thread in submission order. Requests for the same screening never race each other, and requests for
+ * screenings on different shards never share a thread or a lock, so throughput grows with the number of shards.
+ */
+public class Venue implements AutoCloseable {
+    private final ScreeningRegistry registry;
+    private final ExecutorService[] shards;
+
+    /**
+     * Creates a venue with one shard per available processor.
+     *
+     * @param registry the screenings of the venue
+     */
+    public Venue(ScreeningRegistry registry) {
+        this(registry, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Creates a venue with the given number of shards.
+     *
+     * @param registry the screenings of the venue
+     * @param shards   the number of shards
+     * @throws IllegalArgumentException if the number of shards is not positive
+     */
+    public Venue(ScreeningRegistry registry, int shards) {
+        if (shards <= 0) {
+            throw new IllegalArgumentException("Number of shards must be positive: " + shards);
+        }
+        this.registry = registry;
+        this.shards = IntStream.range(0, shards)
+            .mapToObj(i -> Executors.newSingleThreadExecutor(Thread.ofPlatform().name("venue-shard-" + i).factory()))
+            .toArray(ExecutorService[]::new);
+    }
+
+    /**
+     * Returns the shard that owns a screening.
+     *
+     * @param screeningId the screening ID
+     * @return the shard index, between 0 and the number of shards
+     */
+    public int shardOf(String screeningId) {
+        return Math.floorMod(screeningId.hashCode() * 0x9E3779B9, shards.length);
+    }
+
+    /**
+     * Runs an operation on a screening's cinema on the screening's shard.
+     *
+     * @param screeningId the screening ID
+     * @param operation   the operation to run
+     * @param <T>         the result type
+     * @return a future completed with the result, or exceptionally with {@link UnknownScreeningException},
+     * {@link IllegalSeatReservedException} or whatever else the operation threw
+     */
+    public <T> CompletableFuture<T> submit(String screeningId, Function<Cinema, T> operation) {
+        return CompletableFuture.supplyAsync(
+            () -> operation.apply(registry.cinema(screeningId)), shards[shardOf(screeningId)]);
+    }
+
+    /**
+     * Reserves a seat of a screening; see {@link Cinema#reserveSeat(int, String)}.
+     *
+     * @param screeningId the screening ID
+     * @param seatNumber  the seat number to reserve
+     * @param clientId    the ID of the client making the reservation
+     * @return a future completed with true if the reservation was successful
+     */
+    public CompletableFuture<Boolean> reserveSeat(String screeningId, int seatNumber, String clientId) {
+        return submit(screeningId, cinema -> cinema.reserveSeat(seatNumber, clientId));
+    }
+
+    /**
+     * Cancels a reservation of a screening; see {@link Cinema#cancelReservation(int, String)}.
+     *
+     * @param screeningId the screening ID
+     * @param seatNumber  the seat number to cancel
+     * @param clientId    the ID of the client attempting the cancellation
+     * @return a future completed with true if the cancellation was successful
+     */
+    public CompletableFuture<Boolean> cancelReservation(String screeningId, int seatNumber, String clientId) {
+        return submit(screeningId, cinema -> cinema.cancelReservation(seatNumber, clientId));
+    }
+
+    /**
+     * Checks a seat of a screening; see {@link Cinema#isSeatAvailable(int)}.
+     *
+     * @param screeningId the screening ID
+     * @param seatNumber  the seat number to check
+     * @return a future completed with true if the seat is available
+     */
+    public CompletableFuture<Boolean> isSeatAvailable(String screeningId, int seatNumber) {
+        return submit(screeningId, cinema -> cinema.isSeatAvailable(seatNumber));
+    }
+
+    /**
+     * Returns the screenings of the venue.
+     *
+     * @return the screening registry
+     */
+    public ScreeningRegistry getRegistry() {
+        return registry;
+    }
+
+    /**
+     * Stops the shard executors after the requests already submitted have been applied.
+     */
+    @Override
+    public void close() {
+        for (ExecutorService shard : shards) {
+            shard.close();
+        }
+    }
+}
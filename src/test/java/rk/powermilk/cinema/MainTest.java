@@ -1,6 +1,9 @@
 package rk.powermilk.cinema;
 
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+
+import java.util.concurrent.TimeUnit;
 
 import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
 
@@ -10,7 +13,8 @@ import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
 class MainTest {
 
     @Test
+    @Timeout(value = 10, unit = TimeUnit.SECONDS)
     void should_run_main_without_exceptions() {
-        assertDoesNotThrow(() -> Main.main(new String[]{}));
+        assertDoesNotThrow(() -> Main.main(new String[]{"clients=10", "operations=2", "thinkMillis=0"}));
     }
 }
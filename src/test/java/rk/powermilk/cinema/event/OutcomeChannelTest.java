@@ -0,0 +1,185 @@
+package rk.powermilk.cinema.event;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the {@link OutcomeChannel} class and its sinks.
+ */
+@Timeout(value = 10, unit = TimeUnit.SECONDS)
+class OutcomeChannelTest {
+    private static final Duration TICK = Duration.ofMillis(1);
+
+    @TempDir
+    Path directory;
+
+    /**
+     * Sink that remembers everything it receives; only touched by the drainer until the channel is closed.
+     */
+    private static class RecordingSink implements OutcomeSink {
+        final List<String> outcomes = new ArrayList<>();
+        final Map<Outcome, Long> summaries = new EnumMap<>(Outcome.class);
+        long dropped;
+
+        @Override
+        public void outcome(long timestamp, Outcome outcome, int seatNumber, String clientId) {
+            outcomes.add(clientId + " " + outcome + " " + seatNumber);
+        }
+
+        @Override
+        public void summary(Outcome outcome, long count) {
+            summaries.merge(outcome, count, Long::sum);
+        }
+
+        @Override
+        public void dropped(long count) {
+            dropped += count;
+        }
+    }
+
+    @Test
+    void givenConcurrentPublishers_whenClosed_thenOutcomesDeliveredOrCountedAsDropped() throws Exception {
+        RecordingSink sink = new RecordingSink();
+        try (OutcomeChannel channel = new OutcomeChannel(sink, new OutcomeOptions(OutcomeMode.EVERY, 4_096, 1, TICK))) {
+            List<Thread> publishers = IntStream.range(0, 4)
+                .mapToObj(t -> Thread.ofPlatform().start(() -> {
+                    for (int seat = 1; seat <= 5_000; seat++) {
+                        channel.publish(Outcome.RESERVED, seat, "client-" + t);
+                    }
+                }))
+                .toList();
+            for (Thread publisher : publishers) {
+                publisher.join();
+            }
+        }
+        assertEquals(20_000, sink.outcomes.size() + sink.dropped);
+        for (int t = 0; t < 4; t++) {
+            String client = "client-" + t + " ";
+            List<Integer> seats = sink.outcomes.stream()
+                .filter(line -> line.startsWith(client))
+                .map(line -> Integer.parseInt(line.substring(line.lastIndexOf(' ') + 1)))
+                .toList();
+            for (int i = 1; i < seats.size(); i++) {
+                assertTrue(seats.get(i - 1) < seats.get(i));
+            }
+        }
+    }
+
+    @Test
+    void givenStalledSink_whenRingFull_thenOutcomesDroppedAndReported() throws InterruptedException {
+        CountDownLatch release = new CountDownLatch(1);
+        RecordingSink sink = new RecordingSink() {
+            @Override
+            public void outcome(long timestamp, Outcome outcome, int seatNumber, String clientId) {
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                super.outcome(timestamp, outcome, seatNumber, clientId);
+            }
+        };
+        OutcomeChannel channel = new OutcomeChannel(sink, new OutcomeOptions(OutcomeMode.EVERY, 8, 1, TICK));
+        IntStream.rangeClosed(1, 100).forEach(seat -> channel.publish(Outcome.CANCEL_FAILED, seat, "client"));
+        assertTrue(channel.dropped() >= 100 - 8);
+        release.countDown();
+        channel.close();
+        channel.publish(Outcome.CANCELLED, 1, "late");
+
+        assertEquals(100, sink.outcomes.size() + sink.dropped);
+        assertEquals(channel.dropped(), sink.dropped);
+        assertEquals(100, channel.count(Outcome.CANCEL_FAILED));
+        assertEquals(1, channel.count(Outcome.CANCELLED));
+    }
+
+    @Test
+    void givenSampledMode_whenPublishing_thenAboutOneInNDelivered() {
+        RecordingSink sink = new RecordingSink();
+        try (OutcomeChannel channel =
+                 new OutcomeChannel(sink, new OutcomeOptions(OutcomeMode.SAMPLED, 1 << 16, 100, TICK))) {
+            IntStream.range(0, 50_000).forEach(i -> channel.publish(Outcome.RESERVE_FAILED, 1, "client"));
+            assertEquals(50_000, channel.count(Outcome.RESERVE_FAILED));
+        }
+        assertTrue(sink.outcomes.size() > 300 && sink.outcomes.size() < 700, "" + sink.outcomes.size());
+    }
+
+    @Test
+    void givenAggregatedMode_whenPublishing_thenOnlyCountsDelivered() {
+        RecordingSink sink = new RecordingSink();
+        try (OutcomeChannel channel =
+                 new OutcomeChannel(sink, new OutcomeOptions(OutcomeMode.AGGREGATED, 2, 1, TICK))) {
+            IntStream.range(0, 1_000).forEach(i -> channel.publish(Outcome.RESERVED, i, "client"));
+            IntStream.range(0, 10).forEach(i -> channel.publish(Outcome.INVALID_SEAT, -i, "bot"));
+        }
+        assertTrue(sink.outcomes.isEmpty());
+        assertEquals(1_000, sink.summaries.get(Outcome.RESERVED));
+        assertEquals(10, sink.summaries.get(Outcome.INVALID_SEAT));
+        assertEquals(0, sink.summaries.get(Outcome.CANCELLED));
+    }
+
+    @Test
+    void givenFileSink_whenDrained_thenOneLinePerOutcome() throws IOException {
+        Path file = directory.resolve("outcomes.csv");
+        try (FileOutcomeSink sink = new FileOutcomeSink(file);
+             OutcomeChannel channel = new OutcomeChannel(sink, OutcomeOptions.defaults())) {
+            channel.publish(Outcome.RESERVED, 7, "client-1");
+            channel.publish(Outcome.INVALID_SEAT, 0, "client-2");
+        }
+        List<String> lines = Files.readAllLines(file);
+        assertEquals(2, lines.size());
+        assertTrue(lines.get(0).endsWith(",RESERVED,7,client-1"), lines.get(0));
+        assertTrue(lines.get(1).endsWith(",INVALID_SEAT,0,client-2"), lines.get(1));
+
+        try (FileOutcomeSink sink = new FileOutcomeSink(file);
+             OutcomeChannel channel = new OutcomeChannel(sink,
+                 new OutcomeOptions(OutcomeMode.AGGREGATED, 2, 1, Duration.ofHours(1)))) {
+            channel.publish(Outcome.CANCELLED, 7, "client-1");
+        }
+        assertTrue(Files.readAllLines(file).stream().anyMatch(line -> line.endsWith(",CANCELLED,,1")));
+    }
+
+    @Test
+    void givenLoggingSinkAndFailingSink_whenDrained_thenNothingThrows() {
+        try (OutcomeChannel channel = new OutcomeChannel(new LoggingOutcomeSink(), OutcomeOptions.defaults())) {
+            channel.publish(Outcome.RESERVED, 1, "client-1");
+            channel.publish(Outcome.INVALID_SEAT, -1, "client-1");
+        }
+        LoggingOutcomeSink logging = new LoggingOutcomeSink();
+        assertDoesNotThrow(() -> {
+            logging.summary(Outcome.RESERVED, 3);
+            logging.summary(Outcome.RESERVED, 0);
+            logging.dropped(2);
+        });
+        OutcomeSink failing = (timestamp, outcome, seatNumber, clientId) -> {
+            throw new IllegalStateException("sink down");
+        };
+        try (OutcomeChannel channel = new OutcomeChannel(failing, OutcomeOptions.defaults())) {
+            assertDoesNotThrow(() -> channel.publish(Outcome.RESERVED, 1, "client-1"));
+        }
+        assertSame(OutcomeChannel.shared(), OutcomeChannel.shared());
+    }
+
+    @Test
+    void givenInvalidOptions_whenCreated_thenThrows() {
+        assertThrows(IllegalArgumentException.class, () -> new OutcomeOptions(OutcomeMode.EVERY, 1, 1, TICK));
+        assertThrows(IllegalArgumentException.class, () -> new OutcomeOptions(OutcomeMode.EVERY, 100, 1, TICK));
+        assertThrows(IllegalArgumentException.class, () -> new OutcomeOptions(OutcomeMode.SAMPLED, 64, 0, TICK));
+        assertThrows(IllegalArgumentException.class,
+            () -> new OutcomeOptions(OutcomeMode.EVERY, 64, 1, Duration.ZERO));
+    }
+}
@@ -0,0 +1,215 @@
+package rk.powermilk.cinema.event;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+import rk.powermilk.cinema.model.Cinema;
+import rk.powermilk.cinema.model.SeatTransition;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the {@link SeatChangePublisher} class.
+ * <p>
+ * Most tests call subscribers on the publishing thread and close the publisher before checking, so every
+ * change has been dispatched by then.
+ */
+@Timeout(value = 10, unit = TimeUnit.SECONDS)
+class SeatChangePublisherTest {
+    private static final Duration TICK = Duration.ofMillis(1);
+
+    private static ChangeStreamOptions options(ChangeStreamMode mode, int bufferSize, OverflowPolicy overflow) {
+        return new ChangeStreamOptions(mode, 1_024, bufferSize, TICK, overflow);
+    }
+
+    /**
+     * Subscriber that remembers every signal and requests a fixed number of items up front.
+     */
+    private static class RecordingSubscriber implements Flow.Subscriber<SeatEvent> {
+        final List<SeatEvent> events = new ArrayList<>();
+        final CountDownLatch done = new CountDownLatch(1);
+        final long initialRequest;
+        Flow.Subscription subscription;
+        Throwable error;
+
+        RecordingSubscriber(long initialRequest) {
+            this.initialRequest = initialRequest;
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            this.subscription = subscription;
+            if (initialRequest > 0) {
+                subscription.request(initialRequest);
+            }
+        }
+
+        @Override
+        public synchronized void onNext(SeatEvent item) {
+            events.add(item);
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            error = throwable;
+            done.countDown();
+        }
+
+        @Override
+        public void onComplete() {
+            done.countDown();
+        }
+
+        synchronized List<SeatEvent> events() {
+            return List.copyOf(events);
+        }
+    }
+
+    @Test
+    void givenCinemaStream_whenSeatsChange_thenSubscriberReceivesEveryTransitionInOrder() throws Exception {
+        Cinema cinema = new Cinema(5);
+        SeatChangePublisher publisher = cinema.changes(ChangeStreamOptions.defaults());
+        RecordingSubscriber subscriber = new RecordingSubscriber(Long.MAX_VALUE);
+        publisher.subscribe(subscriber);
+        assertEquals(1, publisher.getSubscriberCount());
+
+        cinema.reserveSeat(1, "client-1");
+        cinema.reserveSeat(1, "client-2");
+        cinema.cancelReservation(1, "client-1");
+        cinema.reserveSeat(2, "client-2");
+        assertTrue(cinema.expireReservation(2, "client-2"));
+        publisher.close();
+        assertTrue(subscriber.done.await(5, TimeUnit.SECONDS));
+
+        assertEquals(List.of(
+            new SeatChange(SeatTransition.RESERVED, 1, "client-1", 1),
+            new SeatChange(SeatTransition.CANCELLED, 1, "client-1", 2),
+            new SeatChange(SeatTransition.RESERVED, 2, "client-2", 1),
+            new SeatChange(SeatTransition.EXPIRED, 2, "client-2", 2)), subscriber.events());
+        assertNull(subscriber.error);
+        assertEquals(0, publisher.getSubscriberCount());
+        assertFalse(cinema.removeListener(publisher));
+    }
+
+    @Test
+    void givenLimitedDemand_whenChangesArrive_thenOnlyRequestedChangesAreDelivered() {
+        SeatChangePublisher publisher = new SeatChangePublisher(
+            options(ChangeStreamMode.EVERY, 16, OverflowPolicy.DROP), Runnable::run);
+        RecordingSubscriber subscriber = new RecordingSubscriber(2);
+        publisher.subscribe(subscriber);
+        for (int seat = 1; seat <= 5; seat++) {
+            publisher.onTransition(SeatTransition.RESERVED, seat, "client-1", 1);
+        }
+        publisher.close();
+        assertEquals(2, subscriber.events().size());
+        assertEquals(1, subscriber.done.getCount());
+
+        subscriber.subscription.request(10);
+        assertEquals(5, subscriber.events().size());
+        assertEquals(0, subscriber.done.getCount());
+    }
+
+    @Test
+    void givenCoalescedMode_whenSeatFlipsWithinTick_thenOnlyLatestChangeIsDelivered() {
+        SeatChangePublisher publisher = new SeatChangePublisher(new ChangeStreamOptions(ChangeStreamMode.COALESCED,
+            1_024, 16, Duration.ofMinutes(1), OverflowPolicy.RESYNC), Runnable::run);
+        RecordingSubscriber subscriber = new RecordingSubscriber(Long.MAX_VALUE);
+        publisher.subscribe(subscriber);
+        for (long version = 1; version <= 100; version++) {
+            SeatTransition transition = version % 2 == 1 ? SeatTransition.RESERVED : SeatTransition.CANCELLED;
+            publisher.onTransition(transition, 7, "client-1", version);
+        }
+        publisher.onTransition(SeatTransition.RESERVED, 3, "client-2", 5);
+        publisher.onTransition(SeatTransition.CANCELLED, 3, "client-2", 4);
+        publisher.close();
+
+        assertEquals(List.of(
+            new SeatChange(SeatTransition.CANCELLED, 7, "client-1", 100),
+            new SeatChange(SeatTransition.RESERVED, 3, "client-2", 5)), subscriber.events());
+    }
+
+    @Test
+    void givenResyncPolicy_whenBufferOverflows_thenSubscriberIsToldHowManyChangesItMissed() {
+        SeatChangePublisher publisher = new SeatChangePublisher(
+            options(ChangeStreamMode.EVERY, 2, OverflowPolicy.RESYNC), Runnable::run);
+        RecordingSubscriber subscriber = new RecordingSubscriber(0);
+        publisher.subscribe(subscriber);
+        for (int seat = 1; seat <= 5; seat++) {
+            publisher.onTransition(SeatTransition.RESERVED, seat, "client-1", 1);
+        }
+        publisher.close();
+        subscriber.subscription.request(Long.MAX_VALUE);
+
+        assertEquals(List.of(new Resync(3),
+            new SeatChange(SeatTransition.RESERVED, 4, "client-1", 1),
+            new SeatChange(SeatTransition.RESERVED, 5, "client-1", 1)), subscriber.events());
+        assertEquals(0, subscriber.done.getCount());
+        assertNull(subscriber.error);
+    }
+
+    @Test
+    void givenDropPolicy_whenBufferOverflows_thenSubscriberIsDropped() {
+        SeatChangePublisher publisher = new SeatChangePublisher(
+            options(ChangeStreamMode.EVERY, 2, OverflowPolicy.DROP), Runnable::run);
+        RecordingSubscriber slow = new RecordingSubscriber(0);
+        RecordingSubscriber fast = new RecordingSubscriber(Long.MAX_VALUE);
+        publisher.subscribe(slow);
+        publisher.subscribe(fast);
+        for (int seat = 1; seat <= 5; seat++) {
+            publisher.onTransition(SeatTransition.RESERVED, seat, "client-1", 1);
+        }
+        publisher.close();
+
+        assertInstanceOf(IllegalStateException.class, slow.error);
+        assertEquals(List.of(), slow.events());
+        assertEquals(5, fast.events().size());
+        assertNull(fast.error);
+        assertEquals(0, publisher.getSubscriberCount());
+    }
+
+    @Test
+    void givenFullRing_whenPublishing_thenChangesAreDroppedWithoutBlocking() {
+        SeatChangePublisher publisher = new SeatChangePublisher(
+            new ChangeStreamOptions(ChangeStreamMode.EVERY, 2, 64, Duration.ofMinutes(1), OverflowPolicy.RESYNC),
+            Runnable::run);
+        RecordingSubscriber subscriber = new RecordingSubscriber(Long.MAX_VALUE);
+        publisher.subscribe(subscriber);
+        for (int seat = 1; seat <= 1_000; seat++) {
+            publisher.onTransition(SeatTransition.RESERVED, seat, "client-1", 1);
+        }
+        publisher.close();
+
+        long missed = subscriber.events().stream()
+            .mapToLong(event -> event instanceof Resync resync ? resync.missed() : 0).sum();
+        long delivered = subscriber.events().stream().filter(SeatChange.class::isInstance).count();
+        assertEquals(publisher.dropped(), missed);
+        assertEquals(1_000, missed + delivered);
+    }
+
+    @Test
+    void givenInvalidRequest_whenRequested_thenSubscriberFails() {
+        SeatChangePublisher publisher = new SeatChangePublisher(ChangeStreamOptions.defaults(), Runnable::run);
+        RecordingSubscriber subscriber = new RecordingSubscriber(0);
+        publisher.subscribe(subscriber);
+        subscriber.subscription.request(0);
+        assertInstanceOf(IllegalArgumentException.class, subscriber.error);
+        publisher.close();
+
+        RecordingSubscriber late = new RecordingSubscriber(1);
+        publisher.subscribe(late);
+        assertEquals(0, late.done.getCount());
+        assertNull(late.error);
+        assertThrows(IllegalArgumentException.class, () -> new ChangeStreamOptions(ChangeStreamMode.EVERY, 3, 1,
+            TICK, OverflowPolicy.DROP));
+        assertThrows(IllegalArgumentException.class, () -> new ChangeStreamOptions(ChangeStreamMode.EVERY, 4, 0,
+            TICK, OverflowPolicy.DROP));
+        assertThrows(IllegalArgumentException.class, () -> new ChangeStreamOptions(ChangeStreamMode.EVERY, 4, 1,
+            Duration.ZERO, OverflowPolicy.DROP));
+    }
+}
@@ -0,0 +1,115 @@
+package rk.powermilk.cinema.hold;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+import rk.powermilk.cinema.error.IllegalSeatReservedException;
+import rk.powermilk.cinema.model.Cinema;
+import rk.powermilk.cinema.model.SeatTransition;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.InstantSource;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the {@link HoldManager} class.
+ * <p>
+ * Expiry is driven by a manually advanced clock, so no test needs to sleep.
+ */
+@Timeout(value = 2, unit = TimeUnit.SECONDS)
+class HoldManagerTest {
+    private static final Duration TTL = Duration.ofMinutes(5);
+
+    private final AtomicLong now = new AtomicLong(1_000_000);
+    private final InstantSource clock = () -> Instant.ofEpochMilli(now.get());
+    private final Cinema cinema = new Cinema(5);
+    private final HoldManager holds = new HoldManager(cinema, clock, Duration.ofSeconds(1));
+
+    @Test
+    void givenFreeSeat_whenHeld_thenSeatIsReservedUntilExpiry() {
+        SeatHold hold = holds.holdSeat(1, "client-1", TTL);
+        assertNotNull(hold);
+        assertEquals(1, hold.seatNumber());
+        assertEquals("client-1", hold.clientId());
+        assertEquals(now.get() + TTL.toMillis(), hold.deadlineMillis());
+        assertFalse(cinema.isSeatAvailable(1));
+        assertEquals(1, holds.getActiveHoldsCount());
+
+        now.addAndGet(TTL.toMillis() - 1);
+        assertEquals(0, holds.expireHolds());
+        assertFalse(cinema.isSeatAvailable(1));
+
+        now.addAndGet(1_000);
+        assertEquals(1, holds.expireHolds());
+        assertTrue(cinema.isSeatAvailable(1));
+        assertEquals(0, holds.getActiveHoldsCount());
+    }
+
+    @Test
+    void givenTakenSeat_whenHeld_thenHoldIsRefused() {
+        cinema.reserveSeat(1, "client-1");
+        assertNull(holds.holdSeat(1, "client-2", TTL));
+        assertThrows(IllegalSeatReservedException.class, () -> holds.holdSeat(9, "client-2", TTL));
+    }
+
+    @Test
+    void givenHold_whenConfirmed_thenSeatStaysReservedAfterTtl() {
+        holds.holdSeat(2, "client-1", TTL);
+        assertFalse(holds.confirmHold(2, "client-2"));
+        assertTrue(holds.confirmHold(2, "client-1"));
+        assertFalse(holds.confirmHold(2, "client-1"));
+
+        now.addAndGet(TTL.multipliedBy(2).toMillis());
+        assertEquals(0, holds.expireHolds());
+        assertFalse(cinema.isSeatAvailable(2));
+        assertTrue(cinema.cancelReservation(2, "client-1"));
+    }
+
+    @Test
+    void givenExpiredHold_whenConfirmed_thenConfirmationFails() {
+        List<SeatTransition> transitions = new ArrayList<>();
+        cinema.addListener((transition, seatNumber, clientId, version) -> transitions.add(transition));
+        holds.holdSeat(3, "client-1", TTL);
+        now.addAndGet(TTL.toMillis());
+        holds.expireHolds();
+        assertFalse(holds.confirmHold(3, "client-1"));
+        assertTrue(cinema.isSeatAvailable(3));
+        assertEquals(List.of(SeatTransition.RESERVED, SeatTransition.EXPIRED), transitions);
+    }
+
+    @Test
+    void givenHold_whenReleased_thenSeatIsFreeImmediately() {
+        holds.holdSeat(4, "client-1", TTL);
+        assertFalse(holds.releaseHold(4, "client-2"));
+        assertTrue(holds.releaseHold(4, "client-1"));
+        assertTrue(cinema.isSeatAvailable(4));
+        assertEquals(0, holds.getActiveHoldsCount());
+        assertFalse(holds.releaseHold(5, "client-1"));
+    }
+
+    @Test
+    void givenStartedManager_whenTtlPasses_thenHoldExpiresInBackground() throws InterruptedException {
+        try (HoldManager live = new HoldManager(cinema, InstantSource.system(), Duration.ofMillis(10))) {
+            live.start();
+            live.start();
+            live.holdSeat(5, "client-1", Duration.ofMillis(50));
+            while (!cinema.isSeatAvailable(5)) {
+                TimeUnit.MILLISECONDS.sleep(5);
+            }
+            assertEquals(0, live.getActiveHoldsCount());
+        }
+    }
+
+    @Test
+    void givenDefaultManager_whenHolding_thenUsesSystemClock() {
+        HoldManager defaults = new HoldManager(cinema);
+        SeatHold hold = defaults.holdSeat(1, "client-1", TTL);
+        assertTrue(hold.deadlineMillis() > System.currentTimeMillis());
+        defaults.close();
+    }
+}
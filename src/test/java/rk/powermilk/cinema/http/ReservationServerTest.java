@@ -0,0 +1,121 @@
+package rk.powermilk.cinema.http;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+import rk.powermilk.cinema.model.Cinema;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the {@link ReservationServer} and the {@link HttpLoadTarget} that calls it.
+ */
+@Timeout(value = 20, unit = TimeUnit.SECONDS)
+class ReservationServerTest {
+    private Cinema cinema;
+    private ReservationServer server;
+    private HttpClient client;
+
+    @BeforeEach
+    void setUp() {
+        cinema = new Cinema(10);
+        server = ReservationServer.start(cinema, new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+        client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+    }
+
+    @AfterEach
+    void tearDown() {
+        client.close();
+        server.close();
+    }
+
+    @Test
+    void givenSeatRequests_whenPosted_thenOutcomesMapToStatusCodes() throws Exception {
+        assertResponse(200, "{\"seat\":3,\"outcome\":\"OK\"}", post("/reservations", 3, "alice"));
+        assertResponse(409, "{\"seat\":3,\"outcome\":\"TAKEN\"}", post("/reservations", 3, "bob"));
+        assertResponse(404, "{\"seat\":11,\"outcome\":\"INVALID\"}", post("/reservations", 11, "bob"));
+        assertResponse(403, "{\"seat\":3,\"outcome\":\"NOT_OWNER\"}", post("/cancellations", 3, "bob"));
+        assertEquals(1, cinema.getReservedSeatsCount());
+
+        assertResponse(200, "{\"seat\":3,\"outcome\":\"OK\"}", post("/cancellations", 3, "alice"));
+        assertTrue(cinema.isSeatAvailable(3));
+    }
+
+    @Test
+    void givenSeatsAndCounts_whenQueried_thenCinemaStateReturned() throws Exception {
+        cinema.reserveSeat(2, "alice");
+
+        assertResponse(200, "{\"seat\":2,\"available\":false}", get("/seats/2"));
+        assertResponse(200, "{\"seat\":5,\"available\":true}", get("/seats/5"));
+        assertEquals(404, get("/seats/0").statusCode());
+        assertEquals(400, get("/seats/two").statusCode());
+        assertResponse(200, "{\"seats\":10,\"reserved\":1,\"available\":9}", get("/counts"));
+    }
+
+    @Test
+    void givenMalformedRequests_whenSent_thenRejected() throws Exception {
+        assertEquals(400, send(HttpRequest.newBuilder(uri("/reservations"))
+            .POST(HttpRequest.BodyPublishers.ofString("{\"seat\":"))).statusCode());
+        assertEquals(400, send(HttpRequest.newBuilder(uri("/reservations"))
+            .POST(HttpRequest.BodyPublishers.ofString("{\"seat\":1}"))).statusCode());
+        assertEquals(405, get("/reservations").statusCode());
+        assertEquals(405, send(HttpRequest.newBuilder(uri("/counts"))
+            .POST(HttpRequest.BodyPublishers.noBody())).statusCode());
+        assertEquals(413, send(HttpRequest.newBuilder(uri("/reservations"))
+            .POST(HttpRequest.BodyPublishers.ofString("x".repeat(5_000)))).statusCode());
+        assertEquals(0, cinema.getReservedSeatsCount());
+    }
+
+    @Test
+    void givenHttpLoadTarget_whenUsed_thenActsOnServedCinema() {
+        try (HttpLoadTarget target = new HttpLoadTarget(server.uri())) {
+            assertEquals(10, target.getSeatsCount());
+            assertTrue(target.reserveSeat(4, "alice"));
+            assertFalse(target.reserveSeat(4, "bob"));
+            assertFalse(target.isSeatAvailable(4));
+            assertFalse(target.isSeatAvailable(42));
+            assertFalse(target.cancelReservation(4, "bob"));
+            assertTrue(target.cancelReservation(4, "alice"));
+            assertTrue(target.isSeatAvailable(4));
+        }
+    }
+
+    @Test
+    void givenEmbeddedServer_whenLoadClientRuns_thenItCompletes() {
+        assertDoesNotThrow(() -> HttpLoadClient.main(new String[]{"clients=20", "operations=5", "thinkMillis=0"}));
+        assertDoesNotThrow(() -> HttpLoadClient.main(new String[]{"url=" + server.uri(), "clients=5",
+            "operations=2", "thinkMillis=0"}));
+    }
+
+    private HttpResponse<String> post(String path, int seat, String clientId) throws Exception {
+        String body = "{\"seat\":" + seat + ",\"clientId\":\"" + clientId + "\"}";
+        return send(HttpRequest.newBuilder(uri(path)).POST(HttpRequest.BodyPublishers.ofString(body)));
+    }
+
+    private HttpResponse<String> get(String path) throws Exception {
+        return send(HttpRequest.newBuilder(uri(path)).GET());
+    }
+
+    private HttpResponse<String> send(HttpRequest.Builder request) throws IOException, InterruptedException {
+        return client.send(request.build(), HttpResponse.BodyHandlers.ofString());
+    }
+
+    private URI uri(String path) {
+        return server.uri().resolve(path);
+    }
+
+    private static void assertResponse(int status, String body, HttpResponse<String> response) {
+        assertEquals(status, response.statusCode());
+        assertEquals(body, response.body());
+    }
+}
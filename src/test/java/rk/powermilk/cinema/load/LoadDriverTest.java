@@ -0,0 +1,98 @@
+package rk.powermilk.cinema.load;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+import rk.powermilk.cinema.event.Outcome;
+import rk.powermilk.cinema.event.OutcomeChannel;
+import rk.powermilk.cinema.event.OutcomeOptions;
+import rk.powermilk.cinema.model.Cinema;
+
+import java.time.Duration;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the {@link LoadDriver} and its {@link LoadProfile}.
+ */
+@Timeout(value = 20, unit = TimeUnit.SECONDS)
+class LoadDriverTest {
+
+    @Test
+    void givenCrowdOfClients_whenRun_thenEveryRequestIsReported() {
+        Cinema cinema = new Cinema(1_000);
+        LoadProfile profile = new LoadProfile(20_000, 5, Duration.ofMillis(1), 0, new OperationMix(5, 2, 3), 7);
+
+        LoadReport report = LoadDriver.run(cinema, profile);
+
+        assertEquals(100_000, report.totalOperations());
+        assertTrue(report.count(Operation.RESERVE) > report.count(Operation.CANCEL));
+        assertTrue(report.succeeded(Operation.RESERVE) >= cinema.getReservedSeatsCount());
+        assertEquals(cinema.getReservedSeatsCount(),
+            report.succeeded(Operation.RESERVE) - report.succeeded(Operation.CANCEL));
+        assertTrue(report.latency(Operation.QUERY).percentile(50) <= report.latency(Operation.QUERY).max());
+        assertTrue(report.throughput() > 0);
+        assertFalse(report.elapsed().isZero());
+    }
+
+    @Test
+    void givenOutcomeChannel_whenRun_thenReservationsAndCancellationsArePublished() {
+        LoadProfile profile = new LoadProfile(500, 4, Duration.ZERO, 0, new OperationMix(2, 1, 1), 3);
+        try (OutcomeChannel outcomes = new OutcomeChannel((timestamp, outcome, seat, client) -> {
+        }, OutcomeOptions.defaults())) {
+            LoadReport report = LoadDriver.run(LoadTarget.of(new Cinema(50)), profile, outcomes);
+
+            assertEquals(report.succeeded(Operation.RESERVE), outcomes.count(Outcome.RESERVED));
+            assertEquals(report.count(Operation.RESERVE) - report.succeeded(Operation.RESERVE),
+                outcomes.count(Outcome.RESERVE_FAILED));
+            assertTrue(outcomes.count(Outcome.RESERVE_FAILED) > 0);
+            assertEquals(report.succeeded(Operation.CANCEL), outcomes.count(Outcome.CANCELLED));
+            assertEquals(report.count(Operation.CANCEL) - report.succeeded(Operation.CANCEL),
+                outcomes.count(Outcome.CANCEL_FAILED));
+            assertEquals(0, outcomes.count(Outcome.INVALID_SEAT));
+            assertTrue(report.count(Operation.QUERY) > 0);
+        }
+    }
+
+    @Test
+    void givenArrivalRate_whenRun_thenClientsArriveSpreadOut() {
+        LoadProfile profile = new LoadProfile(50, 1, Duration.ZERO, 1_000, new OperationMix(1, 0, 0), 1);
+
+        LoadReport report = LoadDriver.run(new Cinema(100), profile);
+
+        assertEquals(50, report.count(Operation.RESERVE));
+        assertTrue(report.elapsed().toMillis() >= 45, report.elapsed().toString());
+    }
+
+    @Test
+    void givenOverrides_whenParsed_thenDefaultsReplaced() {
+        LoadProfile profile = LoadProfile.parse("clients=10", "operations=3", "thinkMillis=0", "arrivalRate=5.5",
+            "mix=1:2:3", "seed=9");
+        assertEquals(new LoadProfile(10, 3, Duration.ZERO, 5.5, new OperationMix(1, 2, 3), 9), profile);
+        assertEquals(LoadProfile.defaults(), LoadProfile.parse());
+        assertThrows(IllegalArgumentException.class, () -> LoadProfile.parse("clients"));
+        assertThrows(IllegalArgumentException.class, () -> LoadProfile.parse("threads=4"));
+        assertThrows(IllegalArgumentException.class, () -> LoadProfile.parse("clients=0"));
+        assertThrows(IllegalArgumentException.class, () -> LoadProfile.parse("mix=1:2"));
+        assertThrows(IllegalArgumentException.class, () -> LoadProfile.parse("mix=0:0:0"));
+        assertThrows(IllegalArgumentException.class, () -> LoadProfile.parse("mix=1:-1:0"));
+        assertThrows(IllegalArgumentException.class, () -> LoadProfile.parse("operations=0"));
+        assertThrows(IllegalArgumentException.class, () -> LoadProfile.parse("thinkMillis=-1"));
+        assertThrows(IllegalArgumentException.class, () -> LoadProfile.parse("arrivalRate=-1"));
+        assertThrows(IllegalArgumentException.class, () -> LoadDriver.run(new Cinema(0), profile));
+    }
+
+    @Test
+    void givenMix_whenPicking_thenOperationsFollowWeights() {
+        OperationMix mix = new OperationMix(1, 1, 2);
+        SplittableRandom random = new SplittableRandom(3);
+        int[] picked = new int[Operation.values().length];
+        for (int i = 0; i < 40_000; i++) {
+            picked[mix.pick(random).ordinal()]++;
+        }
+        assertEquals(10_000, picked[Operation.RESERVE.ordinal()], 500);
+        assertEquals(10_000, picked[Operation.CANCEL.ordinal()], 500);
+        assertEquals(20_000, picked[Operation.QUERY.ordinal()], 500);
+    }
+}
@@ -0,0 +1,99 @@
+package rk.powermilk.cinema.metrics;
+
+import org.junit.jupiter.api.Test;
+import rk.powermilk.cinema.error.IllegalSeatReservedException;
+import rk.powermilk.cinema.model.Cinema;
+import rk.powermilk.cinema.model.HallLayout;
+import rk.powermilk.cinema.model.ReservationOutcome;
+import rk.powermilk.cinema.store.ArraySeatStore;
+
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the {@link ReservationMetrics} class and its use by {@link Cinema}.
+ */
+class ReservationMetricsTest {
+    private final ReservationMetrics metrics = new ReservationMetrics(10, 2, 1);
+    private final Cinema cinema = new Cinema(HallLayout.singleRow(10), new ArraySeatStore(10), metrics);
+
+    @Test
+    void givenOperations_whenSnapshotTaken_thenOutcomesCounted() {
+        cinema.reserveSeat(1, "client-1");
+        cinema.reserveSeat(1, "client-2");
+        cinema.tryReserve(0, "bot");
+        cinema.cancelReservation(1, "client-2");
+        cinema.tryCancel(1, "client-1");
+        cinema.isSeatAvailable(1);
+        assertThrows(IllegalSeatReservedException.class, () -> cinema.isSeatAvailable(11));
+
+        MetricsSnapshot snapshot = metrics.snapshot();
+        MetricsSnapshot.OperationStats reserve = snapshot.operation(MeteredOperation.RESERVE);
+        assertEquals(3, reserve.count());
+        assertEquals(1, reserve.outcomes().get(ReservationOutcome.OK));
+        assertEquals(1, reserve.outcomes().get(ReservationOutcome.TAKEN));
+        assertEquals(1, reserve.outcomes().get(ReservationOutcome.INVALID));
+        assertEquals(0.5, reserve.contentionRate());
+        assertTrue(reserve.latency().p50() <= reserve.latency().max());
+
+        MetricsSnapshot.OperationStats cancel = snapshot.operation(MeteredOperation.CANCEL);
+        assertEquals(1, cancel.outcomes().get(ReservationOutcome.NOT_OWNER));
+        assertEquals(1, cancel.outcomes().get(ReservationOutcome.OK));
+
+        MetricsSnapshot.OperationStats query = snapshot.operation(MeteredOperation.QUERY);
+        assertEquals(1, query.outcomes().get(ReservationOutcome.OK));
+        assertEquals(1, query.outcomes().get(ReservationOutcome.INVALID));
+        assertEquals(0, query.contentionRate());
+    }
+
+    @Test
+    void givenUnevenTraffic_whenSnapshotTaken_thenHottestSeatsReported() {
+        IntStream.range(0, 5).forEach(i -> cinema.tryReserve(7, "client-" + i));
+        IntStream.range(0, 3).forEach(i -> cinema.tryCancel(2, "client-" + i));
+        cinema.tryReserve(4, "client-1");
+        IntStream.range(0, 50).forEach(i -> cinema.isSeatAvailable(9));
+
+        assertEquals(List.of(new MetricsSnapshot.HotSeat(7, 5), new MetricsSnapshot.HotSeat(2, 3)),
+            metrics.snapshot().hotSeats());
+        assertTrue(new ReservationMetrics(10, 0).snapshot().hotSeats().isEmpty());
+    }
+
+    @Test
+    void givenSampledSeatCounts_whenSnapshotTaken_thenRequestsAreEstimated() {
+        ReservationMetrics sampled = new ReservationMetrics(10, 2);
+        IntStream.range(0, 20_000).forEach(i ->
+            sampled.record(MeteredOperation.RESERVE, ReservationOutcome.TAKEN, 7, 100));
+        IntStream.range(0, 500).forEach(i ->
+            sampled.record(MeteredOperation.CANCEL, ReservationOutcome.OK, 2, 100));
+
+        List<MetricsSnapshot.HotSeat> hottest = sampled.snapshot().hotSeats();
+        assertEquals(7, hottest.getFirst().seatNumber());
+        assertEquals(20_000, hottest.getFirst().requests(), 3_000);
+        assertEquals(20_000, sampled.snapshot().operation(MeteredOperation.RESERVE).count());
+        assertThrows(IllegalArgumentException.class, () -> new ReservationMetrics(10, 2, 0));
+    }
+
+    @Test
+    void givenSnapshot_whenSerialized_thenJsonHoldsEveryOperation() {
+        cinema.reserveSeat(3, "client-1");
+
+        String json = metrics.snapshot().toJson();
+
+        assertTrue(json.contains("\"operation\":\"RESERVE\""), json);
+        assertTrue(json.contains("\"operation\":\"QUERY\""), json);
+        assertTrue(json.contains("\"seatNumber\":3"), json);
+        assertTrue(json.contains("\"requests\":1"), json);
+        assertTrue(json.contains("\"p99\""), json);
+    }
+
+    @Test
+    void givenNoMetrics_whenOperating_thenNothingRecorded() {
+        Cinema unmetered = new Cinema(10);
+        assertTrue(unmetered.reserveSeat(1, "client-1"));
+        assertDoesNotThrow(() -> CinemaMetrics.NOOP.record(MeteredOperation.QUERY, ReservationOutcome.OK, 1, 5));
+        assertEquals(0, metrics.snapshot().operation(MeteredOperation.RESERVE).count());
+        assertThrows(IllegalArgumentException.class, () -> new ReservationMetrics(-1, 3));
+    }
+}
@@ -0,0 +1,166 @@
+package rk.powermilk.cinema.model;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+import org.junit.jupiter.api.io.TempDir;
+import rk.powermilk.cinema.store.ArraySeatStore;
+import rk.powermilk.cinema.store.MapSeatStore;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for {@link Cinema#snapshotTo(Path)}, {@link Cinema#restoreFrom(Path)} and the {@link CinemaSnapshot}
+ * file format.
+ */
+@Timeout(value = 20, unit = TimeUnit.SECONDS)
+class CinemaSnapshotTest {
+
+    @TempDir
+    Path directory;
+
+    private static void assertSameSeats(Cinema expected, Cinema actual) {
+        assertEquals(expected.getLayout(), actual.getLayout());
+        assertEquals(expected.getReservedSeatsCount(), actual.getReservedSeatsCount());
+        for (int seat = 1; seat <= expected.getSeatsCount(); seat++) {
+            assertEquals(expected.isSeatAvailable(seat), actual.isSeatAvailable(seat), "seat " + seat);
+        }
+    }
+
+    private Cinema roundTrip(Cinema cinema, int clients) {
+        Path file = directory.resolve("cinema-" + clients + ".snapshot");
+        cinema.snapshotTo(file);
+        CinemaSnapshot snapshot = CinemaSnapshot.open(file);
+        assertEquals(clients, snapshot.clients());
+        assertEquals(cinema.getReservedSeatsCount(), snapshot.reservedSeats());
+        assertEquals(0, snapshot.position());
+        Cinema restored = Cinema.restoreFrom(file);
+        assertSameSeats(cinema, restored);
+        return restored;
+    }
+
+    @Test
+    void givenReservationsInRaggedHall_whenRestored_thenSeatsAndHoldersMatch() {
+        Cinema cinema = new Cinema(HallLayout.ofRows(3, 70, 5), new MapSeatStore(78));
+        cinema.reserveSeats(new int[]{1, 2, 3}, "client-1");
+        cinema.reserveSeat(64, "klient-ł");
+        cinema.reserveSeat(65, "client-1");
+        cinema.reserveSeat(78, "client-2");
+
+        Cinema restored = roundTrip(cinema, 3);
+        assertFalse(restored.cancelReservation(64, "client-1"));
+        assertTrue(restored.cancelReservation(64, "klient-ł"));
+        assertTrue(restored.cancelSeats(new int[]{1, 2, 3, 65}, "client-1"));
+        assertFalse(restored.reserveSeat(78, "client-2"));
+        assertEquals(1, restored.getReservedSeatsCount());
+    }
+
+    @Test
+    void givenSeatCategories_whenRestored_thenCategoriesAndCountsMatch() {
+        HallLayout layout = HallLayout.of(4, 8).withRowCategory(SeatCategory.VIP, 4)
+            .withCategory(SeatCategory.ACCESSIBLE, 1, 2);
+        Cinema cinema = new Cinema(layout);
+        cinema.reserveSeats(new int[]{1, 25, 26}, "client-1");
+
+        Cinema restored = roundTrip(cinema, 1);
+        assertEquals(SeatCategory.VIP, restored.getLayout().categoryOf(32));
+        assertEquals(2, restored.getReservedSeatsCount(SeatCategory.VIP));
+        assertEquals(1, restored.getReservedSeatsCount(SeatCategory.ACCESSIBLE));
+    }
+
+    @Test
+    void givenEmptyCinema_whenRestored_thenAllSeatsFree() {
+        roundTrip(new Cinema(HallLayout.of(2, 5)), 0);
+        roundTrip(new Cinema(0), 0);
+    }
+
+    @Test
+    void givenManyClients_whenRestored_thenWiderClientIndexesUsed() {
+        for (int clients : new int[]{256, 257, 65_536, 65_537}) {
+            Cinema cinema = new Cinema(HallLayout.of(300, 250));
+            IntStream.range(0, clients).forEach(i -> cinema.reserveSeat(i + 1, "client-" + i));
+            Cinema restored = roundTrip(cinema, clients);
+            assertTrue(restored.cancelReservation(clients, "client-" + (clients - 1)));
+        }
+    }
+
+    @Test
+    void givenDamagedFile_whenOpened_thenThrows() throws IOException {
+        Cinema cinema = new Cinema(HallLayout.of(4, 10));
+        cinema.reserveSeats(new int[]{5, 6}, "client-1");
+        Path file = directory.resolve("cinema.snapshot");
+        cinema.snapshotTo(file);
+        byte[] bytes = Files.readAllBytes(file);
+
+        bytes[bytes.length - 1] ^= 1;
+        Files.write(file, bytes);
+        assertThrows(IllegalStateException.class, () -> Cinema.restoreFrom(file));
+
+        Files.write(file, new byte[]{'C', 'S', 'N', 'P'});
+        assertThrows(IllegalStateException.class, () -> CinemaSnapshot.open(file));
+
+        Path missing = directory.resolve("missing.snapshot");
+        assertThrows(UncheckedIOException.class, () -> Cinema.restoreFrom(missing));
+    }
+
+    @Test
+    void givenStoreOfOtherSize_whenRestoringInto_thenThrows() {
+        Path file = directory.resolve("cinema.snapshot");
+        new Cinema(HallLayout.of(4, 10)).snapshotTo(file);
+        CinemaSnapshot snapshot = CinemaSnapshot.open(file);
+        assertThrows(IllegalArgumentException.class, () -> snapshot.restoreInto(new ArraySeatStore(39)));
+    }
+
+    @Test
+    void givenConcurrentWriters_whenSnapshotTaken_thenItIsAnExactCut() throws Exception {
+        Cinema cinema = new Cinema(HallLayout.of(20, 50));
+        LongAdder transitions = new LongAdder();
+        cinema.addListener((transition, seatNumber, clientId, version) -> {
+            if (transition == SeatTransition.RESERVED) {
+                transitions.increment();
+            } else {
+                transitions.decrement();
+            }
+        });
+        AtomicBoolean running = new AtomicBoolean(true);
+        List<Thread> writers = IntStream.range(0, 4)
+            .mapToObj(t -> Thread.ofPlatform().start(() -> {
+                SplittableRandom random = new SplittableRandom(t);
+                while (running.get()) {
+                    int first = random.nextInt(cinema.getSeatsCount() - 2) + 1;
+                    int[] group = {first, first + 1, first + 2};
+                    if (!cinema.reserveSeats(group, "client-" + t)) {
+                        cinema.cancelSeats(group, "client-" + t);
+                    }
+                    if (!cinema.reserveSeat(first, "client-" + t)) {
+                        cinema.cancelReservation(first, "client-" + t);
+                    }
+                }
+            }))
+            .toList();
+        try {
+            for (int i = 0; i < 50; i++) {
+                Path file = directory.resolve("cut-" + i + ".snapshot");
+                long position = cinema.snapshotTo(file, transitions::sum);
+                CinemaSnapshot snapshot = CinemaSnapshot.open(file);
+                assertEquals(position, snapshot.position());
+                assertEquals(snapshot.position(), snapshot.reservedSeats());
+            }
+        } finally {
+            running.set(false);
+            for (Thread writer : writers) {
+                writer.join();
+            }
+        }
+    }
+}
@@ -3,7 +3,13 @@ package rk.powermilk.cinema.model;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.Timeout;
 import rk.powermilk.cinema.error.IllegalSeatReservedException;
+import rk.powermilk.cinema.store.MapSeatStore;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.TimeUnit;
 import java.util.stream.IntStream;
 
@@ -128,6 +134,36 @@ class CinemaTest {
         assertEquals("Seat number 1010 is invalid.", exception.getMessage());
     }
 
+    /**
+     * Verifies that the non-throwing API reports every outcome as a result code.
+     */
+    @Test
+    void givenSeats_whenUsingResultCodes_thenEveryOutcomeReported() {
+        assertEquals(ReservationOutcome.OK, cinema.tryReserve(1, client1Id));
+        assertEquals(ReservationOutcome.TAKEN, cinema.tryReserve(1, client2Id));
+        assertEquals(ReservationOutcome.NOT_OWNER, cinema.tryCancel(1, client2Id));
+        assertEquals(ReservationOutcome.NOT_OWNER, cinema.tryCancel(2, client1Id));
+        assertEquals(ReservationOutcome.OK, cinema.tryCancel(1, client1Id));
+        for (int seat : new int[]{0, -1, 6, Integer.MIN_VALUE, Integer.MAX_VALUE}) {
+            assertFalse(cinema.isValidSeat(seat));
+            assertEquals(ReservationOutcome.INVALID, cinema.tryReserve(seat, client1Id));
+            assertEquals(ReservationOutcome.INVALID, cinema.tryCancel(seat, client1Id));
+        }
+        assertTrue(cinema.isValidSeat(5));
+        assertEquals(0, cinema.getReservedSeatsCount());
+    }
+
+    /**
+     * Verifies that the exception for invalid seats carries no stack trace.
+     */
+    @Test
+    void givenInvalidSeatNumber_whenThrown_thenNoStackTraceCaptured() {
+        IllegalSeatReservedException exception = assertThrows(IllegalSeatReservedException.class, () ->
+            cinema.reserveSeat(0, client1Id));
+        assertEquals(0, exception.getStackTrace().length);
+        assertEquals("custom", new IllegalSeatReservedException("custom").getMessage());
+    }
+
     /**
      * Verifies that multiple sequential seat reservations are all successful.
      */
@@ -169,4 +205,445 @@ class CinemaTest {
         cinema.cancelReservation(1, client1Id);
         assertTrue(cinema.reserveSeat(1, client2Id));
     }
+
+    /**
+     * Verifies that the map-backed seat storage is still selectable and behaves the same.
+     */
+    @Test
+    void givenMapSeatStore_whenReservingAndCancelling_thenBehavesLikeDefault() {
+        Cinema mapCinema = new Cinema(new MapSeatStore(5));
+        assertTrue(mapCinema.reserveSeat(1, client1Id));
+        assertFalse(mapCinema.reserveSeat(1, client2Id));
+        assertFalse(mapCinema.cancelReservation(1, client2Id));
+        assertEquals(1, mapCinema.getReservedSeatsCount());
+        assertTrue(mapCinema.cancelReservation(1, client1Id));
+        assertTrue(mapCinema.isSeatAvailable(1));
+        assertThrows(IllegalSeatReservedException.class, () -> mapCinema.isSeatAvailable(6));
+    }
+
+    /**
+     * Verifies that available seats and occupancy follow reservations and cancellations.
+     */
+    @Test
+    void givenReservations_whenCounting_thenAvailabilityAndOccupancyFollow() {
+        assertEquals(5, cinema.getSeatsCount());
+        assertEquals(5, cinema.getAvailableSeatsCount());
+        assertEquals(0.0, cinema.getOccupancyRatio());
+        cinema.reserveSeat(1, client1Id);
+        cinema.reserveSeat(2, client2Id);
+        cinema.reserveSeat(2, client1Id);
+        assertEquals(3, cinema.getAvailableSeatsCount());
+        assertEquals(0.4, cinema.getOccupancyRatio(), 1e-9);
+        cinema.cancelReservation(2, client1Id);
+        cinema.cancelReservation(2, client2Id);
+        assertEquals(1, cinema.getReservedSeatsCount());
+        assertEquals(4, cinema.getAvailableSeatsCount());
+    }
+
+    /**
+     * Verifies that a cinema built on pre-populated storage starts with the right count.
+     */
+    @Test
+    void givenPopulatedSeatStore_whenCinemaCreated_thenCountIncludesExistingReservations() {
+        MapSeatStore store = new MapSeatStore(5);
+        store.reserve(3, client1Id);
+        assertEquals(1, new Cinema(store).getReservedSeatsCount());
+        assertEquals(0.0, new Cinema(new MapSeatStore(0)).getOccupancyRatio());
+    }
+
+    /**
+     * Verifies that the seats of a client are listed and cancelled through the client index.
+     */
+    @Test
+    void givenClientReservations_whenListedAndCancelledAll_thenOnlyTheirSeatsChange() {
+        cinema.reserveSeat(4, client1Id);
+        cinema.reserveSeats(new int[]{2, 1}, client1Id);
+        cinema.reserveSeat(3, client2Id);
+        cinema.cancelReservation(2, client1Id);
+        assertArrayEquals(new int[]{1, 4}, cinema.getSeatsFor(client1Id));
+        assertArrayEquals(new int[]{3}, cinema.getSeatsFor(client2Id));
+        assertArrayEquals(new int[0], cinema.getSeatsFor("nobody"));
+
+        assertArrayEquals(new int[]{1, 4}, cinema.cancelAllFor(client1Id));
+        assertArrayEquals(new int[0], cinema.getSeatsFor(client1Id));
+        assertArrayEquals(new int[0], cinema.cancelAllFor(client1Id));
+        assertFalse(cinema.cancelReservation(1, client1Id));
+        assertFalse(cinema.cancelSeats(new int[]{4}, client1Id));
+        assertEquals(1, cinema.getReservedSeatsCount());
+        assertTrue(cinema.isSeatAvailable(4));
+        assertEquals(Optional.of(new SeatBlock(1, 1, 2)), cinema.findContiguousBlock(2, SeatPreference.FRONT));
+    }
+
+    /**
+     * Verifies that the client index covers reservations already held by the storage.
+     */
+    @Test
+    void givenPopulatedSeatStore_whenCinemaCreated_thenClientIndexIncludesExistingReservations() {
+        MapSeatStore store = new MapSeatStore(5);
+        for (int seat = 1; seat <= 5; seat++) {
+            store.reserve(seat, seat % 2 == 0 ? client2Id : client1Id);
+        }
+        Cinema restored = new Cinema(store);
+        assertArrayEquals(new int[]{2, 4}, restored.getSeatsFor(client2Id));
+        assertArrayEquals(new int[]{1, 3, 5}, restored.cancelAllFor(client1Id));
+        assertEquals(2, restored.getReservedSeatsCount());
+        assertEquals(2, store.countReserved());
+    }
+
+    /**
+     * Verifies that a group of free seats is reserved as a whole.
+     */
+    @Test
+    void givenFreeSeats_whenGroupReserved_thenAllBelongToClient() {
+        assertTrue(cinema.reserveSeats(new int[]{3, 1, 2, 3}, client1Id));
+        assertEquals(3, cinema.getReservedSeatsCount());
+        assertFalse(cinema.reserveSeat(2, client2Id));
+        assertTrue(cinema.cancelReservation(1, client1Id));
+    }
+
+    /**
+     * Verifies that a group containing a taken seat leaves every other seat of the group free.
+     */
+    @Test
+    void givenOneTakenSeat_whenGroupReserved_thenNothingChanges() {
+        cinema.reserveSeat(4, client2Id);
+        assertFalse(cinema.reserveSeats(new int[]{2, 3, 4, 5}, client1Id));
+        assertTrue(cinema.isSeatAvailable(2));
+        assertTrue(cinema.isSeatAvailable(3));
+        assertTrue(cinema.isSeatAvailable(5));
+        assertEquals(1, cinema.getReservedSeatsCount());
+    }
+
+    /**
+     * Verifies that a group is only cancelled when the client holds every seat of it.
+     */
+    @Test
+    void givenGroupReservation_whenCancelledAsGroup_thenOnlyOwnerSucceeds() {
+        cinema.reserveSeats(new int[]{1, 2}, client1Id);
+        cinema.reserveSeat(3, client2Id);
+        assertFalse(cinema.cancelSeats(new int[]{1, 2, 3}, client1Id));
+        assertFalse(cinema.cancelSeats(new int[]{1, 2}, client2Id));
+        assertEquals(3, cinema.getReservedSeatsCount());
+        assertTrue(cinema.cancelSeats(new int[]{2, 1}, client1Id));
+        assertEquals(1, cinema.getReservedSeatsCount());
+        assertTrue(cinema.isSeatAvailable(1));
+    }
+
+    /**
+     * Verifies that an invalid seat in a group fails before any seat is reserved.
+     */
+    @Test
+    void givenInvalidSeatInGroup_whenReserving_thenThrowsWithoutSideEffects() {
+        IllegalSeatReservedException exception = assertThrows(IllegalSeatReservedException.class, () ->
+            cinema.reserveSeats(new int[]{1, 2, 6}, client1Id));
+        assertEquals("Seat number 6 is invalid.", exception.getMessage());
+        assertEquals(0, cinema.getReservedSeatsCount());
+        assertThrows(IllegalSeatReservedException.class, () -> cinema.cancelSeats(new int[]{0}, client1Id));
+    }
+
+    /**
+     * Verifies that a storage whose size differs from the layout is rejected.
+     */
+    @Test
+    void givenMismatchedLayoutAndStorage_whenCreating_thenThrows() {
+        assertThrows(IllegalArgumentException.class, () -> new Cinema(HallLayout.of(2, 3), new MapSeatStore(5)));
+    }
+
+    /**
+     * Verifies that the best-available search skips taken seats and follows reservations.
+     */
+    @Test
+    void givenRowLayout_whenSearchingContiguousBlock_thenTakenSeatsAreSkipped() {
+        Cinema hall = new Cinema(HallLayout.of(3, 6));
+        assertEquals(3, hall.getLayout().rows());
+        hall.reserveSeat(3, client1Id);
+        assertEquals(Optional.of(new SeatBlock(1, 4, 3)), hall.findContiguousBlock(3, SeatPreference.FRONT));
+        hall.cancelReservation(3, client1Id);
+        assertEquals(Optional.of(new SeatBlock(1, 1, 3)), hall.findContiguousBlock(3, SeatPreference.FRONT));
+        assertEquals(Optional.empty(), hall.findContiguousBlock(7, SeatPreference.FRONT));
+        assertThrows(IllegalArgumentException.class, () -> hall.findContiguousBlock(0, SeatPreference.FRONT));
+    }
+
+    /**
+     * Verifies that best-available blocks are reserved until the hall has no block left.
+     */
+    @Test
+    void givenRowLayout_whenReservingContiguousBlocks_thenBlocksAreReservedUntilNoneFits() {
+        Cinema hall = new Cinema(HallLayout.of(2, 4));
+        Optional<SeatBlock> first = hall.reserveContiguousBlock(3, SeatPreference.CENTER, client1Id);
+        assertEquals(Optional.of(new SeatBlock(1, 1, 3)), first);
+        assertEquals(3, hall.getReservedSeatsCount());
+        assertEquals(Optional.of(new SeatBlock(2, 5, 3)),
+            hall.reserveContiguousBlock(3, SeatPreference.CENTER, client2Id));
+        assertEquals(Optional.empty(), hall.reserveContiguousBlock(2, SeatPreference.CENTER, client2Id));
+        assertTrue(hall.cancelSeats(first.get().seats(), client1Id));
+        assertEquals(Optional.of(new SeatBlock(1, 2, 2)), hall.findContiguousBlock(2, SeatPreference.CENTER));
+    }
+
+    /**
+     * Verifies that seats already reserved in the storage are excluded from block searches.
+     */
+    @Test
+    void givenPopulatedStorage_whenCinemaCreated_thenIndexSkipsReservedSeats() {
+        MapSeatStore store = new MapSeatStore(4);
+        store.reserve(1, client1Id);
+        Cinema hall = new Cinema(HallLayout.of(1, 4), store);
+        assertEquals(Optional.of(new SeatBlock(1, 2, 3)), hall.findContiguousBlock(3, SeatPreference.FRONT));
+    }
+
+    /**
+     * Verifies that per-category counts follow reservations and cancellations, including seats that were
+     * already reserved in the storage.
+     */
+    @Test
+    void givenSeatCategories_whenSeatsChange_thenCategoryCountsFollow() {
+        MapSeatStore store = new MapSeatStore(12);
+        store.reserve(12, client1Id);
+        HallLayout layout = HallLayout.of(3, 4).withRowCategory(SeatCategory.VIP, 3)
+            .withCategory(SeatCategory.ACCESSIBLE, 1, 1);
+        Cinema hall = new Cinema(layout, store);
+        assertEquals(1, hall.getReservedSeatsCount(SeatCategory.VIP));
+
+        hall.reserveSeat(1, client1Id);
+        hall.reserveSeats(new int[]{2, 9, 10}, client2Id);
+        hall.cancelReservation(12, client1Id);
+
+        assertEquals(4, hall.getSeatsCount(SeatCategory.VIP));
+        assertEquals(2, hall.getReservedSeatsCount(SeatCategory.VIP));
+        assertEquals(2, hall.getAvailableSeatsCount(SeatCategory.VIP));
+        assertEquals(1, hall.getReservedSeatsCount(SeatCategory.STANDARD));
+        assertEquals(6, hall.getAvailableSeatsCount(SeatCategory.STANDARD));
+        assertEquals(1, hall.getReservedSeatsCount(SeatCategory.ACCESSIBLE));
+
+        hall.cancelAllFor(client2Id);
+        assertEquals(0, hall.getReservedSeatsCount(SeatCategory.VIP));
+        assertEquals(0, hall.getReservedSeatsCount(SeatCategory.STANDARD));
+        assertEquals(hall.getReservedSeatsCount(), hall.getReservedSeatsCount(SeatCategory.ACCESSIBLE));
+    }
+
+    /**
+     * Verifies that category-filtered block searches only return blocks whose seats are all of the category.
+     */
+    @Test
+    void givenSeatCategories_whenSearchingBlocksOfCategory_thenOtherCategoriesAreSkipped() {
+        HallLayout layout = HallLayout.of(3, 6)
+            .withRowCategory(SeatCategory.VIP, 2)
+            .withCategory(SeatCategory.STANDARD, 7, 8)
+            .withCategory(SeatCategory.ACCESSIBLE, 13, 14);
+        Cinema hall = new Cinema(layout);
+
+        assertEquals(Optional.of(new SeatBlock(2, 9, 4)),
+            hall.findContiguousBlock(4, SeatPreference.FRONT, SeatCategory.VIP));
+        assertEquals(Optional.empty(), hall.findContiguousBlock(5, SeatPreference.FRONT, SeatCategory.VIP));
+        assertEquals(Optional.of(new SeatBlock(3, 15, 4)),
+            hall.findContiguousBlock(4, SeatPreference.BACK, SeatCategory.STANDARD));
+        assertEquals(Optional.of(new SeatBlock(1, 1, 6)),
+            hall.findContiguousBlock(6, SeatPreference.FRONT, SeatCategory.STANDARD));
+        assertEquals(Optional.of(new SeatBlock(1, 1, 6)), hall.findContiguousBlock(6, SeatPreference.FRONT, null));
+
+        assertEquals(Optional.of(new SeatBlock(3, 13, 2)),
+            hall.reserveContiguousBlock(2, SeatPreference.CENTER, SeatCategory.ACCESSIBLE, client1Id));
+        assertEquals(Optional.empty(),
+            hall.reserveContiguousBlock(1, SeatPreference.CENTER, SeatCategory.ACCESSIBLE, client2Id));
+        assertEquals(2, hall.getReservedSeatsCount(SeatCategory.ACCESSIBLE));
+    }
+
+    /**
+     * Verifies that listeners receive every successful transition with the seat's new version.
+     */
+    @Test
+    void givenListener_whenSeatsChange_thenSuccessfulTransitionsAreReported() {
+        List<String> transitions = new ArrayList<>();
+        SeatListener listener = (transition, seatNumber, clientId, version) ->
+            transitions.add(transition + " " + seatNumber + " " + clientId + " " + version);
+        cinema.addListener(listener);
+        cinema.reserveSeat(1, client1Id);
+        cinema.reserveSeat(1, client2Id);
+        cinema.cancelReservation(1, client2Id);
+        cinema.cancelReservation(1, client1Id);
+        cinema.reserveSeats(new int[]{3, 2}, client2Id);
+        cinema.cancelSeats(new int[]{2, 3}, client1Id);
+        cinema.cancelSeats(new int[]{2, 3}, client2Id);
+        assertTrue(cinema.removeListener(listener));
+        assertFalse(cinema.removeListener(listener));
+        cinema.reserveSeat(1, client1Id);
+        assertEquals(List.of(
+            "RESERVED 1 TEST_CLIENT_1 1", "CANCELLED 1 TEST_CLIENT_1 2",
+            "RESERVED 2 TEST_CLIENT_2 1", "RESERVED 3 TEST_CLIENT_2 1",
+            "CANCELLED 2 TEST_CLIENT_2 2", "CANCELLED 3 TEST_CLIENT_2 2"), transitions);
+    }
+
+    /**
+     * Verifies that replicated states apply only when newer, move the seat between holders and keep the counts.
+     */
+    @Test
+    void givenReplicatedStates_whenApplied_thenOnlyNewerVersionsChangeSeats() {
+        List<String> transitions = new ArrayList<>();
+        cinema.addListener((transition, seatNumber, clientId, version) ->
+            transitions.add(transition + " " + seatNumber + " " + clientId + " " + version));
+
+        assertTrue(cinema.applyReplicated(4, client1Id, 1));
+        assertFalse(cinema.applyReplicated(4, client1Id, 1));
+        assertTrue(cinema.applyReplicated(4, client2Id, 5));
+        assertFalse(cinema.applyReplicated(4, null, 2));
+        assertFalse(cinema.isSeatAvailable(4));
+        assertArrayEquals(new int[0], cinema.getSeatsFor(client1Id));
+        assertArrayEquals(new int[]{4}, cinema.getSeatsFor(client2Id));
+        assertEquals(1, cinema.getReservedSeatsCount());
+
+        assertTrue(cinema.applyReplicated(4, null, 6));
+        assertTrue(cinema.isSeatAvailable(4));
+        assertEquals(0, cinema.getReservedSeatsCount());
+        assertEquals(List.of(
+            "RESERVED 4 TEST_CLIENT_1 1", "CANCELLED 4 TEST_CLIENT_1 5", "RESERVED 4 TEST_CLIENT_2 5",
+            "CANCELLED 4 TEST_CLIENT_2 6"), transitions);
+        assertThrows(IllegalSeatReservedException.class, () -> cinema.applyReplicated(0, client1Id, 1));
+    }
+
+    /**
+     * Verifies that cancelling a seat hands it straight to the clients waiting for it, in the order they started
+     * waiting, skipping clients that stopped waiting.
+     */
+    @Test
+    void givenClientsWaitingForSeat_whenCancelled_thenSeatIsHandedOverInArrivalOrder() {
+        List<String> transitions = new ArrayList<>();
+        cinema.reserveSeat(5, client1Id);
+        CompletableFuture<Integer> first = cinema.waitForSeat(5, "first");
+        CompletableFuture<Integer> second = cinema.waitForSeat(5, "second");
+        CompletableFuture<Integer> third = cinema.waitForSeat(5, "third");
+        assertFalse(first.isDone());
+        assertEquals(3, cinema.getWaitingCount());
+        assertEquals(5, cinema.waitForSeat(5, client1Id).join());
+        cinema.addListener((transition, seatNumber, clientId, version) ->
+            transitions.add(transition + " " + seatNumber + " " + clientId + " " + version));
+
+        assertTrue(cinema.cancelReservation(5, client1Id));
+        assertEquals(5, first.join());
+        assertFalse(second.isDone());
+        assertArrayEquals(new int[]{5}, cinema.getSeatsFor("first"));
+        assertEquals(1, cinema.getReservedSeatsCount());
+        assertFalse(cinema.reserveSeat(5, client2Id));
+
+        second.cancel(false);
+        assertEquals(1, cinema.getWaitingCount());
+        assertTrue(cinema.expireReservation(5, "first"));
+        assertEquals(5, third.join());
+        assertTrue(cinema.cancelReservation(5, "third"));
+        assertTrue(cinema.isSeatAvailable(5));
+        assertEquals(0, cinema.getWaitingCount());
+        assertEquals(List.of(
+            "CANCELLED 5 TEST_CLIENT_1 2", "RESERVED 5 first 3", "EXPIRED 5 first 4", "RESERVED 5 third 5",
+            "CANCELLED 5 third 6"), transitions);
+        assertEquals(5, cinema.waitForSeat(5, client2Id).join());
+    }
+
+    /**
+     * Verifies that clients waiting for any seat of a sold-out hall get cancelled seats after the clients
+     * waiting for those particular seats, also when seats are cancelled as a group.
+     */
+    @Test
+    void givenSoldOutHall_whenSeatsAreCancelled_thenClientsWaitingForAnySeatAreServed() {
+        Cinema hall = new Cinema(4);
+        assertEquals(2, hall.waitForAnySeat(client1Id).join());
+        hall.reserveSeats(new int[]{1, 3, 4}, client2Id);
+        CompletableFuture<Integer> anyFirst = hall.waitForAnySeat("any-1");
+        CompletableFuture<Integer> seatThree = hall.waitForSeat(3, "three");
+        CompletableFuture<Integer> anySecond = hall.waitForAnySeat("any-2");
+        CompletableFuture<Integer> anyThird = hall.waitForAnySeat("any-3");
+
+        hall.cancelReservation(3, client2Id);
+        assertEquals(3, seatThree.join());
+        assertFalse(anyFirst.isDone());
+        hall.cancelReservation(2, client1Id);
+        assertEquals(2, anyFirst.join());
+
+        hall.cancelAllFor(client2Id);
+        assertEquals(1, anySecond.join());
+        assertEquals(4, anyThird.join());
+        assertEquals(0, hall.getWaitingCount());
+        assertEquals(4, hall.getReservedSeatsCount());
+        assertThrows(IllegalSeatReservedException.class, () -> hall.waitForSeat(5, client1Id));
+    }
+
+    /**
+     * Verifies that a bulk import reserves the pre-sold seats of every chunk of a large hall for their clients,
+     * skips seats that are already taken and reports every reservation.
+     */
+    @Test
+    void givenPreSoldSeats_whenImported_thenFreeSeatsAreReservedAndTakenOnesSkipped() {
+        Cinema hall = new Cinema(10_000);
+        hall.reserveSeat(5, client2Id);
+        List<Integer> reported = new ArrayList<>();
+        hall.addListener((transition, seatNumber, clientId, version) -> {
+            synchronized (reported) {
+                reported.add(seatNumber);
+            }
+        });
+
+        long imported = hall.importReservations(seat -> seat % 2 == 1 ? "block-" + (seat - 1) / 10 : null);
+
+        assertEquals(4_999, imported);
+        assertEquals(5_000, hall.getReservedSeatsCount());
+        assertEquals(4_999, reported.size());
+        assertArrayEquals(new int[]{1, 3, 7, 9}, hall.getSeatsFor("block-0"));
+        assertArrayEquals(new int[]{9_991, 9_993, 9_995, 9_997, 9_999}, hall.getSeatsFor("block-999"));
+        assertEquals(Optional.of(new SeatBlock(1, 2, 1)), hall.findContiguousBlock(1, SeatPreference.FRONT));
+        assertEquals(0, hall.importReservations(seat -> seat % 2 == 1 ? client1Id : null));
+
+        assertEquals(1, hall.importReservations(Map.of(2, client1Id, 3, client1Id)));
+        assertThrows(IllegalSeatReservedException.class, () -> hall.importReservations(Map.of(4, client1Id,
+            10_001, client1Id)));
+        assertTrue(hall.isSeatAvailable(4));
+    }
+
+    /**
+     * Verifies that bulk releases free the held seats of a range or those matching a predicate, whoever holds
+     * them, and hand released seats to waiting clients.
+     */
+    @Test
+    void givenReservations_whenReleasedInBulk_thenMatchingSeatsAreFreed() {
+        Cinema hall = new Cinema(HallLayout.of(3, 4));
+        hall.reserveSeats(new int[]{1, 2, 5, 6}, client1Id);
+        hall.reserveSeats(new int[]{3, 7, 9, 10}, client2Id);
+        CompletableFuture<Integer> waiting = hall.waitForSeat(10, "waiter");
+
+        assertEquals(3, hall.releaseSeats(5, 8));
+        assertArrayEquals(new int[]{1, 2}, hall.getSeatsFor(client1Id));
+        assertArrayEquals(new int[]{3, 9, 10}, hall.getSeatsFor(client2Id));
+        assertEquals(0, hall.releaseSeats(5, 8));
+
+        assertEquals(2, hall.releaseSeatsIf((seatNumber, clientId) -> clientId.equals(client2Id) && seatNumber > 3));
+        assertEquals(10, waiting.join());
+        assertArrayEquals(new int[]{3}, hall.getSeatsFor(client2Id));
+        assertEquals(4, hall.getReservedSeatsCount());
+
+        assertThrows(IllegalSeatReservedException.class, () -> hall.releaseSeats(0, 4));
+        assertThrows(IllegalSeatReservedException.class, () -> hall.releaseSeats(1, 13));
+        assertThrows(IllegalArgumentException.class, () -> hall.releaseSeats(4, 1));
+    }
+
+    /**
+     * Verifies that an occupancy export reports every holder and counts reserved seats per row and category.
+     */
+    @Test
+    void givenReservations_whenOccupancyExported_thenHoldersAndCountsMatch() {
+        Cinema hall = new Cinema(HallLayout.of(3, 4).withRowCategory(SeatCategory.VIP, 2));
+        hall.reserveSeats(new int[]{1, 5, 6, 12}, client1Id);
+        hall.reserveSeat(8, client2Id);
+
+        OccupancyReport report = hall.exportOccupancy();
+
+        assertEquals(hall.getLayout(), report.layout());
+        assertEquals(client1Id, report.holder(6));
+        assertEquals(client2Id, report.holder(8));
+        assertNull(report.holder(2));
+        assertEquals(5, report.getReservedSeatsCount());
+        assertEquals(3, report.getReservedSeatsCount(SeatCategory.VIP));
+        assertEquals(2, report.getReservedSeatsCount(SeatCategory.STANDARD));
+        assertEquals(List.of(1, 3, 1), IntStream.rangeClosed(1, 3).map(report::getReservedSeatsCountInRow).boxed()
+            .toList());
+        assertEquals(5 / 12.0, report.getOccupancyRatio());
+        assertThrows(IllegalSeatReservedException.class, () -> report.holder(13));
+        assertThrows(IllegalArgumentException.class, () -> report.getReservedSeatsCountInRow(4));
+    }
 }
@@ -2,6 +2,9 @@ package rk.powermilk.cinema.model;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import rk.powermilk.cinema.event.Outcome;
+import rk.powermilk.cinema.event.OutcomeChannel;
+import rk.powermilk.cinema.event.OutcomeOptions;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -37,4 +40,31 @@ class ClientTaskTest {
         // Even if seat number is invalid, run() should not throw. It should be internally handled.
         assertDoesNotThrow(task::run);
     }
+
+    @Test
+    void should_cancel_own_reservation_when_seat_is_taken_by_same_client() {
+        new ClientTask(cinema, 3, "client-1").run();
+        new ClientTask(cinema, 3, "client-2").run();
+        assertFalse(cinema.isSeatAvailable(3));
+
+        new ClientTask(cinema, 3, "client-1").run();
+        assertTrue(cinema.isSeatAvailable(3));
+    }
+
+    @Test
+    void should_publish_outcome_of_every_run() {
+        try (OutcomeChannel outcomes = new OutcomeChannel((timestamp, outcome, seat, client) -> {
+        }, OutcomeOptions.defaults())) {
+            new ClientTask(cinema, 4, "client-1", outcomes).run();
+            new ClientTask(cinema, 4, "client-2", outcomes).run();
+            new ClientTask(cinema, 4, "client-1", outcomes).run();
+            new ClientTask(cinema, 11, "client-1", outcomes).run();
+
+            assertEquals(1, outcomes.count(Outcome.RESERVED));
+            assertEquals(1, outcomes.count(Outcome.CANCEL_FAILED));
+            assertEquals(1, outcomes.count(Outcome.CANCELLED));
+            assertEquals(1, outcomes.count(Outcome.INVALID_SEAT));
+            assertEquals(0, outcomes.count(Outcome.RESERVE_FAILED));
+        }
+    }
 }
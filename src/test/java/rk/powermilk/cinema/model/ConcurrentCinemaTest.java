@@ -3,14 +3,21 @@ package rk.powermilk.cinema.model;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.Timeout;
+import rk.powermilk.cinema.store.ArraySeatStore;
+import rk.powermilk.cinema.store.SeatStore;
+import rk.powermilk.cinema.store.SeatVisitor;
 
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.stream.IntStream;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -188,4 +195,487 @@ class ConcurrentCinemaTest {
         long canceled = results.stream().filter(Boolean::booleanValue).count();
         assertEquals(100, canceled);
     }
+
+    @Test
+    /**
+     * Verifies that the incrementally maintained reservation count matches a full scan of the seats
+     * after many clients concurrently reserve and cancel a small set of seats.
+     */
+    void givenConcurrentChurn_whenCountingReservations_thenCounterMatchesScan() throws InterruptedException {
+        ArraySeatStore store = new ArraySeatStore(20);
+        Cinema churned = new Cinema(store);
+        CountDownLatch start = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(threadCount);
+        ExecutorService executor = Executors.newFixedThreadPool(threadCount);
+
+        for (int i = 0; i < threadCount; i++) {
+            String clientId = "client-" + (i % 10);
+            executor.submit(() -> {
+                try {
+                    start.await();
+                    ThreadLocalRandom random = ThreadLocalRandom.current();
+                    for (int op = 0; op < 1_000; op++) {
+                        int seat = random.nextInt(20) + 1;
+                        if (!churned.reserveSeat(seat, clientId)) {
+                            churned.cancelReservation(seat, clientId);
+                        }
+                    }
+                } catch (InterruptedException ignored) {
+                } finally {
+                    done.countDown();
+                }
+            });
+        }
+
+        start.countDown();
+        done.await();
+        executor.shutdown();
+
+        assertEquals(store.countReserved(), churned.getReservedSeatsCount());
+        assertEquals(20 - store.countReserved(), churned.getAvailableSeatsCount());
+    }
+
+    @Test
+    /**
+     * Verifies that the per-category reservation counts match a full scan of the seats after many clients
+     * concurrently reserve and cancel seats of a hall with several categories.
+     */
+    void givenConcurrentChurnInCategories_whenCountingReservations_thenCountersMatchScan()
+        throws InterruptedException {
+        ArraySeatStore store = new ArraySeatStore(20);
+        HallLayout layout = HallLayout.singleRow(20).withCategory(SeatCategory.VIP, 1, 5)
+            .withCategory(SeatCategory.ACCESSIBLE, 18, 20);
+        Cinema churned = new Cinema(layout, store);
+        CountDownLatch start = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(threadCount);
+        ExecutorService executor = Executors.newFixedThreadPool(threadCount);
+
+        for (int i = 0; i < threadCount; i++) {
+            String clientId = "client-" + (i % 10);
+            executor.submit(() -> {
+                try {
+                    start.await();
+                    ThreadLocalRandom random = ThreadLocalRandom.current();
+                    for (int op = 0; op < 1_000; op++) {
+                        int seat = random.nextInt(20) + 1;
+                        if (!churned.reserveSeat(seat, clientId)) {
+                            churned.cancelReservation(seat, clientId);
+                        }
+                    }
+                } catch (InterruptedException ignored) {
+                } finally {
+                    done.countDown();
+                }
+            });
+        }
+
+        start.countDown();
+        done.await();
+        executor.shutdown();
+
+        assertEquals(store.countReserved(), churned.getReservedSeatsCount());
+        for (SeatCategory category : SeatCategory.values()) {
+            long reserved = IntStream.rangeClosed(1, 20)
+                .filter(seat -> layout.categoryOf(seat) == category && !store.isAvailable(seat))
+                .count();
+            assertEquals(reserved, churned.getReservedSeatsCount(category), category.name());
+        }
+    }
+
+    @Test
+    /**
+     * Verifies that the client index matches the storage after threads sharing client IDs race reservations,
+     * cancellations and cancel-all calls of the same clients.
+     */
+    void givenConcurrentChurnAndCancelAll_whenSettled_thenClientIndexMatchesStorage() throws InterruptedException {
+        ArraySeatStore store = new ArraySeatStore(64);
+        Cinema churned = new Cinema(store);
+        CountDownLatch start = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(threadCount);
+        ExecutorService executor = Executors.newFixedThreadPool(threadCount);
+
+        for (int i = 0; i < threadCount; i++) {
+            String clientId = "client-" + (i % 8);
+            executor.submit(() -> {
+                try {
+                    start.await();
+                    ThreadLocalRandom random = ThreadLocalRandom.current();
+                    for (int op = 0; op < 1_000; op++) {
+                        int seat = random.nextInt(64) + 1;
+                        int choice = random.nextInt(100);
+                        if (choice == 0) {
+                            churned.cancelAllFor(clientId);
+                        } else if (choice < 10) {
+                            churned.reserveSeats(new int[]{seat, seat % 64 + 1}, clientId);
+                        } else if (!churned.reserveSeat(seat, clientId)) {
+                            churned.cancelReservation(seat, clientId);
+                        }
+                    }
+                } catch (InterruptedException ignored) {
+                } finally {
+                    done.countDown();
+                }
+            });
+        }
+
+        start.countDown();
+        done.await();
+        executor.shutdown();
+
+        List<List<Integer>> scanned = new ArrayList<>();
+        IntStream.range(0, 8).forEach(client -> scanned.add(new ArrayList<>()));
+        store.forEach((seatNumber, clientId, version) -> {
+            if (clientId != null) {
+                scanned.get(clientId.charAt(clientId.length() - 1) - '0').add(seatNumber);
+            }
+        });
+        long indexed = 0;
+        for (int client = 0; client < 8; client++) {
+            int[] seats = churned.getSeatsFor("client-" + client);
+            assertEquals(scanned.get(client), IntStream.of(seats).boxed().toList());
+            indexed += seats.length;
+        }
+        assertEquals(store.countReserved(), indexed);
+        assertEquals(store.countReserved(), churned.getReservedSeatsCount());
+    }
+
+    @Test
+    /**
+     * Verifies that when clients concurrently reserve overlapping groups of seats,
+     * every seat ends up either free or part of a group that was reserved as a whole.
+     */
+    void givenOverlappingGroups_whenReservedConcurrently_thenGroupsAreAllOrNothing() throws InterruptedException {
+        ArraySeatStore store = new ArraySeatStore(20);
+        Cinema groups = new Cinema(store);
+        List<int[]> reserved = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch start = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(threadCount);
+        ExecutorService executor = Executors.newFixedThreadPool(threadCount);
+
+        for (int i = 0; i < threadCount; i++) {
+            int first = i % 17 + 1;
+            int[] group = {first, first + 1, first + 2, first + 3};
+            String clientId = "client-" + i;
+            executor.submit(() -> {
+                try {
+                    start.await();
+                    if (groups.reserveSeats(group, clientId)) {
+                        reserved.add(group);
+                    }
+                } catch (InterruptedException ignored) {
+                } finally {
+                    done.countDown();
+                }
+            });
+        }
+
+        start.countDown();
+        done.await();
+        executor.shutdown();
+
+        assertFalse(reserved.isEmpty());
+        reserved.forEach(group -> IntStream.of(group)
+            .forEach(seat -> assertEquals(store.holder(group[0]), store.holder(seat))));
+        assertEquals(reserved.size() * 4L, store.countReserved());
+        assertEquals(store.countReserved(), groups.getReservedSeatsCount());
+    }
+
+    @Test
+    /**
+     * Verifies that the free-seat bitmap stays consistent with the seat storage when many clients
+     * concurrently book best-available blocks and cancel them again.
+     */
+    void givenConcurrentBlockBookings_whenHallSettles_thenBlockSearchMatchesStorage() throws InterruptedException {
+        ArraySeatStore store = new ArraySeatStore(200);
+        Cinema hall = new Cinema(HallLayout.of(10, 20), store);
+        CountDownLatch start = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(threadCount);
+        ExecutorService executor = Executors.newFixedThreadPool(threadCount);
+
+        for (int i = 0; i < threadCount; i++) {
+            String clientId = "client-" + i;
+            SeatPreference preference = SeatPreference.values()[i % SeatPreference.values().length];
+            executor.submit(() -> {
+                try {
+                    start.await();
+                    for (int op = 0; op < 50; op++) {
+                        Optional<SeatBlock> block = hall.reserveContiguousBlock(op % 4 + 1, preference, clientId);
+                        if (block.isPresent() && op % 2 == 0) {
+                            hall.cancelSeats(block.get().seats(), clientId);
+                        }
+                    }
+                } catch (InterruptedException ignored) {
+                } finally {
+                    done.countDown();
+                }
+            });
+        }
+
+        start.countDown();
+        done.await();
+        executor.shutdown();
+
+        long free = 200 - store.countReserved();
+        assertEquals(free, hall.getAvailableSeatsCount());
+        for (long i = 0; i < free; i++) {
+            Optional<SeatBlock> seat = hall.findContiguousBlock(1, SeatPreference.FRONT);
+            assertTrue(seat.isPresent());
+            assertTrue(hall.reserveSeat(seat.get().firstSeat(), "sweeper"));
+        }
+        assertEquals(Optional.empty(), hall.findContiguousBlock(1, SeatPreference.FRONT));
+    }
+
+    @Test
+    /**
+     * Verifies that a hot seat passed on through the waitlist by clients that cancel as soon as they get it
+     * reaches every waiting client exactly once, while other clients keep polling for it.
+     */
+    void givenClientsWaitingForHotSeat_whenHoldersCancel_thenEveryWaiterGetsItOnce() throws InterruptedException {
+        int hotSeat = 7;
+        cinema.reserveSeat(hotSeat, "owner");
+        List<String> served = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch start = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(threadCount);
+        ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+        for (int i = 0; i < threadCount; i++) {
+            String clientId = "client-" + i;
+            executor.submit(() -> {
+                try {
+                    start.await();
+                    if (cinema.waitForSeat(hotSeat, clientId).join() == hotSeat) {
+                        served.add(clientId);
+                    }
+                    cinema.cancelReservation(hotSeat, clientId);
+                } catch (InterruptedException ignored) {
+                } finally {
+                    done.countDown();
+                }
+            });
+        }
+        Thread poller = Thread.ofPlatform().start(() -> {
+            while (done.getCount() > 0) {
+                if (cinema.reserveSeat(hotSeat, "poller")) {
+                    cinema.cancelReservation(hotSeat, "poller");
+                }
+            }
+        });
+
+        start.countDown();
+        Thread.sleep(50);
+        cinema.cancelReservation(hotSeat, "owner");
+        done.await();
+        poller.join();
+        executor.shutdown();
+
+        assertEquals(threadCount, served.size());
+        assertEquals(threadCount, served.stream().distinct().count());
+        assertEquals(0, cinema.getWaitingCount());
+        assertEquals(0, cinema.getReservedSeatsCount());
+    }
+
+    @Test
+    /**
+     * Verifies that bulk imports and releases racing single-seat traffic leave the counts, the client index and
+     * the free-seat bitmap in line with the storage.
+     */
+    void givenLiveTraffic_whenImportingAndReleasingInBulk_thenCinemaMatchesStorage() throws InterruptedException {
+        ArraySeatStore store = new ArraySeatStore(20_000);
+        Cinema hall = new Cinema(store);
+        CountDownLatch start = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(8);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+
+        for (int i = 0; i < 8; i++) {
+            String clientId = "live-" + i;
+            executor.submit(() -> {
+                try {
+                    start.await();
+                    ThreadLocalRandom random = ThreadLocalRandom.current();
+                    for (int op = 0; op < 2_000; op++) {
+                        int seat = random.nextInt(20_000) + 1;
+                        if (!hall.reserveSeat(seat, clientId)) {
+                            hall.cancelReservation(seat, clientId);
+                        }
+                    }
+                } catch (InterruptedException ignored) {
+                } finally {
+                    done.countDown();
+                }
+            });
+        }
+
+        start.countDown();
+        long imported = hall.importReservations(seat -> "block-" + seat / 8);
+        long released = hall.releaseSeatsIf((seatNumber, clientId) -> seatNumber % 3 == 0);
+        done.await();
+        executor.shutdown();
+
+        assertTrue(imported > 0);
+        assertTrue(released > 0);
+        long held = IntStream.rangeClosed(1, 20_000).filter(seat -> !store.isAvailable(seat)).count();
+        assertEquals(held, hall.getReservedSeatsCount());
+        assertEquals(held, hall.exportOccupancy().getReservedSeatsCount());
+        SeatMapView view = hall.getSeatMap();
+        assertEquals(Optional.empty(), IntStream.rangeClosed(1, 20_000)
+            .filter(seat -> store.isAvailable(seat) != view.isAvailable(seat)).boxed().findAny());
+        assertArrayEquals(IntStream.rangeClosed(40, 47).filter(seat -> "block-5".equals(store.holder(seat)))
+            .toArray(), hall.getSeatsFor("block-5"));
+    }
+
+    @Test
+    /**
+     * Verifies that a client whose group reservation has claimed a seat but then fails is not told it holds the
+     * seat when it starts waiting for it meanwhile, and that the seat goes to the client first in line.
+     */
+    void givenFailingGroupClaimingSeat_whenItsClientWaitsForSeat_thenClientIsQueued() throws InterruptedException {
+        ClaimingSeatStore store = new ClaimingSeatStore(4);
+        Cinema hall = new Cinema(store);
+        hall.reserveSeat(2, "holder");
+        Thread group = Thread.ofPlatform().start(() -> hall.reserveSeats(new int[]{1, 2}, "group"));
+        store.claimed.await();
+        CompletableFuture<Integer> first = hall.waitForSeat(1, "first");
+        AtomicReference<CompletableFuture<Integer>> own = new AtomicReference<>();
+        Thread waiter = Thread.ofPlatform().start(() -> own.set(hall.waitForSeat(1, "group")));
+        while (waiter.getState() != Thread.State.BLOCKED && waiter.isAlive()) {
+            Thread.onSpinWait();
+        }
+
+        store.release.countDown();
+        group.join();
+        waiter.join();
+
+        assertEquals(1, first.join());
+        assertFalse(own.get().isDone());
+        assertArrayEquals(new int[0], hall.getSeatsFor("group"));
+        assertEquals(1, hall.getWaitingCount());
+    }
+
+    @Test
+    /**
+     * Verifies that a hand-over whose listener blocks, like a journal waiting for the disk, does not hold up
+     * cancellations of other waited-for seats or clients starting to wait.
+     */
+    void givenSlowListenerDuringHandOver_whenOtherWaitedSeatsChange_thenTheyDoNotWait() throws Exception {
+        Cinema hall = new Cinema(4);
+        hall.reserveSeat(1, "holder-1");
+        hall.reserveSeat(2, "holder-2");
+        CompletableFuture<Integer> first = hall.waitForSeat(1, "waiter-1");
+        CompletableFuture<Integer> second = hall.waitForSeat(2, "waiter-2");
+        CountDownLatch publishing = new CountDownLatch(1);
+        CountDownLatch forced = new CountDownLatch(1);
+        hall.addListener((transition, seatNumber, clientId, version) -> {
+            if (transition == SeatTransition.RESERVED && "waiter-1".equals(clientId)) {
+                publishing.countDown();
+                try {
+                    forced.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        });
+        Thread slow = Thread.ofPlatform().start(() -> hall.cancelReservation(1, "holder-1"));
+        publishing.await();
+
+        assertTrue(CompletableFuture.supplyAsync(() -> hall.cancelReservation(2, "holder-2"))
+            .get(1, TimeUnit.SECONDS));
+        assertEquals(2, second.get(1, TimeUnit.SECONDS));
+        assertEquals(3, CompletableFuture.supplyAsync(() -> hall.waitForSeat(3, "waiter-3").join())
+            .get(1, TimeUnit.SECONDS));
+        assertFalse(first.isDone());
+
+        forced.countDown();
+        slow.join();
+        assertEquals(1, first.join());
+        assertArrayEquals(new int[]{1}, hall.getSeatsFor("waiter-1"));
+    }
+
+    /**
+     * Seat storage whose group reservations hold a claim on their first seat until released, the way a real
+     * store holds its claims while it checks the rest of the group: the seat cannot be reserved and reports no
+     * holder.
+     */
+    private static final class ClaimingSeatStore implements SeatStore {
+        private final CountDownLatch claimed = new CountDownLatch(1);
+        private final CountDownLatch release = new CountDownLatch(1);
+        private final ArraySeatStore seats;
+        private volatile int claimedSeat;
+
+        ClaimingSeatStore(int numberOfSeats) {
+            this.seats = new ArraySeatStore(numberOfSeats);
+        }
+
+        @Override
+        public long[] reserveAll(int[] seatNumbers, String clientId) {
+            claimedSeat = seatNumbers[0];
+            claimed.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            claimedSeat = 0;
+            return seats.reserveAll(seatNumbers, clientId);
+        }
+
+        @Override
+        public long reserve(int seatNumber, String clientId) {
+            return seatNumber == claimedSeat ? FAILED : seats.reserve(seatNumber, clientId);
+        }
+
+        @Override
+        public String holder(int seatNumber) {
+            return seatNumber == claimedSeat ? null : seats.holder(seatNumber);
+        }
+
+        @Override
+        public boolean isAvailable(int seatNumber) {
+            return seatNumber != claimedSeat && seats.isAvailable(seatNumber);
+        }
+
+        @Override
+        public int capacity() {
+            return seats.capacity();
+        }
+
+        @Override
+        public boolean contains(int seatNumber) {
+            return seats.contains(seatNumber);
+        }
+
+        @Override
+        public long cancel(int seatNumber, String clientId) {
+            return seats.cancel(seatNumber, clientId);
+        }
+
+        @Override
+        public long handOver(int seatNumber, String from, String to) {
+            return seats.handOver(seatNumber, from, to);
+        }
+
+        @Override
+        public long[] cancelAll(int[] seatNumbers, String clientId) {
+            return seats.cancelAll(seatNumbers, clientId);
+        }
+
+        @Override
+        public long version(int seatNumber) {
+            return seats.version(seatNumber);
+        }
+
+        @Override
+        public boolean restore(int seatNumber, String clientId, long version) {
+            return seats.restore(seatNumber, clientId, version);
+        }
+
+        @Override
+        public void forEach(int firstSeat, int lastSeat, SeatVisitor visitor) {
+            seats.forEach(firstSeat, lastSeat, visitor);
+        }
+
+        @Override
+        public long countReserved() {
+            return seats.countReserved();
+        }
+    }
 }
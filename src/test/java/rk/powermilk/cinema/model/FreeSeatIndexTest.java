@@ -0,0 +1,114 @@
+package rk.powermilk.cinema.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the {@link FreeSeatIndex} class.
+ */
+class FreeSeatIndexTest {
+
+    private static FreeSeatIndex indexWithTaken(HallLayout layout, int... takenSeats) {
+        FreeSeatIndex index = new FreeSeatIndex(layout);
+        IntStream.of(takenSeats).forEach(index::flip);
+        return index;
+    }
+
+    @Test
+    void givenNewIndex_whenChecked_thenAllSeatsAreFree() {
+        FreeSeatIndex index = new FreeSeatIndex(HallLayout.ofRows(3, 70, 64));
+        IntStream.rangeClosed(1, 137).forEach(seat -> assertTrue(index.isFree(seat)));
+    }
+
+    @Test
+    void givenFlippedSeat_whenFlippedAgain_thenSeatIsFreeAgain() {
+        FreeSeatIndex index = indexWithTaken(HallLayout.of(2, 5), 7);
+        assertFalse(index.isFree(7));
+        assertTrue(index.isFree(6));
+        index.flip(7);
+        assertTrue(index.isFree(7));
+    }
+
+    @Test
+    void givenFrontPreference_whenSearching_thenLeftmostBlockOfFrontRowWins() {
+        FreeSeatIndex index = indexWithTaken(HallLayout.of(3, 10), 3);
+        assertEquals(new SeatBlock(1, 4, 4), index.find(4, SeatPreference.FRONT));
+        assertEquals(new SeatBlock(1, 1, 2), index.find(2, SeatPreference.FRONT));
+    }
+
+    @Test
+    void givenBackPreference_whenSearching_thenLastRowWins() {
+        FreeSeatIndex index = indexWithTaken(HallLayout.of(3, 10), 21);
+        assertEquals(new SeatBlock(3, 22, 4), index.find(4, SeatPreference.BACK));
+    }
+
+    @Test
+    void givenCenterPreference_whenSearching_thenMiddleOfMiddleRowWins() {
+        FreeSeatIndex index = new FreeSeatIndex(HallLayout.of(5, 10));
+        assertEquals(new SeatBlock(3, 24, 4), index.find(4, SeatPreference.CENTER));
+    }
+
+    @Test
+    void givenTakenCenter_whenSearchingCenter_thenClosestRunToMiddleWins() {
+        FreeSeatIndex index = indexWithTaken(HallLayout.of(1, 10), 5, 6);
+        assertEquals(new SeatBlock(1, 3, 2), index.find(2, SeatPreference.CENTER));
+        index.flip(3);
+        assertEquals(new SeatBlock(1, 7, 2), index.find(2, SeatPreference.CENTER));
+        assertEquals(new SeatBlock(1, 7, 4), index.find(4, SeatPreference.CENTER));
+    }
+
+    @Test
+    void givenFullMiddleRow_whenSearchingCenter_thenNeighbouringRowWins() {
+        FreeSeatIndex index = indexWithTaken(HallLayout.of(4, 2), 3, 4);
+        assertEquals(new SeatBlock(3, 5, 2), index.find(2, SeatPreference.CENTER));
+    }
+
+    @Test
+    void givenLongRows_whenSearching_thenRunsSpanWords() {
+        HallLayout layout = HallLayout.singleRow(300);
+        FreeSeatIndex index = indexWithTaken(layout, IntStream.rangeClosed(1, 100).toArray());
+        index.flip(250);
+        assertEquals(new SeatBlock(1, 101, 149), index.find(149, SeatPreference.FRONT));
+        assertNull(index.find(150, SeatPreference.FRONT));
+        assertEquals(new SeatBlock(1, 126, 50), index.find(50, SeatPreference.CENTER));
+    }
+
+    @Test
+    void givenTooLargeBlock_whenSearching_thenNothingIsFound() {
+        FreeSeatIndex index = new FreeSeatIndex(HallLayout.of(2, 8));
+        assertNull(index.find(9, SeatPreference.FRONT));
+        assertNull(new FreeSeatIndex(HallLayout.singleRow(0)).find(1, SeatPreference.CENTER));
+    }
+
+    @Test
+    void givenLargeHall_whenCreated_thenChunksAreAllocatedOnFirstFlip() {
+        FreeSeatIndex index = new FreeSeatIndex(HallLayout.of(1_000, 10_000));
+        assertEquals(0, index.allocatedChunks());
+        assertTrue(index.isFree(10_000_000));
+        assertEquals(new SeatBlock(500, 4_990_001, 10_000), index.find(10_000, SeatPreference.CENTER));
+
+        index.flip(10_000_000);
+        assertEquals(1, index.allocatedChunks());
+        assertFalse(index.isFree(10_000_000));
+        assertTrue(index.isFree(9_999_999));
+        assertEquals(new SeatBlock(1_000, 9_990_001, 9_999), index.find(9_999, SeatPreference.BACK));
+    }
+
+    @Test
+    void givenCategoryAcrossChunks_whenSearching_thenMaskChunksMatchLayout() {
+        HallLayout layout = HallLayout.of(30, 150).withCategory(SeatCategory.VIP, 3_211, 3_231);
+        FreeSeatIndex index = new FreeSeatIndex(layout);
+        assertEquals(new SeatBlock(22, 3_211, 21), index.find(21, SeatPreference.FRONT, SeatCategory.VIP));
+        assertNull(index.find(22, SeatPreference.FRONT, SeatCategory.VIP));
+        assertEquals(0, index.allocatedChunks());
+
+        index.flip(3_215);
+        assertEquals(1, index.allocatedChunks());
+        assertEquals(new SeatBlock(22, 3_216, 15), index.find(15, SeatPreference.FRONT, SeatCategory.VIP));
+        assertEquals(new SeatBlock(1, 1, 150), index.find(150, SeatPreference.FRONT, SeatCategory.STANDARD));
+        assertEquals(new SeatBlock(30, 4_351, 150), index.find(150, SeatPreference.BACK, SeatCategory.STANDARD));
+    }
+}
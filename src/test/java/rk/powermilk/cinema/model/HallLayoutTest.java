@@ -0,0 +1,90 @@
+package rk.powermilk.cinema.model;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the {@link HallLayout} class.
+ */
+class HallLayoutTest {
+
+    @Test
+    void givenRectangularLayout_whenQueried_thenSeatsAreNumberedRowByRow() {
+        HallLayout layout = HallLayout.of(3, 10);
+        assertEquals(3, layout.rows());
+        assertEquals(30, layout.capacity());
+        assertEquals(10, layout.seatsInRow(2));
+        assertEquals(11, layout.firstSeatOfRow(2));
+        assertEquals(1, layout.rowOf(1));
+        assertEquals(1, layout.rowOf(10));
+        assertEquals(2, layout.rowOf(11));
+        assertEquals(3, layout.rowOf(30));
+    }
+
+    @Test
+    void givenRaggedLayout_whenQueried_thenRowsKeepTheirLengths() {
+        HallLayout layout = HallLayout.ofRows(4, 6, 8);
+        assertEquals(18, layout.capacity());
+        assertEquals(5, layout.firstSeatOfRow(2));
+        assertEquals(11, layout.firstSeatOfRow(3));
+        assertEquals(2, layout.rowOf(10));
+        assertEquals(3, layout.rowOf(11));
+    }
+
+    @Test
+    void givenSingleRow_whenQueried_thenAllSeatsShareOneRow() {
+        assertEquals(1, HallLayout.singleRow(100).rows());
+        assertEquals(100, HallLayout.singleRow(100).capacity());
+        assertEquals(0, HallLayout.singleRow(0).rows());
+        assertEquals(0, HallLayout.singleRow(0).capacity());
+    }
+
+    @Test
+    void givenNonPositiveSizes_whenCreating_thenThrows() {
+        assertThrows(IllegalArgumentException.class, () -> HallLayout.of(0, 10));
+        assertThrows(IllegalArgumentException.class, () -> HallLayout.of(2, 0));
+        assertThrows(IllegalArgumentException.class, () -> HallLayout.ofRows(5, -1));
+    }
+
+    @Test
+    void givenLayoutsWithSameRows_whenCompared_thenEqual() {
+        assertEquals(HallLayout.of(2, 5), HallLayout.ofRows(5, 5));
+        assertEquals(HallLayout.of(2, 5).hashCode(), HallLayout.ofRows(5, 5).hashCode());
+        assertNotEquals(HallLayout.of(2, 5), HallLayout.singleRow(10));
+        assertNotEquals(HallLayout.of(2, 5), "2x5");
+        assertEquals(HallLayout.of(2, 5).withRowCategory(SeatCategory.VIP, 2),
+            HallLayout.of(2, 5).withCategory(SeatCategory.VIP, 6, 7).withCategory(SeatCategory.VIP, 8, 10));
+        assertNotEquals(HallLayout.of(2, 5), HallLayout.of(2, 5).withRowCategory(SeatCategory.VIP, 1));
+    }
+
+    @Test
+    void givenCategoryRanges_whenQueried_thenSeatsAndCountsFollowLatestAssignment() {
+        HallLayout layout = HallLayout.of(3, 10)
+            .withRowCategory(SeatCategory.VIP, 3)
+            .withCategory(SeatCategory.ACCESSIBLE, 1, 2)
+            .withCategory(SeatCategory.ACCESSIBLE, 25, 30)
+            .withCategory(SeatCategory.STANDARD, 1, 1);
+
+        assertEquals(SeatCategory.STANDARD, layout.categoryOf(1));
+        assertEquals(SeatCategory.ACCESSIBLE, layout.categoryOf(2));
+        assertEquals(SeatCategory.STANDARD, layout.categoryOf(20));
+        assertEquals(SeatCategory.VIP, layout.categoryOf(21));
+        assertEquals(SeatCategory.ACCESSIBLE, layout.categoryOf(30));
+        assertEquals(19, layout.seatsIn(SeatCategory.STANDARD));
+        assertEquals(4, layout.seatsIn(SeatCategory.VIP));
+        assertEquals(7, layout.seatsIn(SeatCategory.ACCESSIBLE));
+        assertEquals(5, layout.categoryRuns());
+        assertEquals(30, HallLayout.of(3, 10).seatsIn(SeatCategory.STANDARD));
+        assertEquals(0, HallLayout.singleRow(0).seatsIn(SeatCategory.STANDARD));
+    }
+
+    @Test
+    void givenInvalidCategoryRange_whenAssigning_thenThrows() {
+        HallLayout layout = HallLayout.of(2, 5);
+        assertThrows(IllegalArgumentException.class, () -> layout.withCategory(SeatCategory.VIP, 0, 3));
+        assertThrows(IllegalArgumentException.class, () -> layout.withCategory(SeatCategory.VIP, 4, 3));
+        assertThrows(IllegalArgumentException.class, () -> layout.withCategory(SeatCategory.VIP, 9, 11));
+        assertThrows(IllegalArgumentException.class, () -> layout.withRowCategory(SeatCategory.VIP, 3));
+    }
+}
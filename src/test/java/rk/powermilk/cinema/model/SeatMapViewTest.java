@@ -0,0 +1,260 @@
+package rk.powermilk.cinema.model;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+import rk.powermilk.cinema.error.IllegalSeatReservedException;
+import rk.powermilk.cinema.store.ArraySeatStore;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for {@link SeatMapView} and the seat maps published by {@link Cinema#getSeatMap()}.
+ */
+@Timeout(value = 10, unit = TimeUnit.SECONDS)
+class SeatMapViewTest {
+    private final Cinema cinema = new Cinema(HallLayout.of(2, 5));
+
+    @Test
+    void givenTransitions_whenMapTaken_thenItShowsThemAndStaysUnchanged() {
+        cinema.reserveSeat(3, "client-1");
+        SeatMapView first = cinema.getSeatMap();
+        assertFalse(first.isAvailable(3));
+        assertTrue(first.isAvailable(4));
+        assertEquals(9, first.getAvailableSeatsCount());
+        assertEquals(1, first.getReservedSeatsCount());
+        assertEquals(10, first.capacity());
+        assertEquals(cinema.getLayout(), first.layout());
+        assertSame(first, cinema.getSeatMap());
+
+        cinema.reserveSeats(new int[]{7, 8}, "client-2");
+        cinema.cancelReservation(3, "client-1");
+        SeatMapView second = cinema.getSeatMap();
+        assertEquals(first.version() + 1, second.version());
+        assertTrue(second.isAvailable(3));
+        assertFalse(second.isAvailable(8));
+        assertEquals(8, second.getAvailableSeatsCount());
+        assertFalse(first.isAvailable(3));
+        assertTrue(first.isAvailable(8));
+
+        BitSet free = second.toBitSet();
+        assertEquals(8, free.cardinality());
+        assertFalse(free.get(6));
+        assertTrue(free.get(2));
+        assertThrows(IllegalSeatReservedException.class, () -> second.isAvailable(11));
+        assertThrows(IllegalSeatReservedException.class, () -> second.isAvailable(0));
+    }
+
+    @Test
+    void givenSeveralEpochs_whenAskedForChanges_thenOnlyChangedSeatsAreReturned() {
+        SeatMapView start = cinema.getSeatMap();
+        cinema.reserveSeat(5, "client-1");
+        cinema.reserveSeat(1, "client-1");
+        cinema.getSeatMap();
+        cinema.reserveSeat(2, "client-2");
+        cinema.cancelReservation(2, "client-2");
+        cinema.cancelReservation(5, "client-1");
+        SeatMapView latest = cinema.getSeatMap();
+
+        assertArrayEquals(new int[]{1, 5}, latest.changedSince(start.version()));
+        assertArrayEquals(new int[]{5}, latest.changedSince(start.version() + 1));
+        assertArrayEquals(new int[0], latest.changedSince(latest.version()));
+        assertNull(latest.changedSince(latest.version() + 1));
+        assertNull(start.changedSince(start.version() - 1));
+    }
+
+    @Test
+    void givenLongHistory_whenAskedForOldChanges_thenWholeMapMustBeRedrawn() {
+        SeatMapView start = cinema.getSeatMap();
+        for (int i = 0; i < SeatMapView.HISTORY + 1; i++) {
+            cinema.reserveSeat(1, "client-1");
+            cinema.cancelReservation(1, "client-1");
+            cinema.reserveSeat(2, "client-1");
+            cinema.getSeatMap();
+            cinema.cancelReservation(2, "client-1");
+            cinema.getSeatMap();
+        }
+        SeatMapView latest = cinema.getSeatMap();
+        assertNull(latest.changedSince(start.version()));
+        assertArrayEquals(new int[]{2}, latest.changedSince(latest.version() - 1));
+    }
+
+    @Test
+    void givenWritersOverrunningTheLog_whenMapTaken_thenItIsRebuiltFromStorage() {
+        Cinema large = new Cinema(10_000);
+        SeatMapView start = large.getSeatMap();
+        for (int seat = 1; seat <= 10_000; seat += 2) {
+            large.reserveSeat(seat, "client-1");
+        }
+        SeatMapView rebuilt = large.getSeatMap();
+        assertEquals(5_000, rebuilt.getAvailableSeatsCount());
+        assertFalse(rebuilt.isAvailable(9_999));
+        assertTrue(rebuilt.isAvailable(10_000));
+        assertNull(rebuilt.changedSince(start.version()));
+
+        large.cancelReservation(1, "client-1");
+        assertArrayEquals(new int[]{1}, large.getSeatMap().changedSince(rebuilt.version()));
+    }
+
+    @Test
+    void givenPopulatedStorage_whenFirstMapTaken_thenExistingReservationsAreIncluded() {
+        ArraySeatStore store = new ArraySeatStore(4);
+        store.reserve(2, "client-1");
+        SeatMapView view = new Cinema(store).getSeatMap();
+        assertEquals(0, view.version());
+        assertFalse(view.isAvailable(2));
+        assertEquals(3, view.getAvailableSeatsCount());
+    }
+
+    @Test
+    void givenConcurrentWritersAndReaders_whenSettled_thenMapMatchesStorage() throws InterruptedException {
+        ArraySeatStore store = new ArraySeatStore(256);
+        Cinema churned = new Cinema(store);
+        AtomicBoolean running = new AtomicBoolean(true);
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            String clientId = "client-" + t;
+            threads.add(Thread.ofPlatform().start(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                for (int op = 0; op < 50_000; op++) {
+                    int seat = random.nextInt(256) + 1;
+                    if (!churned.reserveSeat(seat, clientId)) {
+                        churned.cancelReservation(seat, clientId);
+                    }
+                }
+            }));
+        }
+        List<String> failures = new ArrayList<>();
+        Thread reader = Thread.ofPlatform().start(() -> {
+            long version = -1;
+            while (running.get()) {
+                SeatMapView view = churned.getSeatMap();
+                if (view.version() < version || view.toBitSet().cardinality() != view.getAvailableSeatsCount()) {
+                    failures.add("inconsistent view " + view.version());
+                }
+                version = view.version();
+            }
+        });
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        running.set(false);
+        reader.join();
+
+        assertEquals(List.of(), failures);
+        SeatMapView view = churned.getSeatMap();
+        for (int seat = 1; seat <= 256; seat++) {
+            assertEquals(store.isAvailable(seat), view.isAvailable(seat));
+        }
+        assertEquals(churned.getAvailableSeatsCount(), view.getAvailableSeatsCount());
+    }
+
+    @Test
+    void givenSeatsChangedInOrder_whenMapsTakenConcurrently_thenLaterChangesImplyEarlierOnes()
+        throws InterruptedException {
+        Cinema hall = new Cinema(1_000);
+        AtomicBoolean running = new AtomicBoolean(true);
+        List<String> failures = Collections.synchronizedList(new ArrayList<>());
+        List<Thread> threads = new ArrayList<>();
+        for (int pair = 0; pair < 2; pair++) {
+            int first = 2 * pair + 1;
+            int second = first + 1;
+            String clientId = "pair-" + pair;
+            threads.add(Thread.ofPlatform().start(() -> {
+                for (int op = 0; op < 5_000; op++) {
+                    hall.reserveSeat(first, clientId);
+                    if (hall.getSeatMap().isAvailable(first)) {
+                        failures.add("map misses the completed reservation of seat " + first);
+                    }
+                    hall.reserveSeat(second, clientId);
+                    hall.cancelReservation(second, clientId);
+                    hall.cancelReservation(first, clientId);
+                }
+            }));
+        }
+        threads.add(Thread.ofPlatform().start(() -> {
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            while (running.get()) {
+                int seat = 5 + random.nextInt(996);
+                if (!hall.reserveSeat(seat, "noise")) {
+                    hall.cancelReservation(seat, "noise");
+                }
+            }
+        }));
+        AtomicInteger rebuilds = new AtomicInteger();
+        for (int r = 0; r < 2; r++) {
+            threads.add(Thread.ofPlatform().start(() -> {
+                SeatMapView previous = hall.getSeatMap();
+                for (int read = 0; running.get(); read++) {
+                    if (read % 64 == 0) {
+                        LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(2));
+                    }
+                    SeatMapView view = hall.getSeatMap();
+                    for (int first = 1; first < 5; first += 2) {
+                        if (!view.isAvailable(first + 1) && view.isAvailable(first)) {
+                            failures.add("seat " + (first + 1) + " taken without seat " + first);
+                        }
+                    }
+                    if (view.version() > previous.version() && view.changedSince(view.version() - 1) == null) {
+                        rebuilds.incrementAndGet();
+                    }
+                    previous = view;
+                }
+            }));
+        }
+        threads.get(0).join();
+        threads.get(1).join();
+        running.set(false);
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertEquals(List.of(), failures.subList(0, Math.min(5, failures.size())));
+        assertTrue(rebuilds.get() > 0, "rebuilds " + rebuilds.get());
+        SeatMapView view = hall.getSeatMap();
+        for (int seat = 1; seat <= 1_000; seat++) {
+            assertEquals(hall.isSeatAvailable(seat), view.isAvailable(seat), "seat " + seat);
+        }
+    }
+
+    @Test
+    void givenTransitionInFlight_whenWritersOverrunTheLog_thenMapIsRebuiltWithoutWaitingForIt() throws Exception {
+        Cinema large = new Cinema(10_000);
+        large.getSeatMap();
+        CountDownLatch inListener = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        large.addListener((transition, seatNumber, clientId, version) -> {
+            if (seatNumber == 10_000) {
+                inListener.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        });
+        Thread slow = Thread.ofPlatform().start(() -> large.reserveSeat(10_000, "slow"));
+        inListener.await();
+        for (int seat = 1; seat < 10_000; seat += 2) {
+            large.reserveSeat(seat, "client-1");
+        }
+
+        SeatMapView rebuilt = CompletableFuture.supplyAsync(large::getSeatMap).get(1, TimeUnit.SECONDS);
+        assertEquals(4_999, rebuilt.getAvailableSeatsCount());
+        assertFalse(rebuilt.isAvailable(10_000));
+        assertFalse(rebuilt.isAvailable(9_999));
+        release.countDown();
+        slow.join();
+    }
+}
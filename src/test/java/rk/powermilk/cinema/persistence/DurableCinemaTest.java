@@ -0,0 +1,309 @@
+package rk.powermilk.cinema.persistence;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+import org.junit.jupiter.api.io.TempDir;
+import rk.powermilk.cinema.model.Cinema;
+import rk.powermilk.cinema.model.HallLayout;
+import rk.powermilk.cinema.model.SeatPreference;
+import rk.powermilk.cinema.model.SeatTransition;
+import rk.powermilk.cinema.store.ArraySeatStore;
+import rk.powermilk.cinema.store.OffHeapSeatStore;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Recovery and crash-recovery tests for the {@link DurableCinema} class.
+ * <p>
+ * A crash is simulated by copying the files of a closed cinema and tearing the copy at an arbitrary byte of the
+ * journal: everything from there on is replaced with zeros or garbage, as if it never reached the disk.
+ */
+@Timeout(value = 20, unit = TimeUnit.SECONDS)
+class DurableCinemaTest {
+    private static final HallLayout LAYOUT = HallLayout.of(4, 10);
+    private static final JournalOptions OPTIONS =
+        new JournalOptions(JournalOptions.MIN_SEGMENT_SIZE, SyncMode.ASYNC, Duration.ofMillis(5), Duration.ZERO);
+
+    @TempDir
+    Path directory;
+
+    private static void assertSameSeats(Cinema expected, Cinema actual) {
+        assertEquals(expected.getReservedSeatsCount(), actual.getReservedSeatsCount());
+        for (int seat = 1; seat <= expected.getSeatsCount(); seat++) {
+            assertEquals(expected.isSeatAvailable(seat), actual.isSeatAvailable(seat), "seat " + seat);
+        }
+    }
+
+    private static void churn(SplittableRandom random, Cinema... cinemas) {
+        for (int i = 0; i < 20_000; i++) {
+            int seat = random.nextInt(LAYOUT.capacity()) + 1;
+            String client = "client-" + random.nextInt(3);
+            for (Cinema cinema : cinemas) {
+                if (!cinema.reserveSeat(seat, client)) {
+                    cinema.cancelReservation(seat, client);
+                }
+            }
+        }
+    }
+
+    private List<Path> files(String suffix) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(path -> path.toString().endsWith(suffix)).sorted().toList();
+        }
+    }
+
+    private Path copyTo(String name) throws IOException {
+        Path copy = Files.createDirectory(directory.resolve(name));
+        for (Path file : files("")) {
+            if (!Files.isRegularFile(file)) {
+                continue;
+            }
+            Files.copy(file, copy.resolve(file.getFileName()));
+        }
+        return copy;
+    }
+
+    @Test
+    void givenReservations_whenReopened_thenStateRecovered() {
+        Cinema expected = new Cinema(LAYOUT);
+        try (DurableCinema durable = DurableCinema.open(directory, LAYOUT, OPTIONS)) {
+            for (Cinema cinema : List.of(expected, durable.cinema())) {
+                cinema.reserveSeat(1, "client-1");
+                cinema.reserveSeat(2, "client-2");
+                cinema.cancelReservation(1, "client-1");
+                cinema.reserveSeats(new int[]{15, 16, 17}, "client-3");
+                cinema.cancelSeats(new int[]{15, 16}, "client-3");
+                cinema.reserveContiguousBlock(4, SeatPreference.CENTER, "client-4");
+            }
+        }
+        try (DurableCinema reopened = DurableCinema.open(directory, LAYOUT, OPTIONS)) {
+            assertSameSeats(expected, reopened.cinema());
+            assertFalse(reopened.cinema().cancelReservation(2, "client-1"));
+            assertTrue(reopened.cinema().cancelReservation(2, "client-2"));
+            assertTrue(reopened.cinema().cancelReservation(17, "client-3"));
+        }
+        try (DurableCinema reopened = DurableCinema.open(directory, LAYOUT, OPTIONS)) {
+            assertTrue(reopened.cinema().isSeatAvailable(2));
+            assertTrue(reopened.cinema().isSeatAvailable(17));
+        }
+    }
+
+    @Test
+    void givenOffHeapStores_whenReopened_thenStateRecoveredIntoThem() {
+        try (DurableCinema durable = DurableCinema.open(directory, LAYOUT, OPTIONS, OffHeapSeatStore::new)) {
+            assertTrue(durable.cinema().reserveSeat(5, "client-1"));
+            assertTrue(durable.cinema().reserveSeats(new int[]{21, 22}, "client-2"));
+        }
+        try (DurableCinema reopened = DurableCinema.open(directory, LAYOUT, OPTIONS, OffHeapSeatStore::new)) {
+            assertEquals(3, reopened.cinema().getReservedSeatsCount());
+            assertFalse(reopened.cinema().reserveSeat(21, "client-1"));
+            assertTrue(reopened.cinema().cancelReservation(5, "client-1"));
+        }
+    }
+
+    @Test
+    void givenSnapshot_whenReopened_thenJournalTailReplayedOnTopOfIt() throws IOException {
+        Cinema expected = new Cinema(LAYOUT);
+        try (DurableCinema durable = DurableCinema.open(directory, LAYOUT, OPTIONS)) {
+            SplittableRandom random = new SplittableRandom(7);
+            for (int i = 0; i < 20_000; i++) {
+                int seat = random.nextInt(LAYOUT.capacity()) + 1;
+                String client = "client-" + random.nextInt(3);
+                for (Cinema cinema : List.of(expected, durable.cinema())) {
+                    if (!cinema.reserveSeat(seat, client)) {
+                        cinema.cancelReservation(seat, client);
+                    }
+                }
+            }
+            assertTrue(files(".journal").size() > 1);
+            long lsn = durable.snapshot();
+            assertEquals(lsn, durable.snapshot());
+            assertEquals(1, files(".journal").size());
+            assertEquals(1, files(".snapshot").size());
+            for (Cinema cinema : List.of(expected, durable.cinema())) {
+                IntStream.rangeClosed(1, 10).forEach(seat -> cinema.cancelReservation(seat, "client-0"));
+                cinema.reserveSeats(new int[]{1, 2}, "client-late");
+            }
+        }
+        try (DurableCinema reopened = DurableCinema.open(directory, LAYOUT, OPTIONS)) {
+            assertSameSeats(expected, reopened.cinema());
+        }
+    }
+
+    @Test
+    void givenSnapshotRenamedIntoPlace_whenCrashedBeforeDirectoryForced_thenReplacedFilesSurvive() throws IOException {
+        Cinema expected = new Cinema(LAYOUT);
+        AtomicBoolean crash = new AtomicBoolean();
+        List<Integer> segmentsAtForce = new ArrayList<>();
+        DurableCinema.DirectorySync sync = forced -> {
+            segmentsAtForce.add(files(".journal").size());
+            if (crash.get()) {
+                throw new IOException("Crashed before the directory was forced");
+            }
+            DurableCinema.DirectorySync.FORCE.force(forced);
+        };
+        List<Path> segments;
+        try (DurableCinema durable = DurableCinema.open(directory, LAYOUT, OPTIONS, ArraySeatStore::new, sync)) {
+            churn(new SplittableRandom(11), expected, durable.cinema());
+            int before = files(".journal").size();
+            assertTrue(before > 1);
+            durable.snapshot();
+            assertEquals(List.of(before), segmentsAtForce);
+            assertEquals(1, files(".journal").size());
+
+            churn(new SplittableRandom(13), expected, durable.cinema());
+            segments = files(".journal");
+            Path replaced = files(".snapshot").getFirst();
+            crash.set(true);
+            assertThrows(UncheckedIOException.class, durable::snapshot);
+            assertEquals(segments, files(".journal"));
+            assertEquals(2, files(".snapshot").size());
+            assertEquals(replaced, files(".snapshot").getFirst());
+        }
+        Path crashed = copyTo("crashed");
+        Files.delete(crashed.resolve(files(".snapshot").getLast().getFileName()));
+        try (DurableCinema recovered = DurableCinema.open(crashed, LAYOUT, OPTIONS)) {
+            assertSameSeats(expected, recovered.cinema());
+        }
+    }
+
+    @Test
+    void givenCrashImage_whenJournalTornAtAnyByte_thenCompleteRecordsRecovered() throws IOException {
+        List<Consumer<Cinema>> operations = new ArrayList<>();
+        SplittableRandom random = new SplittableRandom(11);
+        for (int i = 0; i < 60; i++) {
+            int seat = random.nextInt(LAYOUT.capacity()) + 1;
+            String client = "client-" + random.nextInt(2);
+            operations.add(cinema -> {
+                if (!cinema.reserveSeat(seat, client)) {
+                    cinema.cancelReservation(seat, client);
+                }
+            });
+        }
+        List<Long> ends = new ArrayList<>();
+        try (DurableCinema durable = DurableCinema.open(directory, LAYOUT, OPTIONS)) {
+            for (Consumer<Cinema> operation : operations) {
+                operation.accept(durable.cinema());
+                ends.add(durable.journal().position());
+            }
+        }
+        Path segment = files(".journal").getLast();
+        byte[] written = Files.readAllBytes(segment);
+        int length = Math.toIntExact(ends.getLast());
+        for (int cut = 0; cut < length; cut += 7) {
+            Path image = copyTo("cut-" + cut);
+            byte[] tail = new byte[length - cut];
+            if (cut % 2 == 1) {
+                random.nextBytes(tail);
+                tail[0] = (byte) ~written[cut];
+            }
+            Path torn = image.resolve(segment.getFileName());
+            try (FileChannel channel = FileChannel.open(torn, StandardOpenOption.WRITE)) {
+                channel.write(ByteBuffer.wrap(tail), cut);
+            }
+            Cinema expected = new Cinema(LAYOUT);
+            for (int i = 0; i < operations.size() && ends.get(i) <= cut; i++) {
+                operations.get(i).accept(expected);
+            }
+            try (DurableCinema recovered = DurableCinema.open(image, LAYOUT, OPTIONS)) {
+                assertSameSeats(expected, recovered.cinema());
+            }
+        }
+    }
+
+    @Test
+    void givenConcurrentClientsOnSameSeats_whenReopened_thenLatestStateOfEverySeatRecovered() throws Exception {
+        boolean[] available = new boolean[LAYOUT.capacity() + 1];
+        try (DurableCinema durable = DurableCinema.open(directory, LAYOUT, OPTIONS)) {
+            Cinema cinema = durable.cinema();
+            List<Thread> clients = IntStream.range(0, 8)
+                .mapToObj(t -> Thread.ofPlatform().start(() -> {
+                    SplittableRandom random = new SplittableRandom(t);
+                    for (int i = 0; i < 5_000; i++) {
+                        int seat = random.nextInt(LAYOUT.capacity()) + 1;
+                        if (!cinema.reserveSeat(seat, "client-" + t)) {
+                            cinema.cancelReservation(seat, "client-" + t);
+                        }
+                    }
+                }))
+                .toList();
+            for (Thread client : clients) {
+                client.join();
+            }
+            IntStream.rangeClosed(1, LAYOUT.capacity()).forEach(seat -> available[seat] = cinema.isSeatAvailable(seat));
+        }
+        try (DurableCinema reopened = DurableCinema.open(directory, LAYOUT, OPTIONS)) {
+            for (int seat = 1; seat <= LAYOUT.capacity(); seat++) {
+                assertEquals(available[seat], reopened.cinema().isSeatAvailable(seat), "seat " + seat);
+            }
+        }
+    }
+
+    @Test
+    void givenRecordsOfOneSeatOutOfOrder_whenRecovered_thenLatestVersionWins() {
+        try (Journal journal = Journal.open(directory, OPTIONS)) {
+            journal.append(SeatTransition.CANCELLED, 1, "client-1", 2);
+            journal.append(SeatTransition.RESERVED, 1, "client-1", 1);
+            journal.append(SeatTransition.RESERVED, 2, "client-2", 1);
+        }
+        try (DurableCinema durable = DurableCinema.open(directory, LAYOUT, OPTIONS)) {
+            assertTrue(durable.cinema().isSeatAvailable(1));
+            assertFalse(durable.cinema().isSeatAvailable(2));
+            assertTrue(durable.cinema().reserveSeat(1, "client-3"));
+        }
+        try (DurableCinema durable = DurableCinema.open(directory, LAYOUT, OPTIONS)) {
+            assertFalse(durable.cinema().isSeatAvailable(1));
+            assertTrue(durable.cinema().cancelReservation(1, "client-3"));
+        }
+    }
+
+    @Test
+    void givenStateOfLargerHall_whenOpened_thenThrows() throws IOException {
+        try (DurableCinema durable = DurableCinema.open(directory, LAYOUT, OPTIONS)) {
+            durable.cinema().reserveSeat(40, "client-1");
+        }
+        Path journalOnly = copyTo("journal");
+        assertThrows(IllegalStateException.class, () -> DurableCinema.open(journalOnly, HallLayout.of(2, 10), OPTIONS));
+
+        try (DurableCinema durable = DurableCinema.open(directory, LAYOUT, OPTIONS)) {
+            durable.snapshot();
+        }
+        assertThrows(IllegalStateException.class, () -> DurableCinema.open(directory, HallLayout.of(2, 10), OPTIONS));
+    }
+
+    @Test
+    void givenSnapshotInterval_whenRunning_thenSnapshotsTakenInBackground() throws Exception {
+        JournalOptions options =
+            new JournalOptions(JournalOptions.MIN_SEGMENT_SIZE, SyncMode.GROUP_COMMIT, Duration.ofMillis(5),
+                Duration.ofMillis(20));
+        try (DurableCinema durable = DurableCinema.open(directory, LAYOUT)) {
+            durable.cinema().reserveSeat(1, "client-1");
+        }
+        try (DurableCinema durable = DurableCinema.open(directory, LAYOUT, options)) {
+            durable.cinema().reserveSeat(2, "client-2");
+            while (files(".snapshot").isEmpty()) {
+                Thread.sleep(5);
+            }
+        }
+        try (DurableCinema reopened = DurableCinema.open(directory, LAYOUT, OPTIONS)) {
+            assertEquals(2, reopened.cinema().getReservedSeatsCount());
+        }
+    }
+}
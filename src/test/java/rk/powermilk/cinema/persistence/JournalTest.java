@@ -0,0 +1,177 @@
+package rk.powermilk.cinema.persistence;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+import org.junit.jupiter.api.io.TempDir;
+import rk.powermilk.cinema.model.SeatTransition;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit and crash-recovery tests for the {@link Journal} class.
+ * <p>
+ * Torn writes are simulated by overwriting the tail of a closed segment file, as a crash in the middle of an
+ * append would leave it.
+ */
+@Timeout(value = 10, unit = TimeUnit.SECONDS)
+class JournalTest {
+    private static final JournalOptions ASYNC =
+        new JournalOptions(JournalOptions.MIN_SEGMENT_SIZE, SyncMode.ASYNC, Duration.ofMillis(5), Duration.ZERO);
+
+    @TempDir
+    Path directory;
+
+    private static List<String> replay(Journal journal, long from) {
+        List<String> records = new ArrayList<>();
+        journal.replay(from, (transition, seatNumber, clientId, version) ->
+            records.add(transition + " " + seatNumber + " " + clientId + " " + version));
+        return records;
+    }
+
+    private long segmentCount() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(path -> path.toString().endsWith(".journal")).count();
+        }
+    }
+
+    private void overwrite(long position, byte[] bytes) throws IOException {
+        try (Stream<Path> files = Files.list(directory);
+             FileChannel channel = FileChannel.open(files.filter(path -> path.toString().endsWith(".journal"))
+                 .sorted().toList().getLast(), StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap(bytes), position);
+        }
+    }
+
+    @Test
+    void givenAppendedRecords_whenReplayed_thenReturnedInOrder() {
+        try (Journal journal = Journal.open(directory, ASYNC)) {
+            assertEquals(0, journal.position());
+            long first = journal.append(SeatTransition.RESERVED, 3, "client-1", 1);
+            journal.append(SeatTransition.CANCELLED, 3, "client-1", 2);
+            journal.append(SeatTransition.RESERVED, 7, "klient-ł", 1);
+            assertEquals(List.of("RESERVED 3 client-1 1", "CANCELLED 3 client-1 2", "RESERVED 7 klient-ł 1"),
+                replay(journal, 0));
+            assertEquals(List.of("CANCELLED 3 client-1 2", "RESERVED 7 klient-ł 1"), replay(journal, first));
+        }
+        try (Journal reopened = Journal.open(directory, ASYNC)) {
+            assertEquals(3, replay(reopened, 0).size());
+        }
+    }
+
+    @Test
+    void givenFullSegments_whenAppending_thenJournalRollsAndTruncates() throws IOException {
+        try (Journal journal = Journal.open(directory, ASYNC)) {
+            long middle = 0;
+            for (int i = 0; i < 10_000; i++) {
+                long lsn = journal.append(SeatTransition.RESERVED, i + 1, "client-" + i, 1);
+                if (i == 4_999) {
+                    middle = lsn;
+                }
+            }
+            assertTrue(segmentCount() > 2);
+            assertEquals(10_000, replay(journal, 0).size());
+            assertTrue(journal.truncate(middle) > 0);
+            List<String> tail = replay(journal, middle);
+            assertEquals(5_000, tail.size());
+            assertEquals("RESERVED 5001 client-5000 1", tail.getFirst());
+        }
+        try (Journal reopened = Journal.open(directory, ASYNC)) {
+            reopened.append(SeatTransition.CANCELLED, 1, "client-0", 2);
+            assertEquals("CANCELLED 1 client-0 2", replay(reopened, 0).getLast());
+        }
+    }
+
+    @Test
+    void givenTornLastRecord_whenReopened_thenRecordDiscardedAndAppendingResumes() throws IOException {
+        long second;
+        try (Journal journal = Journal.open(directory, ASYNC)) {
+            journal.append(SeatTransition.RESERVED, 1, "client-1", 1);
+            second = journal.append(SeatTransition.RESERVED, 2, "client-2", 1);
+            journal.append(SeatTransition.RESERVED, 3, "client-3", 1);
+        }
+        overwrite(second + 12, new byte[]{0x7f, 0x7f});
+
+        try (Journal reopened = Journal.open(directory, ASYNC)) {
+            assertEquals(second, reopened.position());
+            assertEquals(List.of("RESERVED 1 client-1 1", "RESERVED 2 client-2 1"), replay(reopened, 0));
+            reopened.append(SeatTransition.RESERVED, 4, "client-4", 1);
+        }
+        try (Journal reopened = Journal.open(directory, ASYNC)) {
+            assertEquals(List.of("RESERVED 1 client-1 1", "RESERVED 2 client-2 1", "RESERVED 4 client-4 1"),
+                replay(reopened, 0));
+        }
+    }
+
+    @Test
+    void givenGarbageAfterLastRecord_whenReopened_thenReadingStopsThere() throws IOException {
+        long end;
+        try (Journal journal = Journal.open(directory, ASYNC)) {
+            end = journal.append(SeatTransition.RESERVED, 1, "client-1", 1);
+        }
+        overwrite(end, ByteBuffer.allocate(12).putInt(Integer.MAX_VALUE).putInt(42).putInt(-1).array());
+        try (Journal reopened = Journal.open(directory, ASYNC)) {
+            assertEquals(end, reopened.position());
+            assertEquals(1, replay(reopened, 0).size());
+        }
+
+        overwrite(end, ByteBuffer.allocate(4).putInt(40).array());
+        try (Journal reopened = Journal.open(directory, ASYNC)) {
+            assertEquals(end, reopened.position());
+        }
+    }
+
+    @Test
+    void givenConcurrentWriters_whenGroupCommitting_thenEveryTransitionReturnsDurable() {
+        JournalOptions options =
+            new JournalOptions(JournalOptions.MIN_SEGMENT_SIZE, SyncMode.GROUP_COMMIT, Duration.ofSeconds(1),
+                Duration.ZERO);
+        try (Journal journal = Journal.open(directory, options)) {
+            List<Thread> writers = IntStream.range(0, 8)
+                .mapToObj(t -> Thread.ofPlatform().start(() -> {
+                    for (int i = 0; i < 500; i++) {
+                        journal.onTransition(SeatTransition.RESERVED, t * 500 + i + 1, "client-" + t, 1);
+                    }
+                }))
+                .toList();
+            for (Thread writer : writers) {
+                assertDoesNotThrow(() -> writer.join());
+            }
+            assertEquals(4_000, replay(journal, 0).size());
+        }
+    }
+
+    @Test
+    void givenClosedJournal_whenAppending_thenThrows() {
+        Journal journal = Journal.open(directory, ASYNC);
+        assertThrows(IllegalArgumentException.class,
+            () -> journal.append(SeatTransition.RESERVED, 1, "x".repeat(70_000), 1));
+        journal.close();
+        journal.close();
+        assertThrows(IllegalStateException.class, () -> journal.append(SeatTransition.RESERVED, 1, "client-1", 1));
+    }
+
+    @Test
+    void givenInvalidOptions_whenCreated_thenThrows() {
+        Duration tick = Duration.ofMillis(1);
+        assertThrows(IllegalArgumentException.class,
+            () -> new JournalOptions(1024, SyncMode.ASYNC, tick, Duration.ZERO));
+        assertThrows(IllegalArgumentException.class,
+            () -> new JournalOptions(JournalOptions.MIN_SEGMENT_SIZE, SyncMode.ASYNC, Duration.ZERO, Duration.ZERO));
+        assertThrows(IllegalArgumentException.class,
+            () -> new JournalOptions(JournalOptions.MIN_SEGMENT_SIZE, SyncMode.ASYNC, tick, tick.negated()));
+        assertEquals(SyncMode.GROUP_COMMIT, JournalOptions.defaults().syncMode());
+    }
+}
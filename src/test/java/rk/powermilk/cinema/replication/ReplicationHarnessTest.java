@@ -0,0 +1,55 @@
+package rk.powermilk.cinema.replication;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the {@link ReplicationHarness}.
+ */
+@Timeout(value = 30, unit = TimeUnit.SECONDS)
+class ReplicationHarnessTest {
+
+    @Test
+    void givenOverrides_whenParsed_thenDefaultsAreReplaced() {
+        ReplicationHarness.Settings settings = ReplicationHarness.Settings.parse(
+            "followers=2", "seats=500", "writers=3", "readers=0", "seconds=0.5", "logCapacity=64");
+
+        assertEquals(new ReplicationHarness.Settings(2, 500, 3, 0, Duration.ofMillis(500), 64), settings);
+        assertEquals(ReplicationHarness.Settings.defaults(), ReplicationHarness.Settings.parse());
+    }
+
+    @Test
+    void givenInvalidOverrides_whenParsed_thenRejected() {
+        assertThrows(IllegalArgumentException.class, () -> ReplicationHarness.Settings.parse("followers"));
+        assertThrows(IllegalArgumentException.class, () -> ReplicationHarness.Settings.parse("leaders=1"));
+        assertThrows(IllegalArgumentException.class, () -> ReplicationHarness.Settings.parse("seats=x"));
+        assertThrows(IllegalArgumentException.class, () -> ReplicationHarness.Settings.parse("seats=1"));
+        assertThrows(IllegalArgumentException.class, () -> ReplicationHarness.Settings.parse("followers=0"));
+        assertThrows(IllegalArgumentException.class, () -> ReplicationHarness.Settings.parse("seconds=0"));
+    }
+
+    @Test
+    void givenShortRun_whenHarnessRuns_thenReplicasConvergeAndMeasurementsAreTaken() {
+        ReplicationHarness.Report report = ReplicationHarness.run(
+            ReplicationHarness.Settings.parse("followers=2", "seats=1000", "writers=2", "readers=1", "seconds=0.3"));
+
+        assertTrue(report.converged());
+        assertTrue(report.writes() > 0);
+        assertTrue(report.reads() > 0);
+        assertTrue(report.readThroughput() > 0);
+        assertTrue(report.visibility().count() > 0);
+        assertEquals(2 * report.visibility().count(), report.lag().count());
+        assertTrue(report.snapshots() >= 2);
+        report.log();
+    }
+
+    @Test
+    void givenArguments_whenMainRuns_thenItCompletes() {
+        assertDoesNotThrow(() -> ReplicationHarness.main(new String[]{"followers=1", "seats=100", "seconds=0.2"}));
+    }
+}
@@ -0,0 +1,34 @@
+package rk.powermilk.cinema.replication;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the {@link ReplicationLog}.
+ */
+class ReplicationLogTest {
+
+    @Test
+    void givenAppendedStates_whenRead_thenPendingReadyAndOverwrittenReported() {
+        ReplicationLog log = new ReplicationLog(2);
+        ReplicationLog.Entry entry = new ReplicationLog.Entry();
+        assertEquals(ReplicationLog.Status.PENDING, log.read(0, entry));
+
+        log.append(7, "alice", 1);
+        log.append(8, null, 2);
+        assertEquals(2, log.next());
+        assertEquals(ReplicationLog.Status.READY, log.read(0, entry));
+        assertEquals(7, entry.seatNumber);
+        assertEquals("alice", entry.clientId);
+        assertEquals(1, entry.version);
+        assertEquals(ReplicationLog.Status.PENDING, log.read(2, entry));
+
+        log.append(9, "bob", 3);
+        assertEquals(ReplicationLog.Status.OVERWRITTEN, log.read(0, entry));
+        assertEquals(ReplicationLog.Status.READY, log.read(1, entry));
+        assertNull(entry.clientId);
+        assertEquals(ReplicationLog.Status.READY, log.read(2, entry));
+        assertEquals(9, entry.seatNumber);
+    }
+}
@@ -0,0 +1,159 @@
+package rk.powermilk.cinema.replication;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+import rk.powermilk.cinema.model.Cinema;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the {@link ReplicationPrimary} and the {@link ReplicationFollower}s connected to it.
+ */
+@Timeout(value = 30, unit = TimeUnit.SECONDS)
+class ReplicationPrimaryTest {
+    private static final int SEATS = 200;
+    private static final Duration WAIT = Duration.ofSeconds(10);
+
+    private final InetSocketAddress loopback = new InetSocketAddress(InetAddress.getLoopbackAddress(), 0);
+    private final List<AutoCloseable> resources = new ArrayList<>();
+    private Cinema cinema;
+
+    @BeforeEach
+    void setUp() {
+        cinema = new Cinema(SEATS);
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        for (AutoCloseable resource : resources.reversed()) {
+            resource.close();
+        }
+    }
+
+    @Test
+    void givenFollowers_whenPrimaryChanges_thenReplicasConverge() {
+        ReplicationPrimary primary = start(ReplicationPrimary.DEFAULT_LOG_CAPACITY);
+        ReplicationFollower first = follow(primary, new Cinema(SEATS));
+        ReplicationFollower second = follow(primary, new Cinema(SEATS));
+
+        cinema.reserveSeat(1, "alice");
+        cinema.reserveSeats(new int[]{5, 6, 7}, "bob");
+        cinema.cancelReservation(6, "bob");
+        cinema.reserveSeat(6, "carol");
+
+        assertEquals(6, primary.sequence());
+        assertConverged(primary, first);
+        assertConverged(primary, second);
+        assertArrayEquals(new int[]{5, 7}, first.replica().getSeatsFor("bob"));
+        assertEquals(2, primary.getFollowerCount());
+        awaitAcknowledged(primary);
+    }
+
+    @Test
+    void givenReservedSeats_whenFollowerJoinsLate_thenItStartsFromCopy() {
+        ReplicationPrimary primary = start(ReplicationPrimary.DEFAULT_LOG_CAPACITY);
+        for (int seat = 1; seat <= SEATS; seat += 3) {
+            cinema.reserveSeat(seat, "client-" + seat % 7);
+        }
+        cinema.cancelReservation(1, "client-1");
+
+        ReplicationFollower follower = follow(primary, new Cinema(SEATS));
+        cinema.reserveSeat(2, "late");
+
+        assertConverged(primary, follower);
+        assertEquals(1, primary.snapshotsSent());
+        assertTrue(follower.replica().isSeatAvailable(1));
+        assertArrayEquals(new int[]{2}, follower.replica().getSeatsFor("late"));
+    }
+
+    @Test
+    void givenTinyLog_whenWritersOutrunIt_thenFollowersCatchUpFromCopies() throws InterruptedException {
+        ReplicationPrimary primary = start(2);
+        ReplicationFollower follower = follow(primary, new Cinema(SEATS));
+        List<Thread> writers = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            String clientId = "writer-" + i;
+            writers.add(Thread.ofPlatform().start(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                for (int n = 0; n < 20_000; n++) {
+                    int seat = 1 + random.nextInt(SEATS);
+                    if (!cinema.reserveSeat(seat, clientId)) {
+                        cinema.cancelReservation(seat, clientId);
+                    }
+                }
+            }));
+        }
+        for (Thread writer : writers) {
+            writer.join();
+        }
+
+        assertConverged(primary, follower);
+        assertTrue(follower.isConnected());
+    }
+
+    @Test
+    void givenAppliedSequence_whenFollowerReconnects_thenItResumesWithoutCopy() {
+        ReplicationPrimary primary = start(ReplicationPrimary.DEFAULT_LOG_CAPACITY);
+        Cinema replica = new Cinema(SEATS);
+        ReplicationFollower first = ReplicationFollower.connect(replica, primary.address());
+        cinema.reserveSeat(3, "alice");
+        assertConverged(primary, first);
+        first.close();
+        assertFalse(first.isConnected());
+
+        cinema.reserveSeat(4, "bob");
+        cinema.cancelReservation(3, "alice");
+        ReplicationFollower second = ReplicationFollower.connect(replica, primary.address(), first.appliedSequence());
+        resources.add(second);
+
+        assertConverged(primary, second);
+        assertEquals(1, primary.snapshotsSent());
+        assertArrayEquals(new int[]{4}, replica.getSeatsFor("bob"));
+    }
+
+    @Test
+    void givenInvalidLogCapacity_whenStarting_thenRejected() {
+        assertThrows(IllegalArgumentException.class, () -> ReplicationPrimary.start(cinema, loopback, 3));
+        assertThrows(IllegalArgumentException.class, () -> ReplicationPrimary.start(cinema, loopback, 1));
+    }
+
+    private ReplicationPrimary start(int logCapacity) {
+        ReplicationPrimary primary = ReplicationPrimary.start(cinema, loopback, logCapacity);
+        resources.add(primary);
+        return primary;
+    }
+
+    private ReplicationFollower follow(ReplicationPrimary primary, Cinema replica) {
+        ReplicationFollower follower = ReplicationFollower.connect(replica, primary.address());
+        resources.add(follower);
+        return follower;
+    }
+
+    private static void awaitAcknowledged(ReplicationPrimary primary) {
+        long deadline = System.nanoTime() + WAIT.toNanos();
+        while (primary.maxFollowerLag() > 0) {
+            assertTrue(System.nanoTime() - deadline < 0, "Followers did not acknowledge in time");
+            Thread.onSpinWait();
+        }
+    }
+
+    private void assertConverged(ReplicationPrimary primary, ReplicationFollower follower) {
+        assertTrue(follower.awaitSequence(primary.sequence() - 1, WAIT));
+        Cinema replica = follower.replica();
+        for (int seat = 1; seat <= SEATS; seat++) {
+            assertEquals(cinema.isSeatAvailable(seat), replica.isSeatAvailable(seat), "seat " + seat);
+        }
+        assertEquals(cinema.getReservedSeatsCount(), replica.getReservedSeatsCount());
+        assertEquals(cinema.getAvailableSeatsCount(), replica.getAvailableSeatsCount());
+    }
+}
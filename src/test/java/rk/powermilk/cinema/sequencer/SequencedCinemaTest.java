@@ -0,0 +1,107 @@
+package rk.powermilk.cinema.sequencer;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+import rk.powermilk.cinema.model.HallLayout;
+import rk.powermilk.cinema.model.ReservationOutcome;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the {@link SequencedCinema} class and its {@link CommandQueue}.
+ */
+@Timeout(value = 20, unit = TimeUnit.SECONDS)
+class SequencedCinemaTest {
+
+    @Test
+    void givenCommands_whenApplied_thenOutcomesMatchCinemaRules() {
+        try (SequencedCinema cinema = new SequencedCinema(HallLayout.of(2, 5))) {
+            assertEquals(ReservationOutcome.OK, cinema.reserve(1, "client-1").join());
+            assertEquals(ReservationOutcome.TAKEN, cinema.reserve(1, "client-2").join());
+            assertEquals(ReservationOutcome.NOT_OWNER, cinema.cancel(1, "client-2").join());
+            assertEquals(ReservationOutcome.NOT_OWNER, cinema.cancel(2, "client-1").join());
+            assertEquals(ReservationOutcome.OK, cinema.reserve(10, "client-2").join());
+            assertEquals(2, cinema.getReservedSeatsCount());
+            assertEquals(ReservationOutcome.OK, cinema.cancel(1, "client-1").join());
+            assertEquals(ReservationOutcome.INVALID, cinema.reserve(0, "client-1").join());
+            assertEquals(ReservationOutcome.INVALID, cinema.cancel(11, "client-1").join());
+            assertEquals(1, cinema.getReservedSeatsCount());
+            assertEquals(10, cinema.getLayout().capacity());
+            assertThrows(NullPointerException.class, () -> cinema.reserve(1, null));
+        }
+    }
+
+    @Test
+    void givenManyClientsOnHotSeats_whenSequenced_thenCountMatchesOutcomes() throws InterruptedException {
+        AtomicLong balance = new AtomicLong();
+        SequencedCinema cinema = new SequencedCinema(HallLayout.singleRow(16), 64, 8);
+        List<Thread> clients = IntStream.range(0, 8)
+            .mapToObj(t -> Thread.ofPlatform().start(() -> {
+                SplittableRandom random = new SplittableRandom(t);
+                List<CompletableFuture<ReservationOutcome>> window = new ArrayList<>();
+                List<Boolean> reserving = new ArrayList<>();
+                for (int i = 0; i < 20_000; i++) {
+                    int seat = random.nextInt(16) + 1;
+                    boolean reserve = random.nextBoolean();
+                    window.add(reserve ? cinema.reserve(seat, "client-" + t) : cinema.cancel(seat, "client-" + t));
+                    reserving.add(reserve);
+                    if (window.size() == 32 || i == 19_999) {
+                        for (int j = 0; j < window.size(); j++) {
+                            if (window.get(j).join() == ReservationOutcome.OK) {
+                                balance.addAndGet(reserving.get(j) ? 1 : -1);
+                            }
+                        }
+                        window.clear();
+                        reserving.clear();
+                    }
+                }
+            }))
+            .toList();
+        for (Thread client : clients) {
+            client.join();
+        }
+        cinema.close();
+        assertEquals(balance.get(), cinema.getReservedSeatsCount());
+    }
+
+    @Test
+    void givenClosedCinema_whenSubmitting_thenFailsButQueuedCommandsWereApplied() {
+        SequencedCinema cinema = new SequencedCinema(HallLayout.singleRow(4), 2, 1);
+        List<CompletableFuture<ReservationOutcome>> futures = IntStream.rangeClosed(1, 4)
+            .mapToObj(seat -> cinema.reserve(seat, "client-1"))
+            .toList();
+        cinema.close();
+        futures.forEach(future -> assertEquals(ReservationOutcome.OK, future.getNow(null)));
+        assertEquals(4, cinema.getReservedSeatsCount());
+        CompletionException exception = assertThrows(CompletionException.class,
+            () -> cinema.cancel(1, "client-1").join());
+        assertInstanceOf(IllegalStateException.class, exception.getCause());
+    }
+
+    @Test
+    void givenFailingDependent_whenCompleted_thenWriterKeepsRunning() {
+        try (SequencedCinema cinema = new SequencedCinema(HallLayout.singleRow(4))) {
+            cinema.reserve(1, "client-1").thenAccept(outcome -> {
+                throw new IllegalStateException("dependent failed");
+            });
+            assertEquals(ReservationOutcome.OK, cinema.reserve(2, "client-1").join());
+        }
+    }
+
+    @Test
+    void givenInvalidSettings_whenCreated_thenThrows() {
+        HallLayout layout = HallLayout.singleRow(4);
+        assertThrows(IllegalArgumentException.class, () -> new SequencedCinema(layout, 3, 1));
+        assertThrows(IllegalArgumentException.class, () -> new SequencedCinema(layout, 0, 1));
+        assertThrows(IllegalArgumentException.class, () -> new SequencedCinema(layout, 4, 0));
+    }
+}
@@ -0,0 +1,250 @@
+package rk.powermilk.cinema.store;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Consumer;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the {@link ArraySeatStore} class.
+ */
+class ArraySeatStoreTest {
+    private final ArraySeatStore store = new ArraySeatStore(5);
+
+    @Test
+    void givenStore_whenCheckingRange_thenOnlySeatsOneToCapacityExist() {
+        assertEquals(5, store.capacity());
+        assertFalse(store.contains(0));
+        assertTrue(store.contains(1));
+        assertTrue(store.contains(5));
+        assertFalse(store.contains(6));
+        assertFalse(store.contains(Integer.MIN_VALUE));
+    }
+
+    @Test
+    void givenFreeSeat_whenReserved_thenHolderIsClient() {
+        assertEquals(1, store.reserve(3, "client-1"));
+        assertFalse(store.isAvailable(3));
+        assertEquals("client-1", store.holder(3));
+        assertNull(store.holder(2));
+    }
+
+    @Test
+    void givenReservedSeat_whenAnotherClientReserves_thenFails() {
+        store.reserve(1, "client-1");
+        assertEquals(SeatStore.FAILED, store.reserve(1, "client-2"));
+        assertEquals(SeatStore.FAILED, store.reserve(1, "client-1"));
+    }
+
+    @Test
+    void givenReservedSeat_whenCancelledByNonOwner_thenFails() {
+        store.reserve(1, "client-1");
+        assertEquals(SeatStore.FAILED, store.cancel(1, "client-2"));
+        assertEquals(SeatStore.FAILED, store.cancel(1, "never-seen"));
+        assertEquals(2, store.cancel(1, "client-1"));
+        assertTrue(store.isAvailable(1));
+    }
+
+    @Test
+    void givenManyClients_whenReserving_thenEachKeepsOwnIdentity() {
+        ArraySeatStore large = new ArraySeatStore(40);
+        IntStream.rangeClosed(1, 40).forEach(i -> assertEquals(1, large.reserve(i, "client-" + i)));
+        IntStream.rangeClosed(1, 40).forEach(i -> assertEquals("client-" + i, large.holder(i)));
+        assertEquals(40, large.countReserved());
+    }
+
+    @Test
+    void givenNullClient_whenReserving_thenThrows() {
+        assertThrows(NullPointerException.class, () -> store.reserve(1, null));
+        assertThrows(NullPointerException.class, () -> store.cancel(1, null));
+    }
+
+    @Test
+    void givenFreeSeats_whenReservedAsGroup_thenAllHeldByClient() {
+        assertArrayEquals(new long[]{1, 1, 1}, store.reserveAll(new int[]{1, 2, 3}, "client-1"));
+        assertEquals("client-1", store.holder(2));
+        assertNull(store.reserveAll(new int[]{3, 4}, "client-2"));
+        assertTrue(store.isAvailable(4));
+        assertNull(store.cancelAll(new int[]{1, 2}, "client-2"));
+        assertNull(store.cancelAll(new int[]{1, 2}, "never-seen"));
+        assertNull(store.cancelAll(new int[]{2, 3, 4}, "client-1"));
+        assertEquals(3, store.countReserved());
+        assertArrayEquals(new long[]{2, 2, 2}, store.cancelAll(new int[]{1, 2, 3}, "client-1"));
+        assertEquals(0, store.countReserved());
+    }
+
+    @Test
+    void givenTransitions_whenRestoringRecordedStates_thenOnlyNewerVersionsApply() {
+        store.reserve(1, "client-1");
+        store.cancel(1, "client-1");
+        assertEquals(2, store.version(1));
+        assertFalse(store.restore(1, "client-2", 1));
+        assertFalse(store.restore(1, "client-2", 2));
+        assertTrue(store.isAvailable(1));
+        assertTrue(store.restore(1, "client-2", 5));
+        assertEquals("client-2", store.holder(1));
+        assertEquals(5, store.version(1));
+        assertTrue(store.restore(1, null, 6));
+        assertTrue(store.isAvailable(1));
+        assertEquals(7, store.reserve(1, "client-3"));
+    }
+
+    @Test
+    void givenSeats_whenVisited_thenEverySeatReportedWithHolderAndVersion() {
+        ArraySeatStore visited = new ArraySeatStore(3);
+        visited.reserve(2, "client-1");
+        visited.reserve(3, "client-2");
+        visited.cancel(3, "client-2");
+        List<String> seats = new ArrayList<>();
+        visited.forEach((seatNumber, clientId, version) -> seats.add(seatNumber + ":" + clientId + ":" + version));
+        assertEquals(List.of("1:null:0", "2:client-1:1", "3:null:2"), seats);
+        seats.clear();
+        visited.forEach(2, 3, (seatNumber, clientId, version) -> seats.add(seatNumber + ":" + clientId));
+        visited.forEach(3, 2, (seatNumber, clientId, version) -> seats.add("empty range"));
+        assertEquals(List.of("2:client-1", "3:null"), seats);
+    }
+
+    @Test
+    void givenClientsReleasingTheirSeats_whenIdle_thenHandlesAreReclaimedAndReused() {
+        store.reserve(1, "client-1");
+        store.reserveAll(new int[]{2, 3}, "client-2");
+        store.restore(4, "client-3", 1);
+        assertEquals(3, store.clientCount());
+        store.cancel(1, "client-1");
+        store.cancelAll(new int[]{2, 3}, "client-2");
+        store.restore(4, null, 2);
+        assertEquals(0, store.clientCount());
+        assertEquals(SeatStore.FAILED, store.cancel(1, "client-1"));
+
+        store.reserve(5, "client-4");
+        assertEquals(SeatStore.FAILED, store.reserve(5, "client-5"));
+        assertNull(store.reserveAll(new int[]{4, 5}, "client-6"));
+        assertFalse(store.restore(5, "client-7", 1));
+        assertEquals(1, store.clientCount());
+        assertEquals("client-4", store.holder(5));
+    }
+
+    @Test
+    void givenReservedSeat_whenHandedOver_thenNewHolderAndHandlesFollow() {
+        store.reserve(1, "client-1");
+        assertEquals(SeatStore.FAILED, store.handOver(1, "client-2", "client-3"));
+        assertEquals(SeatStore.FAILED, store.handOver(2, "client-1", "client-3"));
+        assertEquals(1, store.clientCount());
+
+        assertEquals(3, store.handOver(1, "client-1", "client-2"));
+        assertEquals("client-2", store.holder(1));
+        assertEquals(1, store.clientCount());
+        assertEquals(SeatStore.FAILED, store.cancel(1, "client-1"));
+        assertEquals(4, store.cancel(1, "client-2"));
+        assertEquals(0, store.clientCount());
+    }
+
+    @Test
+    void givenHandleReusedWhileResolvingHolder_whenRead_thenWordIsReadAgain() {
+        StallingStore stalling = new StallingStore(1, store -> {
+            store.cancel(1, "client-1");
+            store.reserve(2, "client-2");
+        });
+        stalling.reserve(1, "client-1");
+        stalling.stalled = true;
+        assertNull(stalling.holder(1));
+        assertEquals("client-2", stalling.holder(2));
+
+        stalling.reserve(1, "client-1");
+        stalling.cancel(2, "client-2");
+        stalling.stalled = true;
+        List<String> holders = new ArrayList<>();
+        stalling.forEach(1, 2, (seatNumber, clientId, version) -> holders.add(clientId));
+        assertEquals(Arrays.asList(null, "client-2"), holders);
+    }
+
+    @Test
+    void givenGroupClaimInFlight_whenHolderRead_thenSeatsShowTheirStateBeforeTheClaim() {
+        List<String> holders = new ArrayList<>();
+        StallingStore stalling = new StallingStore(3, store -> {
+            holders.add(store.holder(1));
+            holders.add(store.holder(2));
+            store.forEach(1, 2, (seatNumber, clientId, version) -> holders.add(clientId));
+        });
+        stalling.reserve(2, "client-1");
+        stalling.stalled = true;
+        assertNotNull(stalling.reserveAll(new int[]{1, 3}, "client-2"));
+        assertEquals(Arrays.asList(null, "client-1", null, "client-1"), holders);
+
+        holders.clear();
+        stalling.stalled = true;
+        assertNotNull(stalling.cancelAll(new int[]{1, 3}, "client-2"));
+        assertEquals(Arrays.asList("client-2", "client-1", "client-2", "client-1"), holders);
+        assertNull(stalling.holder(1));
+    }
+
+    @Test
+    void givenConcurrentChurn_whenSettled_thenOnlyHoldersKeepHandles() throws InterruptedException {
+        ArraySeatStore churned = new ArraySeatStore(32);
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            threads.add(Thread.ofPlatform().start(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                for (int op = 0; op < 20_000; op++) {
+                    int seat = random.nextInt(32) + 1;
+                    String clientId = "client-" + random.nextInt(64);
+                    if (churned.reserve(seat, clientId) == SeatStore.FAILED) {
+                        churned.cancel(seat, clientId);
+                    }
+                }
+            }));
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        Set<String> holders = new HashSet<>();
+        String[] seats = new String[33];
+        churned.forEach((seatNumber, clientId, version) -> {
+            seats[seatNumber] = clientId;
+            if (clientId != null) {
+                holders.add(clientId);
+            }
+        });
+        assertEquals(holders.size(), churned.clientCount());
+        for (int seat = 1; seat <= 32; seat++) {
+            if (seats[seat] != null) {
+                assertNotEquals(SeatStore.FAILED, churned.cancel(seat, seats[seat]));
+            }
+        }
+        assertEquals(0, churned.clientCount());
+    }
+
+    /**
+     * Store that runs a hook once, the next time a given seat is read after {@link #stalled} is set, after
+     * reading the word but before returning it.
+     */
+    private static final class StallingStore extends ArraySeatStore {
+        private final int index;
+        private final Consumer<ArraySeatStore> hook;
+        private boolean stalled;
+
+        StallingStore(int seatNumber, Consumer<ArraySeatStore> hook) {
+            super(5);
+            this.index = seatNumber - 1;
+            this.hook = hook;
+        }
+
+        @Override
+        long getWord(int index) {
+            long word = super.getWord(index);
+            if (index == this.index && stalled) {
+                stalled = false;
+                hook.accept(this);
+            }
+            return word;
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package rk.powermilk.cinema.store;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the {@link ClientRegistry} class.
+ */
+class ClientRegistryTest {
+    private final ClientRegistry registry = new ClientRegistry();
+
+    @Test
+    void givenPinnedClient_whenLookedUp_thenSameHandleAndId() {
+        long handle = registry.pin("client-1");
+        assertEquals(1, handle);
+        assertEquals(handle, registry.pin("client-1"));
+        assertEquals(handle, registry.pinExisting("client-1"));
+        assertEquals(ClientRegistry.NONE, registry.pinExisting("client-2"));
+        assertEquals("client-1", registry.clientId(handle));
+        assertNull(registry.clientId(ClientRegistry.NONE));
+        assertNull(registry.clientId(1_000));
+    }
+
+    @Test
+    void givenLastReferenceReleased_whenNewClientPinned_thenHandleIsReused() {
+        long first = registry.pin("client-1");
+        long second = registry.pin("client-2");
+        registry.retain(first, 2);
+        registry.release(first, 2);
+        assertEquals("client-1", registry.clientId(first));
+        registry.release(first, 1);
+        assertNull(registry.clientId(first));
+        assertEquals(ClientRegistry.NONE, registry.pinExisting("client-1"));
+        assertEquals(1, registry.size());
+
+        assertEquals(first, registry.pin("client-3"));
+        assertEquals("client-3", registry.clientId(first));
+        assertEquals("client-2", registry.clientId(second));
+    }
+
+    @Test
+    void givenManyClients_whenAllReleased_thenTablesGrowAndEveryHandleIsFreed() {
+        for (int i = 0; i < 100; i++) {
+            assertEquals(i + 1, registry.pin("client-" + i));
+        }
+        for (int i = 0; i < 100; i++) {
+            registry.release(i + 1, 1);
+        }
+        assertEquals(0, registry.size());
+        assertTrue(registry.pin("client-new") <= 100);
+    }
+}
@@ -0,0 +1,89 @@
+package rk.powermilk.cinema.store;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the {@link MapSeatStore} class.
+ */
+class MapSeatStoreTest {
+    private final MapSeatStore store = new MapSeatStore(5);
+
+    @Test
+    void givenStore_whenCheckingRange_thenOnlySeatsOneToCapacityExist() {
+        assertEquals(5, store.capacity());
+        assertFalse(store.contains(0));
+        assertTrue(store.contains(5));
+        assertFalse(store.contains(6));
+    }
+
+    @Test
+    void givenFreeSeat_whenReservedAndCancelled_thenStateFollows() {
+        assertEquals(1, store.reserve(2, "client-1"));
+        assertFalse(store.isAvailable(2));
+        assertEquals("client-1", store.holder(2));
+        assertEquals(1, store.countReserved());
+        assertEquals(SeatStore.FAILED, store.cancel(2, "client-2"));
+        assertEquals(2, store.cancel(2, "client-1"));
+        assertTrue(store.isAvailable(2));
+        assertNull(store.holder(2));
+        assertEquals(0, store.countReserved());
+    }
+
+    @Test
+    void givenReservedSeat_whenHandedOver_thenNewHolderFollows() {
+        store.reserve(2, "client-1");
+        assertEquals(SeatStore.FAILED, store.handOver(2, "client-2", "client-3"));
+        assertEquals(SeatStore.FAILED, store.handOver(3, "client-1", "client-3"));
+        assertEquals(3, store.handOver(2, "client-1", "client-2"));
+        assertEquals("client-2", store.holder(2));
+        assertEquals(1, store.countReserved());
+    }
+
+    @Test
+    void givenFreeSeats_whenReservedAsGroup_thenAllHeldByClient() {
+        assertArrayEquals(new long[]{1, 1, 1}, store.reserveAll(new int[]{1, 2, 3}, "client-1"));
+        assertEquals("client-1", store.holder(3));
+        assertNull(store.reserveAll(new int[]{3, 4}, "client-2"));
+        assertTrue(store.isAvailable(4));
+        assertNull(store.cancelAll(new int[]{2, 3, 4}, "client-1"));
+        assertEquals(3, store.countReserved());
+        assertArrayEquals(new long[]{2, 2, 2}, store.cancelAll(new int[]{1, 2, 3}, "client-1"));
+        assertEquals(0, store.countReserved());
+    }
+
+    @Test
+    void givenTransitions_whenRestoringRecordedStates_thenOnlyNewerVersionsApply() {
+        store.reserve(1, "client-1");
+        store.cancel(1, "client-1");
+        assertEquals(2, store.version(1));
+        assertFalse(store.restore(1, "client-2", 1));
+        assertFalse(store.restore(1, "client-2", 2));
+        assertTrue(store.isAvailable(1));
+        assertTrue(store.restore(1, "client-2", 5));
+        assertEquals("client-2", store.holder(1));
+        assertEquals(5, store.version(1));
+        assertTrue(store.restore(1, null, 6));
+        assertTrue(store.isAvailable(1));
+        assertEquals(7, store.reserve(1, "client-3"));
+    }
+
+    @Test
+    void givenSeats_whenVisited_thenEverySeatReportedWithHolderAndVersion() {
+        MapSeatStore visited = new MapSeatStore(3);
+        visited.reserve(2, "client-1");
+        visited.reserve(3, "client-2");
+        visited.cancel(3, "client-2");
+        List<String> seats = new ArrayList<>();
+        visited.forEach((seatNumber, clientId, version) -> seats.add(seatNumber + ":" + clientId + ":" + version));
+        assertEquals(List.of("1:null:0", "2:client-1:1", "3:null:2"), seats);
+        seats.clear();
+        visited.forEach(2, 3, (seatNumber, clientId, version) -> seats.add(seatNumber + ":" + clientId));
+        visited.forEach(3, 2, (seatNumber, clientId, version) -> seats.add("empty range"));
+        assertEquals(List.of("2:client-1", "3:null"), seats);
+    }
+}
@@ -0,0 +1,125 @@
+package rk.powermilk.cinema.store;
+
+import org.junit.jupiter.api.Test;
+import rk.powermilk.cinema.model.Cinema;
+import rk.powermilk.cinema.model.HallLayout;
+import rk.powermilk.cinema.model.SeatBlock;
+import rk.powermilk.cinema.model.SeatPreference;
+
+import java.lang.foreign.Arena;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the {@link OffHeapSeatStore} class.
+ */
+class OffHeapSeatStoreTest {
+    private static final int CHUNK = OffHeapSeatStore.CHUNK_SEATS;
+
+    @Test
+    void givenLargeHall_whenCreated_thenNoMemoryAllocatedUntilSeatsChange() {
+        OffHeapSeatStore store = new OffHeapSeatStore(10_000_000);
+        assertEquals(10_000_000, store.capacity());
+        assertTrue(store.isAvailable(9_999_999));
+        assertEquals(0, store.version(1));
+        assertNull(store.holder(5_000_000));
+        assertEquals(0, store.countReserved());
+        assertEquals(0, store.allocatedChunks());
+        assertTrue(store.isPristine());
+
+        assertEquals(1, store.reserve(10_000_000, "client-1"));
+        assertEquals(1, store.allocatedChunks());
+        assertFalse(store.isPristine());
+        assertEquals("client-1", store.holder(10_000_000));
+        assertEquals(SeatStore.FAILED, store.reserve(10_000_000, "client-2"));
+        assertEquals(2, store.cancel(10_000_000, "client-1"));
+        assertEquals(1, store.allocatedChunks());
+    }
+
+    @Test
+    void givenGroupAcrossChunks_whenReservedAndCancelled_thenAllOrNothing() {
+        OffHeapSeatStore store = new OffHeapSeatStore(3 * CHUNK);
+        int[] group = {CHUNK - 1, CHUNK, CHUNK + 1, 2 * CHUNK + 1};
+        assertArrayEquals(new long[]{1, 1, 1, 1}, store.reserveAll(group, "client-1"));
+        assertNull(store.reserveAll(new int[]{1, CHUNK + 1}, "client-2"));
+        assertTrue(store.isAvailable(1));
+        assertNull(store.cancelAll(group, "client-2"));
+        assertArrayEquals(new long[]{2, 2, 2, 2}, store.cancelAll(group, "client-1"));
+        assertEquals(0, store.countReserved());
+        assertEquals(3, store.allocatedChunks());
+        assertEquals(0, store.clientCount());
+    }
+
+    @Test
+    void givenRecordedStates_whenRestoredAndVisited_thenUntouchedChunksReportFreeSeats() {
+        OffHeapSeatStore store = new OffHeapSeatStore(CHUNK + 2);
+        assertTrue(store.restore(CHUNK + 2, "client-1", 3));
+        assertFalse(store.restore(CHUNK + 2, null, 2));
+        List<String> held = new ArrayList<>();
+        store.forEach((seatNumber, clientId, version) -> {
+            if (version != 0) {
+                held.add(seatNumber + ":" + clientId + ":" + version);
+            }
+        });
+        assertEquals(List.of((CHUNK + 2) + ":client-1:3"), held);
+        assertEquals(1, store.allocatedChunks());
+    }
+
+    @Test
+    void givenSharedArena_whenClosed_thenStoresAreFreedTogether() {
+        OffHeapSeatStore first;
+        try (Arena season = Arena.ofShared()) {
+            first = new OffHeapSeatStore(100, season);
+            OffHeapSeatStore second = new OffHeapSeatStore(100, season);
+            assertEquals(1, first.reserve(1, "client-1"));
+            assertEquals(1, second.reserve(100, "client-2"));
+        }
+        assertThrows(IllegalStateException.class, () -> first.isAvailable(1));
+        assertThrows(IllegalArgumentException.class, () -> new OffHeapSeatStore(-1));
+    }
+
+    @Test
+    void givenCinemaOnOffHeapStore_whenChurnedConcurrently_thenCountsMatchScan() throws InterruptedException {
+        OffHeapSeatStore store = new OffHeapSeatStore(2 * CHUNK);
+        Cinema cinema = new Cinema(HallLayout.of(2, CHUNK), store);
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            threads.add(Thread.ofPlatform().start(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                for (int op = 0; op < 20_000; op++) {
+                    int seat = CHUNK - 16 + random.nextInt(32);
+                    String clientId = "client-" + random.nextInt(16);
+                    if (!cinema.reserveSeat(seat, clientId)) {
+                        cinema.cancelReservation(seat, clientId);
+                    }
+                }
+            }));
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertEquals(store.countReserved(), cinema.getReservedSeatsCount());
+        assertEquals(2, store.allocatedChunks());
+    }
+
+    @Test
+    void givenPristineStore_whenCinemaCreated_thenNothingIsAllocatedOrScanned() {
+        HallLayout layout = HallLayout.of(1_000, 10_000);
+        OffHeapSeatStore store = new OffHeapSeatStore(layout.capacity());
+        Cinema cinema = new Cinema(layout, store);
+        assertEquals(0, store.allocatedChunks());
+        assertEquals(10_000_000, cinema.getAvailableSeatsCount());
+        assertEquals(new SeatBlock(500, 4_994_999, 4),
+            cinema.reserveContiguousBlock(4, SeatPreference.CENTER, "client-1").orElseThrow());
+        assertEquals(1, store.allocatedChunks());
+
+        Cinema reopened = new Cinema(layout, store);
+        assertEquals(4, reopened.getReservedSeatsCount());
+        assertTrue(reopened.cancelReservation(4_994_999, "client-1"));
+        assertEquals(3, reopened.getReservedSeatsCount());
+        assertFalse(reopened.isSeatAvailable(4_995_000));
+    }
+}
@@ -0,0 +1,73 @@
+package rk.powermilk.cinema.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the {@link LatencyHistogram} class.
+ */
+class LatencyHistogramTest {
+
+    @Test
+    void givenNoValues_whenQueried_thenEverythingIsZero() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        assertEquals(0, histogram.count());
+        assertEquals(0, histogram.max());
+        assertEquals(0, histogram.mean());
+        assertEquals(0, histogram.percentile(99));
+    }
+
+    @Test
+    void givenSmallValues_whenQueried_thenPercentilesAreExact() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        IntStream.rangeClosed(1, 100).forEach(histogram::record);
+        assertEquals(100, histogram.count());
+        assertEquals(50.5, histogram.mean());
+        assertEquals(1, histogram.percentile(0));
+        assertEquals(50, histogram.percentile(50));
+        assertEquals(99, histogram.percentile(99));
+        assertEquals(100, histogram.percentile(100));
+    }
+
+    @Test
+    void givenLargeValues_whenQueried_thenPercentilesWithinRelativeError() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (long value : List.of(1_000L, 123_456L, 98_765_432L, Long.MAX_VALUE / 3)) {
+            histogram.record(value);
+        }
+        assertEquals(Long.MAX_VALUE / 3, histogram.max());
+        for (int i = 1; i <= 3; i++) {
+            long expected = List.of(1_000L, 123_456L, 98_765_432L).get(i - 1);
+            long actual = histogram.percentile(i * 25);
+            assertTrue(actual >= expected && actual <= expected + expected / 64, i + ": " + actual);
+        }
+        assertEquals(Long.MAX_VALUE / 3, histogram.percentile(100));
+        histogram.record(Long.MAX_VALUE);
+        assertEquals(Long.MAX_VALUE, histogram.percentile(100));
+    }
+
+    @Test
+    void givenConcurrentRecorders_whenDone_thenNoValueLost() throws InterruptedException {
+        LatencyHistogram histogram = new LatencyHistogram();
+        List<Thread> threads = IntStream.range(0, 4)
+            .mapToObj(t -> Thread.ofPlatform().start(() -> IntStream.range(0, 10_000).forEach(histogram::record)))
+            .toList();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertEquals(40_000, histogram.count());
+        assertEquals(9_999, histogram.max());
+    }
+
+    @Test
+    void givenInvalidArguments_whenCalled_thenThrows() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        assertThrows(IllegalArgumentException.class, () -> histogram.record(-1));
+        assertThrows(IllegalArgumentException.class, () -> histogram.percentile(100.5));
+        assertThrows(IllegalArgumentException.class, () -> histogram.percentile(Double.NaN));
+    }
+}
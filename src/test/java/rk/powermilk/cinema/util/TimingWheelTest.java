@@ -0,0 +1,95 @@
+package rk.powermilk.cinema.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the {@link TimingWheel} class.
+ */
+class TimingWheelTest {
+    private final List<Long> expired = new ArrayList<>();
+    private final TimingWheel<Long> wheel = new TimingWheel<>(10, 1_000);
+
+    @Test
+    void givenTimeout_whenAdvancingBeforeDeadline_thenNothingExpires() {
+        wheel.schedule(1_100L, 1_100);
+        assertEquals(0, wheel.advance(1_099, expired::add));
+        assertEquals(1, wheel.size());
+        assertEquals(1, wheel.advance(1_100, expired::add));
+        assertEquals(List.of(1_100L), expired);
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    void givenDeadlineInsideTick_whenAdvancing_thenExpiresAtNextTickBoundary() {
+        wheel.schedule(1_005L, 1_005);
+        assertEquals(0, wheel.advance(1_009, expired::add));
+        assertEquals(1, wheel.advance(1_010, expired::add));
+    }
+
+    @Test
+    void givenPastDeadline_whenAdvancingOneTick_thenExpires() {
+        wheel.schedule(0L, 0);
+        assertEquals(0, wheel.advance(1_000, expired::add));
+        assertEquals(1, wheel.advance(1_010, expired::add));
+    }
+
+    @Test
+    void givenDeadlinesOnEveryLevel_whenAdvancingTickByTick_thenEachExpiresOnTime() {
+        SplittableRandom random = new SplittableRandom(7);
+        List<Long> deadlines = new ArrayList<>(List.of(1_010L, 1_640L, 1_650L, 41_960L, 41_970L, 2_622_440L));
+        IntStream.range(0, 500).forEach(i -> deadlines.add(1_000L + 10 * random.nextLong(1, 300_000)));
+        deadlines.forEach(deadline -> wheel.schedule(deadline, deadline));
+
+        for (long now = 1_000; now <= 3_001_000; now += 10) {
+            long time = now;
+            wheel.advance(now, deadline -> {
+                assertEquals(time, (long) deadline, "expired at the wrong time");
+                expired.add(deadline);
+            });
+        }
+        assertEquals(deadlines.size(), expired.size());
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    void givenDeadlineBeyondWheelRange_whenAdvancing_thenExpiresOnTime() {
+        long deadline = 1_000 + 10L * (1L << 24) + 10 * 5;
+        wheel.schedule(deadline, deadline);
+        assertEquals(0, wheel.advance(deadline - 10, expired::add));
+        assertEquals(1, wheel.advance(deadline, expired::add));
+    }
+
+    @Test
+    void givenLargeClockJump_whenAdvancing_thenEverythingDueExpires() {
+        wheel.schedule(1L, 5_000);
+        wheel.schedule(2L, 50_000);
+        assertEquals(2, wheel.advance(60_000, expired::add));
+        assertEquals(List.of(1L, 2L), expired);
+    }
+
+    @Test
+    void givenCancelledTimeout_whenAdvancing_thenItDoesNotExpire() {
+        TimingWheel.Timeout<Long> first = wheel.schedule(1L, 2_000);
+        TimingWheel.Timeout<Long> second = wheel.schedule(2L, 2_000);
+        TimingWheel.Timeout<Long> third = wheel.schedule(3L, 2_000);
+        assertEquals(2L, second.item());
+        assertTrue(wheel.cancel(second));
+        assertFalse(wheel.cancel(second));
+        assertTrue(wheel.cancel(third));
+        assertEquals(1, wheel.advance(2_000, expired::add));
+        assertEquals(List.of(1L), expired);
+        assertFalse(wheel.cancel(first));
+    }
+
+    @Test
+    void givenNonPositiveTick_whenCreating_thenThrows() {
+        assertThrows(IllegalArgumentException.class, () -> new TimingWheel<>(0, 0));
+    }
+}
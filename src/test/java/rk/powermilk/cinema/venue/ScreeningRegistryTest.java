@@ -0,0 +1,121 @@
+package rk.powermilk.cinema.venue;
+
+import org.junit.jupiter.api.Test;
+import rk.powermilk.cinema.error.UnknownScreeningException;
+import rk.powermilk.cinema.model.Cinema;
+import rk.powermilk.cinema.model.HallLayout;
+import rk.powermilk.cinema.model.OccupancyReport;
+import rk.powermilk.cinema.store.OffHeapSeatStore;
+
+import java.time.Instant;
+import java.time.InstantSource;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.IntFunction;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the {@link ScreeningRegistry} class.
+ */
+class ScreeningRegistryTest {
+    private final AtomicLong now = new AtomicLong(1_000_000);
+    private final ScreeningRegistry registry = new ScreeningRegistry(() -> Instant.ofEpochMilli(now.get()));
+
+    private static Screening screening(String id, long endsAtMillis) {
+        return new Screening(id, HallLayout.of(2, 5), Instant.ofEpochMilli(endsAtMillis));
+    }
+
+    @Test
+    void givenRegisteredScreening_whenFirstAccessed_thenCinemaIsCreatedOnce() {
+        registry.register(screening("s-1", 2_000_000));
+        registry.register(screening("s-2", 2_000_000));
+        assertEquals(2, registry.getScreeningsCount());
+        assertEquals(0, registry.getLoadedCinemasCount());
+
+        Cinema cinema = registry.cinema("s-1");
+        assertEquals(10, cinema.getSeatsCount());
+        assertSame(cinema, registry.cinema("s-1"));
+        assertEquals(1, registry.getLoadedCinemasCount());
+    }
+
+    @Test
+    void givenDuplicateScreening_whenRegistering_thenThrows() {
+        registry.register(screening("s-1", 2_000_000));
+        assertThrows(IllegalArgumentException.class, () -> registry.register(screening("s-1", 3_000_000)));
+    }
+
+    @Test
+    void givenUnknownScreening_whenAccessed_thenThrows() {
+        UnknownScreeningException exception = assertThrows(UnknownScreeningException.class, () ->
+            registry.cinema("missing"));
+        assertEquals("Screening missing is unknown.", exception.getMessage());
+    }
+
+    @Test
+    void givenFinishedScreenings_whenEvicting_thenOnlyThoseAreRemoved() {
+        registry.register(screening("early", 1_500_000));
+        registry.register(screening("late", 2_500_000));
+        registry.cinema("early").reserveSeat(1, "client-1");
+
+        assertEquals(0, registry.evictFinished());
+        now.set(1_500_000);
+        assertEquals(1, registry.evictFinished());
+        assertThrows(UnknownScreeningException.class, () -> registry.cinema("early"));
+        assertEquals(1, registry.getScreeningsCount());
+        assertNotNull(registry.cinema("late"));
+    }
+
+    @Test
+    void givenDefaultRegistry_whenScreeningEndedInThePast_thenItIsEvicted() {
+        ScreeningRegistry system = new ScreeningRegistry();
+        system.register(new Screening("past", HallLayout.of(1, 1), InstantSource.system().instant().minusSeconds(1)));
+        assertEquals(1, system.evictFinished());
+    }
+
+    @Test
+    void givenPreSoldSeatsOfManyScreenings_whenImported_thenEachCinemaIsFilledAndExported() {
+        for (int i = 0; i < 50; i++) {
+            registry.register(screening("s-" + i, 2_000_000));
+        }
+        registry.register(screening("untouched", 2_000_000));
+        Map<String, IntFunction<String>> presold = new HashMap<>();
+        for (int i = 0; i < 50; i++) {
+            int screening = i;
+            presold.put("s-" + i, seat -> seat <= screening % 10 ? "client-" + screening : null);
+        }
+
+        assertEquals(225, registry.importReservations(presold));
+        assertEquals(7, registry.cinema("s-17").getReservedSeatsCount());
+        Map<String, OccupancyReport> reports = registry.exportOccupancy();
+        assertEquals(50, reports.size());
+        assertEquals("client-17", reports.get("s-17").holder(7));
+        assertEquals(2, reports.get("s-17").getReservedSeatsCountInRow(2));
+
+        UnknownScreeningException exception = assertThrows(UnknownScreeningException.class, () ->
+            registry.importReservations(Map.of("s-1", seat -> "late", "missing", seat -> "late")));
+        assertEquals("Screening missing is unknown.", exception.getMessage());
+        assertEquals(1, registry.cinema("s-1").getReservedSeatsCount());
+    }
+
+    @Test
+    void givenStoreFactory_whenScreeningFirstAccessed_thenCinemaUsesItsStore() {
+        List<OffHeapSeatStore> stores = new CopyOnWriteArrayList<>();
+        ScreeningRegistry offHeap = new ScreeningRegistry(InstantSource.system(), capacity -> {
+            OffHeapSeatStore store = new OffHeapSeatStore(capacity);
+            stores.add(store);
+            return store;
+        });
+        offHeap.register(new Screening("premiere", HallLayout.of(1_000, 10_000), Instant.MAX));
+        assertTrue(stores.isEmpty());
+
+        Cinema cinema = offHeap.cinema("premiere");
+        assertEquals(1, stores.size());
+        assertEquals(0, stores.getFirst().allocatedChunks());
+        assertTrue(cinema.reserveSeat(10_000_000, "client-1"));
+        assertEquals("client-1", stores.getFirst().holder(10_000_000));
+    }
+}
@@ -0,0 +1,94 @@
+package rk.powermilk.cinema.venue;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+import rk.powermilk.cinema.error.IllegalSeatReservedException;
+import rk.powermilk.cinema.error.UnknownScreeningException;
+import rk.powermilk.cinema.model.HallLayout;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit and concurrency tests for the {@link Venue} class.
+ */
+@Timeout(value = 5, unit = TimeUnit.SECONDS)
+class VenueTest {
+    private static final int SCREENINGS = 32;
+
+    private final ScreeningRegistry registry = new ScreeningRegistry();
+    private final Venue venue = new Venue(registry, 4);
+
+    VenueTest() {
+        IntStream.range(0, SCREENINGS).forEach(i ->
+            registry.register(new Screening("screening-" + i, HallLayout.of(10, 10), Instant.MAX)));
+    }
+
+    @AfterEach
+    void tearDown() {
+        venue.close();
+    }
+
+    @Test
+    void givenScreening_whenReservingThroughVenue_thenCinemaIsUpdated() {
+        assertTrue(venue.reserveSeat("screening-1", 5, "client-1").join());
+        assertFalse(venue.reserveSeat("screening-1", 5, "client-2").join());
+        assertFalse(venue.isSeatAvailable("screening-1", 5).join());
+        assertTrue(venue.isSeatAvailable("screening-2", 5).join());
+        assertTrue(venue.cancelReservation("screening-1", 5, "client-1").join());
+        assertEquals(0, venue.submit("screening-1", cinema -> cinema.getReservedSeatsCount()).join());
+        assertSame(registry, venue.getRegistry());
+    }
+
+    @Test
+    void givenScreenings_whenRouting_thenEachScreeningStaysOnOneShard() {
+        IntStream.range(0, SCREENINGS).forEach(i -> {
+            int shard = venue.shardOf("screening-" + i);
+            assertTrue(shard >= 0 && shard < 4);
+            assertEquals(shard, venue.shardOf("screening-" + i));
+        });
+        assertTrue(IntStream.range(0, SCREENINGS).map(i -> venue.shardOf("screening-" + i)).distinct().count() > 1);
+    }
+
+    @Test
+    void givenInvalidRequests_whenSubmitted_thenFuturesFailExceptionally() {
+        CompletionException unknown = assertThrows(CompletionException.class, () ->
+            venue.reserveSeat("missing", 1, "client-1").join());
+        assertInstanceOf(UnknownScreeningException.class, unknown.getCause());
+        CompletionException invalid = assertThrows(CompletionException.class, () ->
+            venue.reserveSeat("screening-1", 101, "client-1").join());
+        assertInstanceOf(IllegalSeatReservedException.class, invalid.getCause());
+    }
+
+    @Test
+    void givenManyClientsAcrossScreenings_whenReservingConcurrently_thenEverySeatIsSoldOnce() {
+        List<CompletableFuture<Boolean>> results = new ArrayList<>();
+        for (int round = 0; round < 3; round++) {
+            for (int i = 0; i < SCREENINGS; i++) {
+                for (int seat = 1; seat <= 100; seat++) {
+                    results.add(venue.reserveSeat("screening-" + i, seat, "client-" + round));
+                }
+            }
+        }
+        long successes = results.stream().filter(CompletableFuture::join).count();
+        assertEquals(SCREENINGS * 100L, successes);
+        IntStream.range(0, SCREENINGS).forEach(i ->
+            assertEquals(100, registry.cinema("screening-" + i).getReservedSeatsCount()));
+    }
+
+    @Test
+    void givenNonPositiveShards_whenCreating_thenThrows() {
+        assertThrows(IllegalArgumentException.class, () -> new Venue(registry, 0));
+        try (Venue defaults = new Venue(registry)) {
+            assertTrue(defaults.reserveSeat("screening-3", 1, "client-1").join());
+        }
+    }
+}